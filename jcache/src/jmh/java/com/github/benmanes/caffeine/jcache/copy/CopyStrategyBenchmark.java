@@ -0,0 +1,147 @@
+/*
+ * Copyright 2015 Ben Manes. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.benmanes.caffeine.jcache.copy;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * A benchmark of the store-by-value copy of a cache entry, comparing the strategy that always uses
+ * Java serialization against the one that clones collections and encodes by a registered codec.
+ *
+ * @author ben.manes@gmail.com (Ben Manes)
+ */
+@State(Scope.Benchmark)
+public class CopyStrategyBenchmark {
+  static final int SIZE = 16;
+
+  @Param({"SerializationAware", "Codec"})
+  StrategyType strategyType;
+
+  @Param({"Array", "List", "Map", "Object"})
+  DataType dataType;
+
+  ClassLoader classLoader;
+  CopyStrategy strategy;
+  Object data;
+
+  @Setup
+  public void setup() {
+    classLoader = Thread.currentThread().getContextClassLoader();
+    strategy = strategyType.create();
+    data = dataType.create();
+  }
+
+  @Benchmark
+  public Object copy() {
+    return strategy.copy(data, classLoader);
+  }
+
+  public enum StrategyType {
+    SerializationAware {
+      @Override CopyStrategy create() {
+        return new SerializationAwareCopyStrategy();
+      }
+    },
+    Codec {
+      @Override CopyStrategy create() {
+        return new CodecCopyStrategy(Collections.singletonMap(Point.class, new PointCodec()));
+      }
+    };
+
+    abstract CopyStrategy create();
+  }
+
+  public enum DataType {
+    Array {
+      @Override Object create() {
+        Date[] dates = new Date[SIZE];
+        for (int i = 0; i < SIZE; i++) {
+          dates[i] = new Date(i);
+        }
+        return dates;
+      }
+    },
+    List {
+      @Override Object create() {
+        List<String> list = new ArrayList<>(SIZE);
+        for (int i = 0; i < SIZE; i++) {
+          list.add(Integer.toString(i));
+        }
+        return list;
+      }
+    },
+    Map {
+      @Override Object create() {
+        Map<Integer, Point> map = new HashMap<>();
+        for (int i = 0; i < SIZE; i++) {
+          map.put(i, new Point(i, -i, Integer.toString(i)));
+        }
+        return map;
+      }
+    },
+    Object {
+      @Override Object create() {
+        return new Point(1, 2, "point");
+      }
+    };
+
+    abstract Object create();
+  }
+
+  static final class Point implements Serializable {
+    private static final long serialVersionUID = 1L;
+
+    final String label;
+    final int x;
+    final int y;
+
+    Point(int x, int y, String label) {
+      this.label = label;
+      this.x = x;
+      this.y = y;
+    }
+  }
+
+  static final class PointCodec implements Codec<Point> {
+
+    @Override
+    public void encode(Point point, DataOutput output) throws IOException {
+      output.writeInt(point.x);
+      output.writeInt(point.y);
+      output.writeUTF(point.label);
+    }
+
+    @Override
+    public Point decode(DataInput input, ClassLoader classLoader) throws IOException {
+      return new Point(input.readInt(), input.readInt(), input.readUTF());
+    }
+  }
+}
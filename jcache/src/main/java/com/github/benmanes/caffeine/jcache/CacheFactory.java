@@ -18,6 +18,8 @@ package com.github.benmanes.caffeine.jcache;
 import static java.util.Objects.requireNonNull;
 
 import java.util.Optional;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
 import java.util.concurrent.TimeUnit;
 
 import javax.annotation.Nullable;
@@ -26,14 +28,17 @@ import javax.cache.configuration.CompleteConfiguration;
 import javax.cache.configuration.Configuration;
 import javax.cache.expiry.ExpiryPolicy;
 import javax.cache.integration.CacheLoader;
+import javax.cache.integration.CacheWriter;
 
 import com.github.benmanes.caffeine.cache.Caffeine;
 import com.github.benmanes.caffeine.cache.Ticker;
 import com.github.benmanes.caffeine.jcache.configuration.CaffeineConfiguration;
 import com.github.benmanes.caffeine.jcache.configuration.TypesafeConfigurator;
 import com.github.benmanes.caffeine.jcache.event.EventDispatcher;
+import com.github.benmanes.caffeine.jcache.integration.DisabledCacheWriter;
 import com.github.benmanes.caffeine.jcache.integration.JCacheLoaderAdapter;
 import com.github.benmanes.caffeine.jcache.integration.JCacheRemovalListener;
+import com.github.benmanes.caffeine.jcache.integration.WriteBehindWriter;
 import com.github.benmanes.caffeine.jcache.management.JCacheStatisticsMXBean;
 import com.typesafe.config.Config;
 
@@ -100,11 +105,13 @@ final class CacheFactory {
     final Ticker ticker;
     final String cacheName;
     final ExpiryPolicy expiry;
+    final Executor executor;
     final EventDispatcher<K, V> dispatcher;
     final JCacheStatisticsMXBean statistics;
     final Caffeine<Object, Object> caffeine;
     final CaffeineConfiguration<K, V> config;
 
+    CacheWriter<K, V> writer;
     CacheLoader<K, V> cacheLoader;
     JCacheRemovalListener<K, V> removalListener;
 
@@ -113,19 +120,24 @@ final class CacheFactory {
       this.cacheName = cacheName;
       this.ticker = Ticker.systemTicker();
       this.caffeine = Caffeine.newBuilder();
-      this.dispatcher = new EventDispatcher<>();
-      this.statistics = new JCacheStatisticsMXBean();
+      this.statistics = new JCacheStatisticsMXBean(config.getLatencyWindow());
       this.expiry = config.getExpiryPolicyFactory().create();
+      this.executor = (config.getExecutorFactory() == null)
+          ? ForkJoinPool.commonPool()
+          : config.getExecutorFactory().create();
+      this.dispatcher = new EventDispatcher<>(executor);
 
       caffeine.name(cacheName::toString);
       if (config.getCacheLoaderFactory() != null) {
         cacheLoader = config.getCacheLoaderFactory().create();
       }
+      writer = config.hasCacheWriter() ? config.getCacheWriter() : DisabledCacheWriter.get();
       config.getCacheEntryListenerConfigurations().forEach(dispatcher::register);
     }
 
     /** Creates a configured cache. */
     public CacheProxy<K, V> build() {
+      configureWriteBehind();
       boolean requiresRemovalListener =
           configureMaximumSize() ||
           configureMaximumWeight() ||
@@ -149,20 +161,38 @@ final class CacheFactory {
 
     /** Creates a cache that does not read through on a cache miss. */
     private CacheProxy<K, V> newCacheProxy() {
-      return new CacheProxy<K, V>(cacheName, cacheManager, config, caffeine.build(),
-          dispatcher, Optional.ofNullable(cacheLoader), expiry, ticker, statistics);
+      return new CacheProxy<K, V>(cacheName, cacheManager, config, caffeine.build(), dispatcher,
+          Optional.ofNullable(cacheLoader), writer, executor, expiry, ticker, statistics);
     }
 
     /** Creates a cache that reads through on a cache miss. */
     private CacheProxy<K, V> newLoadingCacheProxy() {
       JCacheLoaderAdapter<K, V> adapter = new JCacheLoaderAdapter<>(
-          cacheLoader, dispatcher, expiry, ticker, statistics);
+          cacheLoader, dispatcher, expiry);
       CacheProxy<K, V> cache = new LoadingCacheProxy<K, V>(cacheName, cacheManager, config,
-          caffeine.build(adapter), dispatcher, cacheLoader, expiry, ticker, statistics);
+          caffeine.build(adapter), dispatcher, cacheLoader, writer, executor,
+          expiry, ticker, statistics);
       adapter.setCache(cache);
       return cache;
     }
 
+    /**
+     * Configures the writes to be deferred and flushed in batches, if enabled. The loader observes
+     * the pending writes so that an entry evicted before it is flushed is not reloaded stale.
+     */
+    private void configureWriteBehind() {
+      if (!config.isWriteThrough() || !config.isWriteBehind() || !config.hasCacheWriter()) {
+        return;
+      }
+      WriteBehindWriter<K, V> writeBehind = new WriteBehindWriter<>(writer,
+          config.getWriteBehindBatchSize(), config.getWriteBehindFlushDelay(),
+          config.getWriteBehindMaxRetries(), config.getWriteBehindRetryBackoff());
+      if (cacheLoader != null) {
+        cacheLoader = writeBehind.overlay(cacheLoader);
+      }
+      writer = writeBehind;
+    }
+
     /** Configures the maximum size and returns if set. */
     private boolean configureMaximumSize() {
       if (config.getMaximumSize().isPresent()) {
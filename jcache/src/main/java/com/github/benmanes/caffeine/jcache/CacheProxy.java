@@ -17,8 +17,10 @@ package com.github.benmanes.caffeine.jcache;
 
 import static java.util.Objects.requireNonNull;
 
+import java.io.Closeable;
+import java.io.IOException;
 import java.util.ArrayList;
-import java.util.HashMap;
+import java.util.Collection;
 import java.util.HashSet;
 import java.util.Iterator;
 import java.util.List;
@@ -26,10 +28,22 @@ import java.util.Map;
 import java.util.NoSuchElementException;
 import java.util.Objects;
 import java.util.Optional;
+import java.util.Queue;
 import java.util.Set;
-import java.util.concurrent.ForkJoinPool;
-import java.util.function.BiFunction;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.locks.ReentrantLock;
 import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.Predicate;
 import java.util.function.Supplier;
 import java.util.stream.Collectors;
 
@@ -54,7 +68,10 @@ import com.github.benmanes.caffeine.cache.Ticker;
 import com.github.benmanes.caffeine.jcache.configuration.CaffeineConfiguration;
 import com.github.benmanes.caffeine.jcache.copy.CopyStrategy;
 import com.github.benmanes.caffeine.jcache.event.EventDispatcher;
-import com.github.benmanes.caffeine.jcache.integration.DisabledCacheWriter;
+import com.github.benmanes.caffeine.jcache.expiry.CoarseClock;
+import com.github.benmanes.caffeine.jcache.expiry.TimerWheel;
+import com.github.benmanes.caffeine.jcache.expiry.TimerWheel.Timer;
+import com.github.benmanes.caffeine.jcache.integration.WriteReservations;
 import com.github.benmanes.caffeine.jcache.management.JCacheMXBean;
 import com.github.benmanes.caffeine.jcache.management.JCacheStatisticsMXBean;
 import com.github.benmanes.caffeine.jcache.management.JmxRegistration;
@@ -63,61 +80,107 @@ import com.github.benmanes.caffeine.jcache.processor.EntryProcessorEntry;
 
 /**
  * An implementation of JSR-107 {@link Cache} backed by a Caffeine cache.
+ * <p>
+ * An entry that expires is discovered lazily when it is next operated on, and is also reclaimed
+ * eagerly by a timer wheel that holds the expiration time of each entry. The timers are queued by
+ * the writes and are scheduled, along with advancing the wheel, by an expiration cycle that runs
+ * on the executor. A cycle is requested by the writes that add timers and by the reads when the
+ * wheel may have fallen behind, so that the expired entries are removed and their listeners are
+ * notified even if the entries are never accessed again. A timer is descheduled when its entry is
+ * removed, replaced, or evicted, so that the wheel does not retain the keys of discarded entries.
+ * <p>
+ * The wheel is only advanced as a side effect of the cache's operations, so the entries of an idle
+ * cache are not reclaimed until it is next used.
  *
  * @author ben.manes@gmail.com (Ben Manes)
  */
 public class CacheProxy<K, V> implements Cache<K, V> {
+  /** The interval between the expiration cycles when only reads are performed. */
+  static final long EXPIRATION_INTERVAL_MS = 1L << 10;
+
+  /** The minimum number of keys that a parallel invokeAll processes per partition. */
+  static final int MIN_PARTITION_SIZE = 1 << 6;
+
+  /** The expiration time of a write that has not yet consulted the expiry policy. */
+  static final long UNEVALUATED = Long.MIN_VALUE;
+
+  /** The start time and duration of an operation whose duration is not recorded. */
+  static final long UNTIMED = Long.MIN_VALUE;
+
   private final com.github.benmanes.caffeine.cache.Cache<K, Expirable<V>> cache;
   private final CaffeineConfiguration<K, V> configuration;
   private final CopyStrategy copyStrategy;
   private final CacheManager cacheManager;
   private final CacheWriter<K, V> writer;
+  private final WriteReservations<K> reservations;
   private final JCacheMXBean cacheMXBean;
   private final String name;
 
+  private final AtomicBoolean expirationScheduled;
+  private final Queue<Timer<K>> cancelledTimers;
+  private final Queue<Timer<K>> pendingTimers;
+  private final ReentrantLock expirationLock;
+  private final Executor executor;
+
+  final TimerWheel<K> timerWheel;
+
   protected final Optional<CacheLoader<K, V>> cacheLoader;
   protected final JCacheStatisticsMXBean statistics;
   protected final EventDispatcher<K, V> dispatcher;
   protected final ExpiryPolicy expiry;
+  protected final @Nullable CoarseClock coarseClock;
   protected final Ticker ticker;
 
+  private volatile long lastExpirationMS;
   private volatile boolean closed;
 
   public CacheProxy(String name, CacheManager cacheManager,
       CaffeineConfiguration<K, V> configuration,
       com.github.benmanes.caffeine.cache.Cache<K, Expirable<V>> cache,
       EventDispatcher<K, V> dispatcher, Optional<CacheLoader<K, V>> cacheLoader,
-      ExpiryPolicy expiry, Ticker ticker, JCacheStatisticsMXBean statistics) {
+      CacheWriter<K, V> writer, Executor executor, ExpiryPolicy expiry, Ticker ticker,
+      JCacheStatisticsMXBean statistics) {
     this.configuration = requireNonNull(configuration);
     this.cacheManager = requireNonNull(cacheManager);
     this.cacheLoader = requireNonNull(cacheLoader);
     this.dispatcher = requireNonNull(dispatcher);
+    this.executor = requireNonNull(executor);
     this.statistics = requireNonNull(statistics);
     this.expiry = requireNonNull(expiry);
+    this.writer = requireNonNull(writer);
     this.ticker = requireNonNull(ticker);
     this.cache = requireNonNull(cache);
+    this.coarseClock = configuration.isCoarseClock() ? CoarseClock.acquire(ticker) : null;
     this.name = requireNonNull(name);
 
     copyStrategy = configuration.isStoreByValue()
         ? configuration.getCopyStrategyFactory().create()
         : CopyStrategy.identity();
-    writer = configuration.hasCacheWriter()
-        ? configuration.getCacheWriter()
-        : DisabledCacheWriter.get();
+    reservations = new WriteReservations<>();
     cacheMXBean = new JCacheMXBean(this);
+
+    lastExpirationMS = currentTimeMillis();
+    timerWheel = new TimerWheel<>(lastExpirationMS);
+    expirationScheduled = new AtomicBoolean();
+    cancelledTimers = new ConcurrentLinkedQueue<>();
+    pendingTimers = new ConcurrentLinkedQueue<>();
+    expirationLock = new ReentrantLock();
   }
 
   @Override
   public boolean containsKey(K key) {
     requireNotClosed();
+    long now = currentTimeMillis();
+    requestExpirationCycle(now);
     Expirable<V> expirable = cache.getIfPresent(key);
     if (expirable == null) {
       return false;
     }
-    if (expirable.hasExpired(currentTimeMillis())) {
+    if (expirable.hasExpired(now)) {
       if (cache.asMap().remove(key, expirable)) {
+        descheduleExpiration(expirable);
         dispatcher.publishExpired(this, key, expirable.get());
-        dispatcher.awaitSynchronous();
+        awaitSynchronous();
         statistics.recordEvictions(1);
       }
       return false;
@@ -129,38 +192,41 @@ public class CacheProxy<K, V> implements Cache<K, V> {
   public V get(K key) {
     Expirable<V> expirable = doSafely(() -> cache.getIfPresent(key));
 
-    long now = ticker.read();
+    long start = startTime();
     if (expirable == null) {
       statistics.recordMisses(1L);
       return null;
-    } else if (expirable.hasExpired(ticker.read())) {
+    }
+    long millis = currentTimeMillis();
+    if (expirable.hasExpired(millis)) {
       if (cache.asMap().remove(key, expirable)) {
+        descheduleExpiration(expirable);
         dispatcher.publishExpired(this, key, expirable.get());
-        dispatcher.awaitSynchronous();
+        awaitSynchronous();
         statistics.recordEvictions(1);
       }
       statistics.recordMisses(1L);
       return null;
     }
-    long expireTimeMS = expireTimeMS(expiry::getExpiryForAccess);
-    expirable.setExpireTimeMS(expireTimeMS);
+    setAccessExpirationTime(key, expirable, millis);
+    requestExpirationCycle(millis);
     V value = copyValue(expirable);
     if (value == null) {
       statistics.recordMisses(1L);
     } else {
       statistics.recordHits(1L);
     }
-    statistics.recordGetTime(ticker.read() - now);
+    statistics.recordGetTime(elapsedTime(start));
     return value;
   }
 
   @Override
   public Map<K, V> getAll(Set<? extends K> keys) {
-    long start = ticker.read();
+    long start = startTime();
     Map<K, V> result = doSafely(() -> copyMap(cache.getAllPresent(keys)));
     statistics.recordMisses(keys.size() - result.size());
     statistics.recordHits(result.size());
-    statistics.recordGetTime(ticker.read() - start);
+    statistics.recordGetTime(elapsedTime(start));
     return result;
   }
 
@@ -177,64 +243,27 @@ public class CacheProxy<K, V> implements Cache<K, V> {
       listener.onCompletion();
       return;
     }
-    ForkJoinPool.commonPool().execute(() -> {
-      try {
-        if (replaceExistingValues) {
-          loadAllAndReplaceExisting(keys);
-        } else {
-          loadAllAndKeepExisting(keys);
-        }
-        listener.onCompletion();
-      } catch (CacheLoaderException e) {
-        listener.onException(e);
-      } catch (Exception e) {
-        listener.onException(new CacheLoaderException(e));
-      } finally {
-        dispatcher.ignoreSynchronous();
-      }
-    });
-  }
-
-  /** Performs the bulk load where the existing entries are replace. */
-  private void loadAllAndReplaceExisting(Set<? extends K> keys) {
-    int[] ignored = { 0 };
-    Map<K, V> loaded = cacheLoader.get().loadAll(keys);
-    for (Map.Entry<? extends K, ? extends V> entry : loaded.entrySet()) {
-      putNoCopyOrAwait(entry.getKey(), entry.getValue(), false, ignored);
-    }
-  }
-
-  /** Performs the bulk load where the existing entries are retained. */
-  private void loadAllAndKeepExisting(Set<? extends K> keys) {
-    List<K> keysToLoad = keys.stream()
-        .filter(key -> !cache.asMap().containsKey(key))
-        .collect(Collectors.<K>toList());
-    Map<K, V> result = cacheLoader.get().loadAll(keysToLoad);
-    for (Map.Entry<K, V> entry : result.entrySet()) {
-      if ((entry.getKey() != null) && (entry.getValue() != null)) {
-        putIfAbsentNoAwait(entry.getKey(), entry.getValue(), false);
-      }
-    }
+    new BulkLoad(keys, replaceExistingValues, listener).start();
   }
 
   @Override
   public void put(K key, V value) {
     requireNotClosed();
     int[] puts = { 0 };
-    long start = ticker.read();
+    long start = startTime();
     putNoCopyOrAwait(key, value, true, puts);
-    dispatcher.awaitSynchronous();
+    awaitSynchronous();
     statistics.recordPuts(puts[0]);
-    statistics.recordPutTime(ticker.read() - start);
+    statistics.recordPutTime(elapsedTime(start));
   }
 
   @Override
   public V getAndPut(K key, V value) {
     requireNotClosed();
     int[] puts = { 0 };
-    long start = ticker.read();
+    long start = startTime();
     V val = putNoCopyOrAwait(key, value, true, puts);
-    dispatcher.awaitSynchronous();
+    awaitSynchronous();
     statistics.recordPuts(puts[0]);
 
     if (val == null) {
@@ -243,7 +272,7 @@ public class CacheProxy<K, V> implements Cache<K, V> {
       statistics.recordHits(1L);
     }
     V copy = copyOf(val);
-    long duration = ticker.read() - start;
+    long duration = elapsedTime(start);
     statistics.recordGetTime(duration);
     statistics.recordPutTime(duration);
     return copy;
@@ -262,14 +291,19 @@ public class CacheProxy<K, V> implements Cache<K, V> {
     requireNonNull(key);
     requireNonNull(value);
 
+    if (publishToWriter) {
+      return writeThrough(key, current -> {
+        publishToCacheWriter(writer::write, () -> new EntryProxy<K, V>(key, value));
+        return true;
+      }, decision -> putNoCopyOrAwait(key, value, false, puts));
+    }
+
     @SuppressWarnings("unchecked")
     V[] replaced = (V[]) new Object[1];
     cache.asMap().compute(copyOf(key), (k, expirable) -> {
       V newValue = copyOf(value);
-      if (publishToWriter) {
-        publishToCacheWriter(writer::write, () -> new EntryProxy<K, V>(key, value));
-      }
-      if ((expirable != null) && expirable.hasExpired(ticker.read())) {
+      if ((expirable != null) && expirable.hasExpired(currentTimeMillis())) {
+        descheduleExpiration(expirable);
         dispatcher.publishExpired(this, key, expirable.get());
         statistics.recordEvictions(1L);
         expirable = null;
@@ -280,6 +314,7 @@ public class CacheProxy<K, V> implements Cache<K, V> {
           : expiry::getExpiryForUpdate);
       if (expireTimeMS == 0) {
         replaced[0] = created ? null : expirable.get();
+        descheduleExpiration(expirable);
         return null;
       } else if (created) {
         dispatcher.publishCreated(this, key, newValue);
@@ -288,7 +323,7 @@ public class CacheProxy<K, V> implements Cache<K, V> {
         dispatcher.publishUpdated(this, key, expirable.get(), newValue);
       }
       puts[0]++;
-      return new Expirable<>(newValue, expireTimeMS);
+      return newExpirable(k, newValue, expireTimeMS, expirable);
     });
     return replaced[0];
   }
@@ -296,19 +331,22 @@ public class CacheProxy<K, V> implements Cache<K, V> {
   @Override
   public void putAll(Map<? extends K, ? extends V> map) {
     requireNotClosed();
-    long start = ticker.read();
+    long start = startTime();
     for (Map.Entry<? extends K, ? extends V> entry : map.entrySet()) {
       requireNonNull(entry.getKey());
       requireNonNull(entry.getValue());
     }
     int[] puts = { 0 };
-    CacheWriterException e = writeAllToCacheWriter(map);
-    for (Map.Entry<? extends K, ? extends V> entry : map.entrySet()) {
-      putNoCopyOrAwait(entry.getKey(), entry.getValue(), false, puts);
-    }
+    CacheWriterException e = writeAllThrough(map.keySet(), () -> {
+      CacheWriterException error = writeAllToCacheWriter(map);
+      for (Map.Entry<? extends K, ? extends V> entry : map.entrySet()) {
+        putNoCopyOrAwait(entry.getKey(), entry.getValue(), false, puts);
+      }
+      return error;
+    });
     statistics.recordPuts(puts[0]);
-    dispatcher.awaitSynchronous();
-    statistics.recordPutTime(ticker.read() - start);
+    awaitSynchronous();
+    statistics.recordPutTime(elapsedTime(start));
     if (e != null) {
       throw e;
     }
@@ -319,13 +357,13 @@ public class CacheProxy<K, V> implements Cache<K, V> {
     requireNotClosed();
     requireNonNull(value);
 
-    long start = ticker.read();
+    long start = startTime();
     boolean added = putIfAbsentNoAwait(key, value, true);
-    dispatcher.awaitSynchronous();
+    awaitSynchronous();
     if (added) {
       statistics.recordPuts(1L);
     }
-    statistics.recordPutTime(ticker.read() - start);
+    statistics.recordPutTime(elapsedTime(start));
     return added;
   }
 
@@ -339,28 +377,67 @@ public class CacheProxy<K, V> implements Cache<K, V> {
    * @return if the mapping was successful
    */
   private boolean putIfAbsentNoAwait(K key, V value, boolean publishToWriter) {
+    long[] creationTimeMS = { UNEVALUATED };
+    if (publishToWriter) {
+      return writeThrough(key, current -> {
+        creationTimeMS[0] = UNEVALUATED;
+        if (current != null) {
+          return false;
+        }
+        creationTimeMS[0] = expireTimeMS(expiry::getExpiryForCreation);
+        if (creationTimeMS[0] == 0) {
+          return false;
+        }
+        publishToCacheWriter(writer::write, () -> new EntryProxy<K, V>(key, value));
+        return true;
+      }, decision -> putIfAbsentNoAwait(key, value, creationTimeMS[0], decision));
+    }
+    return putIfAbsentNoAwait(key, value, UNEVALUATED, WriteDecision.unvalidated());
+  }
+
+  /**
+   * Associates the specified value with the specified key in the cache if there is no existing
+   * mapping, without notifying the writer.
+   *
+   * @param key key with which the specified value is to be associated
+   * @param value value to be associated with the specified key
+   * @param creationTimeMS the expiration time if already evaluated by the caller, or
+   *        {@link #UNEVALUATED} if the expiry policy should be consulted
+   * @param decision the writer's decision, which replaces a concurrently loaded value if the
+   *        writer was told of the new one
+   * @return if the mapping was successful
+   */
+  private boolean putIfAbsentNoAwait(K key, V value,
+      long creationTimeMS, WriteDecision<V> decision) {
     boolean[] absent = { false };
     cache.asMap().compute(copyOf(key), (k, expirable) -> {
-      if ((expirable != null) && expirable.hasExpired(ticker.read())) {
+      if (decision.isStale(expirable)) {
+        return expirable;
+      }
+      if ((expirable != null) && expirable.hasExpired(currentTimeMillis())) {
+        descheduleExpiration(expirable);
         dispatcher.publishExpired(this, key, expirable.get());
         statistics.recordEvictions(1L);
         expirable = null;
       }
-      if (expirable != null) {
+      if ((expirable != null) && !decision.isWritten()) {
         return expirable;
       }
 
       absent[0] = true;
-      long expireTimeMS = expireTimeMS(expiry::getExpiryForCreation);
+      long expireTimeMS = (creationTimeMS == UNEVALUATED)
+          ? expireTimeMS(expiry::getExpiryForCreation)
+          : creationTimeMS;
       if (expireTimeMS == 0) {
         return null;
       }
-      if (publishToWriter) {
-        publishToCacheWriter(writer::write, () -> new EntryProxy<K, V>(key, value));
-      }
       V copy = copyOf(value);
-      dispatcher.publishCreated(this, key, copy);
-      return new Expirable<>(copy, expireTimeMS);
+      if (expirable == null) {
+        dispatcher.publishCreated(this, key, copy);
+      } else {
+        dispatcher.publishUpdated(this, key, expirable.get(), copy);
+      }
+      return newExpirable(k, copy, expireTimeMS, expirable);
     });
     return absent[0];
   }
@@ -370,11 +447,13 @@ public class CacheProxy<K, V> implements Cache<K, V> {
     requireNotClosed();
     requireNonNull(key);
 
-    long start = ticker.read();
-    publishToCacheWriter(writer::delete, () -> key);
-    V value = removeNoCopyOrAwait(key);
-    dispatcher.awaitSynchronous();
-    statistics.recordRemoveTime(ticker.read() - start);
+    long start = startTime();
+    V value = writeThrough(key, current -> {
+      publishToCacheWriter(writer::delete, () -> key);
+      return true;
+    }, decision -> removeNoCopyOrAwait(key));
+    awaitSynchronous();
+    statistics.recordRemoveTime(elapsedTime(start));
     if (value != null) {
       statistics.recordRemovals(1L);
       return true;
@@ -393,12 +472,14 @@ public class CacheProxy<K, V> implements Cache<K, V> {
     @SuppressWarnings("unchecked")
     V[] removed = (V[]) new Object[1];
     cache.asMap().computeIfPresent(key, (k, expirable) -> {
-      if (expirable.hasExpired(ticker.read())) {
+      if (expirable.hasExpired(currentTimeMillis())) {
+        descheduleExpiration(expirable);
         dispatcher.publishExpired(this, key, expirable.get());
         statistics.recordEvictions(1L);
         return null;
       }
 
+      descheduleExpiration(expirable);
       dispatcher.publishRemoved(this, key, expirable.get());
       removed[0] = expirable.get();
       return null;
@@ -412,31 +493,44 @@ public class CacheProxy<K, V> implements Cache<K, V> {
     requireNonNull(key);
     requireNonNull(oldValue);
 
-    long start = ticker.read();
+    long start = startTime();
     boolean[] removed = { false };
-    cache.asMap().computeIfPresent(key, (k, expirable) -> {
-      if (expirable.hasExpired(ticker.read())) {
-        dispatcher.publishExpired(this, key, expirable.get());
-        statistics.recordEvictions(1L);
-        return null;
+    writeThrough(key, current -> {
+      if (!oldValue.equals(current)) {
+        return false;
       }
-      if (oldValue.equals(expirable.get())) {
-        publishToCacheWriter(writer::delete, () -> key);
-        dispatcher.publishRemoved(this, key, expirable.get());
-        removed[0] = true;
-        return null;
-      }
-      setExpirationTime(expirable, currentTimeMillis(), expiry::getExpiryForAccess);
-      return expirable;
+      publishToCacheWriter(writer::delete, () -> key);
+      return true;
+    }, decision -> {
+      removed[0] = decision.isWritten();
+      return cache.asMap().computeIfPresent(key, (k, expirable) -> {
+        if (decision.isStale(expirable)) {
+          return expirable;
+        }
+        if (expirable.hasExpired(currentTimeMillis())) {
+          descheduleExpiration(expirable);
+          dispatcher.publishExpired(this, key, expirable.get());
+          statistics.recordEvictions(1L);
+          return null;
+        }
+        if (decision.isWritten() || oldValue.equals(expirable.get())) {
+          descheduleExpiration(expirable);
+          dispatcher.publishRemoved(this, key, expirable.get());
+          removed[0] = true;
+          return null;
+        }
+        setAccessExpirationTime(k, expirable, currentTimeMillis());
+        return expirable;
+      });
     });
-    dispatcher.awaitSynchronous();
+    awaitSynchronous();
     if (removed[0]) {
       statistics.recordRemovals(1L);
       statistics.recordHits(1L);
     } else {
       statistics.recordMisses(1L);
     }
-    statistics.recordRemoveTime(ticker.read() - start);
+    statistics.recordRemoveTime(elapsedTime(start));
     return removed[0];
   }
 
@@ -445,10 +539,12 @@ public class CacheProxy<K, V> implements Cache<K, V> {
     requireNotClosed();
     requireNonNull(key);
 
-    long start = ticker.read();
-    publishToCacheWriter(writer::delete, () -> key);
-    V value = removeNoCopyOrAwait(key);
-    dispatcher.awaitSynchronous();
+    long start = startTime();
+    V value = writeThrough(key, current -> {
+      publishToCacheWriter(writer::delete, () -> key);
+      return true;
+    }, decision -> removeNoCopyOrAwait(key));
+    awaitSynchronous();
     if (value != null) {
       statistics.recordHits(1L);
       statistics.recordRemovals(1L);
@@ -456,7 +552,7 @@ public class CacheProxy<K, V> implements Cache<K, V> {
       statistics.recordMisses(1L);
     }
     V copy = copyOf(value);
-    long duration = ticker.read() - start;
+    long duration = elapsedTime(start);
     statistics.recordRemoveTime(duration);
     statistics.recordGetTime(duration);
     return copy;
@@ -468,36 +564,48 @@ public class CacheProxy<K, V> implements Cache<K, V> {
     requireNonNull(oldValue);
     requireNonNull(newValue);
 
-    long start = ticker.read();
+    long start = startTime();
     boolean[] found = { false };
     boolean[] replaced = { false };
-    cache.asMap().computeIfPresent(key, (k, expirable) -> {
-      if (expirable.hasExpired(ticker.read())) {
-        dispatcher.publishExpired(this, key, expirable.get());
-        statistics.recordEvictions(1L);
-        return null;
+    writeThrough(key, current -> {
+      if (!oldValue.equals(current)) {
+        return false;
       }
+      publishToCacheWriter(writer::write, () -> new EntryProxy<K, V>(key, newValue));
+      return true;
+    }, decision -> {
+      found[0] = replaced[0] = decision.isWritten();
+      return cache.asMap().computeIfPresent(key, (k, expirable) -> {
+        if (decision.isStale(expirable)) {
+          return expirable;
+        }
+        if (expirable.hasExpired(currentTimeMillis())) {
+          descheduleExpiration(expirable);
+          dispatcher.publishExpired(this, key, expirable.get());
+          statistics.recordEvictions(1L);
+          return null;
+        }
 
-      found[0] = true;
-      Expirable<V> result;
-      if (oldValue.equals(expirable.get())) {
-        publishToCacheWriter(writer::write, () -> new EntryProxy<K, V>(key, expirable.get()));
-        dispatcher.publishUpdated(this, key, expirable.get(), copyOf(newValue));
-        long expireTimeMS = expireTimeMS(expiry::getExpiryForUpdate);
-        result = new Expirable<>(newValue, expireTimeMS);
-        replaced[0] = true;
-      } else {
-        result = expirable;
-        setExpirationTime(expirable, currentTimeMillis(), expiry::getExpiryForAccess);
-      }
-      return result;
+        found[0] = true;
+        Expirable<V> result;
+        if (decision.isWritten() || oldValue.equals(expirable.get())) {
+          dispatcher.publishUpdated(this, key, expirable.get(), copyOf(newValue));
+          long expireTimeMS = expireTimeMS(expiry::getExpiryForUpdate);
+          result = newExpirable(k, newValue, expireTimeMS, expirable);
+          replaced[0] = true;
+        } else {
+          result = expirable;
+          setAccessExpirationTime(k, expirable, currentTimeMillis());
+        }
+        return result;
+      });
     });
     statistics.recordPuts(replaced[0] ? 1L : 0L);
     statistics.recordMisses(found[0] ? 0L : 1L);
     statistics.recordHits(found[0] ? 1L : 0L);
-    dispatcher.awaitSynchronous();
+    awaitSynchronous();
 
-    long duration = ticker.read() - start;
+    long duration = elapsedTime(start);
     statistics.recordGetTime(duration);
     statistics.recordPutTime(duration);
     return replaced[0];
@@ -507,16 +615,16 @@ public class CacheProxy<K, V> implements Cache<K, V> {
   public boolean replace(K key, V value) {
     requireNotClosed();
 
-    long start = ticker.read();
+    long start = startTime();
     V oldValue = replaceNoCopyOrAwait(key, value);
-    dispatcher.awaitSynchronous();
+    awaitSynchronous();
     if (oldValue == null) {
       statistics.recordMisses(1L);
       return false;
     }
     statistics.recordHits(1L);
     statistics.recordPuts(1L);
-    statistics.recordPutTime(ticker.read() - start);
+    statistics.recordPutTime(elapsedTime(start));
     return true;
   }
 
@@ -524,9 +632,9 @@ public class CacheProxy<K, V> implements Cache<K, V> {
   public V getAndReplace(K key, V value) {
     requireNotClosed();
 
-    long start = ticker.read();
+    long start = startTime();
     V oldValue = replaceNoCopyOrAwait(key, value);
-    dispatcher.awaitSynchronous();
+    awaitSynchronous();
     if (oldValue == null) {
       statistics.recordMisses(1L);
     } else {
@@ -534,7 +642,7 @@ public class CacheProxy<K, V> implements Cache<K, V> {
       statistics.recordPuts(1L);
     }
     V copy = copyOf(oldValue);
-    long duration = ticker.read() - start;
+    long duration = elapsedTime(start);
     statistics.recordGetTime(duration);
     statistics.recordPutTime(duration);
     return copy;
@@ -554,18 +662,30 @@ public class CacheProxy<K, V> implements Cache<K, V> {
     V copy = copyOf(value);
     @SuppressWarnings("unchecked")
     V[] replaced = (V[]) new Object[1];
-    cache.asMap().computeIfPresent(key, (k, expirable) -> {
-      if (expirable.hasExpired(ticker.read())) {
-        dispatcher.publishExpired(this, key, expirable.get());
-        statistics.recordEvictions(1L);
-        return null;
+    writeThrough(key, current -> {
+      if (current == null) {
+        return false;
       }
-
       publishToCacheWriter(writer::write, () -> new EntryProxy<K, V>(key, value));
-      long expireTimeMS = expireTimeMS(expiry::getExpiryForUpdate);
-      dispatcher.publishUpdated(this, key, expirable.get(), copy);
-      replaced[0] = expirable.get();
-      return new Expirable<>(copy, expireTimeMS);
+      return true;
+    }, decision -> {
+      replaced[0] = decision.isWritten() ? decision.getObserved().get() : null;
+      return cache.asMap().computeIfPresent(key, (k, expirable) -> {
+        if (decision.isStale(expirable)) {
+          return expirable;
+        }
+        if (expirable.hasExpired(currentTimeMillis())) {
+          descheduleExpiration(expirable);
+          dispatcher.publishExpired(this, key, expirable.get());
+          statistics.recordEvictions(1L);
+          return null;
+        }
+
+        long expireTimeMS = expireTimeMS(expiry::getExpiryForUpdate);
+        dispatcher.publishUpdated(this, key, expirable.get(), copy);
+        replaced[0] = expirable.get();
+        return newExpirable(k, copy, expireTimeMS, expirable);
+      });
     });
     return replaced[0];
   }
@@ -575,16 +695,20 @@ public class CacheProxy<K, V> implements Cache<K, V> {
     requireNotClosed();
     keys.forEach(Objects::requireNonNull);
 
-    long start = ticker.read();
+    long start = startTime();
     Set<K> keysToRemove = new HashSet<>(keys);
-    CacheWriterException e = deleteAllToCacheWriter(keysToRemove);
-    long removed = keysToRemove.stream()
-        .map(this::removeNoCopyOrAwait)
-        .filter(Objects::nonNull)
-        .count();
-    dispatcher.awaitSynchronous();
-    statistics.recordRemovals(removed);
-    statistics.recordRemoveTime(ticker.read() - start);
+    long[] removed = { 0L };
+    CacheWriterException e = writeAllThrough(new ArrayList<>(keysToRemove), () -> {
+      CacheWriterException error = deleteAllToCacheWriter(keysToRemove);
+      removed[0] = keysToRemove.stream()
+          .map(this::removeNoCopyOrAwait)
+          .filter(Objects::nonNull)
+          .count();
+      return error;
+    });
+    awaitSynchronous();
+    statistics.recordRemovals(removed[0]);
+    statistics.recordRemoveTime(elapsedTime(start));
     if (e != null) {
       throw e;
     }
@@ -599,6 +723,7 @@ public class CacheProxy<K, V> implements Cache<K, V> {
   public void clear() {
     requireNotClosed();
     cache.invalidateAll();
+    clearTimers();
   }
 
   @Override
@@ -622,65 +747,119 @@ public class CacheProxy<K, V> implements Cache<K, V> {
     requireNonNull(arguments);
     requireNotClosed();
 
-    Object[] result = new Object[1];
-    BiFunction<K, Expirable<V>, Expirable<V>> remappingFunction = (k, expirable) -> {
-      long now = currentTimeMillis();
-      V value;
-      if ((expirable == null) || expirable.hasExpired(now)) {
-        statistics.recordMisses(1L);
-        value = null;
-      } else {
-        value = expirable.get();
-        statistics.recordHits(1L);
-      }
-      EntryProcessorEntry<K, V> entry = new EntryProcessorEntry<>(key, value,
-          configuration.isReadThrough() ? cacheLoader : Optional.empty());
-      try {
-        result[0] = entryProcessor.process(entry, arguments);
-        return postProcess(expirable, entry);
-      } catch (EntryProcessorException e) {
-        throw e;
-      } catch (RuntimeException e) {
-        throw new EntryProcessorException(e);
-      }
-    };
     try {
-      cache.asMap().compute(copyOf(key), remappingFunction);
-      dispatcher.awaitSynchronous();
+      T result = invokeEntry(key, entryProcessor, arguments);
+      awaitSynchronous();
+      return result;
     } catch (Throwable thr) {
-      dispatcher.ignoreSynchronous();
+      ignoreSynchronous();
       throw thr;
     }
+  }
+
+  /** Performs the entry processor without waiting for the synchronous listeners. */
+  private <T> T invokeEntry(K key, EntryProcessor<K, V, T> entryProcessor, Object[] arguments) {
+    Object[] result = new Object[1];
+    if (configuration.isWriteThrough()) {
+      invokeWriteThrough(key, entryProcessor, arguments, result);
+    } else {
+      cache.asMap().compute(copyOf(key), (k, expirable) -> {
+        EntryProcessorEntry<K, V> entry =
+            process(key, expirable, entryProcessor, arguments, result);
+        return postProcess(k, expirable, entry);
+      });
+    }
 
     @SuppressWarnings("unchecked")
     T castedResult = (T) result[0];
     return castedResult;
   }
 
+  /**
+   * Performs the entry processor while holding the key's write reservation, calling the writer
+   * before the outcome is applied to the cache. If the entry was concurrently evicted, expired, or
+   * loaded then the outcome that the writer was told of is applied to the current value, rather
+   * than performing the entry processor and the writer again.
+   */
+  private <T> void invokeWriteThrough(K key, EntryProcessor<K, V, T> entryProcessor,
+      Object[] arguments, Object[] result) {
+    reservations.reserve(key, () -> {
+      Expirable<V> expirable = cache.asMap().get(key);
+      EntryProcessorEntry<K, V> entry = process(key, expirable, entryProcessor, arguments, result);
+      try {
+        publishToCacheWriter(entry);
+      } catch (RuntimeException e) {
+        throw new EntryProcessorException(e);
+      }
+      cache.asMap().compute(copyOf(key), (k, current) -> (current == expirable)
+          ? postProcess(k, current, entry)
+          : reconcile(k, current, entry));
+      return null;
+    });
+  }
+
+  /** Returns the entry after performing the entry processor on the unexpired value, if present. */
+  private <T> EntryProcessorEntry<K, V> process(K key, @Nullable Expirable<V> expirable,
+      EntryProcessor<K, V, T> entryProcessor, Object[] arguments, Object[] result) {
+    long now = currentTimeMillis();
+    V value;
+    if ((expirable == null) || expirable.hasExpired(now)) {
+      statistics.recordMisses(1L);
+      value = null;
+    } else {
+      value = expirable.get();
+      statistics.recordHits(1L);
+    }
+    EntryProcessorEntry<K, V> entry = new EntryProcessorEntry<>(key, value,
+        configuration.isReadThrough() ? cacheLoader : Optional.empty());
+    try {
+      result[0] = entryProcessor.process(entry, arguments);
+      return entry;
+    } catch (EntryProcessorException e) {
+      throw e;
+    } catch (RuntimeException e) {
+      throw new EntryProcessorException(e);
+    }
+  }
+
+  /** Performs the writer's action for the entry processor's outcome. */
+  private void publishToCacheWriter(EntryProcessorEntry<K, V> entry) {
+    switch (entry.getAction()) {
+      case CREATED:
+      case UPDATED:
+        publishToCacheWriter(writer::write, () -> entry);
+        return;
+      case DELETED:
+        publishToCacheWriter(writer::delete, entry::getKey);
+        return;
+      default:
+        return;
+    }
+  }
+
   /** Returns the updated expirable value after performing the post processing actions. */
-  @SuppressWarnings("fallthrough")
-  private Expirable<V> postProcess(Expirable<V> expirable, EntryProcessorEntry<K, V> entry) {
+  private Expirable<V> postProcess(K key,
+      Expirable<V> expirable, EntryProcessorEntry<K, V> entry) {
     switch (entry.getAction()) {
       case NONE:
         return expirable;
       case READ:
-        expirable.setExpireTimeMS(expireTimeMS(expiry::getExpiryForAccess));
+        setAccessExpirationTime(key, expirable, currentTimeMillis());
         return expirable;
       case CREATED:
-        this.publishToCacheWriter(writer::write, () -> entry);
-        // fall through
       case LOADED:
         statistics.recordPuts(1L);
         dispatcher.publishCreated(this, entry.getKey(), entry.getValue());
-        return new Expirable<>(entry.getValue(), expireTimeMS(expiry::getExpiryForCreation));
+        return newExpirable(key, entry.getValue(),
+            expireTimeMS(expiry::getExpiryForCreation), expirable);
       case UPDATED:
         statistics.recordPuts(1L);
-        publishToCacheWriter(writer::write, () -> entry);
         dispatcher.publishUpdated(this, entry.getKey(), expirable.get(), entry.getValue());
-        return new Expirable<>(entry.getValue(), expireTimeMS(expiry::getExpiryForUpdate));
+        return newExpirable(key, entry.getValue(),
+            expireTimeMS(expiry::getExpiryForUpdate), expirable);
       case DELETED:
+        descheduleExpiration(expirable);
         statistics.recordRemovals(1L);
-        publishToCacheWriter(writer::delete, entry::getKey);
         dispatcher.publishRemoved(this, entry.getKey(), entry.getValue());
         return null;
       default:
@@ -688,23 +867,147 @@ public class CacheProxy<K, V> implements Cache<K, V> {
     }
   }
 
+  /**
+   * Returns the updated expirable value after applying the entry processor's outcome to an entry
+   * that changed since it was processed. A write or removal replaces the current value, as the
+   * writer was told of it, whereas a load or read is superseded by the current value.
+   */
+  private Expirable<V> reconcile(K key,
+      @Nullable Expirable<V> current, EntryProcessorEntry<K, V> entry) {
+    if ((current != null) && current.hasExpired(currentTimeMillis())) {
+      descheduleExpiration(current);
+      dispatcher.publishExpired(this, entry.getKey(), current.get());
+      statistics.recordEvictions(1L);
+      current = null;
+    }
+    switch (entry.getAction()) {
+      case NONE:
+      case READ:
+        return current;
+      case LOADED:
+        return (current == null) ? postProcess(key, null, entry) : current;
+      case CREATED:
+      case UPDATED:
+        statistics.recordPuts(1L);
+        if (current == null) {
+          dispatcher.publishCreated(this, entry.getKey(), entry.getValue());
+          return newExpirable(key, entry.getValue(),
+              expireTimeMS(expiry::getExpiryForCreation), null);
+        }
+        dispatcher.publishUpdated(this, entry.getKey(), current.get(), entry.getValue());
+        return newExpirable(key, entry.getValue(),
+            expireTimeMS(expiry::getExpiryForUpdate), current);
+      case DELETED:
+        if (current != null) {
+          descheduleExpiration(current);
+          statistics.recordRemovals(1L);
+          dispatcher.publishRemoved(this, entry.getKey(), current.get());
+        }
+        return null;
+      default:
+        throw new IllegalStateException("Unknown state: " + entry.getAction());
+    }
+  }
+
+  /**
+   * {@inheritDoc}
+   * <p>
+   * The keys are partitioned and processed in parallel on the executor, with the calling thread
+   * processing one of the partitions and any that the executor rejected. The synchronous listeners
+   * are awaited once, after all of the entries were processed.
+   */
   @Override
   public <T> Map<K, EntryProcessorResult<T>> invokeAll(Set<? extends K> keys,
       EntryProcessor<K, V, T> entryProcessor, Object... arguments) {
-    Map<K, EntryProcessorResult<T>> results = new HashMap<>(keys.size());
-    for (K key : keys) {
+    requireNonNull(entryProcessor);
+    requireNonNull(arguments);
+    requireNotClosed();
+
+    Map<K, EntryProcessorResult<T>> results = new ConcurrentHashMap<>(keys.size());
+    List<List<K>> partitions = partition(keys);
+    List<CompletableFuture<CompletableFuture<Void>>> tasks = new ArrayList<>(partitions.size());
+    List<List<K>> callerRuns = new ArrayList<>();
+    callerRuns.add(partitions.get(0));
+    for (List<K> partition : partitions.subList(1, partitions.size())) {
       try {
-        T result = invoke(key, entryProcessor, arguments);
-        if (result != null) {
-          results.put(key, () -> result);
-        }
-      } catch (EntryProcessorException e) {
-        results.put(key, () -> { throw e; });
+        tasks.add(CompletableFuture.supplyAsync(() ->
+            invokePartition(partition, entryProcessor, arguments, results), executor));
+      } catch (RejectedExecutionException e) {
+        callerRuns.add(partition);
       }
     }
+
+    Throwable failure = null;
+    List<CompletableFuture<Void>> listeners = new ArrayList<>(partitions.size());
+    for (List<K> partition : callerRuns) {
+      try {
+        listeners.add(invokePartition(partition, entryProcessor, arguments, results));
+      } catch (Throwable t) {
+        failure = (failure == null) ? t : failure;
+      }
+    }
+    for (CompletableFuture<CompletableFuture<Void>> task : tasks) {
+      try {
+        listeners.add(task.join());
+      } catch (CompletionException e) {
+        failure = (failure == null) ? e.getCause() : failure;
+      }
+    }
+    CompletableFuture.allOf(listeners.toArray(new CompletableFuture<?>[listeners.size()])).join();
+
+    if (failure instanceof RuntimeException) {
+      throw (RuntimeException) failure;
+    } else if (failure instanceof Error) {
+      throw (Error) failure;
+    } else if (failure != null) {
+      throw new CacheException(failure);
+    }
     return results;
   }
 
+  /**
+   * Performs the entry processor on each of the keys and returns a future that completes when the
+   * synchronous listeners have processed the events that were published.
+   */
+  private <T> CompletableFuture<Void> invokePartition(List<K> keys,
+      EntryProcessor<K, V, T> entryProcessor, Object[] arguments,
+      Map<K, EntryProcessorResult<T>> results) {
+    try {
+      for (K key : keys) {
+        try {
+          T result = invokeEntry(key, entryProcessor, arguments);
+          if (result != null) {
+            results.put(key, () -> result);
+          }
+        } catch (EntryProcessorException e) {
+          results.put(key, () -> { throw e; });
+        }
+      }
+    } catch (Throwable thr) {
+      ignoreSynchronous();
+      throw thr;
+    }
+    return dispatchSynchronous();
+  }
+
+  /**
+   * Returns the keys split into at least one partition, with a partition per processor if there are
+   * enough keys to be worth processing in parallel.
+   */
+  private List<List<K>> partition(Set<? extends K> keys) {
+    List<K> list = new ArrayList<>(keys);
+    int processors = Runtime.getRuntime().availableProcessors();
+    int count = Math.max(1, Math.min(processors, list.size() / MIN_PARTITION_SIZE));
+    int size = (list.size() + count - 1) / count;
+
+    List<List<K>> partitions = new ArrayList<>(count);
+    for (int i = 0; i < count; i++) {
+      int from = Math.min(i * size, list.size());
+      partitions.add(list.subList(from, Math.min(from + size, list.size())));
+    }
+    return partitions;
+  }
+
   @Override
   public String getName() {
     return name;
@@ -724,11 +1027,27 @@ public class CacheProxy<K, V> implements Cache<K, V> {
       if (!isClosed()) {
         enableManagement(false);
         enableStatistics(false);
-        cacheManager.destroyCache(name);
         closed = true;
+        cacheManager.destroyCache(name);
+        if (coarseClock != null) {
+          coarseClock.release();
+        }
       }
     }
     cache.invalidateAll();
+    clearTimers();
+    closeWriter();
+  }
+
+  /** Closes the writer if it holds resources, such as the buffer of a write-behind writer. */
+  private void closeWriter() {
+    if (writer instanceof Closeable) {
+      try {
+        ((Closeable) writer).close();
+      } catch (IOException e) {
+        throw new CacheException(e);
+      }
+    }
   }
 
   @Override
@@ -764,6 +1083,7 @@ public class CacheProxy<K, V> implements Cache<K, V> {
   @Override
   public Iterator<Cache.Entry<K, V>> iterator() {
     requireNotClosed();
+    requestExpirationCycle(currentTimeMillis());
     return new EntryIterator();
   }
 
@@ -810,6 +1130,48 @@ public class CacheProxy<K, V> implements Cache<K, V> {
     }
   }
 
+  /**
+   * Performs the operation while holding the key's write reservation if write-through is enabled,
+   * first calling the writer so that its I/O is not performed while the cache holds the entry's
+   * lock.
+   * <p>
+   * The reservation does not exclude loads, evictions, and expirations, so the entry may change
+   * after the writer's decision was made. If the writer was called then the operation applies the
+   * outcome that it was told of to the current entry. Otherwise the operation leaves a changed
+   * entry as is and the decision is made again, so that the cache is not changed without the
+   * writer.
+   *
+   * @param key the key being written
+   * @param write calls the writer if required, given the unexpired value or null if absent, and
+   *        returns whether it was called
+   * @param operation applies the change to the cache, given the writer's decision
+   * @return the result of the operation
+   */
+  private <T> T writeThrough(K key, Predicate<V> write, Function<WriteDecision<V>, T> operation) {
+    if (!configuration.isWriteThrough()) {
+      return operation.apply(WriteDecision.unvalidated());
+    }
+    return reservations.reserve(key, () -> {
+      for (;;) {
+        Expirable<V> expirable = cache.asMap().get(key);
+        boolean present = (expirable != null) && !expirable.hasExpired(currentTimeMillis());
+        WriteDecision<V> decision = new WriteDecision<>(
+            expirable, write.test(present ? expirable.get() : null), true);
+        T result = operation.apply(decision);
+        if (!decision.isRetry()) {
+          return result;
+        }
+      }
+    });
+  }
+
+  /** Performs the bulk operation while holding the keys' write reservations, if required. */
+  private <T> T writeAllThrough(Collection<? extends K> keys, Supplier<T> operation) {
+    return configuration.isWriteThrough()
+        ? reservations.reserveAll(keys, operation)
+        : operation.get();
+  }
+
   /** Writes all of the entries to the cache writer if write-through is enabled. */
   private <T> CacheWriterException writeAllToCacheWriter(Map<? extends K, ? extends V> map) {
     if (!configuration.isWriteThrough()  || map.isEmpty()) {
@@ -894,27 +1256,203 @@ public class CacheProxy<K, V> implements Cache<K, V> {
         entry -> copyStrategy.copy(entry.getValue().get(), classLoader)));
   }
 
-  /** @return an approximate of the current time in milliseconds */
-  protected long currentTimeMillis() {
-    return ticker.read() >> 10;
+  /** @return the current time in milliseconds, as read by the expiration checks */
+  public long currentTimeMillis() {
+    return (coarseClock == null)
+        ? TimeUnit.NANOSECONDS.toMillis(ticker.read())
+        : coarseClock.currentTimeMillis();
+  }
+
+  /** @return the ticker's time, or {@link #UNTIMED} if the statistics are disabled */
+  protected final long startTime() {
+    return statistics.isEnabled() ? ticker.read() : UNTIMED;
   }
 
   /**
-   * Sets the expiration time based on the supplied expiration function.
+   * @return the duration since the start time, or {@link #UNTIMED} if the statistics were disabled
+   *         when the operation started
+   */
+  protected final long elapsedTime(long startTime) {
+    return (startTime == UNTIMED) ? UNTIMED : (ticker.read() - startTime);
+  }
+
+  /**
+   * Sets the expiration time of an entry that was read, unless the policy leaves it unchanged.
    *
+   * @param key the entry's key
    * @param expirable the entry that was operated on
    * @param currentTimeMS the current time
-   * @param expires the expiration function
    */
-  protected static void setExpirationTime(Expirable<?> expirable,
-      long currentTimeMS, Supplier<Duration> expires) {
+  protected final void setAccessExpirationTime(K key, Expirable<V> expirable, long currentTimeMS) {
     try {
-      Duration duration = expires.get();
-      long expireTimeMS = duration.getAdjustedTime(currentTimeMS);
-      expirable.setExpireTimeMS(expireTimeMS);
+      Duration duration = expiry.getExpiryForAccess();
+      if (duration != null) {
+        expirable.setExpireTimeMS(duration.getAdjustedTime(currentTimeMS));
+        scheduleExpiration(key, expirable);
+      }
     } catch (Exception ignored) {}
   }
 
+  /**
+   * Returns a new value that expires at the given time. The timer of the value that it replaces is
+   * carried over, so that an entry is tracked by a single timer while it is present.
+   *
+   * @param key the entry's key, as held by the cache
+   * @param value the value to store
+   * @param expireTimeMS the time when the entry expires
+   * @param replaced the value being replaced, if any
+   * @return the value to store in the cache
+   */
+  protected final Expirable<V> newExpirable(K key, V value,
+      long expireTimeMS, @Nullable Expirable<V> replaced) {
+    Expirable<V> expirable = new Expirable<>(value, expireTimeMS);
+    if (replaced != null) {
+      expirable.setTimer(replaced.getTimer());
+    }
+    scheduleExpiration(key, expirable);
+    return expirable;
+  }
+
+  /**
+   * Schedules a timer to reclaim the entry once it expires, unless it is eternal or already has a
+   * timer that fires no later. A timer that fires early is rescheduled by the expiration cycle.
+   * <p>
+   * This may be called while computing the entry, so the timer is only queued. The operation is
+   * responsible for requesting the expiration cycle once its computation has returned, as the
+   * cycle may run on the calling thread and update other entries.
+   *
+   * @param key the entry's key, as held by the cache
+   * @param expirable the entry's value
+   */
+  protected final void scheduleExpiration(K key, Expirable<V> expirable) {
+    long expireTimeMS = expirable.getExpireTimeMS();
+    Timer<?> current = expirable.getTimer();
+    if ((current != null) && current.isCancelled()) {
+      current = null;
+    }
+    if ((expireTimeMS == Long.MAX_VALUE)
+        || ((current != null) && (current.getDeadline() <= expireTimeMS))) {
+      return;
+    }
+    Timer<K> timer = new Timer<>(key, expireTimeMS);
+    expirable.setTimer(timer);
+    pendingTimers.add(timer);
+    if (current != null) {
+      cancel(current);
+    }
+  }
+
+  /**
+   * Deschedules the timer of an entry that was removed from the cache, such as by a removal, an
+   * expiration, or an eviction, so that the timer wheel does not retain it until its deadline. As
+   * when scheduling, the timer is only queued for the next expiration cycle to remove.
+   *
+   * @param expirable the entry's value that is no longer present, or null if none
+   */
+  public final void descheduleExpiration(@Nullable Expirable<V> expirable) {
+    Timer<?> timer = (expirable == null) ? null : expirable.getTimer();
+    if ((timer != null) && !timer.isCancelled()) {
+      cancel(timer);
+    }
+  }
+
+  /** Marks the timer as cancelled and queues it to be removed from the wheel. */
+  private void cancel(Timer<?> timer) {
+    @SuppressWarnings("unchecked")
+    Timer<K> castedTimer = (Timer<K>) timer;
+    castedTimer.cancel();
+    cancelledTimers.add(castedTimer);
+  }
+
+  /**
+   * Submits an expiration cycle to the executor if timers are waiting to be scheduled or removed,
+   * or one may have come due since the last cycle, unless a cycle is already pending. This must
+   * not be called while computing an entry, as the executor may run the cycle on the caller.
+   *
+   * @param currentTimeMS the current time
+   */
+  public final void requestExpirationCycle(long currentTimeMS) {
+    boolean required = !pendingTimers.isEmpty() || !cancelledTimers.isEmpty()
+        || ((currentTimeMS - lastExpirationMS) >= EXPIRATION_INTERVAL_MS);
+    if (required && expirationScheduled.compareAndSet(false, true)) {
+      try {
+        executor.execute(this::expireEntries);
+      } catch (RejectedExecutionException e) {
+        expirationScheduled.set(false);
+      }
+    }
+  }
+
+  /**
+   * Schedules the waiting timers, removes the cancelled ones, and advances the timer wheel to the
+   * current time. Each entry whose timer came due is removed and its expiration is published,
+   * unless its expiration time was extended since the timer was scheduled, in which case the timer
+   * is rescheduled. The expirations are published apart from those of the operation that the
+   * cycle may be running within, so that its synchronous listeners are still awaited.
+   */
+  void expireEntries() {
+    expirationScheduled.set(false);
+    if (!expirationLock.tryLock()) {
+      return;
+    }
+    try {
+      dispatcher.publishDetached(this::advanceTimerWheel);
+    } finally {
+      expirationLock.unlock();
+    }
+  }
+
+  /** Updates the timer wheel with the queued timers and expires the entries that came due. */
+  private void advanceTimerWheel() {
+    long now = currentTimeMillis();
+    for (Timer<K> timer = pendingTimers.poll(); timer != null; timer = pendingTimers.poll()) {
+      if (!timer.isCancelled()) {
+        timerWheel.schedule(timer);
+      }
+    }
+    for (Timer<K> timer = cancelledTimers.poll(); timer != null; timer = cancelledTimers.poll()) {
+      timerWheel.deschedule(timer);
+    }
+    timerWheel.advance(now, timer -> expire(timer, now));
+    lastExpirationMS = now;
+  }
+
+  /** Removes the entry if the timer is its current one and it has expired. */
+  private void expire(Timer<K> timer, long currentTimeMS) {
+    @SuppressWarnings("unchecked")
+    Expirable<V>[] expired = new Expirable[1];
+    cache.asMap().computeIfPresent(timer.getKey(), (k, expirable) -> {
+      if (expirable.getTimer() != timer) {
+        return expirable;
+      } else if (expirable.hasExpired(currentTimeMS)) {
+        expired[0] = expirable;
+        return null;
+      } else if (expirable.getExpireTimeMS() == Long.MAX_VALUE) {
+        expirable.setTimer(null);
+      } else {
+        timer.setDeadline(expirable.getExpireTimeMS());
+        timerWheel.schedule(timer);
+      }
+      return expirable;
+    });
+    if (expired[0] != null) {
+      dispatcher.publishExpired(this, timer.getKey(), expired[0].get());
+      statistics.recordEvictions(1L);
+    }
+  }
+
+  /** Discards the timers, as the entries were removed. */
+  private void clearTimers() {
+    expirationLock.lock();
+    try {
+      cancelledTimers.clear();
+      pendingTimers.clear();
+      timerWheel.clear();
+    } finally {
+      expirationLock.unlock();
+    }
+  }
+
   /**
    * Returns the time when the entry will expire based on the supplied expiration function.
    *
@@ -938,6 +1476,7 @@ public class CacheProxy<K, V> implements Cache<K, V> {
    */
   protected <T> T doSafely(Supplier<T> task) {
     requireNotClosed();
+    requestExpirationCycle(currentTimeMillis());
     try {
       return task.get();
     } catch (NullPointerException | IllegalStateException | ClassCastException | CacheException e) {
@@ -945,7 +1484,85 @@ public class CacheProxy<K, V> implements Cache<K, V> {
     } catch (RuntimeException e) {
       throw new CacheException(e);
     } finally {
-      dispatcher.awaitSynchronous();
+      awaitSynchronous();
+    }
+  }
+
+  /**
+   * Completes an operation by requesting an expiration cycle for the timers that it queued and
+   * blocking until the synchronous listeners have processed the events that it published.
+   */
+  protected final void awaitSynchronous() {
+    requestExpirationCycle(currentTimeMillis());
+    dispatcher.awaitSynchronous();
+  }
+
+  /**
+   * Completes an operation by requesting an expiration cycle for the timers that it queued and
+   * delivering the events that it published without waiting for the synchronous listeners.
+   */
+  protected final void ignoreSynchronous() {
+    requestExpirationCycle(currentTimeMillis());
+    dispatcher.ignoreSynchronous();
+  }
+
+  /**
+   * Completes an operation by requesting an expiration cycle for the timers that it queued and
+   * delivering the events that it published.
+   *
+   * @return a future that completes when the synchronous listeners have processed the events
+   */
+  protected final CompletableFuture<Void> dispatchSynchronous() {
+    requestExpirationCycle(currentTimeMillis());
+    return dispatcher.dispatchSynchronous();
+  }
+
+  /**
+   * The writer's decision for a write-through operation, made on the value observed while holding
+   * the key's write reservation.
+   */
+  private static final class WriteDecision<V> {
+    private final @Nullable Expirable<V> observed;
+    private final boolean validated;
+    private final boolean written;
+    private boolean retry;
+
+    WriteDecision(@Nullable Expirable<V> observed, boolean written, boolean validated) {
+      this.observed = observed;
+      this.validated = validated;
+      this.written = written;
+    }
+
+    /** Returns a decision for when write-through is disabled, which applies to any entry. */
+    static <V> WriteDecision<V> unvalidated() {
+      return new WriteDecision<>(null, false, false);
+    }
+
+    /** @return the value that the decision was made on, or null if absent */
+    @Nullable Expirable<V> getObserved() {
+      return observed;
+    }
+
+    /** @return if the writer was called, so the cache must follow its outcome */
+    boolean isWritten() {
+      return written;
+    }
+
+    /** @return if the operation must be retried, as the decision was found to be stale */
+    boolean isRetry() {
+      return retry;
+    }
+
+    /**
+     * Returns if the writer was not called and the entry changed since the decision was made, in
+     * which case the operation should leave the entry unchanged and be retried.
+     *
+     * @param current the entry's current value, or null if absent
+     * @return if the decision is stale
+     */
+    boolean isStale(@Nullable Expirable<V> current) {
+      retry = validated && !written && (current != observed);
+      return retry;
     }
   }
 
@@ -961,7 +1578,8 @@ public class CacheProxy<K, V> implements Cache<K, V> {
         Map.Entry<K, Expirable<V>> entry = delegate.next();
         long now = currentTimeMillis();
         if (!entry.getValue().hasExpired(now)) {
-          setExpirationTime(entry.getValue(), now, expiry::getExpiryForAccess);
+          setAccessExpirationTime(entry.getKey(), entry.getValue(), now);
+          requestExpirationCycle(now);
           cursor = entry;
         }
       }
@@ -988,6 +1606,116 @@ public class CacheProxy<K, V> implements Cache<K, V> {
     }
   }
 
+  /**
+   * A bulk load that splits the keys into chunks, which are loaded by a bounded number of tasks on
+   * the executor and inserted as each chunk arrives. The listener is notified once all of the tasks
+   * have finished, with the first failure if a chunk could not be loaded.
+   */
+  final class BulkLoad implements Runnable {
+    final AtomicReference<CacheLoaderException> failure;
+    final CompletionListener listener;
+    final boolean replaceExistingValues;
+    final AtomicInteger remainingTasks;
+    final AtomicInteger nextChunk;
+    final int chunkSize;
+    final List<K> keys;
+
+    BulkLoad(Set<? extends K> keys, boolean replaceExistingValues, CompletionListener listener) {
+      this.chunkSize = Math.max(1, configuration.getLoadAllChunkSize());
+      this.replaceExistingValues = replaceExistingValues;
+      this.failure = new AtomicReference<>();
+      this.remainingTasks = new AtomicInteger();
+      this.nextChunk = new AtomicInteger();
+      this.keys = new ArrayList<>(keys);
+      this.listener = listener;
+    }
+
+    /**
+     * Submits up to a task per processor, each of which loads chunks until none remain. If the
+     * executor rejects a task then the tasks not yet submitted are dropped and the calling thread
+     * loads the remaining chunks instead.
+     */
+    void start() {
+      int chunks = (int) ((keys.size() + (long) chunkSize - 1) / chunkSize);
+      int tasks = Math.max(1, Math.min(chunks, Runtime.getRuntime().availableProcessors()));
+      remainingTasks.set(tasks);
+      for (int i = 0; i < tasks; i++) {
+        try {
+          executor.execute(this);
+        } catch (RejectedExecutionException e) {
+          remainingTasks.addAndGet(i + 1 - tasks);
+          run();
+          return;
+        }
+      }
+    }
+
+    @Override
+    public void run() {
+      try {
+        for (;;) {
+          long from = (long) nextChunk.getAndIncrement() * chunkSize;
+          if ((from >= keys.size()) || (failure.get() != null)) {
+            break;
+          }
+          int to = (int) Math.min(from + chunkSize, keys.size());
+          load(keys.subList((int) from, to));
+        }
+      } catch (CacheLoaderException e) {
+        failure.compareAndSet(null, e);
+      } catch (Exception e) {
+        failure.compareAndSet(null, new CacheLoaderException(e));
+      } finally {
+        ignoreSynchronous();
+        if (remainingTasks.decrementAndGet() == 0) {
+          complete();
+        }
+      }
+    }
+
+    /** Loads the chunk of keys and inserts the entries into the cache. */
+    private void load(List<K> chunk) {
+      int[] ignored = { 0 };
+      List<K> keysToLoad = replaceExistingValues ? chunk : absentKeys(chunk);
+      if (keysToLoad.isEmpty()) {
+        return;
+      }
+      Map<K, V> loaded = cacheLoader.get().loadAll(keysToLoad);
+      for (Map.Entry<K, V> entry : loaded.entrySet()) {
+        if ((entry.getKey() == null) || (entry.getValue() == null)) {
+          continue;
+        } else if (replaceExistingValues) {
+          putNoCopyOrAwait(entry.getKey(), entry.getValue(), false, ignored);
+        } else {
+          putIfAbsentNoAwait(entry.getKey(), entry.getValue(), false);
+        }
+      }
+    }
+
+    /** Returns the keys that are not present or have expired. */
+    private List<K> absentKeys(List<K> chunk) {
+      long now = currentTimeMillis();
+      List<K> absent = new ArrayList<>(chunk.size());
+      for (K key : chunk) {
+        Expirable<V> expirable = cache.asMap().get(key);
+        if ((expirable == null) || expirable.hasExpired(now)) {
+          absent.add(key);
+        }
+      }
+      return absent;
+    }
+
+    /** Notifies the listener of the outcome. */
+    private void complete() {
+      CacheLoaderException e = failure.get();
+      if (e == null) {
+        listener.onCompletion();
+      } else {
+        listener.onException(e);
+      }
+    }
+  }
+
   enum NullCompletionListener implements CompletionListener {
     INSTANCE;
 
@@ -17,8 +17,13 @@ package com.github.benmanes.caffeine.jcache;
 
 import static java.util.Objects.requireNonNull;
 
+import javax.annotation.Nullable;
+
+import com.github.benmanes.caffeine.jcache.expiry.TimerWheel.Timer;
+
 /**
- * A value with an expiration timestamp.
+ * A value with an expiration timestamp. A value that can expire may have a timer that reclaims it
+ * once the expiration time has passed, which is carried over to the value that replaces it.
  *
  * @author ben.manes@gmail.com (Ben Manes)
  */
@@ -26,6 +31,7 @@ public final class Expirable<V> {
   private final V value;
 
   private volatile long expireTimeMS;
+  private volatile Timer<?> timer;
 
   public Expirable(V value, long expireTimeMS) {
     this.value = requireNonNull(value);
@@ -36,10 +42,22 @@ public final class Expirable<V> {
     return value;
   }
 
+  public long getExpireTimeMS() {
+    return expireTimeMS;
+  }
+
   public void setExpireTimeMS(long expireTimeMS) {
     this.expireTimeMS = expireTimeMS;
   }
 
+  public @Nullable Timer<?> getTimer() {
+    return timer;
+  }
+
+  public void setTimer(@Nullable Timer<?> timer) {
+    this.timer = timer;
+  }
+
   public boolean hasExpired(long currentTimeMS) {
     return (expireTimeMS <= currentTimeMS);
   }
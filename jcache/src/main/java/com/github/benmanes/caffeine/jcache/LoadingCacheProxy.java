@@ -16,20 +16,26 @@
 package com.github.benmanes.caffeine.jcache;
 
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
-import java.util.Objects;
 import java.util.Optional;
 import java.util.Set;
-import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executor;
 import java.util.stream.Collectors;
 
+import javax.annotation.Nullable;
 import javax.cache.Cache;
 import javax.cache.CacheManager;
 import javax.cache.expiry.ExpiryPolicy;
 import javax.cache.integration.CacheLoader;
-import javax.cache.integration.CompletionListener;
+import javax.cache.integration.CacheLoaderException;
+import javax.cache.integration.CacheWriter;
 
 import com.github.benmanes.caffeine.cache.LoadingCache;
 import com.github.benmanes.caffeine.cache.Ticker;
@@ -39,52 +45,64 @@ import com.github.benmanes.caffeine.jcache.management.JCacheStatisticsMXBean;
 
 /**
  * An implementation of JSR-107 {@link Cache} backed by a Caffeine loading cache.
+ * <p>
+ * A bulk read loads the missing entries with a single call to the {@link CacheLoader#loadAll}. The
+ * keys being loaded by a read are tracked, so that a concurrent read of an overlapping key waits
+ * for the loaded entry instead of loading it again. A loader that reads a key which its own thread
+ * is loading, such as a bulk load that calls back into the cache, loads that key directly rather
+ * than waiting on itself.
  *
  * @author ben.manes@gmail.com (Ben Manes)
  */
 public final class LoadingCacheProxy<K, V> extends CacheProxy<K, V> {
+  private final ConcurrentMap<K, InFlightLoad<V>> inFlight;
   private final LoadingCache<K, Expirable<V>> cache;
 
   public LoadingCacheProxy(String name, CacheManager cacheManager,
       CaffeineConfiguration<K, V> configuration, LoadingCache<K, Expirable<V>> cache,
-      EventDispatcher<K, V> dispatcher, CacheLoader<K, V> cacheLoader,
-      ExpiryPolicy expiry, Ticker ticker, JCacheStatisticsMXBean statistics) {
+      EventDispatcher<K, V> dispatcher, CacheLoader<K, V> cacheLoader, CacheWriter<K, V> writer,
+      Executor executor, ExpiryPolicy expiry, Ticker ticker, JCacheStatisticsMXBean statistics) {
     super(name, cacheManager, configuration, cache, dispatcher,
-        Optional.of(cacheLoader), expiry, ticker, statistics);
+        Optional.of(cacheLoader), writer, executor, expiry, ticker, statistics);
+    this.inFlight = new ConcurrentHashMap<>();
     this.cache = cache;
   }
 
   @Override
   public V get(K key) {
-    final long start = ticker.read();
+    final long start = startTime();
     V value = doSafely(() -> {
       Expirable<V> expirable = cache.getIfPresent(key);
       if ((expirable == null) || expirable.hasExpired(currentTimeMillis())) {
         if (cache.asMap().remove(key, expirable)) {
+          descheduleExpiration(expirable);
           dispatcher.publishExpired(this, key, expirable.get());
           statistics.recordEvictions(1);
         }
         expirable = null;
       }
       if (expirable == null) {
-        expirable = cache.get(key);
+        expirable = load(key);
         statistics.recordMisses(1L);
+        if (expirable != null) {
+          scheduleExpiration(key, expirable);
+        }
       } else {
         statistics.recordHits(1L);
+        setAccessExpirationTime(key, expirable, currentTimeMillis());
       }
       if (expirable != null) {
-        setExpirationTime(expirable, currentTimeMillis(), expiry::getExpiryForAccess);
         return copyValue(expirable);
       }
       return null;
     });
-    statistics.recordGetTime(ticker.read() - start);
+    statistics.recordGetTime(elapsedTime(start));
     return value;
   }
 
   @Override
   public Map<K, V> getAll(Set<? extends K> keys) {
-    final long start = ticker.read();
+    final long start = startTime();
     Map<K, V> result = doSafely(() -> {
       Map<K, Expirable<V>> entries = getAndFilterExpiredEntries(keys);
       statistics.recordHits(entries.size());
@@ -93,14 +111,149 @@ public final class LoadingCacheProxy<K, V> extends CacheProxy<K, V> {
             .filter(key -> !entries.containsKey(key))
             .collect(Collectors.<K>toList());
         statistics.recordMisses(keysToLoad.size());
-        entries.putAll(cache.getAll(keysToLoad));
+        entries.putAll(loadAll(keysToLoad));
       }
       return copyMap(entries);
     });
-    statistics.recordGetTime(ticker.read() - start);
+    statistics.recordGetTime(elapsedTime(start));
+    return result;
+  }
+
+  /**
+   * Loads the entry unless another thread is already loading it, in which case its entry is waited
+   * upon instead.
+   */
+  private @Nullable Expirable<V> load(K key) {
+    InFlightLoad<V> future = new InFlightLoad<>();
+    InFlightLoad<V> current = inFlight.putIfAbsent(key, future);
+    if (current == null) {
+      try {
+        Expirable<V> expirable = cache.get(key);
+        future.complete(expirable);
+        return expirable;
+      } catch (RuntimeException | Error e) {
+        future.completeExceptionally(e);
+        throw e;
+      } finally {
+        inFlight.remove(key, future);
+      }
+    }
+    return current.isOwnedByCurrentThread() ? cache.get(key) : join(current);
+  }
+
+  /**
+   * Loads the entries with a single call to the loader, except for the keys that another thread is
+   * already loading, whose entries are waited upon instead.
+   */
+  private Map<K, Expirable<V>> loadAll(List<K> keys) {
+    Map<K, CompletableFuture<Expirable<V>>> loading = new HashMap<>();
+    Map<K, InFlightLoad<V>> owned = new HashMap<>();
+    Set<K> keysToLoad = new HashSet<>();
+    for (K key : keys) {
+      InFlightLoad<V> future = new InFlightLoad<>();
+      InFlightLoad<V> current = inFlight.putIfAbsent(key, future);
+      if (current == null) {
+        owned.put(key, future);
+        keysToLoad.add(key);
+      } else if (current.isOwnedByCurrentThread()) {
+        keysToLoad.add(key);
+      } else {
+        loading.put(key, current);
+      }
+    }
+
+    Map<K, Expirable<V>> result = new HashMap<>(keys.size());
+    try {
+      if (!keysToLoad.isEmpty()) {
+        loadAndPut(keysToLoad, owned, result);
+      }
+    } catch (RuntimeException | Error e) {
+      owned.values().forEach(future -> future.completeExceptionally(e));
+      throw e;
+    } finally {
+      owned.forEach(inFlight::remove);
+    }
+    for (Map.Entry<K, CompletableFuture<Expirable<V>>> entry : loading.entrySet()) {
+      Expirable<V> expirable = join(entry.getValue());
+      if (expirable != null) {
+        result.put(entry.getKey(), expirable);
+      }
+    }
     return result;
   }
 
+  /**
+   * Loads the keys in bulk and completes the futures of the owned keys with the entries added to
+   * the cache. The keys that are not owned were registered by an outer load on this thread, which
+   * completes their futures itself. On a failure the caller completes the owned futures.
+   */
+  private void loadAndPut(Set<K> keysToLoad, Map<K, InFlightLoad<V>> owned,
+      Map<K, Expirable<V>> result) {
+    try {
+      Map<K, V> loaded = cacheLoader.get().loadAll(keysToLoad);
+      for (K key : keysToLoad) {
+        V value = loaded.get(key);
+        Expirable<V> expirable = (value == null) ? null : putLoaded(key, value);
+        if (expirable != null) {
+          result.put(key, expirable);
+        }
+        InFlightLoad<V> future = owned.get(key);
+        if (future != null) {
+          future.complete(expirable);
+        }
+      }
+    } catch (CacheLoaderException e) {
+      throw e;
+    } catch (RuntimeException e) {
+      throw new CacheLoaderException(e);
+    }
+  }
+
+  /**
+   * Adds the loaded value unless an unexpired entry was added concurrently, and returns the entry
+   * that is present.
+   */
+  private @Nullable Expirable<V> putLoaded(K key, V value) {
+    Object[] result = new Object[1];
+    cache.asMap().compute(copyOf(key), (k, expirable) -> {
+      if ((expirable != null) && !expirable.hasExpired(currentTimeMillis())) {
+        result[0] = expirable;
+        return expirable;
+      } else if (expirable != null) {
+        descheduleExpiration(expirable);
+        dispatcher.publishExpired(this, key, expirable.get());
+        statistics.recordEvictions(1L);
+      }
+      long expireTimeMS = expireTimeMS(expiry::getExpiryForCreation);
+      if (expireTimeMS == 0) {
+        result[0] = new Expirable<>(value, 0);
+        return null;
+      }
+      dispatcher.publishCreated(this, key, value);
+      Expirable<V> loaded = newExpirable(k, value, expireTimeMS, null);
+      result[0] = loaded;
+      return loaded;
+    });
+
+    @SuppressWarnings("unchecked")
+    Expirable<V> expirable = (Expirable<V>) result[0];
+    return expirable;
+  }
+
+  /** Waits for the entry being loaded by another thread, rethrowing its failure. */
+  private static <V> @Nullable Expirable<V> join(CompletableFuture<Expirable<V>> future) {
+    try {
+      return future.join();
+    } catch (CompletionException e) {
+      if (e.getCause() instanceof RuntimeException) {
+        throw (RuntimeException) e.getCause();
+      } else if (e.getCause() instanceof Error) {
+        throw (Error) e.getCause();
+      }
+      throw e;
+    }
+  }
+
   /** Returns all of the mappings present, expiring as required. */
   private Map<K, Expirable<V>> getAndFilterExpiredEntries(Set<? extends K> keys) {
     Map<K, Expirable<V>> result = new HashMap<>(cache.getAllPresent(keys));
@@ -111,6 +264,7 @@ public final class LoadingCacheProxy<K, V> extends CacheProxy<K, V> {
       Map.Entry<K, Expirable<V>> entry = i.next();
       if (entry.getValue().hasExpired(now)) {
         if (cache.asMap().remove(entry.getKey(), entry.getValue())) {
+          descheduleExpiration(entry.getValue());
           dispatcher.publishExpired(this, entry.getKey(), entry.getValue().get());
           expired++;
         }
@@ -121,33 +275,13 @@ public final class LoadingCacheProxy<K, V> extends CacheProxy<K, V> {
     return result;
   }
 
-  @Override
-  public void loadAll(Set<? extends K> keys, boolean replaceExistingValues,
-      CompletionListener completionListener) {
-    requireNotClosed();
-    keys.forEach(Objects::requireNonNull);
-    CompletionListener listener = (completionListener == null)
-        ? NullCompletionListener.INSTANCE
-        : completionListener;
-
-    ForkJoinPool.commonPool().execute(() -> {
-      try {
-        if (replaceExistingValues) {
-          int[] ignored = { 0 };
-          Map<K, V> loaded = cacheLoader.get().loadAll(keys);
-          for (Map.Entry<? extends K, ? extends V> entry : loaded.entrySet()) {
-            putNoCopyOrAwait(entry.getKey(), entry.getValue(), false, ignored);
-          }
-          listener.onCompletion();
-        } else {
-          getAll(keys);
-        }
-        listener.onCompletion();
-      } catch (Exception e) {
-        listener.onException(e);
-      } finally {
-        dispatcher.ignoreSynchronous();
-      }
-    });
+  /** An entry being loaded, which records the thread loading it to detect a reentrant read. */
+  static final class InFlightLoad<V> extends CompletableFuture<Expirable<V>> {
+    final Thread owner = Thread.currentThread();
+
+    /** Returns if the calling thread is performing this load. */
+    boolean isOwnedByCurrentThread() {
+      return (owner == Thread.currentThread());
+    }
   }
 }
@@ -17,11 +17,14 @@ package com.github.benmanes.caffeine.jcache.configuration;
 
 import java.util.Objects;
 import java.util.OptionalLong;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
 
 import javax.annotation.Nullable;
 import javax.cache.configuration.CacheEntryListenerConfiguration;
 import javax.cache.configuration.CompleteConfiguration;
 import javax.cache.configuration.Factory;
+import javax.cache.configuration.FactoryBuilder;
 import javax.cache.configuration.MutableConfiguration;
 import javax.cache.expiry.ExpiryPolicy;
 import javax.cache.integration.CacheLoader;
@@ -29,6 +32,7 @@ import javax.cache.integration.CacheWriter;
 
 import com.github.benmanes.caffeine.cache.Weigher;
 import com.github.benmanes.caffeine.jcache.copy.CopyStrategy;
+import com.github.benmanes.caffeine.jcache.copy.SerializationAwareCopyStrategy;
 
 /**
  * A JCache configuration with Caffeine specific settings.
@@ -40,21 +44,52 @@ public final class CaffeineConfiguration<K, V> implements CompleteConfiguration<
 
   private Factory<CopyStrategy> copyStrategyFactory;
   private Factory<Weigher<K, V>> weigherFactory;
+  private Factory<Executor> executorFactory;
   private MutableConfiguration<K, V> delegate;
+  private long writeBehindRetryBackoffNanos;
+  private long writeBehindFlushDelayNanos;
+  private long latencyWindowNanos;
   private Long expireAfterAccessNanos;
   private Long expireAfterWriteNanos;
+  private int writeBehindMaxRetries;
+  private int writeBehindBatchSize;
+  private int loadAllChunkSize;
+  private boolean coarseClock;
+  private boolean writeBehind;
   private Long maximumWeight;
   private Long maximumSize;
 
   public CaffeineConfiguration() {
     delegate = new MutableConfiguration<>();
+    copyStrategyFactory = FactoryBuilder.factoryOf(SerializationAwareCopyStrategy.class.getName());
+    writeBehindRetryBackoffNanos = TimeUnit.MILLISECONDS.toNanos(100);
+    writeBehindFlushDelayNanos = TimeUnit.SECONDS.toNanos(1);
+    writeBehindBatchSize = 100;
+    writeBehindMaxRetries = 3;
+    loadAllChunkSize = 1000;
+    latencyWindowNanos = TimeUnit.MINUTES.toNanos(1);
   }
 
   public CaffeineConfiguration(CompleteConfiguration<K, V> configuration) {
     this();
     delegate = new MutableConfiguration<>(configuration);
     if (configuration instanceof CaffeineConfiguration<?, ?>) {
-      copyStrategyFactory = ((CaffeineConfiguration<K, V>) configuration).getCopyStrategyFactory();
+      CaffeineConfiguration<K, V> config = (CaffeineConfiguration<K, V>) configuration;
+      writeBehindRetryBackoffNanos = config.writeBehindRetryBackoffNanos;
+      writeBehindFlushDelayNanos = config.writeBehindFlushDelayNanos;
+      latencyWindowNanos = config.latencyWindowNanos;
+      expireAfterAccessNanos = config.expireAfterAccessNanos;
+      expireAfterWriteNanos = config.expireAfterWriteNanos;
+      writeBehindMaxRetries = config.writeBehindMaxRetries;
+      writeBehindBatchSize = config.writeBehindBatchSize;
+      loadAllChunkSize = config.loadAllChunkSize;
+      copyStrategyFactory = config.copyStrategyFactory;
+      executorFactory = config.executorFactory;
+      weigherFactory = config.weigherFactory;
+      maximumWeight = config.maximumWeight;
+      coarseClock = config.coarseClock;
+      writeBehind = config.writeBehind;
+      maximumSize = config.maximumSize;
     }
   }
 
@@ -186,6 +221,102 @@ public final class CaffeineConfiguration<K, V> implements CompleteConfiguration<
     delegate.setManagementEnabled(enabled);
   }
 
+  /**
+   * Returns whether the writes are deferred and flushed to the {@link CacheWriter} in batches, if
+   * write-through is enabled.
+   *
+   * @return if write-behind is enabled
+   */
+  public boolean isWriteBehind() {
+    return writeBehind;
+  }
+
+  /**
+   * Set whether the writes are deferred and flushed to the {@link CacheWriter} in batches, rather
+   * than performed before the cache is updated, if write-through is enabled.
+   *
+   * @param isWriteBehind if write-behind should be enabled
+   */
+  public void setWriteBehind(boolean isWriteBehind) {
+    this.writeBehind = isWriteBehind;
+  }
+
+  /**
+   * Returns the maximum number of changes flushed in a batch when write-behind is enabled.
+   *
+   * @return the maximum batch size
+   */
+  public int getWriteBehindBatchSize() {
+    return writeBehindBatchSize;
+  }
+
+  /**
+   * Set the maximum number of changes flushed in a batch when write-behind is enabled.
+   *
+   * @param batchSize the maximum batch size
+   */
+  public void setWriteBehindBatchSize(int batchSize) {
+    this.writeBehindBatchSize = batchSize;
+  }
+
+  /**
+   * Returns the maximum duration in nanoseconds that a change is deferred for when write-behind is
+   * enabled.
+   *
+   * @return the duration in nanoseconds
+   */
+  public long getWriteBehindFlushDelay() {
+    return writeBehindFlushDelayNanos;
+  }
+
+  /**
+   * Set the maximum duration in nanoseconds that a change is deferred for when write-behind is
+   * enabled.
+   *
+   * @param flushDelayNanos the duration in nanoseconds
+   */
+  public void setWriteBehindFlushDelay(long flushDelayNanos) {
+    this.writeBehindFlushDelayNanos = flushDelayNanos;
+  }
+
+  /**
+   * Returns the number of times that a change which failed to be flushed is retried.
+   *
+   * @return the maximum number of retries
+   */
+  public int getWriteBehindMaxRetries() {
+    return writeBehindMaxRetries;
+  }
+
+  /**
+   * Set the number of times that a change which failed to be flushed is retried.
+   *
+   * @param maxRetries the maximum number of retries
+   */
+  public void setWriteBehindMaxRetries(int maxRetries) {
+    this.writeBehindMaxRetries = maxRetries;
+  }
+
+  /**
+   * Returns the duration in nanoseconds before the first retry of a change which failed to be
+   * flushed, which doubles on each subsequent retry.
+   *
+   * @return the duration in nanoseconds
+   */
+  public long getWriteBehindRetryBackoff() {
+    return writeBehindRetryBackoffNanos;
+  }
+
+  /**
+   * Set the duration in nanoseconds before the first retry of a change which failed to be flushed,
+   * which doubles on each subsequent retry.
+   *
+   * @param retryBackoffNanos the duration in nanoseconds
+   */
+  public void setWriteBehindRetryBackoff(long retryBackoffNanos) {
+    this.writeBehindRetryBackoffNanos = retryBackoffNanos;
+  }
+
   /**
    * Returns the {@link Factory} for the {@link CopyStrategy} to be used for the cache.
    *
@@ -310,6 +441,86 @@ public final class CaffeineConfiguration<K, V> implements CompleteConfiguration<
     weigherFactory = factory;
   }
 
+  /**
+   * Returns whether the {@link ExpiryPolicy}'s expiration times are checked against a shared clock
+   * of millisecond granularity that a background thread updates from the ticker, rather than by
+   * reading the ticker on each check. The thread runs while a cache that uses it is open.
+   *
+   * @return if the coarse clock is used for the expiration checks
+   */
+  public boolean isCoarseClock() {
+    return coarseClock;
+  }
+
+  /**
+   * Set whether the {@link ExpiryPolicy}'s expiration times are checked against a shared clock of
+   * millisecond granularity, which is cheaper to read than the ticker when the time source is slow.
+   *
+   * @param isCoarseClock if the coarse clock should be used for the expiration checks
+   */
+  public void setCoarseClock(boolean isCoarseClock) {
+    this.coarseClock = isCoarseClock;
+  }
+
+  /**
+   * Returns the duration in nanoseconds of a window of the latency histograms, whose percentiles
+   * are reported for the last completed window when statistics are enabled.
+   *
+   * @return the duration in nanoseconds
+   */
+  public long getLatencyWindow() {
+    return latencyWindowNanos;
+  }
+
+  /**
+   * Set the duration in nanoseconds of a window of the latency histograms.
+   *
+   * @param latencyWindowNanos the duration in nanoseconds
+   */
+  public void setLatencyWindow(long latencyWindowNanos) {
+    this.latencyWindowNanos = latencyWindowNanos;
+  }
+
+  /**
+   * Returns the maximum number of keys that {@link javax.cache.Cache#loadAll} passes to each call
+   * of the {@link CacheLoader#loadAll}, where the chunks are loaded in parallel on the executor.
+   *
+   * @return the maximum number of keys loaded per call
+   */
+  public int getLoadAllChunkSize() {
+    return loadAllChunkSize;
+  }
+
+  /**
+   * Set the maximum number of keys that {@link javax.cache.Cache#loadAll} passes to each call of
+   * the {@link CacheLoader#loadAll}.
+   *
+   * @param chunkSize the maximum number of keys loaded per call
+   */
+  public void setLoadAllChunkSize(int chunkSize) {
+    this.loadAllChunkSize = chunkSize;
+  }
+
+  /**
+   * Returns the {@link Factory} for the {@link Executor} that runs the cache's asynchronous and
+   * parallel work, such as delivering events and processing the entries of a bulk operation. If
+   * not set then the {@link java.util.concurrent.ForkJoinPool#commonPool()} is used.
+   *
+   * @return the {@link Factory} for the {@link Executor}, or null if the common pool is used
+   */
+  public @Nullable Factory<Executor> getExecutorFactory() {
+    return executorFactory;
+  }
+
+  /**
+   * Set the {@link Factory} for the {@link Executor}.
+   *
+   * @param factory the {@link Executor} {@link Factory}, or null to use the common pool
+   */
+  public void setExecutorFactory(@Nullable Factory<Executor> factory) {
+    executorFactory = factory;
+  }
+
   @Override
   public boolean equals(Object o) {
     if (o == this) {
@@ -321,9 +532,18 @@ public final class CaffeineConfiguration<K, V> implements CompleteConfiguration<
     return Objects.equals(expireAfterAccessNanos, config.expireAfterAccessNanos)
         && Objects.equals(expireAfterWriteNanos, config.expireAfterWriteNanos)
         && Objects.equals(copyStrategyFactory, config.copyStrategyFactory)
+        && Objects.equals(executorFactory, config.executorFactory)
         && Objects.equals(weigherFactory, config.weigherFactory)
         && Objects.equals(maximumWeight, config.maximumWeight)
         && Objects.equals(maximumSize, config.maximumSize)
+        && (writeBehindRetryBackoffNanos == config.writeBehindRetryBackoffNanos)
+        && (writeBehindFlushDelayNanos == config.writeBehindFlushDelayNanos)
+        && (latencyWindowNanos == config.latencyWindowNanos)
+        && (writeBehindMaxRetries == config.writeBehindMaxRetries)
+        && (writeBehindBatchSize == config.writeBehindBatchSize)
+        && (loadAllChunkSize == config.loadAllChunkSize)
+        && (coarseClock == config.coarseClock)
+        && (writeBehind == config.writeBehind)
         && delegate.equals(config.delegate);
   }
 
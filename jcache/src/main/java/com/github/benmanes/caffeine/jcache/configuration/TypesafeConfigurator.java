@@ -95,6 +95,7 @@ public final class TypesafeConfigurator {
       addReadThrough();
       addWriteThrough();
       addMonitoring();
+      addExecutor();
       addLazyExpiration();
       addEagerExpiration();
       addMaximum();
@@ -112,6 +113,13 @@ public final class TypesafeConfigurator {
       }
     }
 
+    /** Adds the executor for the asynchronous and parallel work, if set. */
+    private void addExecutor() {
+      if (config.hasPath("executor")) {
+        configuration.setExecutorFactory(FactoryBuilder.factoryOf(config.getString("executor")));
+      }
+    }
+
     /** Adds the entry listeners settings. */
     private void addListeners() {
       for (String path : config.getStringList("listeners")) {
@@ -140,6 +148,7 @@ public final class TypesafeConfigurator {
         String loaderClass = config.getString("read-through.loader");
         configuration.setCacheLoaderFactory(FactoryBuilder.factoryOf(loaderClass));
       }
+      configuration.setLoadAllChunkSize(config.getInt("read-through.load-all-chunk-size"));
     }
 
     /** Adds the write through settings. */
@@ -150,12 +159,22 @@ public final class TypesafeConfigurator {
         String writerClass = config.getString("write-through.writer");
         configuration.setCacheWriterFactory(FactoryBuilder.factoryOf(writerClass));
       }
+      Config writeBehind = config.getConfig("write-through.write-behind");
+      configuration.setWriteBehind(writeBehind.getBoolean("enabled"));
+      configuration.setWriteBehindBatchSize(writeBehind.getInt("batch-size"));
+      configuration.setWriteBehindMaxRetries(writeBehind.getInt("max-retries"));
+      configuration.setWriteBehindFlushDelay(
+          writeBehind.getDuration("flush-delay", TimeUnit.NANOSECONDS));
+      configuration.setWriteBehindRetryBackoff(
+          writeBehind.getDuration("retry-backoff", TimeUnit.NANOSECONDS));
     }
 
     /** Adds the JMX monitoring settings. */
     private void addMonitoring() {
       configuration.setStatisticsEnabled(config.getBoolean("monitoring.statistics"));
       configuration.setManagementEnabled(config.getBoolean("monitoring.management"));
+      configuration.setLatencyWindow(
+          config.getDuration("monitoring.latency-window", TimeUnit.NANOSECONDS));
     }
 
     /** Adds the JCache specification's lazy expiration settings. */
@@ -169,6 +188,7 @@ public final class TypesafeConfigurator {
           ? EternalExpiryPolicy.factoryOf()
           : FactoryBuilder.factoryOf(new JCacheExpiryPolicy(creation, update, access));
       configuration.setExpiryPolicyFactory(factory);
+      configuration.setCoarseClock(config.getBoolean("policy.lazy-expiration.coarse-clock"));
     }
 
     /** Returns the duration for the expiration time. */
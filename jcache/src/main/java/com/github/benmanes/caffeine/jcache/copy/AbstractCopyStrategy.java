@@ -34,6 +34,7 @@ import java.util.Arrays;
 import java.util.Calendar;
 import java.util.Collections;
 import java.util.Date;
+import java.util.GregorianCalendar;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Map;
@@ -61,7 +62,7 @@ public abstract class AbstractCopyStrategy<A> implements CopyStrategy {
         InetSocketAddress.class, LocalDate.class, LocalTime.class, LocalDateTime.class,
         Instant.class, Duration.class)));
     Map<Class<?>, Function<Object, Object>> strategies = new HashMap<>();
-    strategies.put(Date.class, o -> ((Calendar) o).clone());
+    strategies.put(GregorianCalendar.class, o -> ((Calendar) o).clone());
     strategies.put(Date.class, o -> ((Date) o).clone());
     JAVA_DEEP_COPY = Collections.unmodifiableMap(strategies);
   }
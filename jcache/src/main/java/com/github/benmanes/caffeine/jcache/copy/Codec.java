@@ -0,0 +1,54 @@
+/*
+ * Copyright 2015 Ben Manes. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.benmanes.caffeine.jcache.copy;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+
+import javax.annotation.Nonnull;
+import javax.annotation.concurrent.ThreadSafe;
+
+/**
+ * Encodes an object of a class into a compact binary form and decodes a copy from it, as a faster
+ * alternative to Java serialization for a {@link CodecCopyStrategy}.
+ *
+ * @param <T> the type of object being copied
+ * @author ben.manes@gmail.com (Ben Manes)
+ */
+@ThreadSafe
+public interface Codec<T> {
+
+  /**
+   * Writes the state of the object.
+   *
+   * @param object the object to encode
+   * @param output the sink to write to
+   * @throws IOException if the state could not be written
+   */
+  void encode(@Nonnull T object, @Nonnull DataOutput output) throws IOException;
+
+  /**
+   * Reads the state written by {@link #encode} and returns a new instance.
+   *
+   * @param input the source to read from
+   * @param classLoader the classloader to instantiate with
+   * @return a copy of the encoded object
+   * @throws IOException if the state could not be read
+   */
+  @Nonnull
+  T decode(@Nonnull DataInput input, @Nonnull ClassLoader classLoader) throws IOException;
+}
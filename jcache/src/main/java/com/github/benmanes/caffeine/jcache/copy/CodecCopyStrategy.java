@@ -0,0 +1,309 @@
+/*
+ * Copyright 2015 Ben Manes. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.benmanes.caffeine.jcache.copy;
+
+import static java.util.Objects.requireNonNull;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.LinkedList;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.function.Function;
+
+import javax.annotation.Nullable;
+import javax.cache.CacheException;
+
+import com.github.benmanes.caffeine.jcache.copy.SerializationAwareCopyStrategy.ClassLoaderAwareObjectInputStream;
+
+/**
+ * A strategy that encodes an object with the {@link Codec} registered for its class, and uses Java
+ * serialization if a codec is not available. The object is written to and read back from a buffer
+ * that is reused by the calling thread, so that a copy does not allocate the intermediate bytes.
+ * <p>
+ * Arrays and the common collections of the <tt>java.util</tt> package are cloned and their elements
+ * copied individually when every element can be copied without serialization, and otherwise are
+ * serialized as a whole. Unlike serialization, the element-wise copy does not track the objects
+ * that it has visited, so an object referenced by multiple elements is copied once per reference
+ * and a container must not contain itself. For this reason the strategy is not the default and
+ * must be configured explicitly.
+ *
+ * @author ben.manes@gmail.com (Ben Manes)
+ */
+public class CodecCopyStrategy extends AbstractCopyStrategy<CodecCopyStrategy.Buffer> {
+  private static final Map<Class<?>, Function<Object, Object>> JAVA_CLONEABLE;
+  static final int MAX_RETAINED_CAPACITY = 1 << 16;
+  static final int INITIAL_CAPACITY = 1 << 8;
+
+  static {
+    Map<Class<?>, Function<Object, Object>> cloneable = new HashMap<>();
+    cloneable.put(ArrayList.class, o -> ((ArrayList<?>) o).clone());
+    cloneable.put(LinkedList.class, o -> ((LinkedList<?>) o).clone());
+    cloneable.put(ArrayDeque.class, o -> ((ArrayDeque<?>) o).clone());
+    cloneable.put(HashSet.class, o -> ((HashSet<?>) o).clone());
+    cloneable.put(LinkedHashSet.class, o -> ((LinkedHashSet<?>) o).clone());
+    cloneable.put(TreeSet.class, o -> ((TreeSet<?>) o).clone());
+    cloneable.put(HashMap.class, o -> ((HashMap<?, ?>) o).clone());
+    cloneable.put(LinkedHashMap.class, o -> ((LinkedHashMap<?, ?>) o).clone());
+    cloneable.put(TreeMap.class, o -> ((TreeMap<?, ?>) o).clone());
+    JAVA_CLONEABLE = Collections.unmodifiableMap(cloneable);
+  }
+
+  private final Map<Class<?>, Codec<?>> codecs;
+  private final ThreadLocal<Buffer> buffers;
+
+  public CodecCopyStrategy() {
+    this(Collections.emptyMap());
+  }
+
+  public CodecCopyStrategy(Map<Class<?>, Codec<?>> codecs) {
+    this(javaImmutableClasses(), javaDeepCopyStrategies(), codecs);
+  }
+
+  public CodecCopyStrategy(Set<Class<?>> immutableClasses,
+      Map<Class<?>, Function<Object, Object>> deepCopyStrategies,
+      Map<Class<?>, Codec<?>> codecs) {
+    super(immutableClasses, deepCopyStrategies);
+    this.codecs = requireNonNull(codecs);
+    this.buffers = ThreadLocal.withInitial(Buffer::new);
+  }
+
+  @Override
+  public <T> T copy(T object, ClassLoader classLoader) {
+    return isContainer(object.getClass()) && canCopyElements(object)
+        ? copyContainer(object, classLoader)
+        : super.copy(object, classLoader);
+  }
+
+  /** @return if the class is an array or collection whose elements may be copied individually. */
+  private boolean isContainer(Class<?> clazz) {
+    if (isImmutable(clazz) || canDeeplyCopy(clazz)) {
+      return false;
+    } else if (clazz.isArray()) {
+      Class<?> component = clazz.getComponentType();
+      return !component.isPrimitive() && !isImmutable(component);
+    }
+    return JAVA_CLONEABLE.containsKey(clazz);
+  }
+
+  /** @return if the object is copied by a fast path, including each of a container's elements. */
+  private boolean canCopyElements(@Nullable Object object) {
+    if (object == null) {
+      return true;
+    }
+    Class<?> clazz = object.getClass();
+    if (!isContainer(clazz)) {
+      return isImmutable(clazz) || canDeeplyCopy(clazz)
+          || clazz.isArray() || codecs.containsKey(clazz);
+    } else if (object instanceof Object[]) {
+      for (Object element : (Object[]) object) {
+        if (!canCopyElements(element)) {
+          return false;
+        }
+      }
+    } else if (object instanceof Map<?, ?>) {
+      for (Map.Entry<?, ?> entry : ((Map<?, ?>) object).entrySet()) {
+        if (!canCopyElements(entry.getKey()) || !canCopyElements(entry.getValue())) {
+          return false;
+        }
+      }
+    } else {
+      for (Object element : (Collection<?>) object) {
+        if (!canCopyElements(element)) {
+          return false;
+        }
+      }
+    }
+    return true;
+  }
+
+  /** @return a copy of the array or collection, which is known to have copyable elements. */
+  private <T> T copyContainer(T object, ClassLoader classLoader) {
+    if (object instanceof Object[]) {
+      return copyArray(object, classLoader);
+    } else if (object instanceof Map<?, ?>) {
+      return copyMap(object, classLoader);
+    }
+    return copyCollection(object, classLoader);
+  }
+
+  /** @return a copy of the array with each of its elements copied. */
+  private <T> T copyArray(T object, ClassLoader classLoader) {
+    Object[] copy = ((Object[]) object).clone();
+    for (int i = 0; i < copy.length; i++) {
+      copy[i] = copyElement(copy[i], classLoader);
+    }
+    @SuppressWarnings("unchecked")
+    T array = (T) copy;
+    return array;
+  }
+
+  /** @return a clone of the collection with each of its elements copied. */
+  private <T> T copyCollection(T object, ClassLoader classLoader) {
+    @SuppressWarnings("unchecked")
+    Collection<Object> copy = (Collection<Object>) cloneOf(object);
+    copy.clear();
+    for (Object element : (Collection<?>) object) {
+      copy.add(copyElement(element, classLoader));
+    }
+    @SuppressWarnings("unchecked")
+    T collection = (T) copy;
+    return collection;
+  }
+
+  /** @return a clone of the map with each of its keys and values copied. */
+  private <T> T copyMap(T object, ClassLoader classLoader) {
+    @SuppressWarnings("unchecked")
+    Map<Object, Object> copy = (Map<Object, Object>) cloneOf(object);
+    copy.clear();
+    for (Map.Entry<?, ?> entry : ((Map<?, ?>) object).entrySet()) {
+      Object key = copyElement(entry.getKey(), classLoader);
+      copy.put(key, copyElement(entry.getValue(), classLoader));
+    }
+    @SuppressWarnings("unchecked")
+    T map = (T) copy;
+    return map;
+  }
+
+  /** @return a shallow clone of the collection, which retains its comparator and ordering. */
+  private static Object cloneOf(Object collection) {
+    return JAVA_CLONEABLE.get(collection.getClass()).apply(collection);
+  }
+
+  /** @return a copy of the element, which may be null. */
+  private @Nullable Object copyElement(@Nullable Object element, ClassLoader classLoader) {
+    if (element == null) {
+      return null;
+    }
+    return isContainer(element.getClass())
+        ? copyContainer(element, classLoader)
+        : super.copy(element, classLoader);
+  }
+
+  @Override
+  protected Buffer serialize(Object object) {
+    Buffer buffer = buffers.get();
+    buffer.codec = codecFor(object.getClass());
+    buffer.reset();
+    try {
+      if (buffer.codec == null) {
+        try (ObjectOutputStream output = new ObjectOutputStream(buffer)) {
+          output.writeObject(object);
+        }
+      } else {
+        buffer.codec.encode(object, buffer.output);
+      }
+    } catch (IOException e) {
+      throw new IllegalArgumentException("Failed to serialize " + e.getClass(), e);
+    }
+    return buffer;
+  }
+
+  @Override
+  protected Object deserialize(Buffer buffer, ClassLoader classLoader) {
+    buffer.position = 0;
+    try {
+      if (buffer.codec != null) {
+        return buffer.codec.decode(buffer.input, classLoader);
+      }
+      try (ObjectInputStream input =
+          new ClassLoaderAwareObjectInputStream(buffer.input, classLoader)) {
+        return input.readObject();
+      }
+    } catch (IOException e) {
+      throw new CacheException("Failed to deserialize", e);
+    } catch (ClassNotFoundException e) {
+      throw new CacheException("Failed to resolve a deserialized class", e);
+    } finally {
+      buffer.release();
+    }
+  }
+
+  /** @return the codec registered for the class, or null if it uses Java serialization. */
+  private @Nullable Codec<Object> codecFor(Class<?> clazz) {
+    @SuppressWarnings("unchecked")
+    Codec<Object> codec = (Codec<Object>) codecs.get(clazz);
+    return codec;
+  }
+
+  /**
+   * A thread's reusable buffer that an object is written to and then read back from. The capacity
+   * grows as needed, but a buffer that grew unusually large is discarded after the copy.
+   */
+  protected static final class Buffer extends ByteArrayOutputStream {
+    final DataOutputStream output;
+    final DataInputStream input;
+
+    @Nullable Codec<Object> codec;
+    int position;
+
+    Buffer() {
+      super(INITIAL_CAPACITY);
+      output = new DataOutputStream(this);
+      input = new DataInputStream(new BufferInputStream());
+    }
+
+    /** Discards the reference to the codec and an oversized array. */
+    void release() {
+      codec = null;
+      if (buf.length > MAX_RETAINED_CAPACITY) {
+        buf = new byte[INITIAL_CAPACITY];
+      }
+    }
+
+    /** An {@linkplain InputStream} that reads the written bytes without copying them. */
+    final class BufferInputStream extends InputStream {
+
+      @Override
+      public int read() {
+        return (position < count) ? (buf[position++] & 0xFF) : -1;
+      }
+
+      @Override
+      public int read(byte[] bytes, int offset, int length) {
+        if (length == 0) {
+          return 0;
+        } else if (position >= count) {
+          return -1;
+        }
+        int read = Math.min(length, count - position);
+        System.arraycopy(buf, position, bytes, offset, read);
+        position += read;
+        return read;
+      }
+
+      @Override
+      public int available() {
+        return count - position;
+      }
+    }
+  }
+}
@@ -0,0 +1,181 @@
+/*
+ * Copyright 2015 Ben Manes. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.benmanes.caffeine.jcache.event;
+
+import static java.util.Objects.requireNonNull;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import javax.annotation.concurrent.ThreadSafe;
+import javax.cache.event.CacheEntryEvent;
+import javax.cache.event.EventType;
+
+/**
+ * A queue of the events to be delivered to a registered listener. The events are appended by the
+ * publishing threads and delivered in batches by a single task on the executor at a time, so that
+ * the listener receives the events in the order that they were published and is never executed in
+ * parallel. A batch is delivered as runs of consecutive events of the same type, so that each
+ * listener method is invoked once per run.
+ * <p>
+ * A publisher that waits on a synchronous listener appends a barrier after its events, which is
+ * completed once the events ahead of it were delivered.
+ *
+ * @author ben.manes@gmail.com (Ben Manes)
+ */
+@ThreadSafe
+final class DispatchQueue<K, V> {
+  static final Logger logger = Logger.getLogger(DispatchQueue.class.getName());
+
+  /** The maximum number of events delivered to the listener in a batch. */
+  static final int MAX_BATCH_SIZE = 1024;
+
+  final Registration<K, V> registration;
+  final AtomicBoolean drainScheduled;
+  final Queue<Object> queue;
+  final Executor executor;
+
+  DispatchQueue(Registration<K, V> registration, Executor executor) {
+    this.registration = requireNonNull(registration);
+    this.executor = requireNonNull(executor);
+    this.drainScheduled = new AtomicBoolean();
+    this.queue = new ConcurrentLinkedQueue<>();
+  }
+
+  /** @return the registration whose listener receives the events */
+  public Registration<K, V> getRegistration() {
+    return registration;
+  }
+
+  /** Appends the event to be delivered by the next drain. */
+  public void add(CacheEntryEvent<K, V> event) {
+    queue.add(event);
+  }
+
+  /**
+   * Appends a barrier after the events published so far.
+   *
+   * @return a future that completes when the events ahead of the barrier were delivered
+   */
+  public CompletableFuture<Void> barrier() {
+    CompletableFuture<Void> barrier = new CompletableFuture<>();
+    queue.add(barrier);
+    return barrier;
+  }
+
+  /**
+   * Schedules a drain of the queue on the executor if one is not already scheduled. If the executor
+   * rejects the task then the queue is drained by the calling thread instead, so that the events
+   * and barriers are not stranded.
+   */
+  public void scheduleDrain() {
+    while (!queue.isEmpty() && drainScheduled.compareAndSet(false, true)) {
+      try {
+        executor.execute(this::drain);
+        return;
+      } catch (RejectedExecutionException e) {
+        deliverQueued();
+      }
+    }
+  }
+
+  /** Delivers the queued events and schedules another drain if more were added meanwhile. */
+  void drain() {
+    deliverQueued();
+    scheduleDrain();
+  }
+
+  /**
+   * Delivers the queued events in batches, completing the barriers as they are reached, and then
+   * releases the drain's ownership of the queue.
+   */
+  private void deliverQueued() {
+    try {
+      List<CacheEntryEvent<K, V>> batch = new ArrayList<>();
+      for (Object item = queue.poll(); item != null; item = queue.poll()) {
+        if (item instanceof CompletableFuture<?>) {
+          batch = deliver(batch);
+          ((CompletableFuture<?>) item).complete(null);
+        } else {
+          @SuppressWarnings("unchecked")
+          CacheEntryEvent<K, V> event = (CacheEntryEvent<K, V>) item;
+          batch.add(event);
+          if (batch.size() == MAX_BATCH_SIZE) {
+            batch = deliver(batch);
+          }
+        }
+      }
+      deliver(batch);
+    } finally {
+      drainScheduled.set(false);
+    }
+  }
+
+  /**
+   * Delivers the batch to the listener as runs of the same event type. The batch is not reused, as
+   * the listener may retain the events that it was given.
+   *
+   * @return an empty list for the next batch
+   */
+  private List<CacheEntryEvent<K, V>> deliver(List<CacheEntryEvent<K, V>> batch) {
+    if (batch.isEmpty()) {
+      return batch;
+    }
+    int start = 0;
+    for (int i = 1; i <= batch.size(); i++) {
+      if ((i == batch.size()) || (batch.get(i).getEventType() != batch.get(start).getEventType())) {
+        deliver(batch.get(start).getEventType(), batch.subList(start, i));
+        start = i;
+      }
+    }
+    return new ArrayList<>();
+  }
+
+  /** Delivers the events of the same type to the listener, logging if it fails. */
+  private void deliver(EventType type, List<CacheEntryEvent<K, V>> events) {
+    EventTypeAwareListener<K, V> listener = registration.getCacheEntryListener();
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    Iterable<CacheEntryEvent<? extends K, ? extends V>> iterable = (List) events;
+    try {
+      switch (type) {
+        case CREATED:
+          listener.onCreated(iterable);
+          return;
+        case UPDATED:
+          listener.onUpdated(iterable);
+          return;
+        case REMOVED:
+          listener.onRemoved(iterable);
+          return;
+        case EXPIRED:
+          listener.onExpired(iterable);
+          return;
+        default:
+          throw new IllegalStateException("Unknown event type: " + type);
+      }
+    } catch (Throwable t) {
+      logger.log(Level.WARNING, "Exception thrown by the cache entry listener", t);
+    }
+  }
+}
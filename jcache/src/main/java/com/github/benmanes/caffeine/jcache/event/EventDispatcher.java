@@ -18,14 +18,13 @@ package com.github.benmanes.caffeine.jcache.event;
 import static java.util.Objects.requireNonNull;
 
 import java.util.ArrayList;
-import java.util.Collections;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
-import java.util.Objects;
+import java.util.Set;
 import java.util.concurrent.CompletableFuture;
-import java.util.concurrent.CompletionException;
 import java.util.concurrent.ConcurrentHashMap;
-import java.util.function.Consumer;
+import java.util.concurrent.Executor;
 
 import javax.cache.Cache;
 import javax.cache.configuration.CacheEntryListenerConfiguration;
@@ -40,24 +39,27 @@ import javax.cache.event.EventType;
  * A {@link CacheEntryListener} is required to receive events in the order of the actions being
  * performed on the associated entry. This implementation supports this through an actor-like model
  * by using a dispatch queue per listener. A listener is never executed in parallel on different
- * events, but may be executed sequentially on different threads. Batch processing of the dispatch
- * queue is not presently supported.
+ * events, but may be executed sequentially on different threads. The queued events are delivered
+ * in batches, where the drain of a queue is scheduled when the publishing thread completes its
+ * operation, so that the events of a bulk operation are typically delivered together.
  * <p>
  * Some listeners may be configured as <tt>synchronous</tt>, meaning that the publishing thread
  * should wait until the listener has processed the event. The calling thread should publish within
  * an atomic block that mutates the entry, and complete the operation by calling
- * {@link #awaitSynchronous()}.
+ * {@link #awaitSynchronous()}, or {@link #ignoreSynchronous()} if it should not wait.
  *
  * @author ben.manes@gmail.com (Ben Manes)
  */
 public final class EventDispatcher<K, V> {
-  private static final ThreadLocal<List<CompletableFuture<Void>>> pending =
-      ThreadLocal.withInitial(ArrayList::new);
+  private static final ThreadLocal<Set<DispatchQueue<?, ?>>> published =
+      ThreadLocal.withInitial(HashSet::new);
 
-  private final Map<Registration<K, V>, CompletableFuture<Void>> dispatchQueues;
+  private final Map<Registration<K, V>, DispatchQueue<K, V>> dispatchQueues;
+  private final Executor executor;
 
-  public EventDispatcher() {
-    dispatchQueues = new ConcurrentHashMap<>();
+  public EventDispatcher(Executor executor) {
+    this.dispatchQueues = new ConcurrentHashMap<>();
+    this.executor = requireNonNull(executor);
   }
 
   /**
@@ -79,7 +81,7 @@ public final class EventDispatcher<K, V> {
     }
 
     Registration<K, V> registration = new Registration<>(configuration, filter, listener);
-    dispatchQueues.putIfAbsent(registration, CompletableFuture.completedFuture(null));
+    dispatchQueues.computeIfAbsent(registration, key -> new DispatchQueue<>(key, executor));
   }
 
   /**
@@ -103,7 +105,7 @@ public final class EventDispatcher<K, V> {
   public void publishCreated(Cache<K, V> cache, K key, V value) {
     CacheEntryEvent<K, V> event = new JCacheEntryEvent<>(
         cache, EventType.CREATED, key, null, value);
-    publish(event, listener -> listener.onCreated(Collections.singleton(event)));
+    publish(event);
   }
 
   /**
@@ -117,7 +119,7 @@ public final class EventDispatcher<K, V> {
   public void publishUpdated(Cache<K, V> cache, K key, V oldValue, V newValue) {
     CacheEntryEvent<K, V> event = new JCacheEntryEvent<>(
         cache, EventType.UPDATED, key, oldValue, newValue);
-    publish(event, listener -> listener.onUpdated(Collections.singleton(event)));
+    publish(event);
   }
 
   /**
@@ -130,7 +132,7 @@ public final class EventDispatcher<K, V> {
   public void publishRemoved(Cache<K, V> cache, K key, V value) {
     CacheEntryEvent<K, V> event = new JCacheEntryEvent<>(
         cache, EventType.REMOVED, key, null, value);
-    publish(event, listener -> listener.onRemoved(Collections.singleton(event)));
+    publish(event);
   }
 
   /**
@@ -143,7 +145,7 @@ public final class EventDispatcher<K, V> {
   public void publishExpired(Cache<K, V> cache, K key, V value) {
     CacheEntryEvent<K, V> event = new JCacheEntryEvent<>(
         cache, EventType.EXPIRED, key, value, null);
-    publish(event, listener -> listener.onExpired(Collections.singleton(event)));
+    publish(event);
   }
 
   /**
@@ -151,36 +153,82 @@ public final class EventDispatcher<K, V> {
    * published.
    */
   public void awaitSynchronous() {
-    List<CompletableFuture<Void>> futures = pending.get();
+    CompletableFuture<Void> future = dispatchSynchronous();
+    if (!future.isDone()) {
+      future.join();
+    }
+  }
+
+  /**
+   * Delivers the events this thread published and returns a future that completes when all of the
+   * synchronous listeners have finished processing them. This allows a thread that published on
+   * behalf of another to hand off the wait, such as when a bulk operation is performed in parallel.
+   *
+   * @return a future that completes when the synchronous listeners have processed the events
+   */
+  public CompletableFuture<Void> dispatchSynchronous() {
+    Set<DispatchQueue<?, ?>> queues = published.get();
+    if (queues.isEmpty()) {
+      return CompletableFuture.completedFuture(null);
+    }
+    List<CompletableFuture<Void>> barriers = new ArrayList<>();
     try {
-      if (!futures.isEmpty()) {
-        CompletableFuture.allOf(futures.toArray(new CompletableFuture<?>[futures.size()])).join();
+      for (DispatchQueue<?, ?> queue : queues) {
+        if (queue.getRegistration().isSynchronous()) {
+          barriers.add(queue.barrier());
+        }
+        queue.scheduleDrain();
       }
-    } catch (CompletionException e) {
-      // ignored
     } finally {
-      futures.clear();
+      queues.clear();
     }
+    return barriers.isEmpty()
+        ? CompletableFuture.completedFuture(null)
+        : CompletableFuture.allOf(barriers.toArray(new CompletableFuture<?>[barriers.size()]));
   }
 
   /**
-   * Ignores and clears the queued futures to the synchronous listeners that are processing events
-   * this thread published.
+   * Delivers the events this thread published without waiting for the synchronous listeners to
+   * process them.
    */
   public void ignoreSynchronous() {
-    pending.get().clear();
+    Set<DispatchQueue<?, ?>> queues = published.get();
+    try {
+      queues.forEach(DispatchQueue::scheduleDrain);
+    } finally {
+      queues.clear();
+    }
+  }
+
+  /**
+   * Performs the task in a publication scope of its own and delivers the events that it published
+   * without waiting for the synchronous listeners. This allows work that may run on behalf of the
+   * cache within another operation, such as an expiration or eviction, to publish without
+   * delivering or discarding the events of the enclosing operation.
+   *
+   * @param task the work that publishes events
+   */
+  public void publishDetached(Runnable task) {
+    Set<DispatchQueue<?, ?>> outer = published.get();
+    published.set(new HashSet<>());
+    try {
+      task.run();
+    } finally {
+      try {
+        ignoreSynchronous();
+      } finally {
+        published.set(outer);
+      }
+    }
   }
 
   /** Broadcasts the event to all of the interested listener's dispatch queues. */
-  private void publish(CacheEntryEvent<K, V> event,
-      Consumer<EventTypeAwareListener<K, V>> operation) {
-    dispatchQueues.keySet().stream()
-        .filter(registration -> registration.getCacheEntryFilter().evaluate(event))
-        .map(registration -> {
-          Runnable action = () -> operation.accept(registration.getCacheEntryListener());
-          CompletableFuture<Void> future = dispatchQueues.computeIfPresent(
-              registration, (key, queue) -> queue.thenRunAsync(action));
-          return ((future != null) && registration.isSynchronous()) ? future : null;
-        }).filter(Objects::nonNull).forEach(pending.get()::add);
+  private void publish(CacheEntryEvent<K, V> event) {
+    for (DispatchQueue<K, V> queue : dispatchQueues.values()) {
+      if (queue.getRegistration().getCacheEntryFilter().evaluate(event)) {
+        queue.add(event);
+        published.get().add(queue);
+      }
+    }
   }
 }
@@ -0,0 +1,124 @@
+/*
+ * Copyright 2015 Ben Manes. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.benmanes.caffeine.jcache.expiry;
+
+import static java.util.Objects.requireNonNull;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+import javax.annotation.Nullable;
+import javax.annotation.concurrent.GuardedBy;
+import javax.annotation.concurrent.ThreadSafe;
+
+import com.github.benmanes.caffeine.cache.Ticker;
+
+/**
+ * A clock of millisecond granularity that is shared by the caches using the same {@link Ticker}.
+ * The time is read from a field that a daemon thread updates from the ticker every millisecond,
+ * which is cheaper than reading the ticker on each expiration check when the host's clock source is
+ * slow. The thread is started when the first cache acquires the clock and is stopped when the last
+ * one releases it.
+ *
+ * @author ben.manes@gmail.com (Ben Manes)
+ */
+@ThreadSafe
+public final class CoarseClock {
+  static final long RESOLUTION_NANOS = TimeUnit.MILLISECONDS.toNanos(1);
+
+  @GuardedBy("CoarseClock.class")
+  static final Map<Ticker, CoarseClock> clocks = new HashMap<>();
+
+  final Ticker ticker;
+
+  @GuardedBy("CoarseClock.class")
+  int users;
+
+  volatile @Nullable Thread thread;
+  volatile long timeMS;
+
+  private CoarseClock(Ticker ticker) {
+    this.ticker = requireNonNull(ticker);
+  }
+
+  /**
+   * Returns the clock that is updated from the ticker, starting it if it has no other users. The
+   * caller must {@linkplain #release} the clock when it is no longer used.
+   *
+   * @param ticker the time source of the clock
+   * @return the clock for the ticker
+   */
+  public static CoarseClock acquire(Ticker ticker) {
+    synchronized (CoarseClock.class) {
+      CoarseClock clock = clocks.computeIfAbsent(ticker, CoarseClock::new);
+      if (clock.users++ == 0) {
+        clock.start();
+      }
+      return clock;
+    }
+  }
+
+  /** Releases a use of the clock, stopping it if there are no other users. */
+  public void release() {
+    synchronized (CoarseClock.class) {
+      if (--users == 0) {
+        clocks.remove(ticker);
+        stop();
+      }
+    }
+  }
+
+  /**
+   * Returns the ticker's time as of the last update, in milliseconds.
+   *
+   * @return the current time in milliseconds
+   */
+  public long currentTimeMillis() {
+    return timeMS;
+  }
+
+  @GuardedBy("CoarseClock.class")
+  private void start() {
+    timeMS = read();
+    Thread updater = new Thread(this::tick, "caffeine-jcache-coarse-clock");
+    updater.setDaemon(true);
+    thread = updater;
+    updater.start();
+  }
+
+  @GuardedBy("CoarseClock.class")
+  private void stop() {
+    Thread updater = thread;
+    thread = null;
+    LockSupport.unpark(updater);
+  }
+
+  /** Updates the time at the clock's resolution until the clock is stopped. */
+  void tick() {
+    Thread current = Thread.currentThread();
+    while (thread == current) {
+      LockSupport.parkNanos(this, RESOLUTION_NANOS);
+      Thread.interrupted();
+      timeMS = read();
+    }
+  }
+
+  long read() {
+    return TimeUnit.NANOSECONDS.toMillis(ticker.read());
+  }
+}
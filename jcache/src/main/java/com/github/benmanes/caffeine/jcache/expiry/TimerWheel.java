@@ -0,0 +1,221 @@
+/*
+ * Copyright 2015 Ben Manes. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.benmanes.caffeine.jcache.expiry;
+
+import static java.util.Objects.requireNonNull;
+
+import java.util.function.Consumer;
+
+import javax.annotation.concurrent.NotThreadSafe;
+
+/**
+ * A hierarchical timer wheel that holds the deadlines of the entries, in milliseconds. Each wheel
+ * is an array of buckets that each span a power-of-two duration, and a timer is placed in the
+ * finest wheel that spans its remaining delay. As time advances, the buckets of the coarser wheels
+ * are cascaded into the finer ones and the timers in the elapsed buckets of the finest wheel are
+ * expired. This makes scheduling a timer O(1) and expires a timer at most about a second late.
+ * <p>
+ * A timer's deadline may be extended after it was scheduled without informing the wheel. When the
+ * timer comes due, the consumer receives it and may reschedule it for its new deadline.
+ *
+ * @author ben.manes@gmail.com (Ben Manes)
+ */
+@NotThreadSafe
+public final class TimerWheel<K> {
+  /** The number of buckets in each wheel. */
+  static final int[] BUCKETS = { 64, 64, 32, 4, 1 };
+  /** The base-2 logarithm of the duration spanned by a bucket of each wheel, in milliseconds. */
+  static final int[] SHIFT = { 10, 16, 22, 27, 29 };
+
+  final Timer<K>[][] wheel;
+
+  long time;
+
+  /**
+   * Creates a timer wheel that starts at the given time.
+   *
+   * @param currentTimeMS the current time, in milliseconds
+   */
+  @SuppressWarnings("unchecked")
+  public TimerWheel(long currentTimeMS) {
+    wheel = new Timer[BUCKETS.length][];
+    for (int i = 0; i < wheel.length; i++) {
+      wheel[i] = new Timer[BUCKETS[i]];
+      for (int j = 0; j < wheel[i].length; j++) {
+        Timer<K> sentinel = new Timer<>(null, 0L);
+        sentinel.prev = sentinel;
+        sentinel.next = sentinel;
+        wheel[i][j] = sentinel;
+      }
+    }
+    time = currentTimeMS;
+  }
+
+  /**
+   * Schedules the timer to expire at its deadline. A deadline that has already passed is expired
+   * the next time that the wheel advances by a bucket.
+   *
+   * @param timer the unscheduled timer
+   */
+  public void schedule(Timer<K> timer) {
+    Timer<K> sentinel = findBucket(Math.max(timer.deadline, time));
+    timer.prev = sentinel.prev;
+    timer.next = sentinel;
+    sentinel.prev.next = timer;
+    sentinel.prev = timer;
+  }
+
+  /**
+   * Removes the timer from the wheel if it is scheduled.
+   *
+   * @param timer the timer to remove
+   */
+  public void deschedule(Timer<K> timer) {
+    if (timer.next != null) {
+      timer.next.prev = timer.prev;
+      timer.prev.next = timer.next;
+      timer.next = null;
+      timer.prev = null;
+    }
+  }
+
+  /**
+   * Advances the wheel to the current time and hands each timer that came due to the consumer. The
+   * timers whose deadlines have not yet passed are cascaded to a finer wheel.
+   *
+   * @param currentTimeMS the current time, in milliseconds
+   * @param expired the consumer of the timers that came due, which are no longer scheduled
+   */
+  public void advance(long currentTimeMS, Consumer<Timer<K>> expired) {
+    long previousTimeMS = time;
+    time = currentTimeMS;
+    for (int i = 0; i < SHIFT.length; i++) {
+      long previousTicks = (previousTimeMS >> SHIFT[i]);
+      long currentTicks = (currentTimeMS >> SHIFT[i]);
+      if ((currentTicks - previousTicks) <= 0L) {
+        break;
+      }
+      expire(i, previousTicks, currentTicks - previousTicks, expired);
+    }
+  }
+
+  /** Returns if advancing the wheel to the current time would process any buckets. */
+  public boolean isAdvanceRequired(long currentTimeMS) {
+    return (currentTimeMS >> SHIFT[0]) != (time >> SHIFT[0]);
+  }
+
+  /** Removes all of the timers from the wheel. */
+  public void clear() {
+    for (Timer<K>[] buckets : wheel) {
+      for (Timer<K> sentinel : buckets) {
+        for (Timer<K> timer = sentinel.next; timer != sentinel; ) {
+          Timer<K> next = timer.next;
+          timer.next = null;
+          timer.prev = null;
+          timer = next;
+        }
+        sentinel.next = sentinel;
+        sentinel.prev = sentinel;
+      }
+    }
+  }
+
+  /**
+   * Processes the buckets of the wheel from the previous tick through the current one. Each bucket
+   * is detached before its timers are visited, so that a timer that is rescheduled into the same
+   * bucket is not visited again.
+   */
+  void expire(int index, long previousTicks, long delta, Consumer<Timer<K>> expired) {
+    Timer<K>[] buckets = wheel[index];
+    int mask = buckets.length - 1;
+    long steps = Math.min(delta + 1, buckets.length);
+    for (long tick = previousTicks; tick < previousTicks + steps; tick++) {
+      Timer<K> sentinel = buckets[(int) (tick & mask)];
+      Timer<K> timer = sentinel.next;
+      sentinel.next = sentinel;
+      sentinel.prev = sentinel;
+
+      while (timer != sentinel) {
+        Timer<K> next = timer.next;
+        timer.next = null;
+        timer.prev = null;
+        if (timer.deadline > time) {
+          schedule(timer);
+        } else {
+          expired.accept(timer);
+        }
+        timer = next;
+      }
+    }
+  }
+
+  /** Returns the sentinel of the bucket that the deadline falls in. */
+  Timer<K> findBucket(long deadline) {
+    long delay = deadline - time;
+    int last = wheel.length - 1;
+    for (int i = 0; i < last; i++) {
+      if (delay < (1L << SHIFT[i + 1])) {
+        long ticks = (deadline >> SHIFT[i]);
+        return wheel[i][(int) (ticks & (wheel[i].length - 1))];
+      }
+    }
+    return wheel[last][0];
+  }
+
+  /**
+   * A deadline of an entry, which is linked into a bucket of the wheel while scheduled. The links
+   * are only accessed by the thread that owns the wheel, whereas the deadline and cancellation may
+   * be read by any thread.
+   */
+  public static final class Timer<K> {
+    private final K key;
+
+    volatile boolean cancelled;
+    volatile long deadline;
+    Timer<K> prev;
+    Timer<K> next;
+
+    public Timer(K key, long deadline) {
+      this.deadline = deadline;
+      this.key = key;
+    }
+
+    /** Returns the key of the entry. */
+    public K getKey() {
+      return requireNonNull(key);
+    }
+
+    /** Returns the time when the timer expires, in milliseconds. */
+    public long getDeadline() {
+      return deadline;
+    }
+
+    /** Sets the time when the timer expires, which may only be changed while unscheduled. */
+    public void setDeadline(long deadline) {
+      this.deadline = deadline;
+    }
+
+    /** Returns if the entry no longer uses this timer, so it should be descheduled. */
+    public boolean isCancelled() {
+      return cancelled;
+    }
+
+    /** Marks that the entry no longer uses this timer, such as because it was removed. */
+    public void cancel() {
+      cancelled = true;
+    }
+  }
+}
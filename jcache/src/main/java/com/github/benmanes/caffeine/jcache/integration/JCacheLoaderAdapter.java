@@ -24,11 +24,9 @@ import javax.cache.expiry.ExpiryPolicy;
 import javax.cache.integration.CacheLoader;
 import javax.cache.integration.CacheLoaderException;
 
-import com.github.benmanes.caffeine.cache.Ticker;
 import com.github.benmanes.caffeine.jcache.CacheProxy;
 import com.github.benmanes.caffeine.jcache.Expirable;
 import com.github.benmanes.caffeine.jcache.event.EventDispatcher;
-import com.github.benmanes.caffeine.jcache.management.JCacheStatisticsMXBean;
 
 /**
  * An adapter from a JCache cache loader to Caffeine's.
@@ -37,21 +35,17 @@ import com.github.benmanes.caffeine.jcache.management.JCacheStatisticsMXBean;
  */
 public final class JCacheLoaderAdapter<K, V>
     implements com.github.benmanes.caffeine.cache.CacheLoader<K, Expirable<V>> {
-  private final JCacheStatisticsMXBean statistics;
   private final EventDispatcher<K, V> dispatcher;
   private final CacheLoader<K, V> delegate;
   private final ExpiryPolicy expiry;
-  private final Ticker ticker;
 
   private CacheProxy<K, V> cache;
 
   public JCacheLoaderAdapter(CacheLoader<K, V> delegate, EventDispatcher<K, V> dispatcher,
-      ExpiryPolicy expiry, Ticker ticker, JCacheStatisticsMXBean statistics) {
+      ExpiryPolicy expiry) {
     this.dispatcher = requireNonNull(dispatcher);
-    this.statistics = requireNonNull(statistics);
     this.delegate = requireNonNull(delegate);
     this.expiry = requireNonNull(expiry);
-    this.ticker = requireNonNull(ticker);
   }
 
   /**
@@ -66,12 +60,12 @@ public final class JCacheLoaderAdapter<K, V>
   @Override
   public Expirable<V> load(K key) {
     try {
-      long start = ticker.read();
       V value = delegate.load(key);
+      if (value == null) {
+        return null;
+      }
       dispatcher.publishCreated(cache, key, value);
-      long end = ticker.read();
-      statistics.recordGetTime(start - end);
-      return new Expirable<>(value, expireTimeMS(end));
+      return new Expirable<>(value, expireTimeMS(cache.currentTimeMillis()));
     } catch (CacheLoaderException e) {
       throw e;
     } catch (RuntimeException e) {
@@ -82,7 +76,7 @@ public final class JCacheLoaderAdapter<K, V>
   @Override
   public Map<K, Expirable<V>> loadAll(Iterable<? extends K> keys) {
     try {
-      long start = ticker.read();
+      long start = cache.currentTimeMillis();
       Map<K, Expirable<V>> result = delegate.loadAll(keys).entrySet().stream()
           .filter(entry -> (entry.getKey() != null) && (entry.getValue() != null))
           .collect(Collectors.toMap(entry -> entry.getKey(),
@@ -90,7 +84,6 @@ public final class JCacheLoaderAdapter<K, V>
       for (Map.Entry<K, Expirable<V>> entry : result.entrySet()) {
         dispatcher.publishCreated(cache, entry.getKey(), entry.getValue().get());
       }
-      statistics.recordGetTime(start - ticker.read());
       return result;
     } catch (CacheLoaderException e) {
       throw e;
@@ -99,9 +92,9 @@ public final class JCacheLoaderAdapter<K, V>
     }
   }
 
-  private long expireTimeMS(long now) {
+  private long expireTimeMS(long currentTimeMS) {
     try {
-      return expiry.getExpiryForCreation().getAdjustedTime(now >> 10);
+      return expiry.getExpiryForCreation().getAdjustedTime(currentTimeMS);
     } catch (Exception e) {
       return Long.MAX_VALUE;
     }
@@ -17,16 +17,16 @@ package com.github.benmanes.caffeine.jcache.integration;
 
 import static java.util.Objects.requireNonNull;
 
-import javax.cache.Cache;
-
 import com.github.benmanes.caffeine.cache.RemovalListener;
 import com.github.benmanes.caffeine.cache.RemovalNotification;
+import com.github.benmanes.caffeine.jcache.CacheProxy;
 import com.github.benmanes.caffeine.jcache.Expirable;
 import com.github.benmanes.caffeine.jcache.event.EventDispatcher;
 import com.github.benmanes.caffeine.jcache.management.JCacheStatisticsMXBean;
 
 /**
- * A Caffeine listener that publishes eviction events to the JCache listeners.
+ * A Caffeine listener that publishes eviction events to the JCache listeners and deschedules the
+ * expiration timers of the evicted entries.
  *
  * @author ben.manes@gmail.com (Ben Manes)
  */
@@ -34,7 +34,7 @@ public final class JCacheRemovalListener<K, V> implements RemovalListener<K, Exp
   private final JCacheStatisticsMXBean statistics;
   private final EventDispatcher<K, V> dispatcher;
 
-  private Cache<K, V> cache;
+  private CacheProxy<K, V> cache;
 
   public JCacheRemovalListener(EventDispatcher<K, V> dispatcher,
       JCacheStatisticsMXBean statistics) {
@@ -47,15 +47,17 @@ public final class JCacheRemovalListener<K, V> implements RemovalListener<K, Exp
    *
    * @param cache the cache that uses this loader
    */
-  public void setCache(Cache<K, V> cache) {
+  public void setCache(CacheProxy<K, V> cache) {
     this.cache = requireNonNull(cache);
   }
 
   @Override
   public void onRemoval(RemovalNotification<K, Expirable<V>> notification) {
     if (notification.wasEvicted()) {
-      dispatcher.publishRemoved(cache, notification.getKey(), notification.getValue().get());
-      dispatcher.ignoreSynchronous();
+      cache.descheduleExpiration(notification.getValue());
+      dispatcher.publishDetached(() -> dispatcher.publishRemoved(
+          cache, notification.getKey(), notification.getValue().get()));
+      cache.requestExpirationCycle(cache.currentTimeMillis());
       statistics.recordEvictions(1L);
     }
   }
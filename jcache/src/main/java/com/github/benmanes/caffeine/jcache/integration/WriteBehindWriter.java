@@ -0,0 +1,350 @@
+/*
+ * Copyright 2015 Ben Manes. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.benmanes.caffeine.jcache.integration;
+
+import static java.util.Objects.requireNonNull;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import javax.annotation.Nullable;
+import javax.annotation.concurrent.ThreadSafe;
+import javax.cache.Cache;
+import javax.cache.integration.CacheLoader;
+import javax.cache.integration.CacheWriter;
+
+import com.github.benmanes.caffeine.jcache.EntryProxy;
+
+/**
+ * A {@link CacheWriter} that defers the writes to a delegate, so that the caller does not wait on
+ * the external resource. The changes are recorded in a buffer where the latest change to a key
+ * replaces any that is pending, and are flushed to the delegate's {@link CacheWriter#writeAll} and
+ * {@link CacheWriter#deleteAll} in batches by a dedicated thread. A flush is performed when the
+ * buffer reaches the batch size or after the flush delay has elapsed. A change that the delegate
+ * fails to write is retried with an exponential back-off unless a later change supersedes it, and
+ * it is discarded once the retries are exhausted. The buffer is flushed when the writer is closed,
+ * which waits for a bounded duration and reports the changes that could not be flushed in time. A
+ * change that is recorded after the writer was closed is rejected.
+ * <p>
+ * A pending change is not yet visible to the delegate's resource, so a loader should be wrapped by
+ * {@link #overlay} to observe it. Otherwise an entry that is evicted before it is flushed may be
+ * reloaded from stale data.
+ *
+ * @author ben.manes@gmail.com (Ben Manes)
+ */
+@ThreadSafe
+public final class WriteBehindWriter<K, V> implements CacheWriter<K, V>, Closeable {
+  static final Logger logger = Logger.getLogger(WriteBehindWriter.class.getName());
+
+  /** The maximum duration that closing the writer waits for the pending changes to be flushed. */
+  static final long CLOSE_TIMEOUT_NANOS = TimeUnit.SECONDS.toNanos(30);
+
+  final ConcurrentMap<K, PendingWrite<V>> pending;
+  final ScheduledExecutorService executor;
+  final AtomicBoolean flushRequested;
+  final CacheWriter<K, V> delegate;
+  final ReadWriteLock closeLock;
+  final long retryBackoffNanos;
+  final long closeTimeoutNanos;
+  final int maxRetries;
+  final int batchSize;
+
+  boolean closed;
+
+  /**
+   * Creates a writer that flushes to the delegate on a dedicated thread.
+   *
+   * @param delegate the writer to the external resource
+   * @param batchSize the maximum number of changes flushed in a batch
+   * @param flushDelayNanos the maximum duration that a change is buffered for before it is flushed
+   * @param maxRetries the number of times that a failed change is retried
+   * @param retryBackoffNanos the duration before the first retry, which doubles on each retry
+   * @throws IllegalArgumentException if the batch size or flush delay is not positive, or if the
+   *         retries or back-off is negative
+   */
+  public WriteBehindWriter(CacheWriter<K, V> delegate, int batchSize,
+      long flushDelayNanos, int maxRetries, long retryBackoffNanos) {
+    this(delegate, batchSize, flushDelayNanos, maxRetries, retryBackoffNanos, CLOSE_TIMEOUT_NANOS);
+  }
+
+  WriteBehindWriter(CacheWriter<K, V> delegate, int batchSize, long flushDelayNanos,
+      int maxRetries, long retryBackoffNanos, long closeTimeoutNanos) {
+    requireArgument(batchSize > 0, "write-behind batch size must be positive: %s", batchSize);
+    requireArgument(flushDelayNanos > 0,
+        "write-behind flush delay must be positive: %s ns", flushDelayNanos);
+    requireArgument(maxRetries >= 0,
+        "write-behind max retries must not be negative: %s", maxRetries);
+    requireArgument(retryBackoffNanos >= 0,
+        "write-behind retry backoff must not be negative: %s ns", retryBackoffNanos);
+    this.executor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+      Thread thread = new Thread(runnable, "caffeine-jcache-write-behind");
+      thread.setDaemon(true);
+      return thread;
+    });
+    this.flushRequested = new AtomicBoolean();
+    this.delegate = requireNonNull(delegate);
+    this.retryBackoffNanos = retryBackoffNanos;
+    this.closeTimeoutNanos = closeTimeoutNanos;
+    this.closeLock = new ReentrantReadWriteLock();
+    this.pending = new ConcurrentHashMap<>();
+    this.maxRetries = maxRetries;
+    this.batchSize = batchSize;
+    executor.scheduleWithFixedDelay(() -> flush(false),
+        flushDelayNanos, flushDelayNanos, TimeUnit.NANOSECONDS);
+  }
+
+  @Override
+  public void write(Cache.Entry<? extends K, ? extends V> entry) {
+    record(entry.getKey(), new PendingWrite<>(entry.getValue()));
+  }
+
+  @Override
+  public void writeAll(Collection<Cache.Entry<? extends K, ? extends V>> entries) {
+    entries.forEach(this::write);
+    entries.clear();
+  }
+
+  @Override
+  public void delete(Object key) {
+    @SuppressWarnings("unchecked")
+    K castedKey = (K) key;
+    record(castedKey, new PendingWrite<>(null));
+  }
+
+  @Override
+  public void deleteAll(Collection<?> keys) {
+    keys.forEach(this::delete);
+    keys.clear();
+  }
+
+  /**
+   * Returns a loader that observes the pending changes, so that a key with a pending write is
+   * loaded with its value and a key with a pending deletion is not found.
+   *
+   * @param loader the loader from the external resource
+   * @return a loader that prefers the pending changes
+   */
+  public CacheLoader<K, V> overlay(CacheLoader<K, V> loader) {
+    requireNonNull(loader);
+    return new CacheLoader<K, V>() {
+      @Override public V load(K key) {
+        PendingWrite<V> write = pending.get(key);
+        return (write == null) ? loader.load(key) : write.value;
+      }
+      @Override public Map<K, V> loadAll(Iterable<? extends K> keys) {
+        Map<K, V> result = new HashMap<>();
+        List<K> keysToLoad = new ArrayList<>();
+        for (K key : keys) {
+          PendingWrite<V> write = pending.get(key);
+          if (write == null) {
+            keysToLoad.add(key);
+          } else if (write.value != null) {
+            result.put(key, write.value);
+          }
+        }
+        if (!keysToLoad.isEmpty()) {
+          result.putAll(loader.loadAll(keysToLoad));
+        }
+        return result;
+      }
+    };
+  }
+
+  /**
+   * Flushes the pending changes and closes the delegate, if closeable. If the changes are not
+   * flushed within the close timeout, such as because the delegate is unresponsive, then the flush
+   * is abandoned and the number of changes that were not written is logged.
+   */
+  @Override
+  public void close() throws IOException {
+    closeLock.writeLock().lock();
+    try {
+      if (closed) {
+        return;
+      }
+      closed = true;
+    } finally {
+      closeLock.writeLock().unlock();
+    }
+
+    try {
+      executor.execute(this::drain);
+      executor.shutdown();
+      if (!executor.awaitTermination(closeTimeoutNanos, TimeUnit.NANOSECONDS)) {
+        executor.shutdownNow();
+        logger.log(Level.WARNING, "Closed the write-behind writer without flushing {0} changes "
+            + "to the keys {1}", new Object[] { pending.size(), pending.keySet() });
+      }
+    } catch (InterruptedException e) {
+      executor.shutdownNow();
+      Thread.currentThread().interrupt();
+    }
+    if (delegate instanceof Closeable) {
+      ((Closeable) delegate).close();
+    }
+  }
+
+  /**
+   * Records the change and requests a flush if a full batch is pending.
+   *
+   * @throws IllegalStateException if the writer was closed
+   */
+  private void record(K key, PendingWrite<V> write) {
+    requireNonNull(key);
+    closeLock.readLock().lock();
+    try {
+      if (closed) {
+        throw new IllegalStateException("The write-behind writer is closed");
+      }
+      pending.put(key, write);
+    } finally {
+      closeLock.readLock().unlock();
+    }
+    if ((pending.size() >= batchSize) && flushRequested.compareAndSet(false, true)) {
+      try {
+        executor.execute(() -> {
+          flushRequested.set(false);
+          flush(false);
+        });
+      } catch (RejectedExecutionException e) {
+        flushRequested.set(false);
+      }
+    }
+  }
+
+  /** Flushes the pending changes until none remain or their retries are exhausted. */
+  private void drain() {
+    while (!pending.isEmpty()) {
+      flush(true);
+      if (!pending.isEmpty()) {
+        try {
+          TimeUnit.NANOSECONDS.sleep(retryBackoffNanos);
+        } catch (InterruptedException e) {
+          Thread.currentThread().interrupt();
+          return;
+        }
+      }
+    }
+  }
+
+  /**
+   * Flushes the pending changes in batches, skipping those that are waiting to be retried.
+   *
+   * @param retryNow if the changes that are waiting to be retried should be flushed immediately
+   */
+  private void flush(boolean retryNow) {
+    long now = System.nanoTime();
+    Map<K, PendingWrite<V>> batch = new HashMap<>();
+    for (Map.Entry<K, PendingWrite<V>> entry : pending.entrySet()) {
+      if (retryNow || entry.getValue().isReady(now)) {
+        batch.put(entry.getKey(), entry.getValue());
+        if (batch.size() == batchSize) {
+          flushBatch(batch, now);
+          batch.clear();
+        }
+      }
+    }
+    if (!batch.isEmpty()) {
+      flushBatch(batch, now);
+    }
+  }
+
+  /**
+   * Writes and deletes the batch's changes, retaining those that failed for a retry. As specified
+   * by {@link CacheWriter}, the delegate removes the changes that succeeded from the collections
+   * before throwing an exception.
+   */
+  private void flushBatch(Map<K, PendingWrite<V>> batch, long now) {
+    List<Cache.Entry<? extends K, ? extends V>> writes = new ArrayList<>();
+    List<K> deletes = new ArrayList<>();
+    batch.forEach((key, write) -> {
+      if (write.value == null) {
+        deletes.add(key);
+      } else {
+        writes.add(new EntryProxy<>(key, write.value));
+      }
+    });
+
+    List<K> failed = new ArrayList<>();
+    if (!writes.isEmpty()) {
+      try {
+        delegate.writeAll(writes);
+      } catch (RuntimeException e) {
+        logger.log(Level.WARNING, "Exception thrown by the writer when writing", e);
+        writes.forEach(entry -> failed.add(entry.getKey()));
+      }
+    }
+    if (!deletes.isEmpty()) {
+      try {
+        delegate.deleteAll(deletes);
+      } catch (RuntimeException e) {
+        logger.log(Level.WARNING, "Exception thrown by the writer when deleting", e);
+        failed.addAll(deletes);
+      }
+    }
+
+    for (K key : failed) {
+      PendingWrite<V> write = batch.remove(key);
+      write.attempts++;
+      if (write.attempts > maxRetries) {
+        pending.remove(key, write);
+      } else {
+        write.retryTime = now + (retryBackoffNanos << (write.attempts - 1));
+      }
+    }
+    batch.forEach(pending::remove);
+  }
+
+  /** Ensures that the argument expression is true. */
+  static void requireArgument(boolean expression, String template, Object... args) {
+    if (!expression) {
+      throw new IllegalArgumentException(String.format(template, args));
+    }
+  }
+
+  /** A change that is waiting to be flushed, where a deletion has a null value. */
+  static final class PendingWrite<V> {
+    @Nullable final V value;
+
+    long retryTime;
+    int attempts;
+
+    PendingWrite(@Nullable V value) {
+      this.value = value;
+    }
+
+    /** Returns if the change has not failed or its retry back-off has elapsed. */
+    boolean isReady(long now) {
+      return (attempts == 0) || ((retryTime - now) <= 0);
+    }
+  }
+}
@@ -0,0 +1,110 @@
+/*
+ * Copyright 2015 Ben Manes. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.benmanes.caffeine.jcache.integration;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Supplier;
+
+import javax.annotation.concurrent.ThreadSafe;
+
+/**
+ * The reservations that order the write-through operations on a key. An operation holds the key's
+ * reservation while it calls the {@link javax.cache.integration.CacheWriter} and then applies the
+ * change to the cache, so that the writes to a key reach the writer and the cache in the same
+ * order without the cache's lock on the entry being held during the writer's I/O.
+ * <p>
+ * A reservation is released when the operation completes and other operations on the key wait
+ * for it. A bulk operation reserves all of its keys, or none and waits if any are reserved by
+ * another thread, so that overlapping bulk operations cannot deadlock. A reservation is reentrant
+ * for the thread that holds it.
+ *
+ * @author ben.manes@gmail.com (Ben Manes)
+ */
+@ThreadSafe
+public final class WriteReservations<K> {
+  final ConcurrentMap<K, ReentrantLock> reservations;
+
+  public WriteReservations() {
+    reservations = new ConcurrentHashMap<>();
+  }
+
+  /**
+   * Performs the operation while holding the key's reservation.
+   *
+   * @param key the key to reserve
+   * @param operation the operation to perform
+   * @return the result of the operation
+   */
+  public <T> T reserve(K key, Supplier<T> operation) {
+    return reserveAll(Collections.singleton(key), operation);
+  }
+
+  /**
+   * Performs the operation while holding the reservations of all of the keys.
+   *
+   * @param keys the keys to reserve
+   * @param operation the operation to perform
+   * @return the result of the operation
+   */
+  public <T> T reserveAll(Collection<? extends K> keys, Supplier<T> operation) {
+    ReentrantLock reservation = new ReentrantLock();
+    List<K> reserved = new ArrayList<>(keys.size());
+    reservation.lock();
+    try {
+      acquire(keys, reservation, reserved);
+      return operation.get();
+    } finally {
+      release(reservation, reserved);
+      reservation.unlock();
+    }
+  }
+
+  /** Reserves the keys that are not already held by this thread, waiting on any held by others. */
+  private void acquire(Collection<? extends K> keys, ReentrantLock reservation, List<K> reserved) {
+    for (;;) {
+      ReentrantLock conflict = null;
+      for (K key : keys) {
+        ReentrantLock current = reservations.putIfAbsent(key, reservation);
+        if (current == null) {
+          reserved.add(key);
+        } else if ((current != reservation) && !current.isHeldByCurrentThread()) {
+          conflict = current;
+          break;
+        }
+      }
+      if (conflict == null) {
+        return;
+      }
+      release(reservation, reserved);
+      conflict.lock();
+      conflict.unlock();
+    }
+  }
+
+  /** Releases the keys that were reserved. */
+  private void release(ReentrantLock reservation, List<K> reserved) {
+    for (K key : reserved) {
+      reservations.remove(key, reservation);
+    }
+    reserved.clear();
+  }
+}
@@ -0,0 +1,64 @@
+/*
+ * Copyright 2015 Ben Manes. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.benmanes.caffeine.jcache.management;
+
+import javax.cache.management.CacheStatisticsMXBean;
+
+/**
+ * The cache statistics extended with the distribution of the operation latencies. The percentiles
+ * are in microseconds and describe the operations performed during the current and the previous
+ * latency window.
+ *
+ * @author ben.manes@gmail.com (Ben Manes)
+ */
+public interface CacheLatencyStatisticsMXBean extends CacheStatisticsMXBean {
+
+  /** @return the median time to execute gets, in microseconds */
+  float getGetTime50thPercentile();
+
+  /** @return the 99th percentile of the time to execute gets, in microseconds */
+  float getGetTime99thPercentile();
+
+  /** @return the 99.9th percentile of the time to execute gets, in microseconds */
+  float getGetTime999thPercentile();
+
+  /** @return the longest time to execute a get, in microseconds */
+  float getMaxGetTime();
+
+  /** @return the median time to execute puts, in microseconds */
+  float getPutTime50thPercentile();
+
+  /** @return the 99th percentile of the time to execute puts, in microseconds */
+  float getPutTime99thPercentile();
+
+  /** @return the 99.9th percentile of the time to execute puts, in microseconds */
+  float getPutTime999thPercentile();
+
+  /** @return the longest time to execute a put, in microseconds */
+  float getMaxPutTime();
+
+  /** @return the median time to execute removes, in microseconds */
+  float getRemoveTime50thPercentile();
+
+  /** @return the 99th percentile of the time to execute removes, in microseconds */
+  float getRemoveTime99thPercentile();
+
+  /** @return the 99.9th percentile of the time to execute removes, in microseconds */
+  float getRemoveTime999thPercentile();
+
+  /** @return the longest time to execute a remove, in microseconds */
+  float getMaxRemoveTime();
+}
@@ -19,14 +19,22 @@ import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.LongAdder;
 
 import javax.annotation.Nonnegative;
-import javax.cache.management.CacheStatisticsMXBean;
+
+import com.github.benmanes.caffeine.cache.Ticker;
 
 /**
  * Caffeine JCache statistics.
+ * <p>
+ * The operation latencies are also recorded into histograms, whose percentiles are reported for the
+ * last completed window, and are zero until the first window completes. A window is completed
+ * lazily when the percentiles are read after the window's duration has elapsed, so that recording
+ * does not read the clock, and therefore covers the samples recorded since the previous window was
+ * completed. The snapshot of a completed window is retained, so that all of its percentiles are
+ * reported consistently.
  *
  * @author ben.manes@gmail.com (Ben Manes)
  */
-public final class JCacheStatisticsMXBean implements CacheStatisticsMXBean {
+public final class JCacheStatisticsMXBean implements CacheLatencyStatisticsMXBean {
   private final LongAdder removals = new LongAdder();
   private final LongAdder expiries = new LongAdder();
   private final LongAdder puts = new LongAdder();
@@ -36,9 +44,36 @@ public final class JCacheStatisticsMXBean implements CacheStatisticsMXBean {
   private final LongAdder putTimeNanos = new LongAdder();
   private final LongAdder getTimeNanos = new LongAdder();
   private final LongAdder removeTimeNanos = new LongAdder();
+  private final LatencyHistogram removeLatency = new LatencyHistogram();
+  private final LatencyHistogram getLatency = new LatencyHistogram();
+  private final LatencyHistogram putLatency = new LatencyHistogram();
+  private final long latencyWindowNanos;
+  private final Ticker ticker;
 
+  private volatile Latencies completedWindow;
+  private volatile long windowStartNanos;
   private volatile boolean enabled;
 
+  public JCacheStatisticsMXBean() {
+    this(TimeUnit.MINUTES.toNanos(1));
+  }
+
+  /**
+   * Creates the statistics for a cache.
+   *
+   * @param latencyWindowNanos the duration in nanoseconds of a window of the latency histograms
+   */
+  public JCacheStatisticsMXBean(@Nonnegative long latencyWindowNanos) {
+    this(latencyWindowNanos, Ticker.systemTicker());
+  }
+
+  JCacheStatisticsMXBean(@Nonnegative long latencyWindowNanos, Ticker ticker) {
+    this.latencyWindowNanos = latencyWindowNanos;
+    this.completedWindow = emptyWindow();
+    this.windowStartNanos = ticker.read();
+    this.ticker = ticker;
+  }
+
   /** @return if statistic collection is enabled. */
   public boolean isEnabled() {
     return enabled;
@@ -64,6 +99,13 @@ public final class JCacheStatisticsMXBean implements CacheStatisticsMXBean {
     getTimeNanos.reset();
     putTimeNanos.reset();
     removeTimeNanos.reset();
+    synchronized (this) {
+      removeLatency.reset();
+      getLatency.reset();
+      putLatency.reset();
+      completedWindow = emptyWindow();
+      windowStartNanos = ticker.read();
+    }
   }
 
   @Override
@@ -173,11 +215,13 @@ public final class JCacheStatisticsMXBean implements CacheStatisticsMXBean {
    * Records the time to execute get operations. This time does not include the time it takes to
    * load an entry on a cache miss, as specified by the specification.
    *
-   * @param durationNanos the amount of time in nanoseconds
+   * @param durationNanos the amount of time in nanoseconds, or a negative value if the operation
+   *        was not timed because the statistics were enabled while it was in progress
    */
   public void recordGetTime(long durationNanos) {
-    if (enabled && (durationNanos != 0)) {
+    if (enabled && (durationNanos >= 0)) {
       getTimeNanos.add(durationNanos);
+      getLatency.record(durationNanos);
     }
   }
 
@@ -189,11 +233,13 @@ public final class JCacheStatisticsMXBean implements CacheStatisticsMXBean {
   /**
    * Records the time to execute put operations.
    *
-   * @param durationNanos the amount of time in nanoseconds
+   * @param durationNanos the amount of time in nanoseconds, or a negative value if the operation
+   *        was not timed because the statistics were enabled while it was in progress
    */
   public void recordPutTime(long durationNanos) {
-    if (enabled && (durationNanos != 0)) {
+    if (enabled && (durationNanos >= 0)) {
       putTimeNanos.add(durationNanos);
+      putLatency.record(durationNanos);
     }
   }
 
@@ -205,19 +251,123 @@ public final class JCacheStatisticsMXBean implements CacheStatisticsMXBean {
   /**
    * Records the time to execute remove operations.
    *
-   * @param durationNanos the amount of time in nanoseconds
+   * @param durationNanos the amount of time in nanoseconds, or a negative value if the operation
+   *        was not timed because the statistics were enabled while it was in progress
    */
   public void recordRemoveTime(long durationNanos) {
-    if (enabled && (durationNanos != 0)) {
+    if (enabled && (durationNanos >= 0)) {
       removeTimeNanos.add(durationNanos);
+      removeLatency.record(durationNanos);
+    }
+  }
+
+  @Override
+  public float getGetTime50thPercentile() {
+    return toMicros(latencies().get.percentile(50));
+  }
+
+  @Override
+  public float getGetTime99thPercentile() {
+    return toMicros(latencies().get.percentile(99));
+  }
+
+  @Override
+  public float getGetTime999thPercentile() {
+    return toMicros(latencies().get.percentile(99.9));
+  }
+
+  @Override
+  public float getMaxGetTime() {
+    return toMicros(latencies().get.max());
+  }
+
+  @Override
+  public float getPutTime50thPercentile() {
+    return toMicros(latencies().put.percentile(50));
+  }
+
+  @Override
+  public float getPutTime99thPercentile() {
+    return toMicros(latencies().put.percentile(99));
+  }
+
+  @Override
+  public float getPutTime999thPercentile() {
+    return toMicros(latencies().put.percentile(99.9));
+  }
+
+  @Override
+  public float getMaxPutTime() {
+    return toMicros(latencies().put.max());
+  }
+
+  @Override
+  public float getRemoveTime50thPercentile() {
+    return toMicros(latencies().remove.percentile(50));
+  }
+
+  @Override
+  public float getRemoveTime99thPercentile() {
+    return toMicros(latencies().remove.percentile(99));
+  }
+
+  @Override
+  public float getRemoveTime999thPercentile() {
+    return toMicros(latencies().remove.percentile(99.9));
+  }
+
+  @Override
+  public float getMaxRemoveTime() {
+    return toMicros(latencies().remove.max());
+  }
+
+  /**
+   * Returns the samples of the last completed window, after completing the current window if its
+   * duration has elapsed.
+   */
+  private Latencies latencies() {
+    long now = ticker.read();
+    if ((now - windowStartNanos) >= latencyWindowNanos) {
+      synchronized (this) {
+        if ((now - windowStartNanos) >= latencyWindowNanos) {
+          completedWindow = new Latencies(
+              getLatency.rotate(), putLatency.rotate(), removeLatency.rotate());
+          windowStartNanos = now;
+        }
+      }
     }
+    return completedWindow;
   }
 
+  /** Returns the samples of a window that has no operations recorded. */
+  private static Latencies emptyWindow() {
+    LatencyHistogram.Snapshot empty = new LatencyHistogram().snapshot();
+    return new Latencies(empty, empty, empty);
+  }
+
+  /** Returns the average duration in microseconds, as required by the specification. */
   private static float average(long requestCount, long opsTimeNanos) {
     if ((requestCount == 0) || (opsTimeNanos == 0)) {
       return 0;
     }
-    long opsTimeMillis = TimeUnit.MILLISECONDS.toNanos(opsTimeNanos);
-    return (float) opsTimeMillis / requestCount;
+    return toMicros(opsTimeNanos) / requestCount;
+  }
+
+  private static float toMicros(long durationNanos) {
+    return durationNanos / 1000f;
+  }
+
+  /** The samples of the operation latencies during a window. */
+  static final class Latencies {
+    final LatencyHistogram.Snapshot get;
+    final LatencyHistogram.Snapshot put;
+    final LatencyHistogram.Snapshot remove;
+
+    Latencies(LatencyHistogram.Snapshot get, LatencyHistogram.Snapshot put,
+        LatencyHistogram.Snapshot remove) {
+      this.get = get;
+      this.put = put;
+      this.remove = remove;
+    }
   }
 }
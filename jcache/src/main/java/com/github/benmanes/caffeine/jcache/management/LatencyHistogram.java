@@ -0,0 +1,192 @@
+/*
+ * Copyright 2015 Ben Manes. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.benmanes.caffeine.jcache.management;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.atomic.LongAccumulator;
+
+import javax.annotation.Nonnegative;
+import javax.annotation.concurrent.ThreadSafe;
+
+/**
+ * A fixed-memory histogram of the operation latencies. The buckets are log-linear, where each power
+ * of two is divided into eight sub-buckets, so a percentile is reported within 12.5% of the actual
+ * duration. The counts are striped by thread to reduce contention, and a stripe is allocated when
+ * it is first recorded into.
+ * <p>
+ * The samples are recorded into the current window until {@link #rotate} starts a new one, which
+ * returns the samples of the window that it completed.
+ *
+ * @author ben.manes@gmail.com (Ben Manes)
+ */
+@ThreadSafe
+final class LatencyHistogram {
+  static final int SUB_BUCKET_BITS = 3;
+  static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+  static final int LINEAR_BUCKETS = 2 * SUB_BUCKETS;
+  static final int MIN_EXPONENT = SUB_BUCKET_BITS + 1;
+  /** The largest power of two that is tracked, where longer durations (~18 minutes) are clamped. */
+  static final int MAX_EXPONENT = 40;
+  static final int BUCKETS = LINEAR_BUCKETS + (MAX_EXPONENT - MIN_EXPONENT + 1) * SUB_BUCKETS;
+  static final int STRIPES =
+      ceilingPowerOfTwo(Math.min(Runtime.getRuntime().availableProcessors(), 8));
+
+  private volatile Window current;
+
+  LatencyHistogram() {
+    current = new Window();
+  }
+
+  /**
+   * Records the duration of an operation.
+   *
+   * @param durationNanos the duration in nanoseconds
+   */
+  public void record(@Nonnegative long durationNanos) {
+    current.record(Math.max(0L, durationNanos));
+  }
+
+  /** Starts a new window and returns the samples of the one that it completed. */
+  public Snapshot rotate() {
+    Window completed = current;
+    current = new Window();
+    return completed.snapshot();
+  }
+
+  /** Discards all of the samples. */
+  public void reset() {
+    current = new Window();
+  }
+
+  /** Returns a point-in-time view of the samples recorded in the current window. */
+  public Snapshot snapshot() {
+    return current.snapshot();
+  }
+
+  /** Returns the index of the bucket that the duration is counted in. */
+  static int indexOf(long durationNanos) {
+    if (durationNanos < LINEAR_BUCKETS) {
+      return (int) durationNanos;
+    }
+    int exponent = 63 - Long.numberOfLeadingZeros(durationNanos);
+    if (exponent > MAX_EXPONENT) {
+      return BUCKETS - 1;
+    }
+    int subBucket = (int) (durationNanos >>> (exponent - SUB_BUCKET_BITS)) & (SUB_BUCKETS - 1);
+    return LINEAR_BUCKETS + ((exponent - MIN_EXPONENT) << SUB_BUCKET_BITS) + subBucket;
+  }
+
+  /** Returns the largest duration that is counted in the bucket. */
+  static long highestValueOf(int index) {
+    if (index < LINEAR_BUCKETS) {
+      return index;
+    }
+    int exponent = MIN_EXPONENT + ((index - LINEAR_BUCKETS) >>> SUB_BUCKET_BITS);
+    long subBucket = (index - LINEAR_BUCKETS) & (SUB_BUCKETS - 1);
+    long width = 1L << (exponent - SUB_BUCKET_BITS);
+    return (1L << exponent) + (subBucket * width) + (width - 1);
+  }
+
+  static int ceilingPowerOfTwo(int x) {
+    // From Hacker's Delight, Chapter 3, Harry S. Warren Jr.
+    return 1 << -Integer.numberOfLeadingZeros(x - 1);
+  }
+
+  /** The samples recorded during a window, striped by thread. */
+  static final class Window {
+    final AtomicReferenceArray<AtomicLongArray> stripes;
+    final LongAccumulator max;
+
+    Window() {
+      stripes = new AtomicReferenceArray<>(STRIPES);
+      max = new LongAccumulator(Math::max, 0L);
+    }
+
+    void record(long durationNanos) {
+      stripe().incrementAndGet(indexOf(durationNanos));
+      max.accumulate(durationNanos);
+    }
+
+    /** Returns the calling thread's stripe, allocating it if necessary. */
+    AtomicLongArray stripe() {
+      long hash = Thread.currentThread().getId() * 0x9E3779B97F4A7C15L;
+      int index = (int) (hash >>> 32) & (STRIPES - 1);
+      AtomicLongArray stripe = stripes.get(index);
+      if (stripe == null) {
+        stripes.compareAndSet(index, null, new AtomicLongArray(BUCKETS));
+        stripe = stripes.get(index);
+      }
+      return stripe;
+    }
+
+    Snapshot snapshot() {
+      long[] counts = new long[BUCKETS];
+      for (int i = 0; i < STRIPES; i++) {
+        AtomicLongArray stripe = stripes.get(i);
+        if (stripe != null) {
+          for (int j = 0; j < BUCKETS; j++) {
+            counts[j] += stripe.get(j);
+          }
+        }
+      }
+      return new Snapshot(counts, max.get());
+    }
+  }
+
+  /** The merged counts of a window's stripes. */
+  static final class Snapshot {
+    final long[] counts;
+    final long total;
+    final long max;
+
+    Snapshot(long[] counts, long max) {
+      long total = 0;
+      for (long count : counts) {
+        total += count;
+      }
+      this.counts = counts;
+      this.total = total;
+      this.max = max;
+    }
+
+    /**
+     * Returns the duration that the given percentage of the samples did not exceed.
+     *
+     * @param percentile the percentile, between 0 and 100
+     * @return the duration in nanoseconds, or zero if there are no samples
+     */
+    long percentile(double percentile) {
+      if (total == 0) {
+        return 0L;
+      }
+      long rank = Math.max(1L, (long) Math.ceil(total * (percentile / 100.0)));
+      long seen = 0;
+      for (int i = 0; i < counts.length; i++) {
+        seen += counts[i];
+        if (seen >= rank) {
+          return Math.min(highestValueOf(i), max);
+        }
+      }
+      return max;
+    }
+
+    /** Returns the longest duration that was recorded. */
+    long max() {
+      return max;
+    }
+  }
+}
@@ -0,0 +1,142 @@
+/*
+ * Copyright 2015 Ben Manes. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.benmanes.caffeine.jcache;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import javax.cache.Cache;
+import javax.cache.CacheManager;
+import javax.cache.Caching;
+import javax.cache.configuration.FactoryBuilder;
+import javax.cache.integration.CacheWriter;
+
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+
+import com.github.benmanes.caffeine.jcache.configuration.CaffeineConfiguration;
+
+/**
+ * A skeletal test that creates uniquely named caches, which are destroyed after each test method,
+ * and provides the executors and writers shared by the tests.
+ *
+ * @author ben.manes@gmail.com (Ben Manes)
+ */
+public abstract class AbstractJCacheTest {
+  protected CacheManager cacheManager;
+
+  @BeforeMethod
+  public void createCacheManager() {
+    cacheManager = Caching.getCachingProvider().getCacheManager();
+  }
+
+  @AfterMethod
+  public void destroyCaches() {
+    cacheManager.getCacheNames().forEach(cacheManager::destroyCache);
+  }
+
+  /** Returns a new cache with a unique name. */
+  protected CacheProxy<Integer, Integer> newCache(CaffeineConfiguration<Integer, Integer> config) {
+    String name = getClass().getSimpleName() + "-" + System.nanoTime();
+    @SuppressWarnings("unchecked")
+    CacheProxy<Integer, Integer> cache = cacheManager.createCache(name, config)
+        .unwrap(CacheProxy.class);
+    return cache;
+  }
+
+  /** Returns a configuration whose asynchronous work is performed by the executor. */
+  protected static CaffeineConfiguration<Integer, Integer> newConfiguration(Executor executor) {
+    CaffeineConfiguration<Integer, Integer> config = new CaffeineConfiguration<>();
+    config.setExecutorFactory(new FactoryBuilder.SingletonFactory<>(executor));
+    return config;
+  }
+
+  /** Returns the keys from zero up to, but excluding, the count. */
+  protected static Set<Integer> keys(int count) {
+    return IntStream.range(0, count).boxed().collect(Collectors.toSet());
+  }
+
+  /** An executor whose tasks are run by the test thread when requested. */
+  public static final class QueuedExecutor implements Executor, Runnable {
+    final Queue<Runnable> tasks = new ConcurrentLinkedQueue<>();
+
+    @Override
+    public void execute(Runnable task) {
+      tasks.add(task);
+    }
+
+    @Override
+    public void run() {
+      for (Runnable task = tasks.poll(); task != null; task = tasks.poll()) {
+        task.run();
+      }
+    }
+  }
+
+  /**
+   * A writer that records the changes, after failing the configured number of attempts. As the
+   * {@link CacheWriter} contract requires, a bulk operation removes each entry or key that it
+   * applied from the collection, so that those remaining are the ones that failed.
+   */
+  public static class RecordingWriter implements CacheWriter<Integer, Integer> {
+    public final List<String> changes = new CopyOnWriteArrayList<>();
+    public final AtomicInteger attempts = new AtomicInteger();
+    public final AtomicInteger failures = new AtomicInteger();
+
+    @Override
+    public void write(Cache.Entry<? extends Integer, ? extends Integer> entry) {
+      writeAll(new ArrayList<>(Collections.singletonList(entry)));
+    }
+
+    @Override
+    public void writeAll(Collection<Cache.Entry<? extends Integer, ? extends Integer>> entries) {
+      attempts.incrementAndGet();
+      if (failures.getAndDecrement() > 0) {
+        throw new IllegalStateException();
+      }
+      for (Iterator<Cache.Entry<? extends Integer, ? extends Integer>> i = entries.iterator();
+          i.hasNext();) {
+        Cache.Entry<? extends Integer, ? extends Integer> entry = i.next();
+        changes.add(entry.getKey() + "=" + entry.getValue());
+        i.remove();
+      }
+    }
+
+    @Override
+    public void delete(Object key) {
+      deleteAll(new ArrayList<>(Collections.singletonList(key)));
+    }
+
+    @Override
+    public void deleteAll(Collection<?> keys) {
+      for (Iterator<?> i = keys.iterator(); i.hasNext();) {
+        changes.add(i.next() + "=null");
+        i.remove();
+      }
+    }
+  }
+}
@@ -0,0 +1,255 @@
+/*
+ * Copyright 2015 Ben Manes. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.benmanes.caffeine.jcache;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.hasSize;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.lessThan;
+import static org.hamcrest.Matchers.nullValue;
+
+import java.util.List;
+import java.util.OptionalLong;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.stream.Collectors;
+
+import javax.cache.Cache;
+import javax.cache.configuration.FactoryBuilder;
+import javax.cache.configuration.MutableCacheEntryListenerConfiguration;
+import javax.cache.event.CacheEntryCreatedListener;
+import javax.cache.expiry.CreatedExpiryPolicy;
+import javax.cache.expiry.Duration;
+import javax.cache.expiry.ExpiryPolicy;
+
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import com.github.benmanes.caffeine.jcache.configuration.CaffeineConfiguration;
+import com.github.benmanes.caffeine.jcache.expiry.JCacheExpiryPolicy;
+import com.github.benmanes.caffeine.jcache.expiry.TimerWheel.Timer;
+import com.github.benmanes.caffeine.jcache.expiry.TimerWheelTest;
+
+/**
+ * @author ben.manes@gmail.com (Ben Manes)
+ */
+public final class ExpirationTest extends AbstractJCacheTest {
+  static final Duration ONE_HOUR = new Duration(TimeUnit.HOURS, 1);
+  static final Duration ONE_MINUTE = new Duration(TimeUnit.MINUTES, 1);
+
+  QueuedExecutor executor;
+
+  @BeforeMethod
+  public void before() {
+    executor = new QueuedExecutor();
+  }
+
+  @Test
+  public void put() {
+    CacheProxy<Integer, Integer> cache = newCache(ONE_HOUR, ONE_HOUR);
+    cache.put(1, 1);
+    assertThat(scheduled(cache), hasSize(1));
+  }
+
+  @Test
+  public void put_update_earlierDeadline() {
+    CacheProxy<Integer, Integer> cache = newCache(ONE_HOUR, ONE_MINUTE);
+    cache.put(1, 1);
+    assertThat(scheduled(cache), hasSize(1));
+    cache.put(1, 2);
+
+    List<Timer<?>> timers = scheduled(cache);
+    assertThat(timers, hasSize(1));
+    long delay = timers.get(0).getDeadline() - cache.currentTimeMillis();
+    assertThat(delay, is(lessThan(TimeUnit.MINUTES.toMillis(2))));
+  }
+
+  @Test
+  public void put_update_zero() {
+    CacheProxy<Integer, Integer> cache = newCache(ONE_HOUR, Duration.ZERO);
+    cache.put(1, 1);
+    assertThat(scheduled(cache), hasSize(1));
+    cache.put(1, 2);
+    assertThat(scheduled(cache), hasSize(0));
+  }
+
+  @Test
+  public void remove() {
+    CacheProxy<Integer, Integer> cache = newCache(ONE_HOUR, ONE_HOUR);
+    cache.put(1, 1);
+    assertThat(scheduled(cache), hasSize(1));
+    cache.remove(1);
+    assertThat(scheduled(cache), hasSize(0));
+  }
+
+  @Test
+  public void remove_conditional() {
+    CacheProxy<Integer, Integer> cache = newCache(ONE_HOUR, ONE_HOUR);
+    cache.put(1, 1);
+    assertThat(scheduled(cache), hasSize(1));
+    cache.remove(1, 1);
+    assertThat(scheduled(cache), hasSize(0));
+  }
+
+  @Test
+  public void getAndRemove() {
+    CacheProxy<Integer, Integer> cache = newCache(ONE_HOUR, ONE_HOUR);
+    cache.put(1, 1);
+    assertThat(scheduled(cache), hasSize(1));
+    cache.getAndRemove(1);
+    assertThat(scheduled(cache), hasSize(0));
+  }
+
+  @Test
+  public void invoke_remove() {
+    CacheProxy<Integer, Integer> cache = newCache(ONE_HOUR, ONE_HOUR);
+    cache.put(1, 1);
+    assertThat(scheduled(cache), hasSize(1));
+    cache.invoke(1, (entry, arguments) -> {
+      entry.remove();
+      return null;
+    });
+    assertThat(scheduled(cache), hasSize(0));
+  }
+
+  @Test
+  public void clear() {
+    CacheProxy<Integer, Integer> cache = newCache(ONE_HOUR, ONE_HOUR);
+    for (int i = 0; i < 10; i++) {
+      cache.put(i, i);
+    }
+    assertThat(scheduled(cache), hasSize(10));
+    cache.clear();
+    assertThat(scheduled(cache), hasSize(0));
+  }
+
+  @Test
+  public void evict() throws InterruptedException {
+    CaffeineConfiguration<Integer, Integer> config = newConfiguration(ONE_HOUR, ONE_HOUR);
+    config.setMaximumSize(OptionalLong.of(1L));
+    CacheProxy<Integer, Integer> cache = newCache(config);
+    for (int i = 0; i < 10; i++) {
+      cache.put(i, i);
+    }
+
+    long end = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+    while ((scheduled(cache).size() > 1) && (System.nanoTime() < end)) {
+      Thread.sleep(10);
+    }
+    assertThat(scheduled(cache), hasSize(1));
+  }
+
+  @Test
+  public void coarseClock() throws InterruptedException {
+    CaffeineConfiguration<Integer, Integer> config = newConfiguration(ONE_HOUR, ONE_HOUR);
+    config.setExpiryPolicyFactory(
+        CreatedExpiryPolicy.factoryOf(new Duration(TimeUnit.MILLISECONDS, 50)));
+    config.setCoarseClock(true);
+    CacheProxy<Integer, Integer> cache = newCache(config);
+    assertThat(clockThreads(), hasSize(1));
+
+    cache.put(1, 1);
+    assertThat(cache.get(1), is(1));
+    long end = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+    while ((cache.get(1) != null) && (System.nanoTime() < end)) {
+      Thread.sleep(10);
+    }
+    assertThat(cache.get(1), is(nullValue()));
+
+    cache.close();
+    for (Thread thread : clockThreads()) {
+      thread.join(TimeUnit.SECONDS.toMillis(5));
+    }
+    assertThat(clockThreads(), hasSize(0));
+  }
+
+  @Test
+  public void directExecutor_synchronousListener() {
+    AtomicReference<Cache<Integer, Integer>> cacheRef = new AtomicReference<>();
+    List<Boolean> visible = new CopyOnWriteArrayList<>();
+    CacheEntryCreatedListener<Integer, Integer> listener = events -> events.forEach(event ->
+        visible.add(cacheRef.get().containsKey(event.getKey())));
+
+    CaffeineConfiguration<Integer, Integer> config = newConfiguration(Runnable::run);
+    config.setExpiryPolicyFactory(CreatedExpiryPolicy.factoryOf(ONE_HOUR));
+    config.addCacheEntryListenerConfiguration(new MutableCacheEntryListenerConfiguration<>(
+        new FactoryBuilder.SingletonFactory<>(listener), null, false, true));
+    cacheRef.set(newCache(config));
+
+    cacheRef.get().put(1, 1);
+    assertThat(visible, contains(true));
+  }
+
+  @Test
+  public void directExecutor_expireDuringPut() throws InterruptedException {
+    AtomicReference<Duration> creation = new AtomicReference<>(
+        new Duration(TimeUnit.MILLISECONDS, 1));
+    ExpiryPolicy expiry = new ExpiryPolicy() {
+      @Override
+      public Duration getExpiryForCreation() {
+        return creation.get();
+      }
+
+      @Override
+      public Duration getExpiryForUpdate() {
+        return null;
+      }
+
+      @Override
+      public Duration getExpiryForAccess() {
+        return null;
+      }
+    };
+    CaffeineConfiguration<Integer, Integer> config = newConfiguration(Runnable::run);
+    config.setExpiryPolicyFactory(new FactoryBuilder.SingletonFactory<>(expiry));
+    CacheProxy<Integer, Integer> cache = newCache(config);
+    cache.put(1, 1);
+    creation.set(ONE_HOUR);
+
+    // Wait until the timer's bucket (about a second) has elapsed, so that the next cycle expires
+    // the entry while a key that shares its hash bin is being put
+    Thread.sleep(TimeUnit.SECONDS.toMillis(2));
+    cache.put(33, 33);
+    assertThat(cache.get(33), is(33));
+    assertThat(cache.containsKey(1), is(false));
+  }
+
+  /** Returns the live threads that update a coarse clock. */
+  static List<Thread> clockThreads() {
+    return Thread.getAllStackTraces().keySet().stream()
+        .filter(thread -> thread.getName().equals("caffeine-jcache-coarse-clock"))
+        .collect(Collectors.toList());
+  }
+
+  /** Runs the pending expiration cycles and returns the timers in the cache's wheel. */
+  List<Timer<?>> scheduled(CacheProxy<?, ?> cache) {
+    executor.run();
+    return TimerWheelTest.scheduled(cache.timerWheel);
+  }
+
+  CacheProxy<Integer, Integer> newCache(Duration creation, Duration update) {
+    return newCache(newConfiguration(creation, update));
+  }
+
+  CaffeineConfiguration<Integer, Integer> newConfiguration(Duration creation, Duration update) {
+    CaffeineConfiguration<Integer, Integer> config = newConfiguration(executor);
+    config.setExpiryPolicyFactory(FactoryBuilder.factoryOf(
+        new JCacheExpiryPolicy(creation, update, Duration.ETERNAL)));
+    return config;
+  }
+}
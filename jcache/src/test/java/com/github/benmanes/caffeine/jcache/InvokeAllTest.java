@@ -0,0 +1,189 @@
+/*
+ * Copyright 2015 Ben Manes. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.benmanes.caffeine.jcache;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.greaterThan;
+import static org.hamcrest.Matchers.hasItem;
+import static org.hamcrest.Matchers.instanceOf;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.nullValue;
+
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+
+import javax.cache.Cache;
+import javax.cache.configuration.FactoryBuilder;
+import javax.cache.configuration.MutableCacheEntryListenerConfiguration;
+import javax.cache.event.CacheEntryCreatedListener;
+import javax.cache.processor.EntryProcessor;
+import javax.cache.processor.EntryProcessorException;
+import javax.cache.processor.EntryProcessorResult;
+
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import com.github.benmanes.caffeine.jcache.configuration.CaffeineConfiguration;
+
+/**
+ * @author ben.manes@gmail.com (Ben Manes)
+ */
+public final class InvokeAllTest extends AbstractJCacheTest {
+  static final EntryProcessor<Integer, Integer, Integer> INCREMENT = (entry, arguments) -> {
+    int value = entry.exists() ? (entry.getValue() + 1) : entry.getKey();
+    entry.setValue(value);
+    return value;
+  };
+
+  ExecutorService executor;
+
+  @BeforeMethod
+  public void before() {
+    executor = Executors.newFixedThreadPool(4);
+  }
+
+  @AfterMethod
+  public void after() {
+    executor.shutdownNow();
+  }
+
+  @Test
+  public void invokeAll_fewKeys() {
+    Cache<Integer, Integer> cache = newCache(newConfiguration(executor));
+    Set<Integer> keys = keys(CacheProxy.MIN_PARTITION_SIZE);
+    Set<Thread> threads = ConcurrentHashMap.newKeySet();
+
+    Map<Integer, EntryProcessorResult<Integer>> results = cache.invokeAll(keys,
+        (entry, arguments) -> {
+          threads.add(Thread.currentThread());
+          return INCREMENT.process(entry, arguments);
+        });
+    assertThat(results.size(), is(keys.size()));
+    assertThat(threads, contains(Thread.currentThread()));
+  }
+
+  @Test
+  public void invokeAll_partitioned() {
+    Cache<Integer, Integer> cache = newCache(newConfiguration(executor));
+    Set<Integer> keys = keys(8 * CacheProxy.MIN_PARTITION_SIZE);
+    keys.forEach(key -> cache.put(key, key));
+    Set<Thread> threads = ConcurrentHashMap.newKeySet();
+
+    Map<Integer, EntryProcessorResult<Integer>> results = cache.invokeAll(keys,
+        (entry, arguments) -> {
+          threads.add(Thread.currentThread());
+          return INCREMENT.process(entry, arguments);
+        });
+    assertThat(results.size(), is(keys.size()));
+    for (int key : keys) {
+      assertThat(results.get(key).get(), is(key + 1));
+      assertThat(cache.get(key), is(key + 1));
+    }
+
+    assertThat(threads, hasItem(Thread.currentThread()));
+    if (Runtime.getRuntime().availableProcessors() > 1) {
+      assertThat(threads.size(), is(greaterThan(1)));
+    }
+  }
+
+  @Test
+  public void invokeAll_nullResult() {
+    Cache<Integer, Integer> cache = newCache(newConfiguration(executor));
+    Set<Integer> keys = keys(4 * CacheProxy.MIN_PARTITION_SIZE);
+
+    Map<Integer, EntryProcessorResult<Integer>> results = cache.invokeAll(keys,
+        (entry, arguments) -> {
+          entry.setValue(entry.getKey());
+          return ((entry.getKey() % 2) == 0) ? null : entry.getKey();
+        });
+    assertThat(results.size(), is(keys.size() / 2));
+    assertThat(results.get(2), is(nullValue()));
+    assertThat(cache.get(2), is(2));
+  }
+
+  @Test
+  public void invokeAll_failure() {
+    Cache<Integer, Integer> cache = newCache(newConfiguration(executor));
+    Set<Integer> keys = keys(8 * CacheProxy.MIN_PARTITION_SIZE);
+    int failed = keys.size() - 1;
+
+    Map<Integer, EntryProcessorResult<Integer>> results = cache.invokeAll(keys,
+        (entry, arguments) -> {
+          if (entry.getKey() == failed) {
+            throw new IllegalStateException();
+          }
+          return INCREMENT.process(entry, arguments);
+        });
+    assertThat(results.size(), is(keys.size()));
+    assertThat(cache.containsKey(failed), is(false));
+    try {
+      results.get(failed).get();
+      throw new AssertionError();
+    } catch (EntryProcessorException e) {
+      assertThat(e.getCause(), is(instanceOf(IllegalStateException.class)));
+    }
+    assertThat(results.get(failed - 1).get(), is(failed - 1));
+  }
+
+  @Test
+  public void invokeAll_rejected() {
+    Executor rejecting = task -> { throw new RejectedExecutionException(); };
+    Cache<Integer, Integer> cache = newCache(newConfiguration(rejecting));
+    Set<Integer> keys = keys(8 * CacheProxy.MIN_PARTITION_SIZE);
+    Set<Thread> threads = ConcurrentHashMap.newKeySet();
+
+    Map<Integer, EntryProcessorResult<Integer>> results = cache.invokeAll(keys,
+        (entry, arguments) -> {
+          threads.add(Thread.currentThread());
+          return INCREMENT.process(entry, arguments);
+        });
+    assertThat(results.size(), is(keys.size()));
+    assertThat(threads, contains(Thread.currentThread()));
+    keys.forEach(key -> assertThat(cache.get(key), is(key)));
+  }
+
+  @Test
+  public void invokeAll_awaitsSynchronousListeners() {
+    Set<Integer> created = ConcurrentHashMap.newKeySet();
+    CacheEntryCreatedListener<Integer, Integer> listener = events -> events.forEach(event -> {
+      sleep();
+      created.add(event.getKey());
+    });
+    CaffeineConfiguration<Integer, Integer> config = newConfiguration(executor);
+    config.addCacheEntryListenerConfiguration(new MutableCacheEntryListenerConfiguration<>(
+        new FactoryBuilder.SingletonFactory<>(listener), null, false, true));
+    Cache<Integer, Integer> cache = newCache(config);
+
+    Set<Integer> keys = keys(4 * CacheProxy.MIN_PARTITION_SIZE);
+    cache.invokeAll(keys, INCREMENT);
+    assertThat(created, is(keys));
+  }
+
+  static void sleep() {
+    try {
+      Thread.sleep(1);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+  }
+}
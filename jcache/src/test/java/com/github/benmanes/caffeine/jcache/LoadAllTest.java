@@ -0,0 +1,140 @@
+/*
+ * Copyright 2015 Ben Manes. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.benmanes.caffeine.jcache;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.containsInAnyOrder;
+import static org.hamcrest.Matchers.instanceOf;
+import static org.hamcrest.Matchers.is;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+
+import javax.cache.Cache;
+import javax.cache.configuration.FactoryBuilder;
+import javax.cache.integration.CacheLoader;
+import javax.cache.integration.CacheLoaderException;
+import javax.cache.integration.CompletionListenerFuture;
+
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import com.github.benmanes.caffeine.jcache.configuration.CaffeineConfiguration;
+
+/**
+ * @author ben.manes@gmail.com (Ben Manes)
+ */
+public final class LoadAllTest extends AbstractJCacheTest {
+  ChunkLoader loader;
+
+  @BeforeMethod
+  public void before() {
+    loader = new ChunkLoader();
+  }
+
+  @Test
+  public void loadAll_chunked() throws Exception {
+    Cache<Integer, Integer> cache = newCache(newLoaderConfiguration(Runnable::run));
+    Set<Integer> keys = keys(5);
+
+    loadAll(cache, keys, true);
+    assertThat(loader.chunkSizes, containsInAnyOrder(2, 2, 1));
+    keys.forEach(key -> assertThat(cache.get(key), is(-key)));
+  }
+
+  @Test
+  public void loadAll_absentOnly() throws Exception {
+    Cache<Integer, Integer> cache = newCache(newLoaderConfiguration(Runnable::run));
+    cache.put(0, 0);
+    cache.put(1, 1);
+
+    loadAll(cache, keys(4), false);
+    assertThat(loader.chunkSizes, contains(2));
+    assertThat(cache.get(1), is(1));
+    assertThat(cache.get(3), is(-3));
+  }
+
+  @Test
+  public void loadAll_failure() throws Exception {
+    Cache<Integer, Integer> cache = newCache(newLoaderConfiguration(Runnable::run));
+    loader.failOn = 2;
+
+    try {
+      loadAll(cache, keys(5), true);
+      throw new AssertionError();
+    } catch (ExecutionException e) {
+      assertThat(e.getCause(), is(instanceOf(CacheLoaderException.class)));
+    }
+    assertThat(cache.get(0), is(0));
+    assertThat(cache.containsKey(2), is(false));
+  }
+
+  @Test
+  public void loadAll_rejected() throws Exception {
+    Executor rejecting = task -> { throw new RejectedExecutionException(); };
+    Cache<Integer, Integer> cache = newCache(newLoaderConfiguration(rejecting));
+    Set<Integer> keys = keys(5);
+
+    loadAll(cache, keys, true);
+    assertThat(loader.chunkSizes, containsInAnyOrder(2, 2, 1));
+    keys.forEach(key -> assertThat(cache.get(key), is(-key)));
+  }
+
+  static void loadAll(Cache<Integer, Integer> cache, Set<Integer> keys,
+      boolean replaceExistingValues) throws Exception {
+    CompletionListenerFuture future = new CompletionListenerFuture();
+    cache.loadAll(keys, replaceExistingValues, future);
+    future.get();
+  }
+
+  CaffeineConfiguration<Integer, Integer> newLoaderConfiguration(Executor executor) {
+    CaffeineConfiguration<Integer, Integer> config = newConfiguration(executor);
+    config.setCacheLoaderFactory(new FactoryBuilder.SingletonFactory<>(loader));
+    config.setLoadAllChunkSize(2);
+    return config;
+  }
+
+  /** Loads the negation of each key and records the size of each chunk. */
+  static final class ChunkLoader implements CacheLoader<Integer, Integer> {
+    final List<Integer> chunkSizes = new CopyOnWriteArrayList<>();
+    int failOn = -1;
+
+    @Override
+    public Integer load(Integer key) {
+      return -key;
+    }
+
+    @Override
+    public Map<Integer, Integer> loadAll(Iterable<? extends Integer> keys) {
+      Map<Integer, Integer> result = new HashMap<>();
+      keys.forEach(key -> {
+        if (key == failOn) {
+          throw new IllegalStateException();
+        }
+        result.put(key, -key);
+      });
+      chunkSizes.add(result.size());
+      return result;
+    }
+  }
+}
@@ -0,0 +1,279 @@
+/*
+ * Copyright 2015 Ben Manes. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.benmanes.caffeine.jcache;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.empty;
+import static org.hamcrest.Matchers.instanceOf;
+import static org.hamcrest.Matchers.is;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+
+import javax.cache.Cache;
+import javax.cache.configuration.FactoryBuilder;
+import javax.cache.integration.CacheLoader;
+import javax.cache.integration.CacheLoaderException;
+
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import com.github.benmanes.caffeine.jcache.configuration.CaffeineConfiguration;
+
+/**
+ * @author ben.manes@gmail.com (Ben Manes)
+ */
+public final class ReadThroughTest extends AbstractJCacheTest {
+  RecordingLoader loader;
+  Cache<Integer, Integer> cache;
+
+  @BeforeMethod
+  public void before() {
+    loader = new RecordingLoader();
+    CaffeineConfiguration<Integer, Integer> config = newConfiguration(ForkJoinPool.commonPool());
+    config.setCacheLoaderFactory(new FactoryBuilder.SingletonFactory<>(loader));
+    config.setReadThrough(true);
+    cache = newCache(config);
+  }
+
+  @AfterMethod
+  public void after() {
+    loader.release.countDown();
+  }
+
+  @Test(timeOut = 10_000)
+  public void get_joinsGetAll() throws Exception {
+    loader.blocking = true;
+    Task<Map<Integer, Integer>> bulk = Task.start(() -> cache.getAll(set(1, 2)));
+    loader.entered.await();
+
+    Task<Integer> single = Task.start(() -> cache.get(1));
+    single.awaitWaiting();
+    loader.release.countDown();
+
+    assertThat(single.result.join(), is(-1));
+    assertThat(bulk.result.join(), is(map(1, 2)));
+    assertThat(loader.loads, is(empty()));
+    assertThat(loader.bulkLoads, contains(set(1, 2)));
+  }
+
+  @Test(timeOut = 10_000)
+  public void getAll_joinsGet() throws Exception {
+    loader.blocking = true;
+    Task<Integer> single = Task.start(() -> cache.get(1));
+    loader.entered.await();
+
+    loader.blocking = false;
+    Task<Map<Integer, Integer>> bulk = Task.start(() -> cache.getAll(set(1, 2)));
+    bulk.awaitWaiting();
+    loader.release.countDown();
+
+    assertThat(single.result.join(), is(-1));
+    assertThat(bulk.result.join(), is(map(1, 2)));
+    assertThat(loader.loads, contains(1));
+    assertThat(loader.bulkLoads, contains(set(2)));
+  }
+
+  @Test(timeOut = 10_000)
+  public void get_joinsGet() throws Exception {
+    loader.blocking = true;
+    Task<Integer> first = Task.start(() -> cache.get(1));
+    loader.entered.await();
+
+    Task<Integer> second = Task.start(() -> cache.get(1));
+    second.awaitWaiting();
+    loader.release.countDown();
+
+    assertThat(first.result.join(), is(-1));
+    assertThat(second.result.join(), is(-1));
+    assertThat(loader.loads, contains(1));
+  }
+
+  @Test(timeOut = 10_000)
+  public void get_joinsFailedGetAll() throws Exception {
+    loader.blocking = true;
+    loader.failure = true;
+    Task<Map<Integer, Integer>> bulk = Task.start(() -> cache.getAll(set(1)));
+    loader.entered.await();
+
+    Task<Integer> single = Task.start(() -> cache.get(1));
+    single.awaitWaiting();
+    loader.release.countDown();
+
+    for (Task<?> task : Arrays.asList(bulk, single)) {
+      try {
+        task.result.join();
+        throw new AssertionError();
+      } catch (CompletionException e) {
+        assertThat(e.getCause(), is(instanceOf(CacheLoaderException.class)));
+      }
+    }
+    assertThat(loader.loads, is(empty()));
+  }
+
+  @Test(timeOut = 10_000)
+  public void get_joinsGetAllError() throws Exception {
+    loader.blocking = true;
+    loader.error = true;
+    Task<Map<Integer, Integer>> bulk = Task.start(() -> cache.getAll(set(1)));
+    loader.entered.await();
+
+    Task<Integer> single = Task.start(() -> cache.get(1));
+    single.awaitWaiting();
+    loader.release.countDown();
+
+    for (Task<?> task : Arrays.asList(bulk, single)) {
+      try {
+        task.result.join();
+        throw new AssertionError();
+      } catch (CompletionException e) {
+        assertThat(e.getCause(), is(instanceOf(LoaderError.class)));
+      }
+    }
+  }
+
+  @Test(timeOut = 10_000)
+  public void getAll_reentrant() {
+    loader.onLoadAll = keys -> {
+      if (loader.bulkLoads.size() == 1) {
+        assertThat(cache.getAll(set(1, 3)), is(map(1, 3)));
+      }
+    };
+    assertThat(cache.getAll(set(1, 2)), is(map(1, 2)));
+    assertThat(loader.bulkLoads, contains(set(1, 2), set(1, 3)));
+    assertThat(cache.get(3), is(-3));
+  }
+
+  @Test(timeOut = 10_000)
+  public void get_reentrant() {
+    loader.onLoadAll = keys -> assertThat(cache.get(1), is(-1));
+    assertThat(cache.getAll(set(1, 2)), is(map(1, 2)));
+    assertThat(loader.loads, contains(1));
+  }
+
+  @SafeVarargs
+  static <E> HashSet<E> set(E... elements) {
+    return new HashSet<>(Arrays.asList(elements));
+  }
+
+  static Map<Integer, Integer> map(Integer... keys) {
+    Map<Integer, Integer> map = new HashMap<>();
+    for (int key : keys) {
+      map.put(key, -key);
+    }
+    return map;
+  }
+
+  /** Loads the negation of each key, optionally blocking the first load until released. */
+  static final class RecordingLoader implements CacheLoader<Integer, Integer> {
+    final List<HashSet<Integer>> bulkLoads = new CopyOnWriteArrayList<>();
+    final List<Integer> loads = new CopyOnWriteArrayList<>();
+    final CountDownLatch entered = new CountDownLatch(1);
+    final CountDownLatch release = new CountDownLatch(1);
+
+    volatile Consumer<Iterable<? extends Integer>> onLoadAll = keys -> {};
+    volatile boolean blocking;
+    volatile boolean failure;
+    volatile boolean error;
+
+    @Override
+    public Integer load(Integer key) {
+      loads.add(key);
+      await();
+      return -key;
+    }
+
+    @Override
+    public Map<Integer, Integer> loadAll(Iterable<? extends Integer> keys) {
+      HashSet<Integer> keySet = new HashSet<>();
+      keys.forEach(keySet::add);
+      bulkLoads.add(keySet);
+      onLoadAll.accept(keys);
+      await();
+      return map(keySet.toArray(new Integer[0]));
+    }
+
+    void await() {
+      if (!blocking) {
+        return;
+      }
+      entered.countDown();
+      try {
+        release.await();
+      } catch (InterruptedException e) {
+        throw new CacheLoaderException(e);
+      }
+      if (failure) {
+        throw new IllegalStateException();
+      } else if (error) {
+        throw new LoaderError();
+      }
+    }
+  }
+
+  /** An error thrown by the loader, which is not translated into a {@link CacheLoaderException}. */
+  static final class LoaderError extends Error {
+    private static final long serialVersionUID = 1L;
+  }
+
+  /** A read performed on its own thread, so that the thread can be observed waiting. */
+  static final class Task<T> extends Thread {
+    final CompletableFuture<T> result = new CompletableFuture<>();
+    final Supplier<T> supplier;
+
+    Task(Supplier<T> supplier) {
+      this.supplier = supplier;
+    }
+
+    static <T> Task<T> start(Supplier<T> supplier) {
+      Task<T> task = new Task<>(supplier);
+      task.setDaemon(true);
+      task.start();
+      return task;
+    }
+
+    @Override
+    public void run() {
+      try {
+        result.complete(supplier.get());
+      } catch (Throwable t) {
+        result.completeExceptionally(t);
+      }
+    }
+
+    /** Waits until the thread is parked, which is assumed to be on the in-flight load. */
+    void awaitWaiting() throws InterruptedException {
+      while (getState() != State.WAITING) {
+        if (result.isDone()) {
+          throw new AssertionError("Completed without waiting");
+        }
+        Thread.sleep(1);
+      }
+    }
+  }
+}
@@ -0,0 +1,172 @@
+/*
+ * Copyright 2015 Ben Manes. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.benmanes.caffeine.jcache;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.empty;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.nullValue;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.cache.Cache;
+import javax.cache.configuration.FactoryBuilder;
+import javax.cache.expiry.Duration;
+import javax.cache.integration.CacheLoader;
+
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import com.github.benmanes.caffeine.jcache.configuration.CaffeineConfiguration;
+import com.github.benmanes.caffeine.jcache.expiry.JCacheExpiryPolicy;
+
+/**
+ * @author ben.manes@gmail.com (Ben Manes)
+ */
+public final class WriteThroughTest extends AbstractJCacheTest {
+  RecordingWriter writer;
+  Runnable interleaved;
+
+  @BeforeMethod
+  public void before() {
+    interleaved = () -> {};
+    writer = new RecordingWriter() {
+      @Override
+      public void write(Cache.Entry<? extends Integer, ? extends Integer> entry) {
+        super.write(entry);
+        interleaved.run();
+      }
+
+      @Override
+      public void delete(Object key) {
+        super.delete(key);
+        interleaved.run();
+      }
+    };
+  }
+
+  @Test
+  public void putIfAbsent_zeroCreation() {
+    CaffeineConfiguration<Integer, Integer> config = newWriteThroughConfiguration();
+    config.setExpiryPolicyFactory(FactoryBuilder.factoryOf(
+        new JCacheExpiryPolicy(Duration.ZERO, Duration.ETERNAL, Duration.ETERNAL)));
+    Cache<Integer, Integer> cache = newCache(config);
+
+    cache.putIfAbsent(1, 1);
+    assertThat(cache.get(1), is(nullValue()));
+    assertThat(writer.changes, is(empty()));
+  }
+
+  @Test
+  public void putIfAbsent_present() {
+    Cache<Integer, Integer> cache = newCache(newWriteThroughConfiguration());
+    cache.put(1, 1);
+    assertThat(cache.putIfAbsent(1, 2), is(false));
+    assertThat(writer.changes, contains("1=1"));
+  }
+
+  @Test
+  public void invoke_concurrentLoad() {
+    Cache<Integer, Integer> cache = newLoadingCache();
+
+    AtomicInteger invocations = new AtomicInteger();
+    int result = cache.invoke(1, (entry, arguments) -> {
+      if (invocations.incrementAndGet() == 1) {
+        cache.loadAll(Collections.singleton(1), true, null);
+      }
+      int value = entry.exists() ? (entry.getValue() + 1) : 1;
+      entry.setValue(value);
+      return value;
+    });
+
+    assertThat(invocations.get(), is(1));
+    assertThat(result, is(1));
+    assertThat(cache.get(1), is(1));
+    assertThat(writer.changes, contains("1=1"));
+  }
+
+  @Test
+  public void putIfAbsent_concurrentLoad() {
+    Cache<Integer, Integer> cache = newLoadingCache();
+    interleaved = () -> cache.loadAll(Collections.singleton(1), true, null);
+
+    assertThat(cache.putIfAbsent(1, 1), is(true));
+    assertThat(cache.get(1), is(1));
+    assertThat(writer.changes, contains("1=1"));
+  }
+
+  @Test
+  public void remove_concurrentLoad() {
+    Cache<Integer, Integer> cache = newLoadingCache();
+    cache.put(1, 1);
+    interleaved = () -> cache.loadAll(Collections.singleton(1), true, null);
+
+    assertThat(cache.remove(1, 1), is(true));
+    assertThat(cache.containsKey(1), is(false));
+    assertThat(writer.changes, contains("1=1", "1=null"));
+  }
+
+  @Test
+  public void replace_concurrentLoad() {
+    Cache<Integer, Integer> cache = newLoadingCache();
+    cache.put(1, 1);
+    interleaved = () -> cache.loadAll(Collections.singleton(1), true, null);
+
+    assertThat(cache.replace(1, 1, 2), is(true));
+    assertThat(cache.get(1), is(2));
+    assertThat(writer.changes, contains("1=1", "1=2"));
+  }
+
+  /** Returns a cache that loads, on the calling thread, ten times the key. */
+  Cache<Integer, Integer> newLoadingCache() {
+    CaffeineConfiguration<Integer, Integer> config = newWriteThroughConfiguration(Runnable::run);
+    config.setCacheLoaderFactory(new FactoryBuilder.SingletonFactory<>(new TimesTenLoader()));
+    return newCache(config);
+  }
+
+  CaffeineConfiguration<Integer, Integer> newWriteThroughConfiguration() {
+    return newWriteThroughConfiguration(ForkJoinPool.commonPool());
+  }
+
+  CaffeineConfiguration<Integer, Integer> newWriteThroughConfiguration(Executor executor) {
+    CaffeineConfiguration<Integer, Integer> config = newConfiguration(executor);
+    config.setCacheWriterFactory(new FactoryBuilder.SingletonFactory<>(writer));
+    config.setWriteThrough(true);
+    return config;
+  }
+
+  /** A loader whose value is ten times the key. */
+  static final class TimesTenLoader implements CacheLoader<Integer, Integer> {
+
+    @Override
+    public Integer load(Integer key) {
+      return 10 * key;
+    }
+
+    @Override
+    public Map<Integer, Integer> loadAll(Iterable<? extends Integer> keys) {
+      Map<Integer, Integer> result = new HashMap<>();
+      keys.forEach(key -> result.put(key, load(key)));
+      return result;
+    }
+  }
+}
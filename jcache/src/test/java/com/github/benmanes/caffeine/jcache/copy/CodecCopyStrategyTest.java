@@ -0,0 +1,261 @@
+/*
+ * Copyright 2015 Ben Manes. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.benmanes.caffeine.jcache.copy;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.instanceOf;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.not;
+import static org.hamcrest.Matchers.nullValue;
+import static org.hamcrest.Matchers.sameInstance;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.io.NotSerializableException;
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Date;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.TreeMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+/**
+ * @author ben.manes@gmail.com (Ben Manes)
+ */
+public final class CodecCopyStrategyTest {
+  final ClassLoader classLoader = getClass().getClassLoader();
+
+  PointCodec codec;
+  CodecCopyStrategy strategy;
+
+  @BeforeMethod
+  public void before() {
+    codec = new PointCodec();
+    strategy = new CodecCopyStrategy(Collections.singletonMap(Point.class, codec));
+  }
+
+  @Test
+  public void copy_immutable() {
+    String value = new String("value");
+    assertThat(strategy.copy(value, classLoader), is(sameInstance(value)));
+  }
+
+  @Test
+  public void copy_deepCopyStrategy() {
+    Date date = new Date();
+    Date copy = strategy.copy(date, classLoader);
+    assertThat(copy, is(date));
+    assertThat(copy, is(not(sameInstance(date))));
+    assertThat(codec.encoded.get(), is(0));
+  }
+
+  @Test
+  public void copy_codec() {
+    Point point = new Point(1, 2);
+    Point copy = strategy.copy(point, classLoader);
+    assertThat(copy, is(point));
+    assertThat(copy, is(not(sameInstance(point))));
+    assertThat(codec.encoded.get(), is(1));
+    assertThat(codec.decoded.get(), is(1));
+  }
+
+  @Test
+  public void copy_serializable() {
+    Label label = new Label("label");
+    Label copy = strategy.copy(label, classLoader);
+    assertThat(copy, is(label));
+    assertThat(copy, is(not(sameInstance(label))));
+    assertThat(codec.encoded.get(), is(0));
+  }
+
+  @Test
+  public void copy_collection() {
+    List<Point> points = new LinkedList<>(Arrays.asList(new Point(1, 2), null, new Point(3, 4)));
+    List<Point> copy = strategy.copy(points, classLoader);
+
+    assertThat(copy, is(points));
+    assertThat(copy, is(instanceOf(LinkedList.class)));
+    assertThat(copy, is(not(sameInstance(points))));
+    assertThat(copy.get(0), is(not(sameInstance(points.get(0)))));
+    assertThat(copy.get(1), is(nullValue()));
+    assertThat(codec.encoded.get(), is(2));
+  }
+
+  @Test
+  public void copy_map_retainsComparator() {
+    TreeMap<String, Point> points = new TreeMap<>(Comparator.reverseOrder());
+    points.put("a", new Point(1, 2));
+    points.put("b", new Point(3, 4));
+    TreeMap<String, Point> copy = strategy.copy(points, classLoader);
+
+    assertThat(copy, is(points));
+    assertThat(copy.keySet(), contains("b", "a"));
+    assertThat(copy.get("a"), is(not(sameInstance(points.get("a")))));
+    assertThat(codec.encoded.get(), is(2));
+  }
+
+  @Test
+  public void copy_array() {
+    Object[] array = { new Point(1, 2), "value", new Point[] { new Point(3, 4) } };
+    Object[] copy = strategy.copy(array, classLoader);
+
+    assertThat(copy, is(not(sameInstance(array))));
+    assertThat(copy[0], is(array[0]));
+    assertThat(copy[0], is(not(sameInstance(array[0]))));
+    assertThat(copy[1], is(sameInstance(array[1])));
+    assertThat(((Point[]) copy[2])[0], is(((Point[]) array[2])[0]));
+    assertThat(copy[2], is(not(sameInstance(array[2]))));
+    assertThat(codec.encoded.get(), is(2));
+  }
+
+  @Test
+  public void copy_nested() {
+    List<Map<String, Point>> nested = new ArrayList<>();
+    nested.add(new TreeMap<>(Collections.singletonMap("a", new Point(1, 2))));
+    List<Map<String, Point>> copy = strategy.copy(nested, classLoader);
+
+    assertThat(copy, is(nested));
+    assertThat(copy.get(0), is(not(sameInstance(nested.get(0)))));
+    assertThat(copy.get(0).get("a"), is(not(sameInstance(nested.get(0).get("a")))));
+  }
+
+  @Test
+  public void copy_collection_serializedWhole() {
+    Label label = new Label("label");
+    List<Object> mixed = new ArrayList<>(Arrays.asList(label, label, new Point(1, 2)));
+    List<Object> copy = strategy.copy(mixed, classLoader);
+
+    assertThat(copy, is(mixed));
+    assertThat(copy.get(0), is(not(sameInstance(label))));
+    assertThat(copy.get(0), is(sameInstance(copy.get(1))));
+    assertThat(codec.encoded.get(), is(0));
+  }
+
+  @Test
+  public void copy_largeThenSmall() {
+    char[] chars = new char[4 * CodecCopyStrategy.MAX_RETAINED_CAPACITY];
+    Arrays.fill(chars, 'a');
+    Label large = new Label(new String(chars));
+    assertThat(strategy.copy(large, classLoader), is(large));
+
+    Label small = new Label("small");
+    assertThat(strategy.copy(small, classLoader), is(small));
+    assertThat(strategy.copy(new Point(5, 6), classLoader), is(new Point(5, 6)));
+  }
+
+  @Test
+  public void serialize_reusesBuffer() {
+    CodecCopyStrategy.Buffer buffer = strategy.serialize(new Point(1, 2));
+    assertThat(strategy.deserialize(buffer, classLoader), is(new Point(1, 2)));
+    assertThat(buffer.codec, is(nullValue()));
+    assertThat(strategy.serialize(new Label("label")), is(sameInstance(buffer)));
+  }
+
+  @Test(expectedExceptions = IllegalArgumentException.class)
+  public void copy_notSerializable() {
+    strategy.copy(new Object(), classLoader);
+  }
+
+  @Test
+  public void copy_codecFailure() {
+    codec.fail = true;
+    try {
+      strategy.copy(new Point(1, 2), classLoader);
+      throw new AssertionError();
+    } catch (IllegalArgumentException e) {
+      assertThat(e.getCause(), is(instanceOf(NotSerializableException.class)));
+    }
+  }
+
+  static final class Point implements Serializable {
+    private static final long serialVersionUID = 1L;
+
+    int x;
+    int y;
+
+    Point(int x, int y) {
+      this.x = x;
+      this.y = y;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+      if (!(o instanceof Point)) {
+        return false;
+      }
+      Point point = (Point) o;
+      return (x == point.x) && (y == point.y);
+    }
+
+    @Override
+    public int hashCode() {
+      return Objects.hash(x, y);
+    }
+  }
+
+  static final class Label implements Serializable {
+    private static final long serialVersionUID = 1L;
+
+    String text;
+
+    Label(String text) {
+      this.text = text;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+      return (o instanceof Label) && text.equals(((Label) o).text);
+    }
+
+    @Override
+    public int hashCode() {
+      return text.hashCode();
+    }
+  }
+
+  static final class PointCodec implements Codec<Point> {
+    final AtomicInteger encoded = new AtomicInteger();
+    final AtomicInteger decoded = new AtomicInteger();
+    boolean fail;
+
+    @Override
+    public void encode(Point point, DataOutput output) throws IOException {
+      if (fail) {
+        throw new NotSerializableException();
+      }
+      encoded.incrementAndGet();
+      output.writeInt(point.x);
+      output.writeInt(point.y);
+    }
+
+    @Override
+    public Point decode(DataInput input, ClassLoader classLoader) throws IOException {
+      decoded.incrementAndGet();
+      return new Point(input.readInt(), input.readInt());
+    }
+  }
+}
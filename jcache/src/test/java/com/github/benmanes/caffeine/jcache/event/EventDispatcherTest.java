@@ -0,0 +1,206 @@
+/*
+ * Copyright 2015 Ben Manes. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.benmanes.caffeine.jcache.event;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.is;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RejectedExecutionException;
+
+import javax.cache.Cache;
+import javax.cache.CacheManager;
+import javax.cache.Caching;
+import javax.cache.configuration.FactoryBuilder;
+import javax.cache.configuration.MutableCacheEntryListenerConfiguration;
+import javax.cache.configuration.MutableConfiguration;
+import javax.cache.event.CacheEntryCreatedListener;
+import javax.cache.event.CacheEntryEvent;
+import javax.cache.event.CacheEntryUpdatedListener;
+
+import org.testng.annotations.AfterClass;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.Test;
+
+import com.github.benmanes.caffeine.jcache.AbstractJCacheTest.QueuedExecutor;
+
+/**
+ * @author ben.manes@gmail.com (Ben Manes)
+ */
+public final class EventDispatcherTest {
+  CacheManager cacheManager;
+  Cache<Integer, Integer> cache;
+
+  @BeforeClass
+  public void beforeClass() {
+    cacheManager = Caching.getCachingProvider().getCacheManager();
+    cache = cacheManager.createCache(getClass().getSimpleName(), new MutableConfiguration<>());
+  }
+
+  @AfterClass
+  public void afterClass() {
+    cacheManager.destroyCache(getClass().getSimpleName());
+  }
+
+  @Test
+  public void batch() {
+    QueuedExecutor executor = new QueuedExecutor();
+    EventDispatcher<Integer, Integer> dispatcher = new EventDispatcher<>(executor);
+    RecordingListener listener = register(dispatcher, false);
+
+    for (int i = 0; i < 500; i++) {
+      dispatcher.publishCreated(cache, i, i);
+    }
+    assertThat(listener.batches.isEmpty(), is(true));
+
+    dispatcher.ignoreSynchronous();
+    executor.run();
+    assertThat(listener.batches, contains("CREATED:500"));
+  }
+
+  @Test
+  public void batch_runsOfType() {
+    QueuedExecutor executor = new QueuedExecutor();
+    EventDispatcher<Integer, Integer> dispatcher = new EventDispatcher<>(executor);
+    RecordingListener listener = register(dispatcher, false);
+
+    dispatcher.publishCreated(cache, 1, 1);
+    dispatcher.publishCreated(cache, 2, 2);
+    dispatcher.publishUpdated(cache, 1, 1, 3);
+    dispatcher.publishCreated(cache, 3, 3);
+    dispatcher.ignoreSynchronous();
+    executor.run();
+    assertThat(listener.batches, contains("CREATED:2", "UPDATED:1", "CREATED:1"));
+  }
+
+  @Test
+  public void batch_maximumSize() {
+    QueuedExecutor executor = new QueuedExecutor();
+    EventDispatcher<Integer, Integer> dispatcher = new EventDispatcher<>(executor);
+    RecordingListener listener = register(dispatcher, false);
+
+    int count = 2 * DispatchQueue.MAX_BATCH_SIZE + 1;
+    for (int i = 0; i < count; i++) {
+      dispatcher.publishCreated(cache, i, i);
+    }
+    dispatcher.ignoreSynchronous();
+    executor.run();
+
+    String full = "CREATED:" + DispatchQueue.MAX_BATCH_SIZE;
+    assertThat(listener.batches, contains(full, full, "CREATED:1"));
+  }
+
+  @Test
+  public void awaitSynchronous() {
+    EventDispatcher<Integer, Integer> dispatcher = new EventDispatcher<>(ForkJoinPool.commonPool());
+    RecordingListener listener = register(dispatcher, true);
+
+    for (int i = 0; i < 100; i++) {
+      dispatcher.publishCreated(cache, i, i);
+      dispatcher.awaitSynchronous();
+      assertThat(listener.events, is(i + 1));
+    }
+  }
+
+  @Test
+  public void dispatchSynchronous_handOff() {
+    QueuedExecutor executor = new QueuedExecutor();
+    EventDispatcher<Integer, Integer> dispatcher = new EventDispatcher<>(executor);
+    RecordingListener listener = register(dispatcher, true);
+
+    dispatcher.publishCreated(cache, 1, 1);
+    CompletableFuture<Void> future = dispatcher.dispatchSynchronous();
+    assertThat(future.isDone(), is(false));
+
+    executor.run();
+    assertThat(future.isDone(), is(true));
+    assertThat(listener.events, is(1));
+  }
+
+  @Test
+  public void rejected() {
+    Executor executor = task -> { throw new RejectedExecutionException(); };
+    EventDispatcher<Integer, Integer> dispatcher = new EventDispatcher<>(executor);
+    RecordingListener listener = register(dispatcher, true);
+
+    for (int i = 0; i < 10; i++) {
+      dispatcher.publishCreated(cache, i, i);
+      dispatcher.awaitSynchronous();
+    }
+    assertThat(listener.events, is(10));
+  }
+
+  @Test
+  public void listenerFailure() {
+    QueuedExecutor executor = new QueuedExecutor();
+    EventDispatcher<Integer, Integer> dispatcher = new EventDispatcher<>(executor);
+    RecordingListener listener = register(dispatcher, false);
+    listener.fail = true;
+
+    dispatcher.publishCreated(cache, 1, 1);
+    dispatcher.ignoreSynchronous();
+    executor.run();
+
+    listener.fail = false;
+    dispatcher.publishCreated(cache, 2, 2);
+    dispatcher.ignoreSynchronous();
+    executor.run();
+    assertThat(listener.batches, contains("CREATED:1", "CREATED:1"));
+  }
+
+  RecordingListener register(EventDispatcher<Integer, Integer> dispatcher, boolean synchronous) {
+    RecordingListener listener = new RecordingListener();
+    dispatcher.register(new MutableCacheEntryListenerConfiguration<Integer, Integer>(
+        new FactoryBuilder.SingletonFactory<>(listener), null, false, synchronous));
+    return listener;
+  }
+
+  /** A listener that records the size of each batch that it receives. */
+  static final class RecordingListener implements CacheEntryCreatedListener<Integer, Integer>,
+      CacheEntryUpdatedListener<Integer, Integer> {
+    final List<String> batches = new CopyOnWriteArrayList<>();
+    volatile boolean fail;
+    volatile int events;
+
+    @Override
+    public void onCreated(Iterable<CacheEntryEvent<? extends Integer, ? extends Integer>> events) {
+      record("CREATED", events);
+    }
+
+    @Override
+    public void onUpdated(Iterable<CacheEntryEvent<? extends Integer, ? extends Integer>> events) {
+      record("UPDATED", events);
+    }
+
+    private void record(String type,
+        Iterable<CacheEntryEvent<? extends Integer, ? extends Integer>> batch) {
+      int size = 0;
+      for (@SuppressWarnings("unused") CacheEntryEvent<?, ?> event : batch) {
+        size++;
+      }
+      batches.add(type + ":" + size);
+      events += size;
+      if (fail) {
+        throw new IllegalStateException();
+      }
+    }
+  }
+}
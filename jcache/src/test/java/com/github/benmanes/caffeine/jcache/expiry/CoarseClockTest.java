@@ -0,0 +1,109 @@
+/*
+ * Copyright 2015 Ben Manes. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.benmanes.caffeine.jcache.expiry;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.not;
+import static org.hamcrest.Matchers.nullValue;
+import static org.hamcrest.Matchers.sameInstance;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import com.github.benmanes.caffeine.cache.Ticker;
+
+/**
+ * @author ben.manes@gmail.com (Ben Manes)
+ */
+public final class CoarseClockTest {
+  AtomicLong nanos;
+  Ticker ticker;
+
+  @BeforeMethod
+  public void before() {
+    nanos = new AtomicLong(TimeUnit.MILLISECONDS.toNanos(5));
+    ticker = nanos::get;
+  }
+
+  @Test
+  public void currentTimeMillis() throws InterruptedException {
+    CoarseClock clock = CoarseClock.acquire(ticker);
+    assertThat(clock.currentTimeMillis(), is(5L));
+
+    nanos.set(TimeUnit.MILLISECONDS.toNanos(9));
+    awaitTime(clock, 9L);
+    release(clock);
+  }
+
+  @Test
+  public void acquire_shared() throws InterruptedException {
+    CoarseClock clock = CoarseClock.acquire(ticker);
+    Thread thread = clock.thread;
+    assertThat(CoarseClock.acquire(ticker), is(sameInstance(clock)));
+    assertThat(clock.thread, is(sameInstance(thread)));
+
+    clock.release();
+    assertThat(thread.isAlive(), is(true));
+    nanos.set(TimeUnit.MILLISECONDS.toNanos(7));
+    awaitTime(clock, 7L);
+
+    release(clock);
+  }
+
+  @Test
+  public void acquire_perTicker() throws InterruptedException {
+    CoarseClock clock = CoarseClock.acquire(ticker);
+    CoarseClock other = CoarseClock.acquire(() -> 0L);
+    assertThat(other, is(not(sameInstance(clock))));
+    assertThat(other.currentTimeMillis(), is(0L));
+
+    release(clock);
+    release(other);
+  }
+
+  @Test
+  public void acquire_afterRelease() throws InterruptedException {
+    CoarseClock clock = CoarseClock.acquire(ticker);
+    release(clock);
+
+    CoarseClock restarted = CoarseClock.acquire(ticker);
+    assertThat(restarted, is(not(sameInstance(clock))));
+    assertThat(restarted.thread.isAlive(), is(true));
+    release(restarted);
+  }
+
+  /** Releases the clock's last use and asserts that its thread terminates. */
+  static void release(CoarseClock clock) throws InterruptedException {
+    Thread thread = clock.thread;
+    clock.release();
+    assertThat(clock.thread, is(nullValue()));
+    thread.join(TimeUnit.SECONDS.toMillis(5));
+    assertThat(thread.isAlive(), is(false));
+  }
+
+  /** Waits until the clock has been updated to the expected time. */
+  static void awaitTime(CoarseClock clock, long expectedTimeMS) throws InterruptedException {
+    long end = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+    while ((clock.currentTimeMillis() != expectedTimeMS) && (System.nanoTime() < end)) {
+      Thread.sleep(1);
+    }
+    assertThat(clock.currentTimeMillis(), is(expectedTimeMS));
+  }
+}
@@ -0,0 +1,185 @@
+/*
+ * Copyright 2015 Ben Manes. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.benmanes.caffeine.jcache.expiry;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.empty;
+import static org.hamcrest.Matchers.greaterThanOrEqualTo;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.lessThan;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.testng.annotations.DataProvider;
+import org.testng.annotations.Test;
+
+import com.github.benmanes.caffeine.jcache.expiry.TimerWheel.Timer;
+
+/**
+ * @author ben.manes@gmail.com (Ben Manes)
+ */
+public final class TimerWheelTest {
+  static final long START = 1_234_567L;
+  static final long STEP = 1L << 9;
+
+  @Test(dataProvider = "levels")
+  public void schedule_cascade(int level, long delay) {
+    TimerWheel<Long> timerWheel = new TimerWheel<>(START);
+    Timer<Long> timer = new Timer<>(delay, START + delay);
+    timerWheel.schedule(timer);
+    assertThat(levelOf(timerWheel, timer), is(level));
+
+    List<Long> expiredAt = new ArrayList<>();
+    for (long now = START; now <= timer.getDeadline() + (2 << TimerWheel.SHIFT[0]); now += STEP) {
+      long time = now;
+      timerWheel.advance(now, expired -> expiredAt.add(time));
+    }
+    assertThat(expiredAt.size(), is(1));
+    assertThat(expiredAt.get(0), is(greaterThanOrEqualTo(timer.getDeadline())));
+    assertThat(expiredAt.get(0) - timer.getDeadline(),
+        is(lessThan((1L << TimerWheel.SHIFT[0]) + STEP)));
+  }
+
+  @Test
+  public void schedule_pastDeadline() {
+    TimerWheel<Long> timerWheel = new TimerWheel<>(START);
+    Timer<Long> timer = new Timer<>(1L, START - 10_000);
+    timerWheel.schedule(timer);
+
+    List<Timer<Long>> expired = new ArrayList<>();
+    timerWheel.advance(START + (1L << TimerWheel.SHIFT[0]), expired::add);
+    assertThat(expired, contains(timer));
+  }
+
+  @Test
+  public void deschedule() {
+    TimerWheel<Long> timerWheel = new TimerWheel<>(START);
+    Timer<Long> first = new Timer<>(1L, START + 5_000);
+    Timer<Long> second = new Timer<>(2L, START + 5_000);
+    timerWheel.schedule(first);
+    timerWheel.schedule(second);
+
+    timerWheel.deschedule(first);
+    timerWheel.deschedule(first);
+    assertThat(levelOf(timerWheel, first), is(-1));
+
+    List<Timer<Long>> expired = new ArrayList<>();
+    timerWheel.advance(START + 10_000, expired::add);
+    assertThat(expired, contains(second));
+  }
+
+  @Test
+  public void deschedule_unscheduled() {
+    TimerWheel<Long> timerWheel = new TimerWheel<>(START);
+    timerWheel.deschedule(new Timer<>(1L, START + 5_000));
+
+    List<Timer<Long>> expired = new ArrayList<>();
+    timerWheel.advance(START + 10_000, expired::add);
+    assertThat(expired, is(empty()));
+  }
+
+  @Test
+  public void clear() {
+    TimerWheel<Long> timerWheel = new TimerWheel<>(START);
+    for (long i = 0; i < 100; i++) {
+      timerWheel.schedule(new Timer<>(i, START + (i << 20)));
+    }
+    timerWheel.clear();
+
+    List<Timer<Long>> expired = new ArrayList<>();
+    timerWheel.advance(START + (100L << 20), expired::add);
+    assertThat(expired, is(empty()));
+  }
+
+  @Test
+  public void reschedule_duringAdvance() {
+    TimerWheel<Long> timerWheel = new TimerWheel<>(START);
+    Timer<Long> timer = new Timer<>(1L, START + 2_000);
+    timerWheel.schedule(timer);
+
+    List<Long> expiredAt = new ArrayList<>();
+    for (long now = START; now <= START + 20_000; now += STEP) {
+      long time = now;
+      timerWheel.advance(now, expired -> {
+        expiredAt.add(time);
+        if (expiredAt.size() == 1) {
+          expired.setDeadline(time + 5_000);
+          timerWheel.schedule(expired);
+        }
+      });
+    }
+    assertThat(expiredAt.size(), is(2));
+    assertThat(expiredAt.get(1) - expiredAt.get(0), is(greaterThanOrEqualTo(5_000L)));
+  }
+
+  @Test
+  public void reschedule_extendedDeadline() {
+    TimerWheel<Long> timerWheel = new TimerWheel<>(START);
+    Timer<Long> timer = new Timer<>(1L, START + 2_000);
+    timerWheel.schedule(timer);
+
+    List<Timer<Long>> expired = new ArrayList<>();
+    timerWheel.advance(START + 1_500, expired::add);
+    timer.setDeadline(START + 1_000_000);
+    timerWheel.deschedule(timer);
+    timerWheel.schedule(timer);
+
+    timerWheel.advance(START + 500_000, expired::add);
+    assertThat(expired, is(empty()));
+    timerWheel.advance(START + 1_002_000, expired::add);
+    assertThat(expired, contains(timer));
+  }
+
+  /** Returns the timers that are scheduled in the wheel. */
+  public static List<Timer<?>> scheduled(TimerWheel<?> timerWheel) {
+    List<Timer<?>> timers = new ArrayList<>();
+    for (Timer<?>[] buckets : timerWheel.wheel) {
+      for (Timer<?> sentinel : buckets) {
+        for (Timer<?> node = sentinel.next; node != sentinel; node = node.next) {
+          timers.add(node);
+        }
+      }
+    }
+    return timers;
+  }
+
+  /** Returns the index of the wheel that the timer is scheduled in, or -1 if not scheduled. */
+  static int levelOf(TimerWheel<?> timerWheel, Timer<?> timer) {
+    for (int i = 0; i < timerWheel.wheel.length; i++) {
+      for (Timer<?> sentinel : timerWheel.wheel[i]) {
+        for (Timer<?> node = sentinel.next; node != sentinel; node = node.next) {
+          if (node == timer) {
+            return i;
+          }
+        }
+      }
+    }
+    return -1;
+  }
+
+  @DataProvider(name = "levels")
+  public Object[][] providesLevels() {
+    return new Object[][] {
+        { 0, 5_000L },
+        { 1, (1L << TimerWheel.SHIFT[1]) + 12_345L },
+        { 2, (1L << TimerWheel.SHIFT[2]) + 123_456L },
+        { 3, (1L << TimerWheel.SHIFT[3]) + 1_234_567L },
+        { 4, (1L << TimerWheel.SHIFT[4]) + 12_345_678L },
+    };
+  }
+}
@@ -0,0 +1,215 @@
+/*
+ * Copyright 2015 Ben Manes. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.benmanes.caffeine.jcache.integration;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.containsInAnyOrder;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.lessThan;
+import static org.hamcrest.Matchers.nullValue;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BooleanSupplier;
+
+import javax.cache.Cache;
+import javax.cache.integration.CacheLoader;
+
+import org.testng.annotations.DataProvider;
+import org.testng.annotations.Test;
+
+import com.github.benmanes.caffeine.jcache.AbstractJCacheTest.RecordingWriter;
+import com.github.benmanes.caffeine.jcache.EntryProxy;
+
+/**
+ * @author ben.manes@gmail.com (Ben Manes)
+ */
+public final class WriteBehindWriterTest {
+  static final long ONE_HOUR = TimeUnit.HOURS.toNanos(1);
+  static final long ONE_MS = TimeUnit.MILLISECONDS.toNanos(1);
+
+  @Test
+  public void coalesce() throws Exception {
+    RecordingWriter delegate = new RecordingWriter();
+    WriteBehindWriter<Integer, Integer> writer =
+        new WriteBehindWriter<>(delegate, 100, ONE_HOUR, 0, ONE_MS);
+    writer.write(new EntryProxy<>(1, 1));
+    writer.write(new EntryProxy<>(1, 2));
+    writer.write(new EntryProxy<>(2, 1));
+    writer.delete(2);
+    writer.delete(3);
+    writer.write(new EntryProxy<>(3, 3));
+    assertThat(delegate.changes.isEmpty(), is(true));
+
+    writer.close();
+    assertThat(delegate.changes, containsInAnyOrder("1=2", "2=null", "3=3"));
+  }
+
+  @Test
+  public void flush_batchSize() throws Exception {
+    RecordingWriter delegate = new RecordingWriter();
+    WriteBehindWriter<Integer, Integer> writer =
+        new WriteBehindWriter<>(delegate, 2, ONE_HOUR, 0, ONE_MS);
+    writer.write(new EntryProxy<>(1, 1));
+    writer.write(new EntryProxy<>(2, 2));
+
+    await(() -> delegate.changes.size() == 2);
+    assertThat(delegate.changes, containsInAnyOrder("1=1", "2=2"));
+    writer.close();
+  }
+
+  @Test
+  public void flush_delay() throws Exception {
+    RecordingWriter delegate = new RecordingWriter();
+    WriteBehindWriter<Integer, Integer> writer =
+        new WriteBehindWriter<>(delegate, 100, ONE_MS, 0, ONE_MS);
+    writer.write(new EntryProxy<>(1, 1));
+
+    await(() -> delegate.changes.size() == 1);
+    assertThat(delegate.changes, contains("1=1"));
+    writer.close();
+  }
+
+  @Test
+  public void retry() throws Exception {
+    RecordingWriter delegate = new RecordingWriter();
+    delegate.failures.set(2);
+    WriteBehindWriter<Integer, Integer> writer =
+        new WriteBehindWriter<>(delegate, 100, ONE_MS, 3, ONE_MS);
+    writer.write(new EntryProxy<>(1, 1));
+
+    await(() -> delegate.changes.size() == 1);
+    assertThat(delegate.attempts.get(), is(3));
+    assertThat(delegate.changes, contains("1=1"));
+    writer.close();
+  }
+
+  @Test
+  public void retry_exhausted() throws Exception {
+    RecordingWriter delegate = new RecordingWriter();
+    delegate.failures.set(Integer.MAX_VALUE);
+    WriteBehindWriter<Integer, Integer> writer =
+        new WriteBehindWriter<>(delegate, 100, ONE_HOUR, 2, ONE_MS);
+    writer.write(new EntryProxy<>(1, 1));
+
+    writer.close();
+    assertThat(delegate.attempts.get(), is(3));
+    assertThat(writer.pending.isEmpty(), is(true));
+  }
+
+  @Test
+  public void close_timeout() throws Exception {
+    CountDownLatch release = new CountDownLatch(1);
+    RecordingWriter delegate = new RecordingWriter() {
+      @Override public void writeAll(Collection<Cache.Entry<? extends Integer,
+          ? extends Integer>> entries) {
+        try {
+          release.await();
+        } catch (InterruptedException e) {
+          Thread.currentThread().interrupt();
+        }
+        throw new IllegalStateException();
+      }
+    };
+    WriteBehindWriter<Integer, Integer> writer = new WriteBehindWriter<>(
+        delegate, 100, ONE_HOUR, 0, ONE_MS, TimeUnit.MILLISECONDS.toNanos(100));
+    writer.write(new EntryProxy<>(1, 1));
+
+    long start = System.nanoTime();
+    writer.close();
+    assertThat(System.nanoTime() - start, is(lessThan(TimeUnit.SECONDS.toNanos(10))));
+    release.countDown();
+  }
+
+  @Test(expectedExceptions = IllegalStateException.class)
+  public void write_closed() throws Exception {
+    WriteBehindWriter<Integer, Integer> writer =
+        new WriteBehindWriter<>(new RecordingWriter(), 100, ONE_HOUR, 0, ONE_MS);
+    writer.close();
+    writer.write(new EntryProxy<>(1, 1));
+  }
+
+  @Test
+  public void close_twice() throws Exception {
+    RecordingWriter delegate = new RecordingWriter();
+    WriteBehindWriter<Integer, Integer> writer =
+        new WriteBehindWriter<>(delegate, 100, ONE_HOUR, 0, ONE_MS);
+    writer.write(new EntryProxy<>(1, 1));
+    writer.close();
+    writer.close();
+    assertThat(delegate.changes, contains("1=1"));
+  }
+
+  @Test
+  public void overlay() throws Exception {
+    RecordingWriter delegate = new RecordingWriter();
+    WriteBehindWriter<Integer, Integer> writer =
+        new WriteBehindWriter<>(delegate, 100, ONE_HOUR, 0, ONE_MS);
+    CacheLoader<Integer, Integer> loader = writer.overlay(new CacheLoader<Integer, Integer>() {
+      @Override public Integer load(Integer key) {
+        return -key;
+      }
+      @Override public Map<Integer, Integer> loadAll(Iterable<? extends Integer> keys) {
+        Map<Integer, Integer> result = new HashMap<>();
+        keys.forEach(key -> result.put(key, load(key)));
+        return result;
+      }
+    });
+    writer.write(new EntryProxy<>(1, 1));
+    writer.delete(2);
+
+    assertThat(loader.load(1), is(1));
+    assertThat(loader.load(2), is(nullValue()));
+    assertThat(loader.load(3), is(-3));
+
+    Map<Integer, Integer> expected = new HashMap<>();
+    expected.put(1, 1);
+    expected.put(3, -3);
+    assertThat(loader.loadAll(Arrays.asList(1, 2, 3)), is(expected));
+    writer.close();
+  }
+
+  @Test(dataProvider = "invalidSettings", expectedExceptions = IllegalArgumentException.class)
+  public void invalidSettings(int batchSize, long flushDelayNanos,
+      int maxRetries, long retryBackoffNanos) {
+    new WriteBehindWriter<>(new RecordingWriter(),
+        batchSize, flushDelayNanos, maxRetries, retryBackoffNanos);
+  }
+
+  @DataProvider(name = "invalidSettings")
+  public Object[][] providesInvalidSettings() {
+    return new Object[][] {
+        { 0, ONE_MS, 0, ONE_MS },
+        { 1, 0L, 0, ONE_MS },
+        { 1, ONE_MS, -1, ONE_MS },
+        { 1, ONE_MS, 0, -1L },
+    };
+  }
+
+  /** Waits until the condition is met, or fails after a few seconds. */
+  static void await(BooleanSupplier condition) throws InterruptedException {
+    long end = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+    while (!condition.getAsBoolean()) {
+      assertThat("timed out", System.nanoTime() < end, is(true));
+      Thread.sleep(1);
+    }
+  }
+}
@@ -0,0 +1,128 @@
+/*
+ * Copyright 2015 Ben Manes. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.benmanes.caffeine.jcache.integration;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.is;
+
+import java.util.Arrays;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.testng.annotations.Test;
+
+/**
+ * @author ben.manes@gmail.com (Ben Manes)
+ */
+public final class WriteReservationsTest {
+
+  @Test
+  public void reserve() {
+    WriteReservations<Integer> reservations = new WriteReservations<>();
+    int result = reservations.reserve(1, () -> {
+      assertThat(reservations.reservations.containsKey(1), is(true));
+      return 2;
+    });
+    assertThat(result, is(2));
+    assertThat(reservations.reservations.isEmpty(), is(true));
+  }
+
+  @Test
+  public void reserve_reentrant() {
+    WriteReservations<Integer> reservations = new WriteReservations<>();
+    int result = reservations.reserve(1, () ->
+        reservations.reserveAll(Arrays.asList(1, 2), () -> 3));
+    assertThat(result, is(3));
+    assertThat(reservations.reservations.isEmpty(), is(true));
+  }
+
+  @Test
+  public void reserve_failure() {
+    WriteReservations<Integer> reservations = new WriteReservations<>();
+    try {
+      reservations.reserve(1, () -> {
+        throw new IllegalStateException();
+      });
+    } catch (IllegalStateException expected) {}
+    assertThat(reservations.reservations.isEmpty(), is(true));
+  }
+
+  @Test
+  public void reserve_exclusive() throws InterruptedException {
+    WriteReservations<Integer> reservations = new WriteReservations<>();
+    CountDownLatch reserved = new CountDownLatch(1);
+    CountDownLatch release = new CountDownLatch(1);
+    AtomicBoolean entered = new AtomicBoolean();
+
+    Thread holder = new Thread(() -> reservations.reserve(1, () -> {
+      reserved.countDown();
+      awaitUninterruptibly(release);
+      return null;
+    }));
+    holder.start();
+    reserved.await();
+
+    Thread waiter = new Thread(() -> reservations.reserve(1, () -> entered.getAndSet(true)));
+    waiter.start();
+    waiter.join(100);
+    assertThat(entered.get(), is(false));
+
+    release.countDown();
+    waiter.join(TimeUnit.SECONDS.toMillis(10));
+    holder.join(TimeUnit.SECONDS.toMillis(10));
+    assertThat(entered.get(), is(true));
+    assertThat(reservations.reservations.isEmpty(), is(true));
+  }
+
+  @Test
+  public void reserveAll_overlapping() throws InterruptedException {
+    WriteReservations<Integer> reservations = new WriteReservations<>();
+    int iterations = 10_000;
+    int[] count = { 0 };
+
+    Thread[] threads = {
+        new Thread(() -> increment(reservations, iterations, count, 1, 2, 3)),
+        new Thread(() -> increment(reservations, iterations, count, 3, 2, 1)),
+        new Thread(() -> increment(reservations, iterations, count, 2)),
+    };
+    for (Thread thread : threads) {
+      thread.start();
+    }
+    for (Thread thread : threads) {
+      thread.join(TimeUnit.SECONDS.toMillis(30));
+      assertThat(thread.isAlive(), is(false));
+    }
+    assertThat(count[0], is(threads.length * iterations));
+    assertThat(reservations.reservations.isEmpty(), is(true));
+  }
+
+  /** Increments the counter while holding the reservations, which must exclude the others. */
+  static void increment(WriteReservations<Integer> reservations,
+      int iterations, int[] count, Integer... keys) {
+    for (int i = 0; i < iterations; i++) {
+      reservations.reserveAll(Arrays.asList(keys), () -> count[0]++);
+    }
+  }
+
+  static void awaitUninterruptibly(CountDownLatch latch) {
+    try {
+      latch.await();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+  }
+}
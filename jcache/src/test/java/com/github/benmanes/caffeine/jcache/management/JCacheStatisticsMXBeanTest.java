@@ -0,0 +1,123 @@
+/*
+ * Copyright 2015 Ben Manes. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.benmanes.caffeine.jcache.management;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.is;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+/**
+ * @author ben.manes@gmail.com (Ben Manes)
+ */
+public final class JCacheStatisticsMXBeanTest {
+  static final long WINDOW = TimeUnit.MINUTES.toNanos(1);
+
+  JCacheStatisticsMXBean statistics;
+  AtomicLong ticker;
+
+  @BeforeMethod
+  public void before() {
+    ticker = new AtomicLong();
+    statistics = new JCacheStatisticsMXBean(WINDOW, ticker::get);
+    statistics.enable(true);
+  }
+
+  @Test
+  public void latency_disabled() {
+    statistics.enable(false);
+    statistics.recordGetTime(1_000);
+    assertThat(statistics.getMaxGetTime(), is(0f));
+  }
+
+  @Test
+  public void latency_untimed() {
+    statistics.recordGetTime(4_000);
+    statistics.recordGetTime(-1L);
+    statistics.recordPutTime(-1L);
+    statistics.recordRemoveTime(-1L);
+    ticker.addAndGet(WINDOW);
+
+    assertThat(statistics.getGetTime50thPercentile(), is(4f));
+    assertThat(statistics.getMaxPutTime(), is(0f));
+    assertThat(statistics.getMaxRemoveTime(), is(0f));
+  }
+
+  @Test
+  public void latency_firstWindow() {
+    statistics.recordGetTime(1_000);
+    assertThat(statistics.getGetTime50thPercentile(), is(0f));
+    assertThat(statistics.getMaxGetTime(), is(0f));
+
+    ticker.addAndGet(WINDOW);
+    assertThat(statistics.getMaxGetTime(), is(1f));
+  }
+
+  @Test
+  public void latency_completedWindow() {
+    statistics.recordGetTime(1_000);
+    statistics.recordPutTime(2_000);
+    statistics.recordRemoveTime(3_000);
+    ticker.addAndGet(WINDOW);
+
+    assertThat(statistics.getMaxGetTime(), is(1f));
+    assertThat(statistics.getMaxPutTime(), is(2f));
+    assertThat(statistics.getMaxRemoveTime(), is(3f));
+  }
+
+  @Test
+  public void latency_cachedSnapshot() {
+    statistics.recordGetTime(1_000);
+    ticker.addAndGet(WINDOW);
+    assertThat(statistics.getMaxGetTime(), is(1f));
+
+    statistics.recordGetTime(9_000);
+    ticker.addAndGet(WINDOW / 2);
+    assertThat(statistics.getGetTime50thPercentile(), is(1f));
+    assertThat(statistics.getGetTime99thPercentile(), is(1f));
+    assertThat(statistics.getMaxGetTime(), is(1f));
+
+    ticker.addAndGet(WINDOW / 2);
+    assertThat(statistics.getMaxGetTime(), is(9f));
+  }
+
+  @Test
+  public void latency_idleWindows() {
+    statistics.recordGetTime(1_000);
+    ticker.addAndGet(3 * WINDOW);
+    assertThat(statistics.getMaxGetTime(), is(1f));
+
+    ticker.addAndGet(WINDOW);
+    assertThat(statistics.getMaxGetTime(), is(0f));
+  }
+
+  @Test
+  public void clear() {
+    statistics.recordGetTime(1_000);
+    statistics.recordHits(1);
+    ticker.addAndGet(WINDOW);
+    assertThat(statistics.getMaxGetTime(), is(1f));
+
+    statistics.clear();
+    assertThat(statistics.getCacheHits(), is(0L));
+    assertThat(statistics.getMaxGetTime(), is(0f));
+    assertThat(statistics.getAverageGetTime(), is(0f));
+  }
+}
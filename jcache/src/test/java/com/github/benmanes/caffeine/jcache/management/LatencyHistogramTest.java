@@ -0,0 +1,123 @@
+/*
+ * Copyright 2015 Ben Manes. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.benmanes.caffeine.jcache.management;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.closeTo;
+import static org.hamcrest.Matchers.is;
+
+import java.util.Arrays;
+import java.util.Random;
+import java.util.concurrent.CompletableFuture;
+
+import org.testng.annotations.DataProvider;
+import org.testng.annotations.Test;
+
+import com.github.benmanes.caffeine.jcache.management.LatencyHistogram.Snapshot;
+
+/**
+ * @author ben.manes@gmail.com (Ben Manes)
+ */
+public final class LatencyHistogramTest {
+
+  @Test
+  public void empty() {
+    Snapshot snapshot = new LatencyHistogram().snapshot();
+    assertThat(snapshot.total, is(0L));
+    assertThat(snapshot.max(), is(0L));
+    assertThat(snapshot.percentile(99), is(0L));
+  }
+
+  @Test(dataProvider = "percentiles")
+  public void percentile(double percentile) {
+    Random random = new Random(0);
+    long[] latencies = new long[100_000];
+    LatencyHistogram histogram = new LatencyHistogram();
+    for (int i = 0; i < latencies.length; i++) {
+      latencies[i] = (long) (-1_000_000 * Math.log(1.0 - random.nextDouble()));
+      histogram.record(latencies[i]);
+    }
+    Arrays.sort(latencies);
+
+    Snapshot snapshot = histogram.snapshot();
+    long expected = latencies[(int) Math.ceil(percentile / 100 * latencies.length) - 1];
+    assertThat((double) snapshot.percentile(percentile),
+        is(closeTo(expected, expected / LatencyHistogram.SUB_BUCKETS)));
+    assertThat(snapshot.max(), is(latencies[latencies.length - 1]));
+  }
+
+  @Test
+  public void bucketBoundaries() {
+    for (long value : new long[] { 0, 1, 15, 16, 17, 31, 32, 1_000_003, 1L << 40 }) {
+      int index = LatencyHistogram.indexOf(value);
+      assertThat(value <= LatencyHistogram.highestValueOf(index), is(true));
+      assertThat((index == 0) || (value > LatencyHistogram.highestValueOf(index - 1)), is(true));
+    }
+    assertThat(LatencyHistogram.indexOf(Long.MAX_VALUE), is(LatencyHistogram.BUCKETS - 1));
+  }
+
+  @Test
+  public void record_negative() {
+    LatencyHistogram histogram = new LatencyHistogram();
+    histogram.record(-1);
+    assertThat(histogram.snapshot().counts[0], is(1L));
+  }
+
+  @Test
+  public void record_concurrent() {
+    LatencyHistogram histogram = new LatencyHistogram();
+    CompletableFuture<?>[] futures = new CompletableFuture<?>[4];
+    for (int i = 0; i < futures.length; i++) {
+      futures[i] = CompletableFuture.runAsync(() -> {
+        for (int j = 0; j < 10_000; j++) {
+          histogram.record(j);
+        }
+      });
+    }
+    CompletableFuture.allOf(futures).join();
+    assertThat(histogram.snapshot().total, is(40_000L));
+  }
+
+  @Test
+  public void rotate() {
+    LatencyHistogram histogram = new LatencyHistogram();
+    histogram.record(100);
+    histogram.record(200);
+
+    Snapshot completed = histogram.rotate();
+    assertThat(completed.total, is(2L));
+    assertThat(completed.max(), is(200L));
+    assertThat(histogram.snapshot().total, is(0L));
+
+    histogram.record(300);
+    assertThat(completed.total, is(2L));
+    assertThat(histogram.rotate().max(), is(300L));
+  }
+
+  @Test
+  public void reset() {
+    LatencyHistogram histogram = new LatencyHistogram();
+    histogram.record(100);
+    histogram.reset();
+    assertThat(histogram.snapshot().total, is(0L));
+    assertThat(histogram.snapshot().max(), is(0L));
+  }
+
+  @DataProvider(name = "percentiles")
+  public Object[][] providesPercentiles() {
+    return new Object[][] {{ 1.0 }, { 50.0 }, { 95.0 }, { 99.0 }, { 99.9 }, { 100.0 }};
+  }
+}
@@ -19,7 +19,9 @@ import static com.google.common.base.Preconditions.checkState;
 
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.Optional;
 
 import akka.actor.UntypedActor;
 
@@ -32,22 +34,65 @@ import com.typesafe.config.Config;
  * @author ben.manes@gmail.com (Ben Manes)
  */
 public class BasicSettings {
-  public enum FileFormat { TEXT, BINARY }
+  public enum Mode { POLICIES, SWEEP, MISS_RATIO_CURVE }
+  public enum ReportFormat { TABLE, CSV, JSON }
+  public enum FileFormat {
+    TEXT(false), BINARY(false), ARC(true), LIRS(true), UMASS(true), WIKIPEDIA(true);
+
+    private final boolean requestTrace;
+
+    FileFormat(boolean requestTrace) {
+      this.requestTrace = requestTrace;
+    }
+
+    /** Returns if the trace records the requests rather than the operations on a cache. */
+    public boolean isRequestTrace() {
+      return requestTrace;
+    }
+  }
 
   private final Config config;
 
   public BasicSettings(UntypedActor actor) {
-    config = actor.getContext().system().settings().config().getConfig("caffeine.simulator");
+    this(actor.getContext().system().settings().config());
+  }
+
+  public BasicSettings(Config config) {
+    this.config = config.getConfig("caffeine.simulator");
+  }
+
+  public Mode mode() {
+    return Mode.valueOf(config().getString("mode").replace('-', '_').toUpperCase());
   }
 
   public List<String> policies() {
     return config().getStringList("policies");
   }
 
+  public int batchSize() {
+    return config().getInt("batch-size");
+  }
+
   public int maximumSize() {
     return config().getInt("maximum-size");
   }
 
+  public long maximumWeight() {
+    return config().getLong("maximum-weight");
+  }
+
+  public boolean isWeighted() {
+    return maximumWeight() > 0;
+  }
+
+  /**
+   * Returns if a read that misses loads the entry, as the trace or the synthetic generator records
+   * the requests to a read-through cache rather than its reads and writes.
+   */
+  public boolean isReadThrough() {
+    return isSynthetic() || (isFile() && fileSource().format().isRequestTrace());
+  }
+
   public boolean isFile() {
     return config().getString("source").equals("file");
   }
@@ -66,6 +111,18 @@ public class BasicSettings {
     return new SyntheticSource();
   }
 
+  public SweepSettings sweep() {
+    return new SweepSettings();
+  }
+
+  public ReportSettings report() {
+    return new ReportSettings();
+  }
+
+  public MissRatioCurveSettings missRatioCurve() {
+    return new MissRatioCurveSettings();
+  }
+
   /** Returns the config resolved at the simulator's path. */
   protected Config config() {
     return config;
@@ -78,6 +135,37 @@ public class BasicSettings {
     public FileFormat format() {
       return FileFormat.valueOf(config().getString("file.format").toUpperCase());
     }
+    public boolean isDecodeCached() {
+      return config().getBoolean("file.decode-cache");
+    }
+  }
+
+  final class SweepSettings {
+    public List<Integer> maximumSizes() {
+      return config().getIntList("sweep.maximum-sizes");
+    }
+  }
+
+  final class ReportSettings {
+    public ReportFormat format() {
+      return ReportFormat.valueOf(config().getString("report.format").toUpperCase());
+    }
+    public Optional<Path> output() {
+      String output = config().getString("report.output");
+      return output.isEmpty() ? Optional.empty() : Optional.of(Paths.get(output));
+    }
+  }
+
+  final class MissRatioCurveSettings {
+    public List<Integer> sizes() {
+      return config().getIntList("miss-ratio-curve.sizes");
+    }
+    public double samplingRate() {
+      return config().getDouble("miss-ratio-curve.sampling-rate");
+    }
+    public boolean countWrites() {
+      return config().getBoolean("miss-ratio-curve.count-writes");
+    }
   }
 
   final class SyntheticSource {
@@ -99,6 +187,28 @@ public class BasicSettings {
     public Uniform uniform() {
       return new Uniform();
     }
+    public ScanMix scanMix() {
+      return new ScanMix();
+    }
+    public Loop loop() {
+      return new Loop();
+    }
+    public DriftingHotspot driftingHotspot() {
+      return new DriftingHotspot();
+    }
+
+    /**
+     * Returns the settings of each phase, where a phase's synthetic settings are overlaid on those
+     * of the enclosing source.
+     */
+    public List<BasicSettings> phases() {
+      List<BasicSettings> phases = new ArrayList<>();
+      for (Config phase : config().getConfigList("synthetic.phases")) {
+        Config merged = phase.atPath("synthetic").withFallback(config());
+        phases.add(new BasicSettings(merged.atPath("caffeine.simulator")));
+      }
+      return phases;
+    }
 
     final class Counter {
       public int start() {
@@ -132,5 +242,38 @@ public class BasicSettings {
         return config().getInt("synthetic.uniform.upper-bound");
       }
     }
+    final class ScanMix {
+      public int coreItems() {
+        return config().getInt("synthetic.scan-mix.core-items");
+      }
+      public int scanLength() {
+        return config().getInt("synthetic.scan-mix.scan-length");
+      }
+      public int scanInterval() {
+        return config().getInt("synthetic.scan-mix.scan-interval");
+      }
+    }
+    final class Loop {
+      public int length() {
+        return config().getInt("synthetic.loop.length");
+      }
+    }
+    final class DriftingHotspot {
+      public int items() {
+        return config().getInt("synthetic.drifting-hotspot.items");
+      }
+      public int hotsetSize() {
+        return config().getInt("synthetic.drifting-hotspot.hotset-size");
+      }
+      public double hotOpnFraction() {
+        return config().getDouble("synthetic.drifting-hotspot.hot-opn-fraction");
+      }
+      public int driftInterval() {
+        return config().getInt("synthetic.drifting-hotspot.drift-interval");
+      }
+      public int driftStep() {
+        return config().getInt("synthetic.drifting-hotspot.drift-step");
+      }
+    }
   }
 }
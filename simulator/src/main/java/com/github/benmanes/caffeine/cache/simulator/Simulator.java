@@ -16,7 +16,18 @@
 package com.github.benmanes.caffeine.cache.simulator;
 
 import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
+import java.util.Optional;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
 
@@ -31,68 +42,196 @@ import akka.routing.Routee;
 import akka.routing.Router;
 
 import com.github.benmanes.caffeine.cache.simulator.BasicSettings.FileFormat;
+import com.github.benmanes.caffeine.cache.simulator.BasicSettings.MissRatioCurveSettings;
+import com.github.benmanes.caffeine.cache.simulator.BasicSettings.Mode;
+import com.github.benmanes.caffeine.cache.simulator.analysis.MissRatioCurve;
+import com.github.benmanes.caffeine.cache.simulator.cost.CostModel;
+import com.github.benmanes.caffeine.cache.simulator.parser.DecodedTrace;
 import com.github.benmanes.caffeine.cache.simulator.parser.LogReader;
+import com.github.benmanes.caffeine.cache.simulator.parser.TraceReader;
+import com.github.benmanes.caffeine.cache.simulator.policy.Policy;
+import com.github.benmanes.caffeine.cache.simulator.policy.PolicyActor;
 import com.github.benmanes.caffeine.cache.simulator.policy.PolicyStats;
+import com.github.benmanes.caffeine.cache.simulator.report.CsvReport;
+import com.github.benmanes.caffeine.cache.simulator.report.JsonReport;
+import com.github.benmanes.caffeine.cache.simulator.report.MissRatioCurveReport;
+import com.github.benmanes.caffeine.cache.simulator.report.Report;
 import com.github.benmanes.caffeine.cache.simulator.report.TextReport;
 import com.github.benmanes.caffeine.cache.tracing.TraceEvent;
+import com.google.common.base.Stopwatch;
+import com.typesafe.config.Config;
+import com.typesafe.config.ConfigValueFactory;
 
 /**
  * The simulator broadcasts the recorded cache events to each policy actor and generates an
- * aggregated report.
+ * aggregated report. The trace is read once and sent in batches, which are shared read-only by the
+ * policies, so that each policy replays the trace on its own thread without per-event messaging.
+ * A sweep simulates each policy at each of a range of maximum sizes from one read of the trace.
+ * Alternatively the simulator computes the LRU hit rate of every cache size in a single pass.
  *
  * @author ben.manes@gmail.com (Ben Manes)
  */
 public final class Simulator extends UntypedActor {
   public enum Message { START, END }
 
+  private final Map<ActorRef, Long> maximumSizes;
   private final BasicSettings settings;
-  private final TextReport report;
+  private final Report report;
   private final Router router;
   private int remaining;
 
   public Simulator() {
     settings = new BasicSettings(this);
-    remaining = settings.policies().size();
-    router = makeBroadcastingRouter();
-    report = new TextReport();
+    maximumSizes = new HashMap<>();
+    router = (settings.mode() == Mode.MISS_RATIO_CURVE) ? null : makeBroadcastingRouter();
+    remaining = maximumSizes.size();
+    report = makeReport();
 
     getSelf().tell(Message.START, ActorRef.noSender());
   }
 
   @Override
   public void onReceive(Object msg) throws IOException {
-    if (msg == Message.START) {
-      events().forEach(event -> router.route(event, getSelf()));
+    if ((msg == Message.START) && (settings.mode() == Mode.MISS_RATIO_CURVE)) {
+      analyzeMissRatioCurve();
+      getContext().stop(getSelf());
+    } else if (msg == Message.START) {
+      broadcast();
       router.route(Message.END, getSelf());
     } else if (msg instanceof PolicyStats) {
-      report.add((PolicyStats) msg);
+      report.add(maximumSizes.get(getSender()), (PolicyStats) msg);
       if (--remaining == 0) {
-        report.writeTo(System.out);
+        writeReport();
         getContext().stop(getSelf());
       }
     }
   }
 
+  /** Reads the trace once and broadcasts it to the policies in batches. */
+  private void broadcast() throws IOException {
+    int batchSize = settings.batchSize();
+    try (Stream<TraceEvent> events = events()) {
+      Iterator<TraceEvent> iterator = events.iterator();
+      while (iterator.hasNext()) {
+        TraceEvent[] batch = new TraceEvent[batchSize];
+        int size = 0;
+        while ((size < batchSize) && iterator.hasNext()) {
+          batch[size++] = iterator.next();
+        }
+        router.route((size == batchSize) ? batch : Arrays.copyOf(batch, size), getSelf());
+      }
+    }
+  }
+
+  /** Computes the hit rate curve of an LRU cache from a single pass over the trace. */
+  private void analyzeMissRatioCurve() throws IOException {
+    MissRatioCurveSettings mrc = settings.missRatioCurve();
+    MissRatioCurve curve = new MissRatioCurve(mrc.samplingRate(), mrc.countWrites());
+    Stopwatch stopwatch = Stopwatch.createStarted();
+    try (Stream<TraceEvent> events = events()) {
+      events.forEach(curve::record);
+    }
+    List<Long> sizes = mrc.sizes().isEmpty()
+        ? powersOfTwo(curve.maximumUsefulSize())
+        : mrc.sizes().stream().map(Long::valueOf).collect(Collectors.toList());
+    new MissRatioCurveReport(curve, sizes, stopwatch.stop()).writeTo(System.out);
+  }
+
+  /** Returns the powers of two up to and including the first that is at least the limit. */
+  private static List<Long> powersOfTwo(long limit) {
+    List<Long> sizes = new ArrayList<>();
+    for (long size = 1; ; size <<= 1) {
+      sizes.add(size);
+      if (size >= limit) {
+        return sizes;
+      }
+    }
+  }
+
   private Stream<TraceEvent> events() throws IOException {
     if (settings.isSynthetic()) {
       return Synthetic.generate(settings);
     }
-    return (settings.fileSource().format() == FileFormat.TEXT)
-        ? LogReader.textLogStream(settings.fileSource().path())
-        : LogReader.binaryLogStream(settings.fileSource().path());
+    Path filePath = settings.fileSource().path();
+    FileFormat format = settings.fileSource().format();
+    if (settings.fileSource().isDecodeCached()) {
+      return DecodedTrace.stream(filePath, format.name(), () -> decode(filePath, format));
+    }
+    return decode(filePath, format);
   }
 
+  /** Returns a stream that parses the trace file in its format. */
+  private static Stream<TraceEvent> decode(Path filePath, FileFormat format) throws IOException {
+    switch (format) {
+      case TEXT:
+        return LogReader.textLogStream(filePath);
+      case BINARY:
+        return LogReader.binaryLogStream(filePath);
+      case ARC:
+        return TraceReader.arcTraceStream(filePath);
+      case LIRS:
+        return TraceReader.lirsTraceStream(filePath);
+      case UMASS:
+        return TraceReader.umassTraceStream(filePath);
+      case WIKIPEDIA:
+        return TraceReader.wikipediaTraceStream(filePath);
+      default:
+        throw new IllegalStateException("Unknown format: " + format);
+    }
+  }
+
+  /** Returns a router to an actor for each policy, and in a sweep for each of its sizes. */
   private Router makeBroadcastingRouter() {
     String packageName = getClass().getPackage().getName();
-    List<Routee> routes = settings.policies().stream().map(policy -> {
-      Class<?> actorClass = Reflect.on(packageName + ".policy." + policy).type();
-      ActorRef actorRef = getContext().actorOf(Props.create(actorClass, policy), policy);
-      getContext().watch(actorRef);
-      return new ActorRefRoutee(actorRef);
-    }).collect(Collectors.toList());
+    Config config = getContext().system().settings().config();
+    List<Integer> sizes = (settings.mode() == Mode.SWEEP)
+        ? settings.sweep().maximumSizes()
+        : Collections.singletonList(settings.maximumSize());
+    CostModel costModel = new CostModel(config);
+    List<Routee> routes = new ArrayList<>();
+    for (int maximumSize : sizes) {
+      Config sized = config.withValue("caffeine.simulator.maximum-size",
+          ConfigValueFactory.fromAnyRef(maximumSize));
+      for (String name : settings.policies()) {
+        Policy policy = Reflect.on(packageName + ".policy." + name).create(name, sized).get();
+        String actorName = (sizes.size() == 1) ? name : (name + "-" + maximumSize);
+        ActorRef actorRef = getContext().actorOf(Props.create(PolicyActor.class, policy, costModel)
+            .withMailbox("caffeine.simulator.policy-mailbox"), actorName);
+        maximumSizes.put(actorRef, (long) maximumSize);
+        getContext().watch(actorRef);
+        routes.add(new ActorRefRoutee(actorRef));
+      }
+    }
     return new Router(new BroadcastRoutingLogic(), routes);
   }
 
+  /** Returns the report in the configured format. */
+  private Report makeReport() {
+    switch (settings.report().format()) {
+      case TABLE:
+        return new TextReport();
+      case CSV:
+        return new CsvReport();
+      case JSON:
+        return new JsonReport();
+      default:
+        throw new IllegalStateException("Unknown report format: " + settings.report().format());
+    }
+  }
+
+  /** Writes the report to the configured file or, if not specified, to the console. */
+  private void writeReport() throws IOException {
+    Optional<Path> output = settings.report().output();
+    if (output.isPresent()) {
+      try (PrintStream ps = new PrintStream(Files.newOutputStream(output.get()),
+          false, StandardCharsets.UTF_8.name())) {
+        report.writeTo(ps);
+      }
+    } else {
+      report.writeTo(System.out);
+    }
+  }
+
   public static void main(String[] args) {
     akka.Main.main(new String[] { Simulator.class.getName() } );
   }
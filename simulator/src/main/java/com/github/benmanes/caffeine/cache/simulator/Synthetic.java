@@ -15,15 +15,22 @@
  */
 package com.github.benmanes.caffeine.cache.simulator;
 
+import static com.google.common.base.Preconditions.checkArgument;
+
+import java.util.List;
+import java.util.Random;
 import java.util.stream.IntStream;
 import java.util.stream.Stream;
 
+import com.github.benmanes.caffeine.cache.simulator.BasicSettings.SyntheticSource.DriftingHotspot;
 import com.github.benmanes.caffeine.cache.simulator.BasicSettings.SyntheticSource.Hotspot;
+import com.github.benmanes.caffeine.cache.simulator.BasicSettings.SyntheticSource.ScanMix;
 import com.github.benmanes.caffeine.cache.simulator.BasicSettings.SyntheticSource.Uniform;
 import com.github.benmanes.caffeine.cache.simulator.generator.CounterGenerator;
 import com.github.benmanes.caffeine.cache.simulator.generator.ExponentialGenerator;
 import com.github.benmanes.caffeine.cache.simulator.generator.Generator;
 import com.github.benmanes.caffeine.cache.simulator.generator.HotspotIntegerGenerator;
+import com.github.benmanes.caffeine.cache.simulator.generator.IntegerGenerator;
 import com.github.benmanes.caffeine.cache.simulator.generator.ScrambledZipfianGenerator;
 import com.github.benmanes.caffeine.cache.simulator.generator.SkewedLatestGenerator;
 import com.github.benmanes.caffeine.cache.simulator.generator.UniformIntegerGenerator;
@@ -32,7 +39,10 @@ import com.github.benmanes.caffeine.cache.tracing.TraceEvent;
 import com.github.benmanes.caffeine.cache.tracing.TraceEvent.Action;
 
 /**
- * A generator of synthetic cache events to simulate different caching patterns.
+ * A generator of synthetic cache events to simulate different caching patterns. Besides the
+ * stationary distributions, the composite generators express workloads that shift their hot set
+ * or mix in scans and loops, which are the patterns that degrade a recency-based policy. Each
+ * event is a request to a read-through cache, so a miss loads the entry.
  *
  * @author ben.manes@gmail.com (Ben Manes)
  */
@@ -48,10 +58,10 @@ public final class Synthetic {
         return counter(settings.synthetic().counter().start(), items);
       case "exponential":
         return exponential(settings.synthetic().exponential().mean(), items);
-      case "hotpot":
+      case "hotspot":
         Hotspot hotspot = settings.synthetic().hotspot();
         return Synthetic.hotspot(hotspot.lowerBound(), hotspot.upperBound(),
-            hotspot.hotOpnFraction(), hotspot.hotsetFraction(), items);
+            hotspot.hotsetFraction(), hotspot.hotOpnFraction(), items);
       case "zipfian":
         return zipfian(items);
       case "scrambled-zipfian":
@@ -61,6 +71,17 @@ public final class Synthetic {
       case "uniform":
         Uniform uniform = settings.synthetic().uniform();
         return uniform(uniform.lowerBound(), uniform.upperBound(), items);
+      case "phases":
+        return phases(settings.synthetic().phases());
+      case "scan-mix":
+        ScanMix scanMix = settings.synthetic().scanMix();
+        return scanMix(scanMix.coreItems(), scanMix.scanLength(), scanMix.scanInterval(), items);
+      case "loop":
+        return loop(settings.synthetic().loop().length(), items);
+      case "drifting-hotspot":
+        DriftingHotspot drifting = settings.synthetic().driftingHotspot();
+        return driftingHotspot(drifting.items(), drifting.hotsetSize(),
+            drifting.hotOpnFraction(), drifting.driftInterval(), drifting.driftStep(), items);
       default:
         throw new IllegalStateException("Unknown distribution: "
             + settings.synthetic().distribution());
@@ -152,9 +173,91 @@ public final class Synthetic {
     return generate(new UniformIntegerGenerator(lowerBound, upperBound), items);
   }
 
+  /**
+   * Returns the concatenation of the sequences generated for each phase, such as to shift the hot
+   * set or the distribution partway through the trace.
+   *
+   * @param phases the settings of each phase, in order
+   * @return a stream of cache events
+   */
+  public static Stream<TraceEvent> phases(List<BasicSettings> phases) {
+    checkArgument(!phases.isEmpty(), "No phases are configured");
+    for (BasicSettings phase : phases) {
+      checkArgument(!phase.synthetic().distribution().equalsIgnoreCase("phases"),
+          "A phase cannot be composed of phases");
+    }
+    // Stream.concat is lazy, whereas flatMap buffers each phase when the stream is iterated
+    return phases.stream().map(Synthetic::generate).reduce(Stream::concat).get();
+  }
+
+  /**
+   * Returns a sequence of events where a zipfian core is periodically interrupted by a sequential
+   * scan, such as by a batch job or a crawler. Each scan reads keys that were never requested
+   * before, so a policy that admits them pollutes the cache with entries that are not reused.
+   *
+   * @param coreItems the number of items in the zipfian core
+   * @param scanLength the number of keys read by each scan
+   * @param scanInterval the number of core events between the scans
+   * @param items the number of items in the distribution
+   * @return a stream of cache events
+   */
+  public static Stream<TraceEvent> scanMix(int coreItems,
+      int scanLength, int scanInterval, int items) {
+    checkArgument(scanLength >= 0 && scanInterval > 0);
+    IntegerGenerator core = new ScrambledZipfianGenerator(coreItems);
+    IntegerGenerator scan = new CounterGenerator(coreItems);
+    int period = scanInterval + scanLength;
+    return IntStream.range(0, items).mapToObj(i ->
+        event((i % period < scanInterval) ? core.nextInt() : scan.nextInt()));
+  }
+
+  /**
+   * Returns a sequence of events that repeatedly reads the same keys in order. A recency-based
+   * policy whose capacity is smaller than the loop misses on every request.
+   *
+   * @param length the number of keys in the loop
+   * @param items the number of items in the distribution
+   * @return a stream of cache events
+   */
+  public static Stream<TraceEvent> loop(int length, int items) {
+    checkArgument(length > 0);
+    return IntStream.range(0, items).mapToObj(i -> event(i % length));
+  }
+
+  /**
+   * Returns a sequence of events resembling a hotspot distribution where the hot set slides across
+   * the key space over time. Each hot operation reads a key chosen uniformly from the current hot
+   * set and each cold operation reads a key chosen uniformly from the entire key space.
+   *
+   * @param keys the number of keys in the key space
+   * @param hotsetSize the number of keys in the hot set
+   * @param hotOpnFraction percentage of operations accessing the hot set
+   * @param driftInterval the number of events between the moves of the hot set
+   * @param driftStep the number of keys that the hot set moves by
+   * @param items the number of items in the distribution
+   * @return a stream of cache events
+   */
+  public static Stream<TraceEvent> driftingHotspot(int keys, int hotsetSize,
+      double hotOpnFraction, int driftInterval, int driftStep, int items) {
+    checkArgument((hotsetSize > 0) && (hotsetSize <= keys) && (driftInterval > 0));
+    Random random = new Random();
+    return IntStream.range(0, items).mapToObj(i -> {
+      if (random.nextDouble() < hotOpnFraction) {
+        long offset = (long) (i / driftInterval) * driftStep;
+        return event((int) ((offset + random.nextInt(hotsetSize)) % keys));
+      }
+      return event(random.nextInt(keys));
+    });
+  }
+
   /** Returns a sequence of items constructed by the generator. */
   private static Stream<TraceEvent> generate(Generator generator, int items) {
     return IntStream.range(0, items).mapToObj(ignored ->
-      new TraceEvent(null, 0, Action.WRITE, generator.nextString().hashCode(), 1, 0L));
+      new TraceEvent(null, 0, Action.READ, generator.nextString().hashCode(), 1, 0L));
+  }
+
+  /** Returns an event for the key, hashed the same way as the values of a {@link Generator}. */
+  private static TraceEvent event(int key) {
+    return new TraceEvent(null, 0, Action.READ, Integer.toString(key).hashCode(), 1, 0L);
   }
 }
@@ -0,0 +1,158 @@
+/*
+ * Copyright 2015 Ben Manes. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.benmanes.caffeine.cache.simulator.analysis;
+
+import java.util.Arrays;
+
+import com.github.benmanes.caffeine.cache.tracing.TraceEvent;
+
+/**
+ * The hit rate of an LRU cache as a function of its size, computed from the histogram of stack
+ * distances in a single pass over the trace. A read is a request, after which the key is the most
+ * recently used as if it was loaded on a miss. A write makes the key the most recently used and is
+ * only counted as a request if configured, such as for synthetic traces that do not contain reads.
+ * A delete removes the key from the stack, which is an approximation because the keys beneath it
+ * move up as if a smaller cache had not already evicted them.
+ * <p>
+ * For large traces the keys may be spatially sampled, as described in
+ * <a href="https://www.usenix.org/system/files/conference/fast15/fast15-paper-waldspurger.pdf">
+ * Efficient MRC Construction with SHARDS</a>. Only the keys whose hash falls below a threshold are
+ * tracked, which is a consistent subset of roughly the sampling rate, and a distance in the sample
+ * is scaled by the inverse of the rate. The difference between the expected and the actual number
+ * of sampled requests is credited to the smallest distances, which corrects for the error caused
+ * by a few popular keys being over or under represented in the sample.
+ *
+ * @author ben.manes@gmail.com (Ben Manes)
+ */
+public final class MissRatioCurve {
+  private static final int SAMPLING_BITS = 24;
+  private static final long SAMPLING_MODULUS = 1L << SAMPLING_BITS;
+
+  private final StackDistance stack;
+  private final double samplingRate;
+  private final boolean countWrites;
+  private final long threshold;
+
+  private long[] histogram;
+  private long[] cumulative;
+  private long sampledRequests;
+  private long requests;
+  private int maxDistance;
+
+  /**
+   * Creates an analysis of the trace.
+   *
+   * @param samplingRate the fraction of the keys to track, where {@code 1.0} tracks every key
+   * @param countWrites whether a write is counted as a request
+   */
+  public MissRatioCurve(double samplingRate, boolean countWrites) {
+    if ((samplingRate <= 0.0) || (samplingRate > 1.0)) {
+      throw new IllegalArgumentException("Sampling rate must be in (0, 1]: " + samplingRate);
+    }
+    this.threshold = (long) (samplingRate * SAMPLING_MODULUS);
+    this.samplingRate = samplingRate;
+    this.countWrites = countWrites;
+    this.stack = new StackDistance();
+    this.histogram = new long[1024];
+  }
+
+  /**
+   * Records the cache operation.
+   *
+   * @param event the recorded cache operation
+   */
+  public void record(TraceEvent event) {
+    switch (event.action()) {
+      case READ:
+        request(event.keyHash(), true);
+        break;
+      case WRITE:
+        request(event.keyHash(), countWrites);
+        break;
+      case DELETE:
+        if (isSampled(event.keyHash())) {
+          stack.remove(event.keyHash());
+        }
+        break;
+      default:
+        throw new UnsupportedOperationException();
+    }
+  }
+
+  /** @return the number of requests in the trace */
+  public long requestCount() {
+    return requests;
+  }
+
+  /** @return the estimated cache size beyond which the hit rate no longer increases */
+  public long maximumUsefulSize() {
+    return (long) Math.ceil(maxDistance / samplingRate);
+  }
+
+  /**
+   * Returns the hit rate of an LRU cache of the given size.
+   *
+   * @param cacheSize the maximum number of entries in the cache
+   * @return the fraction of requests that would hit
+   */
+  public double hitRate(long cacheSize) {
+    double expected = requests * samplingRate;
+    if (expected == 0) {
+      return 1.0;
+    }
+    long index = Math.min(maxDistance, (long) Math.floor(cacheSize * samplingRate));
+    double hits = cumulative()[(int) index] + (expected - sampledRequests);
+    return Math.max(0.0, Math.min(expected, hits)) / expected;
+  }
+
+  private void request(long key, boolean counted) {
+    if (counted) {
+      requests++;
+    }
+    if (!isSampled(key)) {
+      return;
+    }
+    int distance = stack.access(key);
+    if (counted) {
+      sampledRequests++;
+      if (distance != StackDistance.INFINITE) {
+        if (distance >= histogram.length) {
+          histogram = Arrays.copyOf(histogram, Math.max(distance + 1, 2 * histogram.length));
+        }
+        maxDistance = Math.max(maxDistance, distance);
+        histogram[distance]++;
+        cumulative = null;
+      }
+    }
+  }
+
+  /** Returns if the key is in the spatial sample. */
+  private boolean isSampled(long key) {
+    return (threshold == SAMPLING_MODULUS)
+        || (((key * 0x9E3779B97F4A7C15L) >>> (Long.SIZE - SAMPLING_BITS)) < threshold);
+  }
+
+  /** Returns the number of sampled hits for each distance, computing the prefix sums if stale. */
+  private long[] cumulative() {
+    if (cumulative == null) {
+      cumulative = new long[maxDistance + 1];
+      for (int i = 1; i <= maxDistance; i++) {
+        cumulative[i] = cumulative[i - 1] + histogram[i];
+      }
+    }
+    return cumulative;
+  }
+}
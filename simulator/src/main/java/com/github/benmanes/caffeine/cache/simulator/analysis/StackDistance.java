@@ -0,0 +1,136 @@
+/*
+ * Copyright 2015 Ben Manes. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.benmanes.caffeine.cache.simulator.analysis;
+
+import java.util.Arrays;
+
+import com.github.benmanes.caffeine.cache.simulator.policy.LongIntHashMap;
+
+/**
+ * Computes the LRU stack distance of each request, which is the number of distinct keys requested
+ * since the previous request for the same key, counting the key itself. An LRU cache of size
+ * {@code n} holds exactly the keys with a stack distance of at most {@code n}, so a histogram of
+ * the distances yields the hit rate of every cache size from a single pass over the trace.
+ * <p>
+ * This uses the algorithm by Mattson et al. where the keys are ordered by the time of their last
+ * request, and the distance is the number of keys requested after that time. The last request of
+ * each live key is marked in a Fenwick tree, so the distance is found by a prefix sum in
+ * logarithmic time. When the clock reaches the end of the tree the live marks are renumbered
+ * consecutively, so the tree's size is proportional to the number of distinct keys rather than to
+ * the length of the trace.
+ *
+ * @author ben.manes@gmail.com (Ben Manes)
+ */
+public final class StackDistance {
+  /** The distance of a request for a key that is not in the stack. */
+  public static final int INFINITE = -1;
+
+  private static final int MINIMUM_CAPACITY = 1 << 10;
+
+  private final LongIntHashMap lastAccess;
+
+  private long[] keyAt;
+  private int[] tree;
+  private int clock;
+
+  public StackDistance() {
+    lastAccess = new LongIntHashMap(MINIMUM_CAPACITY);
+    keyAt = new long[MINIMUM_CAPACITY + 1];
+    tree = new int[MINIMUM_CAPACITY + 1];
+  }
+
+  /** @return the number of distinct keys in the stack */
+  public int size() {
+    return lastAccess.size();
+  }
+
+  /**
+   * Moves the key to the top of the stack.
+   *
+   * @param key the key's hash
+   * @return the key's stack distance before it was moved, or {@link #INFINITE} if not present
+   */
+  public int access(long key) {
+    if (clock == (tree.length - 1)) {
+      compact();
+    }
+    int distance = INFINITE;
+    int last = lastAccess.get(key);
+    if (last != LongIntHashMap.ABSENT) {
+      distance = (lastAccess.size() - prefixSum(last)) + 1;
+      add(last, -1);
+    }
+    clock++;
+    add(clock, 1);
+    keyAt[clock] = key;
+    lastAccess.put(key, clock);
+    return distance;
+  }
+
+  /**
+   * Removes the key from the stack.
+   *
+   * @param key the key's hash
+   */
+  public void remove(long key) {
+    int last = lastAccess.remove(key);
+    if (last != LongIntHashMap.ABSENT) {
+      add(last, -1);
+    }
+  }
+
+  /** Renumbers the live keys consecutively in the order of their last request. */
+  private void compact() {
+    int live = lastAccess.size();
+    int capacity = Math.max(MINIMUM_CAPACITY, 2 * live);
+    long[] keys = new long[capacity + 1];
+    int time = 0;
+    for (int i = 1; i <= clock; i++) {
+      if (lastAccess.get(keyAt[i]) == i) {
+        keys[++time] = keyAt[i];
+        lastAccess.put(keyAt[i], time);
+      }
+    }
+    keyAt = keys;
+    clock = time;
+
+    // Builds the tree in linear time by pushing each node's sum to its parent
+    tree = new int[capacity + 1];
+    Arrays.fill(tree, 1, clock + 1, 1);
+    for (int i = 1; i <= capacity; i++) {
+      int parent = i + (i & -i);
+      if (parent <= capacity) {
+        tree[parent] += tree[i];
+      }
+    }
+  }
+
+  /** Adds the delta to the mark at the time. */
+  private void add(int time, int delta) {
+    for (int i = time; i < tree.length; i += (i & -i)) {
+      tree[i] += delta;
+    }
+  }
+
+  /** Returns the number of marks at or before the time. */
+  private int prefixSum(int time) {
+    int sum = 0;
+    for (int i = time; i > 0; i -= (i & -i)) {
+      sum += tree[i];
+    }
+    return sum;
+  }
+}
@@ -0,0 +1,127 @@
+/*
+ * Copyright 2015 Ben Manes. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.benmanes.caffeine.cache.simulator.cost;
+
+import java.util.concurrent.TimeUnit;
+
+import com.github.benmanes.caffeine.cache.simulator.BasicSettings;
+import com.github.benmanes.caffeine.cache.tracing.TraceEvent;
+import com.github.benmanes.caffeine.cache.tracing.async.KeyHasher;
+import com.typesafe.config.Config;
+
+/**
+ * A model of the latency of a request to the cache, which projects the effect of a policy's hit
+ * rate on the application and on the backend that the misses are loaded from. A hit costs a fixed
+ * latency and a miss costs a penalty that is either a constant, drawn from a distribution per key
+ * so that a key always costs the same, or computed from the weight recorded by the trace.
+ *
+ * @author ben.manes@gmail.com (Ben Manes)
+ */
+public final class CostModel {
+  private final double requestsPerSecond;
+  private final MissPenalty missPenalty;
+  private final long hitLatency;
+  private final long perWeight;
+  private final long constant;
+  private final long lower;
+  private final long upper;
+  private final long mean;
+
+  public CostModel(Config config) {
+    CostSettings cost = new CostSettings(config);
+    this.missPenalty = cost.missPenalty();
+    this.requestsPerSecond = cost.requestsPerSecond();
+    this.hitLatency = cost.nanos("hit-latency");
+    this.constant = cost.nanos("constant");
+    this.lower = cost.nanos("uniform.lower-bound");
+    this.upper = cost.nanos("uniform.upper-bound");
+    this.mean = cost.nanos("exponential.mean");
+    this.perWeight = cost.nanos("trace.per-weight");
+  }
+
+  /** @return if the requests are costed, or false if there is no miss penalty */
+  public boolean isEnabled() {
+    return (missPenalty != MissPenalty.NONE);
+  }
+
+  /** @return the latency of a hit in nanoseconds */
+  public long hitLatency() {
+    return hitLatency;
+  }
+
+  /**
+   * Returns the latency of a miss, which includes loading the entry.
+   *
+   * @param event the request that missed
+   * @return the latency in nanoseconds
+   */
+  public long missPenalty(TraceEvent event) {
+    switch (missPenalty) {
+      case NONE:
+        return hitLatency;
+      case CONSTANT:
+        return constant;
+      case UNIFORM:
+        return lower + (long) (uniform(event.keyHash()) * (upper - lower));
+      case EXPONENTIAL:
+        return (long) (-mean * Math.log(1.0 - uniform(event.keyHash())));
+      case TRACE:
+        return constant + (perWeight * event.weight());
+      default:
+        throw new IllegalStateException("Unknown miss penalty: " + missPenalty);
+    }
+  }
+
+  /** @return the configured rate of requests to project the backend load with, or zero if none */
+  public double requestsPerSecond() {
+    return requestsPerSecond;
+  }
+
+  /** Returns a value in [0, 1) that is uniformly distributed across the keys. */
+  private static double uniform(long key) {
+    return (KeyHasher.mix(key) >>> 11) * 0x1.0p-53;
+  }
+
+  /** The model of the latency of a miss. */
+  public enum MissPenalty {
+    /** The requests are not costed. */
+    NONE,
+    /** Every miss costs the same. */
+    CONSTANT,
+    /** A miss costs an amount that is uniformly distributed across the keys. */
+    UNIFORM,
+    /** A miss costs an amount that is exponentially distributed across the keys. */
+    EXPONENTIAL,
+    /** A miss costs the constant plus an amount per unit of the weight recorded by the trace. */
+    TRACE
+  }
+
+  static final class CostSettings extends BasicSettings {
+    public CostSettings(Config config) {
+      super(config);
+    }
+    public MissPenalty missPenalty() {
+      String model = config().getString("cost.miss-penalty");
+      return MissPenalty.valueOf(model.replace('-', '_').toUpperCase());
+    }
+    public double requestsPerSecond() {
+      return config().getDouble("cost.requests-per-second");
+    }
+    public long nanos(String path) {
+      return config().getDuration("cost." + path, TimeUnit.NANOSECONDS);
+    }
+  }
+}
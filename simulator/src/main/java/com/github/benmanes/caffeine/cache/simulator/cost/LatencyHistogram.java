@@ -0,0 +1,105 @@
+/*
+ * Copyright 2015 Ben Manes. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.benmanes.caffeine.cache.simulator.cost;
+
+/**
+ * A histogram of latencies in nanoseconds that estimates the percentiles in constant space. The
+ * values are counted in buckets whose width doubles with each power of two, where each power of
+ * two is divided into linear sub-buckets, so that an estimate is within 1% of the recorded value.
+ *
+ * @author ben.manes@gmail.com (Ben Manes)
+ */
+public final class LatencyHistogram {
+  private static final int SUB_BUCKET_BITS = 7;
+  private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+  private static final int BUCKETS = (Long.SIZE - SUB_BUCKET_BITS + 1) * SUB_BUCKETS;
+
+  private final long[] counts;
+
+  private long count;
+  private long total;
+  private long max;
+
+  public LatencyHistogram() {
+    counts = new long[BUCKETS];
+  }
+
+  /**
+   * Records the latency.
+   *
+   * @param nanos the non-negative latency in nanoseconds
+   */
+  public void record(long nanos) {
+    if (nanos < 0) {
+      throw new IllegalArgumentException();
+    }
+    counts[indexOf(nanos)]++;
+    max = Math.max(max, nanos);
+    total += nanos;
+    count++;
+  }
+
+  /** @return the number of recorded latencies */
+  public long count() {
+    return count;
+  }
+
+  /** @return the mean latency in nanoseconds, or zero if none were recorded */
+  public double mean() {
+    return (count == 0) ? 0.0 : (double) total / count;
+  }
+
+  /**
+   * Returns the estimated latency at the percentile.
+   *
+   * @param percentile the fraction of the latencies that are at or below the result, in (0, 1]
+   * @return the estimated latency in nanoseconds, or zero if none were recorded
+   */
+  public long percentile(double percentile) {
+    if ((percentile <= 0.0) || (percentile > 1.0)) {
+      throw new IllegalArgumentException();
+    }
+    long rank = (long) Math.ceil(percentile * count);
+    long seen = 0;
+    for (int i = 0; i < counts.length; i++) {
+      seen += counts[i];
+      if ((seen >= rank) && (seen > 0)) {
+        return Math.min(max, highestValueOf(i));
+      }
+    }
+    return 0L;
+  }
+
+  /** Returns the bucket that counts the value. */
+  static int indexOf(long value) {
+    if (value < SUB_BUCKETS) {
+      return (int) value;
+    }
+    int shift = (Long.SIZE - 1 - Long.numberOfLeadingZeros(value)) - SUB_BUCKET_BITS;
+    int subBucket = (int) (value >>> shift) & (SUB_BUCKETS - 1);
+    return ((shift + 1) * SUB_BUCKETS) + subBucket;
+  }
+
+  /** Returns the largest value that is counted by the bucket. */
+  static long highestValueOf(int index) {
+    if (index < SUB_BUCKETS) {
+      return index;
+    }
+    int shift = (index / SUB_BUCKETS) - 1;
+    long lowest = (long) (SUB_BUCKETS + (index % SUB_BUCKETS)) << shift;
+    return lowest + ((1L << shift) - 1);
+  }
+}
@@ -0,0 +1,307 @@
+/*
+ * Copyright 2015 Ben Manes. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.benmanes.caffeine.cache.simulator.parser;
+
+import static java.nio.file.StandardCopyOption.ATOMIC_MOVE;
+import static java.nio.file.StandardCopyOption.REPLACE_EXISTING;
+import static java.nio.file.StandardOpenOption.READ;
+import static java.nio.file.StandardOpenOption.WRITE;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.IntBuffer;
+import java.nio.LongBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+import com.github.benmanes.caffeine.cache.tracing.TraceEvent;
+import com.github.benmanes.caffeine.cache.tracing.TraceEvent.Action;
+
+/**
+ * A decode-once cache of a trace, which is stored as a columnar file next to it. The first read
+ * decodes the trace and writes the key hash, timestamp, weight, and action of each event as dense
+ * columns. Later reads memory map the file instead of parsing the trace again. The file is rebuilt
+ * if the trace's format, size, or modification time differs from when it was decoded.
+ * <p>
+ * The policies only replay the actions on the keys, so the name and cache id of an event are not
+ * retained.
+ *
+ * @author ben.manes@gmail.com (Ben Manes)
+ */
+public final class DecodedTrace {
+  /** The extension appended to the trace's file name. */
+  public static final String SUFFIX = ".decoded";
+
+  static final int MAGIC = 0xCAFE7ACE;
+  static final int VERSION = 1;
+  static final int HEADER_BYTES = 40;
+  static final int BYTES_PER_EVENT = Long.BYTES + Long.BYTES + Integer.BYTES + Byte.BYTES;
+
+  /** The number of events mapped at a time, as a mapping cannot exceed 2 GB. */
+  static final int REGION_EVENTS = 1 << 26;
+
+  private DecodedTrace() {}
+
+  /** A source of the events in a trace. */
+  @FunctionalInterface
+  public interface TraceDecoder {
+
+    /** Returns a stream that parses the trace. */
+    Stream<TraceEvent> decode() throws IOException;
+  }
+
+  /**
+   * Creates a {@link Stream} that reads the decoded trace, which is first written by the decoder if
+   * absent or stale.
+   *
+   * @param filePath the path to the trace file
+   * @param format the name of the trace's format
+   * @param decoder the parser of the trace
+   * @return a lazy stream of cache events
+   */
+  public static Stream<TraceEvent> stream(Path filePath,
+      String format, TraceDecoder decoder) throws IOException {
+    Path decodedPath = decodedPathFor(filePath);
+    Header expected = Header.of(filePath, format);
+    if (!Files.exists(decodedPath) || !expected.matches(Header.read(decodedPath))) {
+      write(decodedPath, expected, decoder);
+    }
+    return read(decodedPath);
+  }
+
+  /** Returns the path of the decoded trace that is stored next to the trace. */
+  public static Path decodedPathFor(Path filePath) {
+    return filePath.resolveSibling(filePath.getFileName() + SUFFIX);
+  }
+
+  /**
+   * Decodes the trace into a column file per field and then concatenates them after the header.
+   * The file is written under a temporary name and moved into place once complete, atomically if
+   * the file system supports it.
+   */
+  private static void write(Path decodedPath, Header header, TraceDecoder decoder)
+      throws IOException {
+    Path directory = decodedPath.toAbsolutePath().getParent();
+    String prefix = decodedPath.getFileName().toString();
+    List<Path> columns = new ArrayList<>();
+    Path temp = Files.createTempFile(directory, prefix, ".tmp");
+    try {
+      for (int i = 0; i < 4; i++) {
+        columns.add(Files.createTempFile(directory, prefix, ".column"));
+      }
+      long count = 0;
+      try (Stream<TraceEvent> events = decoder.decode();
+           DataOutputStream keys = newColumn(columns.get(0));
+           DataOutputStream timestamps = newColumn(columns.get(1));
+           DataOutputStream weights = newColumn(columns.get(2));
+           DataOutputStream actions = newColumn(columns.get(3))) {
+        for (Iterator<TraceEvent> i = events.iterator(); i.hasNext(); count++) {
+          TraceEvent event = i.next();
+          keys.writeLong(event.keyHash());
+          timestamps.writeLong(event.timestamp());
+          weights.writeInt(event.weight());
+          actions.writeByte(event.action().ordinal());
+        }
+      }
+
+      try (FileChannel output = FileChannel.open(temp, WRITE)) {
+        header.withCount(count).writeTo(output);
+        for (Path column : columns) {
+          try (FileChannel input = FileChannel.open(column, READ)) {
+            long size = input.size();
+            for (long position = 0; position < size; ) {
+              position += input.transferTo(position, size - position, output);
+            }
+          }
+        }
+      }
+      try {
+        Files.move(temp, decodedPath, ATOMIC_MOVE, REPLACE_EXISTING);
+      } catch (AtomicMoveNotSupportedException e) {
+        Files.move(temp, decodedPath, REPLACE_EXISTING);
+      }
+    } finally {
+      Files.deleteIfExists(temp);
+      for (Path column : columns) {
+        Files.deleteIfExists(column);
+      }
+    }
+  }
+
+  private static DataOutputStream newColumn(Path path) throws IOException {
+    return new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(path), 1 << 16));
+  }
+
+  /** Returns a stream that maps the decoded trace's columns a region at a time. */
+  private static Stream<TraceEvent> read(Path decodedPath) throws IOException {
+    FileChannel channel = FileChannel.open(decodedPath, READ);
+    try {
+      Header header = Header.read(channel);
+      Spliterator<TraceEvent> spliterator = Spliterators.spliterator(
+          new DecodedTraceIterator(channel, header.count), header.count,
+          Spliterator.NONNULL | Spliterator.ORDERED);
+      return StreamSupport.stream(spliterator, false).onClose(() -> {
+        try {
+          channel.close();
+        } catch (IOException e) {
+          throw new UncheckedIOException(e);
+        }
+      });
+    } catch (IOException | RuntimeException e) {
+      channel.close();
+      throw e;
+    }
+  }
+
+  /** The metadata that identifies the trace that the file was decoded from. */
+  static final class Header {
+    final long modifiedTime;
+    final long fileSize;
+    final int format;
+    final long count;
+
+    Header(long fileSize, long modifiedTime, int format, long count) {
+      this.modifiedTime = modifiedTime;
+      this.fileSize = fileSize;
+      this.format = format;
+      this.count = count;
+    }
+
+    static Header of(Path filePath, String format) throws IOException {
+      return new Header(Files.size(filePath),
+          Files.getLastModifiedTime(filePath).toMillis(), format.hashCode(), 0L);
+    }
+
+    /** Returns the header of the decoded trace, or null if the file is not a decoded trace. */
+    static Header read(Path decodedPath) throws IOException {
+      try (FileChannel channel = FileChannel.open(decodedPath, READ)) {
+        return read(channel);
+      } catch (IllegalStateException e) {
+        return null;
+      }
+    }
+
+    static Header read(FileChannel channel) throws IOException {
+      if (channel.size() < HEADER_BYTES) {
+        throw new IllegalStateException("Not a decoded trace");
+      }
+      ByteBuffer buffer = ByteBuffer.allocate(HEADER_BYTES);
+      while (buffer.hasRemaining()) {
+        channel.read(buffer, buffer.position());
+      }
+      buffer.flip();
+      if ((buffer.getInt() != MAGIC) || (buffer.getInt() != VERSION)) {
+        throw new IllegalStateException("Not a decoded trace");
+      }
+      long fileSize = buffer.getLong();
+      long modifiedTime = buffer.getLong();
+      int format = buffer.getInt();
+      buffer.getInt();
+      long count = buffer.getLong();
+      if (channel.size() != HEADER_BYTES + count * BYTES_PER_EVENT) {
+        throw new IllegalStateException("Truncated decoded trace");
+      }
+      return new Header(fileSize, modifiedTime, format, count);
+    }
+
+    Header withCount(long count) {
+      return new Header(fileSize, modifiedTime, format, count);
+    }
+
+    void writeTo(FileChannel channel) throws IOException {
+      ByteBuffer buffer = ByteBuffer.allocate(HEADER_BYTES);
+      buffer.putInt(MAGIC).putInt(VERSION).putLong(fileSize)
+          .putLong(modifiedTime).putInt(format).putInt(0).putLong(count);
+      buffer.flip();
+      while (buffer.hasRemaining()) {
+        channel.write(buffer);
+      }
+    }
+
+    /** Returns if the decoded trace's header describes the same trace as this one. */
+    boolean matches(Header header) {
+      return (header != null) && (header.fileSize == fileSize)
+          && (header.modifiedTime == modifiedTime) && (header.format == format);
+    }
+  }
+
+  private static final class DecodedTraceIterator implements Iterator<TraceEvent> {
+    static final Action[] ACTIONS = Action.values();
+
+    final FileChannel channel;
+    final long count;
+
+    LongBuffer timestamps;
+    ByteBuffer actions;
+    IntBuffer weights;
+    LongBuffer keys;
+    long index;
+
+    DecodedTraceIterator(FileChannel channel, long count) {
+      this.channel = channel;
+      this.count = count;
+    }
+
+    @Override
+    public boolean hasNext() {
+      return (index < count);
+    }
+
+    @Override
+    public TraceEvent next() {
+      if (!hasNext()) {
+        throw new NoSuchElementException();
+      } else if ((keys == null) || !keys.hasRemaining()) {
+        mapRegion();
+      }
+      index++;
+      return new TraceEvent(null, 0, ACTIONS[actions.get()],
+          keys.get(), weights.get(), timestamps.get());
+    }
+
+    /** Maps the next region of each column, starting from the current event. */
+    private void mapRegion() {
+      long length = Math.min(REGION_EVENTS, count - index);
+      try {
+        keys = map(0, Long.BYTES, length).asLongBuffer();
+        timestamps = map(Long.BYTES * count, Long.BYTES, length).asLongBuffer();
+        weights = map(2 * Long.BYTES * count, Integer.BYTES, length).asIntBuffer();
+        actions = map((2 * Long.BYTES + Integer.BYTES) * count, Byte.BYTES, length);
+      } catch (IOException e) {
+        throw new UncheckedIOException(e);
+      }
+    }
+
+    private ByteBuffer map(long columnOffset, int width, long length) throws IOException {
+      long position = HEADER_BYTES + columnOffset + index * width;
+      return channel.map(MapMode.READ_ONLY, position, length * width);
+    }
+  }
+}
@@ -20,10 +20,15 @@ import java.io.BufferedReader;
 import java.io.DataInputStream;
 import java.io.EOFException;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
 import java.io.Reader;
+import java.io.SequenceInputStream;
 import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.util.Enumeration;
 import java.util.Iterator;
 import java.util.NoSuchElementException;
 import java.util.Spliterator;
@@ -32,6 +37,7 @@ import java.util.stream.Stream;
 import java.util.stream.StreamSupport;
 
 import com.github.benmanes.caffeine.cache.tracing.TraceEvent;
+import com.github.benmanes.caffeine.cache.tracing.async.RollingFileOutputStream;
 import com.univocity.parsers.csv.CsvFormat;
 import com.univocity.parsers.csv.CsvParser;
 import com.univocity.parsers.csv.CsvParserSettings;
@@ -46,32 +52,55 @@ public final class LogReader {
   private LogReader() {}
 
   /**
-   * Creates a {@link Stream} that lazily reads the log file in the binary format.
+   * Creates a {@link Stream} that lazily reads the log file in the binary format. If the path is
+   * the index of a rolled log then its files are read in order as a single trace.
    *
-   * @param filePath the path to the log file
+   * @param filePath the path to the log file or rolled log index
    * @return a lazy stream of cache events
    */
   public static Stream<TraceEvent> binaryLogStream(Path filePath) throws IOException {
     DataInputStream input = new DataInputStream(
-        new BufferedInputStream(Files.newInputStream(filePath)));
+        new BufferedInputStream(newInputStream(filePath)));
     Spliterator<TraceEvent> spliterator = Spliterators.spliteratorUnknownSize(
         new BinaryLogIterator(input), Spliterator.NONNULL);
     return StreamSupport.stream(spliterator, false);
   }
 
   /**
-   * Creates a {@link Stream} that lazily reads the log file in the text format.
+   * Creates a {@link Stream} that lazily reads the log file in the text format. If the path is the
+   * index of a rolled log then its files are read in order as a single trace.
    *
-   * @param filePath the path to the log file
+   * @param filePath the path to the log file or rolled log index
    * @return a lazy stream of cache events
    */
   public static Stream<TraceEvent> textLogStream(Path filePath) throws IOException {
-    BufferedReader reader = Files.newBufferedReader(filePath);
+    BufferedReader reader = new BufferedReader(
+        new InputStreamReader(newInputStream(filePath), StandardCharsets.UTF_8));
     Spliterator<TraceEvent> spliterator = Spliterators.spliteratorUnknownSize(
         new TextLogIterator(reader), Spliterator.NONNULL);
     return StreamSupport.stream(spliterator, false);
   }
 
+  /** Returns the log file's input, or the concatenation of the files listed by a rolled index. */
+  private static InputStream newInputStream(Path filePath) throws IOException {
+    if (!filePath.getFileName().toString().endsWith(RollingFileOutputStream.INDEX_SUFFIX)) {
+      return Files.newInputStream(filePath);
+    }
+    Iterator<Path> files = RollingFileOutputStream.readIndex(filePath).iterator();
+    return new SequenceInputStream(new Enumeration<InputStream>() {
+      @Override public boolean hasMoreElements() {
+        return files.hasNext();
+      }
+      @Override public InputStream nextElement() {
+        try {
+          return Files.newInputStream(files.next());
+        } catch (IOException e) {
+          throw new UncheckedIOException(e);
+        }
+      }
+    });
+  }
+
   private static final class BinaryLogIterator implements Iterator<TraceEvent> {
     final DataInputStream input;
 
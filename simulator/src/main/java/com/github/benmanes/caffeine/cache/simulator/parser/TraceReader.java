@@ -0,0 +1,265 @@
+/*
+ * Copyright 2015 Ben Manes. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.benmanes.caffeine.cache.simulator.parser;
+
+import java.io.BufferedInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+import java.util.zip.GZIPInputStream;
+
+import com.github.benmanes.caffeine.cache.tracing.TraceEvent;
+import com.github.benmanes.caffeine.cache.tracing.TraceEvent.Action;
+
+/**
+ * A pull-based reader of the published cache traces, which are mapped onto a stream of cache
+ * events. A trace file may be compressed with gzip, as indicated by the ".gz" file extension.
+ * <p>
+ * The supported formats are:
+ * <ul>
+ *   <li>ARC: the block traces from the authors of the ARC policy, where each line is a starting
+ *       block, the number of consecutive blocks, and ignored fields
+ *   <li>LIRS: the block traces from the authors of the LIRS policy, where each line is a block
+ *   <li>UMass: the storage traces from the UMass Trace Repository in the SPC format, where each
+ *       line is the application unit, the starting block, the size in bytes, the opcode, and the
+ *       time in seconds
+ *   <li>Wikipedia: the request logs from WikiBench, where each line is a counter, the time in
+ *       seconds, the URL, and a flag that indicates if the page was saved
+ * </ul>
+ *
+ * @author ben.manes@gmail.com (Ben Manes)
+ */
+public final class TraceReader {
+  /** The size of a block in bytes, as used by the UMass storage traces. */
+  static final int UMASS_BLOCK_SIZE = 512;
+
+  private TraceReader() {}
+
+  /**
+   * Creates a {@link Stream} that lazily reads a block trace in the ARC format. Each block of a
+   * request is read as a separate event.
+   *
+   * @param filePath the path to the trace file
+   * @return a lazy stream of cache events
+   */
+  public static Stream<TraceEvent> arcTraceStream(Path filePath) throws IOException {
+    return traceStream(filePath, ArcTraceIterator::new);
+  }
+
+  /**
+   * Creates a {@link Stream} that lazily reads a block trace in the LIRS format.
+   *
+   * @param filePath the path to the trace file
+   * @return a lazy stream of cache events
+   */
+  public static Stream<TraceEvent> lirsTraceStream(Path filePath) throws IOException {
+    return traceStream(filePath, LirsTraceIterator::new);
+  }
+
+  /**
+   * Creates a {@link Stream} that lazily reads a storage trace in the UMass (SPC) format. Each
+   * block of a request is read as a separate event whose weight is the block size, where a read
+   * operation is a read and a write operation is a write.
+   *
+   * @param filePath the path to the trace file
+   * @return a lazy stream of cache events
+   */
+  public static Stream<TraceEvent> umassTraceStream(Path filePath) throws IOException {
+    return traceStream(filePath, UMassTraceIterator::new);
+  }
+
+  /**
+   * Creates a {@link Stream} that lazily reads a request log in the WikiBench format. A page view
+   * is read as a read of the URL's hash and a page save is read as a delete, which invalidates the
+   * cached page.
+   *
+   * @param filePath the path to the trace file
+   * @return a lazy stream of cache events
+   */
+  public static Stream<TraceEvent> wikipediaTraceStream(Path filePath) throws IOException {
+    return traceStream(filePath, WikipediaTraceIterator::new);
+  }
+
+  private static Stream<TraceEvent> traceStream(Path filePath,
+      Function<TraceTokenizer, TraceIterator> factory) throws IOException {
+    InputStream input = new BufferedInputStream(Files.newInputStream(filePath));
+    if (filePath.getFileName().toString().endsWith(".gz")) {
+      input = new GZIPInputStream(input);
+    }
+    TraceTokenizer tokenizer = new TraceTokenizer(input);
+    Spliterator<TraceEvent> spliterator = Spliterators.spliteratorUnknownSize(
+        factory.apply(tokenizer), Spliterator.NONNULL);
+    return StreamSupport.stream(spliterator, false).onClose(tokenizer::close);
+  }
+
+  /** Returns the time in nanoseconds from a trace's time in fractional seconds. */
+  static long toNanos(double seconds) {
+    return (long) (seconds * TimeUnit.SECONDS.toNanos(1));
+  }
+
+  /** An iterator over the events that are parsed from the lines of a trace. */
+  private abstract static class TraceIterator implements Iterator<TraceEvent> {
+    final TraceTokenizer tokenizer;
+    boolean finished;
+    TraceEvent next;
+
+    TraceIterator(TraceTokenizer tokenizer) {
+      this.tokenizer = tokenizer;
+    }
+
+    /** Returns the next event, or null if the end of the trace was reached. */
+    abstract TraceEvent computeNext();
+
+    @Override
+    public boolean hasNext() {
+      if ((next == null) && !finished) {
+        next = computeNext();
+        if (next == null) {
+          finished = true;
+          tokenizer.close();
+        }
+      }
+      return (next != null);
+    }
+
+    @Override
+    public TraceEvent next() {
+      if (!hasNext()) {
+        throw new NoSuchElementException();
+      }
+      TraceEvent current = next;
+      next = null;
+      return current;
+    }
+  }
+
+  /** An iterator that reads a request of consecutive blocks as an event per block. */
+  private abstract static class BlockTraceIterator extends TraceIterator {
+    Action action;
+    long remaining;
+    long timestamp;
+    int weight;
+    long block;
+
+    BlockTraceIterator(TraceTokenizer tokenizer) {
+      super(tokenizer);
+    }
+
+    /** Reads the next request into the fields, returning false if the end of the trace. */
+    abstract boolean nextRequest();
+
+    @Override
+    TraceEvent computeNext() {
+      while (remaining == 0) {
+        if (!nextRequest()) {
+          return null;
+        }
+      }
+      remaining--;
+      return new TraceEvent(null, 0, action, block++, weight, timestamp);
+    }
+  }
+
+  private static final class ArcTraceIterator extends BlockTraceIterator {
+    ArcTraceIterator(TraceTokenizer tokenizer) {
+      super(tokenizer);
+      action = Action.READ;
+      weight = 1;
+    }
+
+    @Override
+    boolean nextRequest() {
+      while (tokenizer.nextLine()) {
+        if (tokenizer.hasNumber()) {
+          block = tokenizer.nextLong();
+          remaining = tokenizer.nextLong();
+          return true;
+        }
+      }
+      return false;
+    }
+  }
+
+  private static final class UMassTraceIterator extends BlockTraceIterator {
+    UMassTraceIterator(TraceTokenizer tokenizer) {
+      super(tokenizer);
+      weight = UMASS_BLOCK_SIZE;
+    }
+
+    @Override
+    boolean nextRequest() {
+      while (tokenizer.nextLine()) {
+        if (tokenizer.hasNumber()) {
+          long unit = tokenizer.nextLong();
+          block = (unit << 48) ^ tokenizer.nextLong();
+          long size = tokenizer.nextLong();
+          remaining = (size + UMASS_BLOCK_SIZE - 1) / UMASS_BLOCK_SIZE;
+          char opcode = Character.toLowerCase(tokenizer.nextChar());
+          action = (opcode == 'w') ? Action.WRITE : Action.READ;
+          timestamp = toNanos(tokenizer.nextDouble());
+          return true;
+        }
+      }
+      return false;
+    }
+  }
+
+  private static final class LirsTraceIterator extends TraceIterator {
+    LirsTraceIterator(TraceTokenizer tokenizer) {
+      super(tokenizer);
+    }
+
+    @Override
+    TraceEvent computeNext() {
+      while (tokenizer.nextLine()) {
+        if (tokenizer.hasNumber()) {
+          return new TraceEvent(null, 0, Action.READ, tokenizer.nextLong(), 1, 0L);
+        }
+      }
+      return null;
+    }
+  }
+
+  private static final class WikipediaTraceIterator extends TraceIterator {
+    WikipediaTraceIterator(TraceTokenizer tokenizer) {
+      super(tokenizer);
+    }
+
+    @Override
+    TraceEvent computeNext() {
+      while (tokenizer.nextLine()) {
+        if (tokenizer.hasNumber()) {
+          tokenizer.skipField();
+          long timestamp = toNanos(tokenizer.nextDouble());
+          long key = tokenizer.nextHash();
+          boolean save = tokenizer.hasField() && (tokenizer.nextChar() == 's');
+          Action action = save ? Action.DELETE : Action.READ;
+          return new TraceEvent(null, 0, action, key, 1, timestamp);
+        }
+      }
+      return null;
+    }
+  }
+}
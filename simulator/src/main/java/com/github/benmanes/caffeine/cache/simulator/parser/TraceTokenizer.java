@@ -0,0 +1,205 @@
+/*
+ * Copyright 2015 Ben Manes. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.benmanes.caffeine.cache.simulator.parser;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+
+/**
+ * A scanner of a line-oriented text trace that parses the fields directly from a byte buffer. A
+ * field is delimited by spaces, tabs, or commas. Unlike reading each line as a {@link String} and
+ * splitting it, this does not allocate per line, which matters for traces that are many gigabytes.
+ *
+ * @author ben.manes@gmail.com (Ben Manes)
+ */
+final class TraceTokenizer implements Closeable {
+  private static final int BUFFER_SIZE = 1 << 16;
+  private static final int EOF = -1;
+
+  private final InputStream input;
+  private final byte[] buffer;
+
+  private boolean inLine;
+  private int position;
+  private long line;
+  private int limit;
+
+  TraceTokenizer(InputStream input) {
+    this.buffer = new byte[BUFFER_SIZE];
+    this.input = input;
+  }
+
+  /**
+   * Advances to the start of the next line that is not empty, skipping any remaining fields of the
+   * current line.
+   *
+   * @return if there is another line, or false if the end of the trace was reached
+   */
+  public boolean nextLine() {
+    if (inLine) {
+      for (int b = peek(); (b != EOF) && (b != '\n'); b = peek()) {
+        position++;
+      }
+    }
+    for (int b = peek(); (b == '\n') || (b == '\r'); b = peek()) {
+      position++;
+    }
+    inLine = (peek() != EOF);
+    if (inLine) {
+      line++;
+    }
+    return inLine;
+  }
+
+  /** @return if the current line has another field */
+  public boolean hasField() {
+    skipDelimiters();
+    return !isEndOfLine(peek());
+  }
+
+  /** @return if the next field of the current line starts with a digit */
+  public boolean hasNumber() {
+    skipDelimiters();
+    int b = peek();
+    return ((b >= '0') && (b <= '9')) || (b == '-');
+  }
+
+  /** @return the next field of the current line parsed as a decimal integer */
+  public long nextLong() {
+    skipDelimiters();
+    boolean negative = (peek() == '-');
+    if (negative) {
+      position++;
+    }
+    long value = 0;
+    int digits = 0;
+    for (int b = peek(); (b >= '0') && (b <= '9'); b = peek()) {
+      value = (10 * value) + (b - '0');
+      position++;
+      digits++;
+    }
+    checkEndOfField(digits);
+    return negative ? -value : value;
+  }
+
+  /** @return the next field of the current line parsed as a non-negative decimal number */
+  public double nextDouble() {
+    skipDelimiters();
+    long value = 0;
+    long scale = 1;
+    int digits = 0;
+    boolean fraction = false;
+    for (int b = peek(); ((b >= '0') && (b <= '9')) || ((b == '.') && !fraction); b = peek()) {
+      if (b == '.') {
+        fraction = true;
+      } else {
+        value = (10 * value) + (b - '0');
+        scale = fraction ? (10 * scale) : scale;
+        digits++;
+      }
+      position++;
+    }
+    checkEndOfField(digits);
+    return (double) value / scale;
+  }
+
+  /** @return the first character of the next field, skipping the remainder of that field */
+  public char nextChar() {
+    skipDelimiters();
+    int b = peek();
+    if (isEndOfLine(b)) {
+      throw malformed();
+    }
+    skipField();
+    return (char) b;
+  }
+
+  /** @return a 64-bit hash of the next field's bytes, which avoids decoding it as a string */
+  public long nextHash() {
+    skipDelimiters();
+    long hash = 0xcbf29ce484222325L;
+    int length = 0;
+    for (int b = peek(); !isDelimiter(b) && !isEndOfLine(b); b = peek()) {
+      hash = (hash ^ b) * 0x100000001b3L;
+      position++;
+      length++;
+    }
+    if (length == 0) {
+      throw malformed();
+    }
+    return hash;
+  }
+
+  /** Skips over the next field of the current line. */
+  public void skipField() {
+    skipDelimiters();
+    for (int b = peek(); !isDelimiter(b) && !isEndOfLine(b); b = peek()) {
+      position++;
+    }
+  }
+
+  @Override
+  public void close() {
+    try {
+      input.close();
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+  }
+
+  private void skipDelimiters() {
+    while (isDelimiter(peek())) {
+      position++;
+    }
+  }
+
+  private void checkEndOfField(int digits) {
+    int b = peek();
+    if ((digits == 0) || !(isDelimiter(b) || isEndOfLine(b))) {
+      throw malformed();
+    }
+  }
+
+  private IllegalStateException malformed() {
+    return new IllegalStateException("Malformed trace at line " + line);
+  }
+
+  private static boolean isDelimiter(int b) {
+    return (b == ' ') || (b == '\t') || (b == ',');
+  }
+
+  private static boolean isEndOfLine(int b) {
+    return (b == '\n') || (b == '\r') || (b == EOF);
+  }
+
+  /** Returns the next byte without consuming it, refilling the buffer as necessary. */
+  private int peek() {
+    if (position == limit) {
+      try {
+        limit = Math.max(0, input.read(buffer));
+      } catch (IOException e) {
+        throw new UncheckedIOException(e);
+      }
+      position = 0;
+      if (limit == 0) {
+        return EOF;
+      }
+    }
+    return buffer[position] & 0xFF;
+  }
+}
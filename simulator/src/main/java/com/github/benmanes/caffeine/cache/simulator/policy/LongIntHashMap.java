@@ -0,0 +1,183 @@
+/*
+ * Copyright 2015 Ben Manes. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.benmanes.caffeine.cache.simulator.policy;
+
+import java.util.Arrays;
+
+/**
+ * A hash table from primitive {@code long} keys to non-negative {@code int} values, typically the
+ * index of an entry in a policy's node arrays. The table uses open addressing with linear probing
+ * and backward shift deletion, so no boxing or per-entry allocation occurs on the hot path.
+ *
+ * @author ben.manes@gmail.com (Ben Manes)
+ */
+public final class LongIntHashMap {
+  /** The value returned when the key is not present in the table. */
+  public static final int ABSENT = -1;
+
+  private static final int MINIMUM_CAPACITY = 16;
+
+  private long[] keys;
+  private int[] values;
+  private int threshold;
+  private int mask;
+  private int size;
+
+  /**
+   * Creates a table that can hold the expected number of entries without resizing.
+   *
+   * @param expectedSize the number of entries expected to be held
+   */
+  public LongIntHashMap(int expectedSize) {
+    allocate(tableSizeFor(expectedSize));
+  }
+
+  /** @return the number of entries in the table */
+  public int size() {
+    return size;
+  }
+
+  /**
+   * Returns if the table contains the key.
+   *
+   * @param key the key to look up
+   * @return if the key has an associated value
+   */
+  public boolean containsKey(long key) {
+    return get(key) != ABSENT;
+  }
+
+  /**
+   * Returns the value associated with the key.
+   *
+   * @param key the key to look up
+   * @return the associated value or {@link #ABSENT} if not present
+   */
+  public int get(long key) {
+    for (int i = indexOf(key);; i = (i + 1) & mask) {
+      if (values[i] == ABSENT) {
+        return ABSENT;
+      } else if (keys[i] == key) {
+        return values[i];
+      }
+    }
+  }
+
+  /**
+   * Associates the value with the key, replacing any existing mapping.
+   *
+   * @param key the key to associate the value with
+   * @param value the non-negative value
+   * @return the previous value or {@link #ABSENT} if not present
+   */
+  public int put(long key, int value) {
+    if (value < 0) {
+      throw new IllegalArgumentException();
+    }
+    for (int i = indexOf(key);; i = (i + 1) & mask) {
+      if (values[i] == ABSENT) {
+        keys[i] = key;
+        values[i] = value;
+        if (++size > threshold) {
+          resize();
+        }
+        return ABSENT;
+      } else if (keys[i] == key) {
+        int previous = values[i];
+        values[i] = value;
+        return previous;
+      }
+    }
+  }
+
+  /**
+   * Removes the mapping for the key.
+   *
+   * @param key the key to remove
+   * @return the removed value or {@link #ABSENT} if not present
+   */
+  public int remove(long key) {
+    for (int i = indexOf(key);; i = (i + 1) & mask) {
+      if (values[i] == ABSENT) {
+        return ABSENT;
+      } else if (keys[i] == key) {
+        int removed = values[i];
+        shiftBackward(i);
+        size--;
+        return removed;
+      }
+    }
+  }
+
+  /** Removes all of the mappings. */
+  public void clear() {
+    Arrays.fill(values, ABSENT);
+    size = 0;
+  }
+
+  /**
+   * Empties the slot and moves the following entries of the probe sequence into it, so that a
+   * lookup never stops early at a hole left by a deletion.
+   */
+  private void shiftBackward(int hole) {
+    values[hole] = ABSENT;
+    for (int i = (hole + 1) & mask; values[i] != ABSENT; i = (i + 1) & mask) {
+      int home = indexOf(keys[i]);
+      boolean reachable = (hole <= i)
+          ? ((hole < home) && (home <= i))
+          : ((hole < home) || (home <= i));
+      if (!reachable) {
+        keys[hole] = keys[i];
+        values[hole] = values[i];
+        values[i] = ABSENT;
+        hole = i;
+      }
+    }
+  }
+
+  /** Doubles the table's capacity and reinserts the entries. */
+  private void resize() {
+    long[] oldKeys = keys;
+    int[] oldValues = values;
+    allocate(2 * oldValues.length);
+    size = 0;
+    for (int i = 0; i < oldValues.length; i++) {
+      if (oldValues[i] != ABSENT) {
+        put(oldKeys[i], oldValues[i]);
+      }
+    }
+  }
+
+  private void allocate(int capacity) {
+    keys = new long[capacity];
+    values = new int[capacity];
+    Arrays.fill(values, ABSENT);
+    threshold = capacity / 2;
+    mask = capacity - 1;
+  }
+
+  /** Returns the home slot of the key, spreading the bits as trace keys may be small integers. */
+  private int indexOf(long key) {
+    long hash = key * 0x9E3779B97F4A7C15L;
+    return (int) (hash ^ (hash >>> 32)) & mask;
+  }
+
+  /** Returns a power of two table size that keeps the load factor at or below one half. */
+  private static int tableSizeFor(int expectedSize) {
+    int capacity = Math.max(MINIMUM_CAPACITY, 2 * expectedSize);
+    return (capacity > (1 << 30)) ? (1 << 30) : Integer.highestOneBit(capacity - 1) << 1;
+  }
+}
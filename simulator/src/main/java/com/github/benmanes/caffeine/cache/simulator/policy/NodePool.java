@@ -0,0 +1,264 @@
+/*
+ * Copyright 2015 Ben Manes. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.benmanes.caffeine.cache.simulator.policy;
+
+import java.util.Arrays;
+
+/**
+ * A pool of doubly-linked list nodes stored in parallel arrays and addressed by index. A policy
+ * allocates a node per entry and links it onto one of a fixed number of lists, such as the recency
+ * queues of an LRU or the resident and ghost lists of an adaptive policy. A node records the key,
+ * the list that it is linked on, its weight, and a policy-defined status. The arrays grow as needed
+ * and freed nodes are recycled, so replaying a trace does not allocate per entry.
+ * <p>
+ * The lists are circular with a sentinel node, whose index is the list's identifier.
+ *
+ * @author ben.manes@gmail.com (Ben Manes)
+ */
+public final class NodePool {
+  /** The index returned when a list has no node in the requested position. */
+  public static final int NIL = -1;
+
+  private final int[] sizes;
+
+  private long[] keys;
+  private int[] weights;
+  private int[] status;
+  private int[] owner;
+  private int[] prev;
+  private int[] next;
+  private int freeHead;
+
+  /**
+   * Creates a pool with the number of lists and an initial capacity of nodes.
+   *
+   * @param lists the number of lists, identified by the indexes {@code 0} to {@code lists - 1}
+   * @param initialCapacity the number of entry nodes that can be allocated before resizing
+   */
+  public NodePool(int lists, int initialCapacity) {
+    if (lists <= 0) {
+      throw new IllegalArgumentException();
+    }
+    int capacity = lists + Math.max(1, initialCapacity);
+    sizes = new int[lists];
+    keys = new long[capacity];
+    weights = new int[capacity];
+    status = new int[capacity];
+    owner = new int[capacity];
+    prev = new int[capacity];
+    next = new int[capacity];
+    for (int list = 0; list < lists; list++) {
+      prev[list] = list;
+      next[list] = list;
+      owner[list] = list;
+    }
+    freeHead = NIL;
+    addToFreeList(lists, capacity);
+  }
+
+  /**
+   * Allocates an unlinked node for the key.
+   *
+   * @param key the entry's key
+   * @return the node's index
+   */
+  public int allocate(long key) {
+    if (freeHead == NIL) {
+      grow();
+    }
+    int node = freeHead;
+    freeHead = next[node];
+    keys[node] = key;
+    weights[node] = 0;
+    status[node] = 0;
+    owner[node] = NIL;
+    prev[node] = NIL;
+    next[node] = NIL;
+    return node;
+  }
+
+  /**
+   * Unlinks the node, if necessary, and returns it to the pool.
+   *
+   * @param node the node's index
+   */
+  public void free(int node) {
+    if (owner[node] != NIL) {
+      unlink(node);
+    }
+    next[node] = freeHead;
+    freeHead = node;
+  }
+
+  /** @return the key of the node */
+  public long key(int node) {
+    return keys[node];
+  }
+
+  /** @return the weight of the node's entry */
+  public int weight(int node) {
+    return weights[node];
+  }
+
+  /**
+   * Specifies the weight of the node's entry.
+   *
+   * @param node the node's index
+   * @param weight the entry's weight
+   */
+  public void setWeight(int node, int weight) {
+    weights[node] = weight;
+  }
+
+  /** @return the policy-defined status of the node */
+  public int status(int node) {
+    return status[node];
+  }
+
+  /**
+   * Specifies the policy-defined status of the node.
+   *
+   * @param node the node's index
+   * @param value the status
+   */
+  public void setStatus(int node, int value) {
+    status[node] = value;
+  }
+
+  /** @return the list that the node is linked on, or {@link #NIL} if unlinked */
+  public int listOf(int node) {
+    return owner[node];
+  }
+
+  /** @return the number of nodes linked on the list */
+  public int size(int list) {
+    return sizes[list];
+  }
+
+  /** @return if the list has no nodes */
+  public boolean isEmpty(int list) {
+    return next[list] == list;
+  }
+
+  /** @return the node at the head of the list, or {@link #NIL} if empty */
+  public int first(int list) {
+    int node = next[list];
+    return (node == list) ? NIL : node;
+  }
+
+  /** @return the node at the tail of the list, or {@link #NIL} if empty */
+  public int last(int list) {
+    int node = prev[list];
+    return (node == list) ? NIL : node;
+  }
+
+  /** @return the node following this one towards the tail, or {@link #NIL} if it is the tail */
+  public int next(int node) {
+    int successor = next[node];
+    return (successor == owner[node]) ? NIL : successor;
+  }
+
+  /**
+   * Links the unlinked node at the tail of the list.
+   *
+   * @param list the list's identifier
+   * @param node the node's index
+   */
+  public void linkLast(int list, int node) {
+    int tail = prev[list];
+    prev[node] = tail;
+    next[node] = list;
+    next[tail] = node;
+    prev[list] = node;
+    owner[node] = list;
+    sizes[list]++;
+  }
+
+  /**
+   * Links the unlinked node at the head of the list.
+   *
+   * @param list the list's identifier
+   * @param node the node's index
+   */
+  public void linkFirst(int list, int node) {
+    int head = next[list];
+    prev[node] = list;
+    next[node] = head;
+    prev[head] = node;
+    next[list] = node;
+    owner[node] = list;
+    sizes[list]++;
+  }
+
+  /**
+   * Removes the node from the list that it is linked on.
+   *
+   * @param node the node's index
+   */
+  public void unlink(int node) {
+    next[prev[node]] = next[node];
+    prev[next[node]] = prev[node];
+    sizes[owner[node]]--;
+    owner[node] = NIL;
+  }
+
+  /**
+   * Moves the node to the tail of the list, unlinking it from its current list if necessary.
+   *
+   * @param list the list's identifier
+   * @param node the node's index
+   */
+  public void moveToTail(int list, int node) {
+    if (owner[node] != NIL) {
+      unlink(node);
+    }
+    linkLast(list, node);
+  }
+
+  /**
+   * Moves the node to the head of the list, unlinking it from its current list if necessary.
+   *
+   * @param list the list's identifier
+   * @param node the node's index
+   */
+  public void moveToHead(int list, int node) {
+    if (owner[node] != NIL) {
+      unlink(node);
+    }
+    linkFirst(list, node);
+  }
+
+  /** Doubles the number of nodes and adds the new nodes to the free list. */
+  private void grow() {
+    int oldCapacity = keys.length;
+    int newCapacity = 2 * oldCapacity;
+    keys = Arrays.copyOf(keys, newCapacity);
+    weights = Arrays.copyOf(weights, newCapacity);
+    status = Arrays.copyOf(status, newCapacity);
+    owner = Arrays.copyOf(owner, newCapacity);
+    prev = Arrays.copyOf(prev, newCapacity);
+    next = Arrays.copyOf(next, newCapacity);
+    addToFreeList(oldCapacity, newCapacity);
+  }
+
+  /** Pushes the range of node indexes onto the free list so that the lowest is allocated first. */
+  private void addToFreeList(int from, int to) {
+    for (int node = to - 1; node >= from; node--) {
+      next[node] = freeHead;
+      freeHead = node;
+    }
+  }
+}
@@ -0,0 +1,39 @@
+/*
+ * Copyright 2015 Ben Manes. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.benmanes.caffeine.cache.simulator.policy;
+
+import com.github.benmanes.caffeine.cache.tracing.TraceEvent;
+
+/**
+ * A cache that implements a page replacement policy.
+ *
+ * @author ben.manes@gmail.com (Ben Manes)
+ */
+public interface Policy {
+
+  /**
+   * Records the cache operation, updating the policy's state and statistics.
+   *
+   * @param event the recorded cache operation
+   */
+  void record(TraceEvent event);
+
+  /** Invoked after the trace has been replayed so that the policy may complete its statistics. */
+  default void finished() {}
+
+  /** @return the statistics gathered by the policy */
+  PolicyStats stats();
+}
@@ -0,0 +1,107 @@
+/*
+ * Copyright 2015 Ben Manes. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.benmanes.caffeine.cache.simulator.policy;
+
+import static java.util.Objects.requireNonNull;
+
+import java.util.concurrent.TimeUnit;
+
+import akka.actor.UntypedActor;
+import akka.dispatch.BoundedMessageQueueSemantics;
+import akka.dispatch.RequiresMessageQueue;
+
+import com.github.benmanes.caffeine.cache.simulator.Simulator.Message;
+import com.github.benmanes.caffeine.cache.simulator.cost.CostModel;
+import com.github.benmanes.caffeine.cache.tracing.TraceEvent;
+
+/**
+ * An actor that replays batches of the trace against a policy. The batches are shared by all of
+ * the policy actors so they must be treated as read-only. If a cost model is enabled then the
+ * projected latency of each request is recorded, depending on whether the policy counted it as a
+ * hit or a miss.
+ *
+ * @author ben.manes@gmail.com (Ben Manes)
+ */
+public final class PolicyActor extends UntypedActor
+    implements RequiresMessageQueue<BoundedMessageQueueSemantics> {
+  private final CostModel costModel;
+  private final Policy policy;
+
+  private long firstTimestamp;
+  private long lastTimestamp;
+  private boolean started;
+
+  public PolicyActor(Policy policy, CostModel costModel) {
+    this.costModel = requireNonNull(costModel);
+    this.policy = requireNonNull(policy);
+  }
+
+  @Override
+  public void onReceive(Object msg) {
+    if (msg instanceof TraceEvent[]) {
+      process((TraceEvent[]) msg);
+    } else if (msg == Message.END) {
+      policy.finished();
+      if (costModel.isEnabled()) {
+        policy.stats().setRequestsPerSecond(requestsPerSecond());
+      }
+      getSender().tell(policy.stats(), getSelf());
+      getContext().stop(getSelf());
+    }
+  }
+
+  private void process(TraceEvent[] events) {
+    policy.stats().stopwatch().start();
+    if (costModel.isEnabled()) {
+      for (TraceEvent event : events) {
+        recordWithCost(event);
+      }
+    } else {
+      for (TraceEvent event : events) {
+        policy.record(event);
+      }
+    }
+    policy.stats().stopwatch().stop();
+  }
+
+  /** Records the event and, if the policy counted it as a request, the request's latency. */
+  private void recordWithCost(TraceEvent event) {
+    PolicyStats stats = policy.stats();
+    long requests = stats.requestCount();
+    long misses = stats.missCount();
+    policy.record(event);
+    if (stats.requestCount() != requests) {
+      stats.latencies().record((stats.missCount() == misses)
+          ? costModel.hitLatency()
+          : costModel.missPenalty(event));
+    }
+
+    if (!started) {
+      firstTimestamp = event.timestamp();
+      started = true;
+    }
+    lastTimestamp = event.timestamp();
+  }
+
+  /** Returns the configured request rate, or else the rate over the time spanned by the trace. */
+  private double requestsPerSecond() {
+    if (costModel.requestsPerSecond() > 0) {
+      return costModel.requestsPerSecond();
+    }
+    double seconds = (double) (lastTimestamp - firstTimestamp) / TimeUnit.SECONDS.toNanos(1);
+    return (seconds > 0) ? (policy.stats().requestCount() / seconds) : 0.0;
+  }
+}
@@ -15,24 +15,34 @@
  */
 package com.github.benmanes.caffeine.cache.simulator.policy;
 
+import com.github.benmanes.caffeine.cache.simulator.cost.LatencyHistogram;
 import com.google.common.base.Stopwatch;
 
 /**
- * Statistics gathered by a policy execution.
+ * Statistics gathered by a policy execution. A weighted policy also records the weight of each
+ * request, which is the resident entry's weight on a hit and the weight recorded by the trace event
+ * on a miss, so that the byte hit rate is only meaningful for traces that record the weight of the
+ * reads.
  *
  * @author ben.manes@gmail.com (Ben Manes)
  */
 public final class PolicyStats {
+  private final LatencyHistogram latencies;
   private final String name;
 
-  private int hitCount;
-  private int missCount;
-  private int evictionCount;
+  private long hitCount;
+  private long missCount;
+  private long evictionCount;
+  private long hitWeight;
+  private long missWeight;
+  private long evictionWeight;
 
+  private double requestsPerSecond;
   private Stopwatch stopwatch;
 
   public PolicyStats(String name) {
     this.stopwatch = Stopwatch.createUnstarted();
+    this.latencies = new LatencyHistogram();
     this.name = name;
   }
 
@@ -48,14 +58,41 @@ public final class PolicyStats {
     hitCount++;
   }
 
+  public void recordWeightedHit(int weight) {
+    hitWeight += weight;
+    hitCount++;
+  }
+
   public void recordMiss() {
     missCount++;
   }
 
+  public void recordWeightedMiss(int weight) {
+    missWeight += weight;
+    missCount++;
+  }
+
   public void recordEviction() {
     evictionCount++;
   }
 
+  public void recordEvictions(long count) {
+    evictionCount += count;
+  }
+
+  public void recordWeightedEviction(int weight) {
+    evictionWeight += weight;
+    evictionCount++;
+  }
+
+  public long hitCount() {
+    return hitCount;
+  }
+
+  public long missCount() {
+    return missCount;
+  }
+
   public long requestCount() {
     return hitCount + missCount;
   }
@@ -73,4 +110,31 @@ public final class PolicyStats {
   public long evictionCount() {
     return evictionCount;
   }
+
+  public long requestWeight() {
+    return hitWeight + missWeight;
+  }
+
+  public double byteHitRate() {
+    long requestWeight = requestWeight();
+    return (requestWeight == 0) ? 1.0 : (double) hitWeight / requestWeight;
+  }
+
+  public long evictionWeight() {
+    return evictionWeight;
+  }
+
+  /** Returns the projected latencies of the requests, which are only recorded if costed. */
+  public LatencyHistogram latencies() {
+    return latencies;
+  }
+
+  public void setRequestsPerSecond(double requestsPerSecond) {
+    this.requestsPerSecond = requestsPerSecond;
+  }
+
+  /** Returns the projected rate of the misses that are loaded from the backend. */
+  public double backendQps() {
+    return requestsPerSecond * missRate();
+  }
 }
@@ -0,0 +1,172 @@
+/*
+ * Copyright 2015 Ben Manes. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.benmanes.caffeine.cache.simulator.policy.adaptive;
+
+import com.github.benmanes.caffeine.cache.simulator.BasicSettings;
+import com.github.benmanes.caffeine.cache.simulator.policy.LongIntHashMap;
+import com.github.benmanes.caffeine.cache.simulator.policy.NodePool;
+import com.github.benmanes.caffeine.cache.simulator.policy.Policy;
+import com.github.benmanes.caffeine.cache.simulator.policy.PolicyStats;
+import com.github.benmanes.caffeine.cache.tracing.TraceEvent;
+import com.typesafe.config.Config;
+
+/**
+ * Adaptive Replacement Cache. This algorithm balances a recency queue (T1) of entries seen once
+ * and a frequency queue (T2) of entries seen at least twice. The queues are paired with ghost
+ * lists (B1 and B2) that retain the keys of evicted entries. A miss that hits a ghost list shifts
+ * the target size of T1 towards the queue whose entry should have been retained.
+ * <p>
+ * This implementation is based on the pseudo code provided by the authors in
+ * <a href="http://www.cs.cmu.edu/~15-440/READINGS/megiddo-computer2004.pdf">Outperforming LRU with
+ * an Adaptive Replacement Cache Algorithm</a>.
+ *
+ * @author ben.manes@gmail.com (Ben Manes)
+ */
+public final class Arc implements Policy {
+  static final int T1 = 0;
+  static final int T2 = 1;
+  static final int B1 = 2;
+  static final int B2 = 3;
+
+  private final PolicyStats policyStats;
+  private final LongIntHashMap data;
+  private final boolean readThrough;
+  private final int maximumSize;
+  private final NodePool nodes;
+
+  /** The target size of T1. */
+  private int p;
+
+  public Arc(String name, Config config) {
+    BasicSettings settings = new BasicSettings(config);
+    this.maximumSize = settings.maximumSize();
+    this.readThrough = settings.isReadThrough();
+    this.data = new LongIntHashMap(2 * maximumSize);
+    this.nodes = new NodePool(4, 2 * maximumSize);
+    this.policyStats = new PolicyStats(name);
+  }
+
+  @Override
+  public PolicyStats stats() {
+    return policyStats;
+  }
+
+  @Override
+  public void record(TraceEvent event) {
+    long key = event.keyHash();
+    int node = data.get(key);
+    boolean resident = (node != LongIntHashMap.ABSENT) && isResident(node);
+    switch (event.action()) {
+      case WRITE:
+        if (resident) {
+          onHit(node);
+        } else {
+          onMiss(key, node);
+        }
+        break;
+      case READ:
+        if (resident) {
+          onHit(node);
+        } else {
+          policyStats.recordMiss();
+          if (readThrough) {
+            onMiss(key, node);
+          }
+        }
+        break;
+      case DELETE:
+        if (node != LongIntHashMap.ABSENT) {
+          data.remove(key);
+          nodes.free(node);
+        }
+        break;
+      default:
+        throw new UnsupportedOperationException();
+    }
+  }
+
+  private boolean isResident(int node) {
+    int list = nodes.listOf(node);
+    return (list == T1) || (list == T2);
+  }
+
+  /** Case I: the entry is resident, so it is promoted to the most recent position of T2. */
+  private void onHit(int node) {
+    policyStats.recordHit();
+    nodes.moveToTail(T2, node);
+  }
+
+  /** Cases II-IV: the entry is not resident, so it is admitted after adapting and replacing. */
+  private void onMiss(long key, int node) {
+    if (node == LongIntHashMap.ABSENT) {
+      onFullMiss(key);
+    } else if (nodes.listOf(node) == B1) {
+      int delta = Math.max(nodes.size(B2) / nodes.size(B1), 1);
+      p = Math.min(maximumSize, p + delta);
+      replace(false);
+      nodes.moveToTail(T2, node);
+    } else {
+      int delta = Math.max(nodes.size(B1) / nodes.size(B2), 1);
+      p = Math.max(0, p - delta);
+      replace(true);
+      nodes.moveToTail(T2, node);
+    }
+  }
+
+  /** Case IV: the key is not in the cache or the ghost lists. */
+  private void onFullMiss(long key) {
+    int l1 = nodes.size(T1) + nodes.size(B1);
+    int total = l1 + nodes.size(T2) + nodes.size(B2);
+    if (l1 >= maximumSize) {
+      if (nodes.size(T1) < maximumSize) {
+        discard(nodes.first(B1));
+        replace(false);
+      } else {
+        policyStats.recordEviction();
+        discard(nodes.first(T1));
+      }
+    } else if (total >= maximumSize) {
+      if (total == (2 * maximumSize)) {
+        discard(nodes.first(B2));
+      }
+      replace(false);
+    }
+    int node = nodes.allocate(key);
+    data.put(key, node);
+    nodes.linkLast(T1, node);
+  }
+
+  /**
+   * Evicts the least recent entry of T1 into B1 if T1 exceeds its target size, or otherwise the
+   * least recent entry of T2 into B2.
+   */
+  private void replace(boolean inB2) {
+    int t1 = nodes.size(T1);
+    if ((t1 > 0) && ((t1 > p) || (inB2 && (t1 == p)))) {
+      policyStats.recordEviction();
+      nodes.moveToTail(B1, nodes.first(T1));
+    } else if (!nodes.isEmpty(T2)) {
+      policyStats.recordEviction();
+      nodes.moveToTail(B2, nodes.first(T2));
+    }
+  }
+
+  /** Removes the entry from the cache and its ghost history. */
+  private void discard(int node) {
+    data.remove(nodes.key(node));
+    nodes.free(node);
+  }
+}
@@ -0,0 +1,119 @@
+/*
+ * Copyright 2015 Ben Manes. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.benmanes.caffeine.cache.simulator.policy.adaptive;
+
+/**
+ * A probabilistic multiset for estimating the popularity of an element within a time window. This
+ * is a Count-Min sketch with four hash functions and 4-bit counters, sixteen of which are packed
+ * into each {@code long}. When the number of additions reaches the sample size, every counter is
+ * halved so that the estimates reflect recent history.
+ *
+ * @author ben.manes@gmail.com (Ben Manes)
+ */
+final class FrequencySketch {
+  static final long[] SEEDS = { // A mixture of seeds from FNV-1a, CityHash, and Murmur3
+      0xc3a5c85c97cb3127L, 0xb492b66fbe98f273L, 0x9ae16a3b2f90404fL, 0xcbf29ce484222325L};
+  static final long RESET_MASK = 0x7777777777777777L;
+  static final int MAXIMUM_COUNT = 15;
+
+  private final int sampleSize;
+  private final long[] table;
+  private final int tableMask;
+  private int additions;
+
+  /**
+   * Creates a sketch sized for the cache's capacity.
+   *
+   * @param maximumSize the maximum number of entries in the cache
+   * @param sampleMultiplier the number of additions, per unit of capacity, before the reset
+   */
+  FrequencySketch(int maximumSize, int sampleMultiplier) {
+    int length = Math.max(16, Integer.highestOneBit(Math.max(1, maximumSize) - 1) << 1);
+    this.sampleSize = Math.max(1, sampleMultiplier * maximumSize);
+    this.table = new long[length];
+    this.tableMask = length - 1;
+  }
+
+  /**
+   * Returns the estimated number of occurrences of the key, up to the maximum count of 15.
+   *
+   * @param key the key's hash
+   * @return the estimated number of occurrences
+   */
+  int frequency(long key) {
+    int hash = spread(key);
+    int start = (hash & 3) << 2;
+    int frequency = MAXIMUM_COUNT;
+    for (int i = 0; i < 4; i++) {
+      int index = indexOf(hash, i);
+      int count = (int) ((table[index] >>> ((start + i) << 2)) & 0xfL);
+      frequency = Math.min(frequency, count);
+    }
+    return frequency;
+  }
+
+  /**
+   * Increments the popularity of the key if it does not exceed the maximum count, and periodically
+   * ages all of the counters.
+   *
+   * @param key the key's hash
+   */
+  void increment(long key) {
+    int hash = spread(key);
+    int start = (hash & 3) << 2;
+    boolean added = false;
+    for (int i = 0; i < 4; i++) {
+      added |= incrementAt(indexOf(hash, i), start + i);
+    }
+    if (added && (++additions == sampleSize)) {
+      reset();
+    }
+  }
+
+  /** Increments the j-th counter in the table slot if it is not saturated. */
+  private boolean incrementAt(int i, int j) {
+    int offset = j << 2;
+    long mask = (0xfL << offset);
+    if ((table[i] & mask) != mask) {
+      table[i] += (1L << offset);
+      return true;
+    }
+    return false;
+  }
+
+  /** Halves every counter and the number of additions. */
+  private void reset() {
+    for (int i = 0; i < table.length; i++) {
+      table[i] = (table[i] >>> 1) & RESET_MASK;
+    }
+    additions >>>= 1;
+  }
+
+  /** Returns the table slot for the counter of the i-th hash function. */
+  private int indexOf(int item, int i) {
+    long hash = (item + SEEDS[i]) * SEEDS[i];
+    hash += (hash >>> 32);
+    return ((int) hash) & tableMask;
+  }
+
+  /** Applies a supplemental hash function to defend against poor quality keys. */
+  private static int spread(long key) {
+    int x = (int) (key ^ (key >>> 32));
+    x = ((x >>> 16) ^ x) * 0x45d9f3b;
+    x = ((x >>> 16) ^ x) * 0x45d9f3b;
+    return (x >>> 16) ^ x;
+  }
+}
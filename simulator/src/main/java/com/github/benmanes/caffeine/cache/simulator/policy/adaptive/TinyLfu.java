@@ -0,0 +1,130 @@
+/*
+ * Copyright 2015 Ben Manes. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.benmanes.caffeine.cache.simulator.policy.adaptive;
+
+import com.github.benmanes.caffeine.cache.simulator.BasicSettings;
+import com.github.benmanes.caffeine.cache.simulator.policy.LongIntHashMap;
+import com.github.benmanes.caffeine.cache.simulator.policy.NodePool;
+import com.github.benmanes.caffeine.cache.simulator.policy.Policy;
+import com.github.benmanes.caffeine.cache.simulator.policy.PolicyStats;
+import com.github.benmanes.caffeine.cache.tracing.TraceEvent;
+import com.typesafe.config.Config;
+
+/**
+ * A least-recently-used cache guarded by the TinyLFU admission policy. When the cache is full, a
+ * new entry is only admitted if its estimated frequency is higher than that of the LRU victim, so
+ * that an entry that is rarely used does not displace a more popular one. The frequencies are
+ * estimated by a sketch that is aged periodically so that popularity reflects recent history.
+ * <p>
+ * This implementation is based on
+ * <a href="http://arxiv.org/pdf/1512.00727.pdf">TinyLFU: A Highly Efficient Cache Admission
+ * Policy</a>.
+ *
+ * @author ben.manes@gmail.com (Ben Manes)
+ */
+public final class TinyLfu implements Policy {
+  static final int LIST = 0;
+
+  private final PolicyStats policyStats;
+  private final FrequencySketch sketch;
+  private final LongIntHashMap data;
+  private final boolean readThrough;
+  private final int maximumSize;
+  private final NodePool nodes;
+
+  public TinyLfu(String name, Config config) {
+    TinyLfuSettings settings = new TinyLfuSettings(config);
+    this.maximumSize = settings.maximumSize();
+    this.readThrough = settings.isReadThrough();
+    this.sketch = new FrequencySketch(maximumSize, settings.sampleMultiplier());
+    this.data = new LongIntHashMap(maximumSize);
+    this.nodes = new NodePool(1, maximumSize);
+    this.policyStats = new PolicyStats(name);
+  }
+
+  @Override
+  public PolicyStats stats() {
+    return policyStats;
+  }
+
+  @Override
+  public void record(TraceEvent event) {
+    long key = event.keyHash();
+    int node = data.get(key);
+    switch (event.action()) {
+      case WRITE:
+        if (node == LongIntHashMap.ABSENT) {
+          onMiss(key);
+        } else {
+          onHit(node);
+        }
+        break;
+      case READ:
+        if (node == LongIntHashMap.ABSENT) {
+          policyStats.recordMiss();
+          if (readThrough) {
+            onMiss(key);
+          }
+        } else {
+          onHit(node);
+        }
+        break;
+      case DELETE:
+        if (node != LongIntHashMap.ABSENT) {
+          data.remove(key);
+          nodes.free(node);
+        }
+        break;
+      default:
+        throw new UnsupportedOperationException();
+    }
+  }
+
+  private void onHit(int node) {
+    policyStats.recordHit();
+    sketch.increment(nodes.key(node));
+    nodes.moveToTail(LIST, node);
+  }
+
+  /**
+   * Admits the entry if there is free capacity or if it is more popular than the LRU victim. A
+   * rejected candidate is counted as an eviction, as it is discarded instead of the victim.
+   */
+  private void onMiss(long key) {
+    sketch.increment(key);
+    if (data.size() >= maximumSize) {
+      policyStats.recordEviction();
+      int victim = nodes.first(LIST);
+      if (sketch.frequency(key) <= sketch.frequency(nodes.key(victim))) {
+        return;
+      }
+      data.remove(nodes.key(victim));
+      nodes.free(victim);
+    }
+    int node = nodes.allocate(key);
+    data.put(key, node);
+    nodes.linkLast(LIST, node);
+  }
+
+  static final class TinyLfuSettings extends BasicSettings {
+    public TinyLfuSettings(Config config) {
+      super(config);
+    }
+    public int sampleMultiplier() {
+      return config().getInt("tiny-lfu.sample-multiplier");
+    }
+  }
+}
@@ -0,0 +1,158 @@
+/*
+ * Copyright 2015 Ben Manes. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.benmanes.caffeine.cache.simulator.policy.adaptive;
+
+import com.github.benmanes.caffeine.cache.simulator.BasicSettings;
+import com.github.benmanes.caffeine.cache.simulator.policy.LongIntHashMap;
+import com.github.benmanes.caffeine.cache.simulator.policy.NodePool;
+import com.github.benmanes.caffeine.cache.simulator.policy.Policy;
+import com.github.benmanes.caffeine.cache.simulator.policy.PolicyStats;
+import com.github.benmanes.caffeine.cache.tracing.TraceEvent;
+import com.typesafe.config.Config;
+
+/**
+ * The 2Q algorithm. A new entry is admitted into a FIFO queue (A1in) and, when evicted from it,
+ * its key is remembered in a ghost FIFO queue (A1out). An entry that is requested again while in
+ * the ghost queue is admitted into the main LRU queue (Am). This filters out entries that are only
+ * requested within a short period, such as by a scan, from displacing the frequently used entries.
+ * <p>
+ * This implementation is based on the full version of the algorithm described in
+ * <a href="http://www.vldb.org/conf/1994/P439.PDF">2Q: A Low Overhead High Performance Buffer
+ * Management Replacement Algorithm</a>.
+ *
+ * @author ben.manes@gmail.com (Ben Manes)
+ */
+public final class TwoQueue implements Policy {
+  static final int IN = 0;
+  static final int OUT = 1;
+  static final int MAIN = 2;
+
+  private final PolicyStats policyStats;
+  private final LongIntHashMap data;
+  private final boolean readThrough;
+  private final int maximumSize;
+  private final NodePool nodes;
+  private final int maxOut;
+  private final int maxIn;
+
+  public TwoQueue(String name, Config config) {
+    TwoQueueSettings settings = new TwoQueueSettings(config);
+    this.maximumSize = settings.maximumSize();
+    this.readThrough = settings.isReadThrough();
+    this.maxIn = (int) (maximumSize * settings.inFraction());
+    this.maxOut = (int) (maximumSize * settings.outFraction());
+    this.data = new LongIntHashMap(maximumSize + maxOut);
+    this.nodes = new NodePool(3, maximumSize + maxOut);
+    this.policyStats = new PolicyStats(name);
+  }
+
+  @Override
+  public PolicyStats stats() {
+    return policyStats;
+  }
+
+  @Override
+  public void record(TraceEvent event) {
+    long key = event.keyHash();
+    int node = data.get(key);
+    boolean resident = (node != LongIntHashMap.ABSENT) && (nodes.listOf(node) != OUT);
+    switch (event.action()) {
+      case WRITE:
+        if (resident) {
+          onHit(node);
+        } else {
+          onMiss(key, node);
+        }
+        break;
+      case READ:
+        if (resident) {
+          onHit(node);
+        } else {
+          policyStats.recordMiss();
+          if (readThrough) {
+            onMiss(key, node);
+          }
+        }
+        break;
+      case DELETE:
+        if (node != LongIntHashMap.ABSENT) {
+          data.remove(key);
+          nodes.free(node);
+        }
+        break;
+      default:
+        throw new UnsupportedOperationException();
+    }
+  }
+
+  /** An entry in Am is moved to the most recent position, while one in A1in is left as is. */
+  private void onHit(int node) {
+    policyStats.recordHit();
+    if (nodes.listOf(node) == MAIN) {
+      nodes.moveToTail(MAIN, node);
+    }
+  }
+
+  /**
+   * A new entry is admitted into A1in, while a ghost in A1out is promoted into Am. The ghost is
+   * unlinked before a page is reclaimed so that it cannot be discarded as the oldest in A1out.
+   */
+  private void onMiss(long key, int node) {
+    if (node == LongIntHashMap.ABSENT) {
+      reclaim();
+      node = nodes.allocate(key);
+      data.put(key, node);
+      nodes.linkLast(IN, node);
+    } else {
+      nodes.unlink(node);
+      reclaim();
+      nodes.linkLast(MAIN, node);
+    }
+  }
+
+  /** Frees a page for the new entry by evicting from A1in if over its size, or else from Am. */
+  private void reclaim() {
+    if ((nodes.size(IN) + nodes.size(MAIN)) < maximumSize) {
+      return;
+    }
+
+    policyStats.recordEviction();
+    if ((nodes.size(IN) > maxIn) || nodes.isEmpty(MAIN)) {
+      nodes.moveToTail(OUT, nodes.first(IN));
+      if (nodes.size(OUT) > maxOut) {
+        int ghost = nodes.first(OUT);
+        data.remove(nodes.key(ghost));
+        nodes.free(ghost);
+      }
+    } else {
+      int victim = nodes.first(MAIN);
+      data.remove(nodes.key(victim));
+      nodes.free(victim);
+    }
+  }
+
+  static final class TwoQueueSettings extends BasicSettings {
+    public TwoQueueSettings(Config config) {
+      super(config);
+    }
+    public double inFraction() {
+      return config().getDouble("two-queue.in-fraction");
+    }
+    public double outFraction() {
+      return config().getDouble("two-queue.out-fraction");
+    }
+  }
+}
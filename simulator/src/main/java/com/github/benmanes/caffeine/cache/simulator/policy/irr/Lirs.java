@@ -0,0 +1,282 @@
+/*
+ * Copyright 2015 Ben Manes. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.benmanes.caffeine.cache.simulator.policy.irr;
+
+import static com.google.common.base.Preconditions.checkArgument;
+
+import com.github.benmanes.caffeine.cache.simulator.BasicSettings;
+import com.github.benmanes.caffeine.cache.simulator.policy.LongIntHashMap;
+import com.github.benmanes.caffeine.cache.simulator.policy.NodePool;
+import com.github.benmanes.caffeine.cache.simulator.policy.Policy;
+import com.github.benmanes.caffeine.cache.simulator.policy.PolicyStats;
+import com.github.benmanes.caffeine.cache.tracing.TraceEvent;
+import com.typesafe.config.Config;
+
+/**
+ * Low Inter-reference Recency Set. This algorithm uses the distance between the last two requests
+ * of an entry, its inter-reference recency (IRR), to divide the cache into LIR entries with a low
+ * IRR and a small number of HIR entries with a high IRR. Only HIR entries are evicted, so an entry
+ * that is requested once, such as by a scan, cannot displace the LIR set.
+ * <p>
+ * The recency stack (S) holds the LIR entries and the HIR entries, including the keys of evicted
+ * ones, that were requested more recently than the least recent LIR entry. The queue (Q) holds the
+ * resident HIR entries in eviction order. The keys of evicted entries that remain on the stack are
+ * also kept in eviction order on a ghost queue (G), which bounds how many are retained. An entry
+ * may be on several of these lists, so it is represented by a separate node on each.
+ * <p>
+ * This implementation is based on
+ * <a href="http://web.cse.ohio-state.edu/hpcs/WWW/HTML/publications/papers/TR-02-6.pdf">LIRS: An
+ * Efficient Low Inter-reference Recency Set Replacement Policy to Improve Buffer Cache
+ * Performance</a>.
+ *
+ * @author ben.manes@gmail.com (Ben Manes)
+ */
+public final class Lirs implements Policy {
+  static final int S = 0;
+  static final int Q = 1;
+  static final int G = 2;
+
+  static final int LIR = 0;
+  static final int HIR_RESIDENT = 1;
+  static final int HIR_NON_RESIDENT = 2;
+
+  private final LongIntHashMap ghosts;
+  private final LongIntHashMap stack;
+  private final LongIntHashMap queue;
+  private final PolicyStats policyStats;
+  private final int maxNonResident;
+  private final boolean readThrough;
+  private final int maximumSize;
+  private final NodePool nodes;
+  private final int maxLir;
+
+  private int lirCount;
+
+  public Lirs(String name, Config config) {
+    LirsSettings settings = new LirsSettings(config);
+    this.maximumSize = settings.maximumSize();
+    this.readThrough = settings.isReadThrough();
+    checkArgument(maximumSize >= 2, "LIRS requires a maximum size of at least 2");
+    int maxHir = Math.min(maximumSize - 1,
+        Math.max(1, (int) (maximumSize * settings.hirFraction())));
+    this.maxNonResident = (int) (maximumSize * settings.nonResidentMultiplier());
+    this.nodes = new NodePool(3, maximumSize + 2 * maxNonResident + maxHir);
+    this.stack = new LongIntHashMap(maximumSize + maxNonResident);
+    this.ghosts = new LongIntHashMap(maxNonResident);
+    this.queue = new LongIntHashMap(maxHir);
+    this.policyStats = new PolicyStats(name);
+    this.maxLir = maximumSize - maxHir;
+  }
+
+  @Override
+  public PolicyStats stats() {
+    return policyStats;
+  }
+
+  @Override
+  public void record(TraceEvent event) {
+    long key = event.keyHash();
+    switch (event.action()) {
+      case WRITE:
+        if (isResident(key)) {
+          onHit(key);
+        } else {
+          onMiss(key);
+        }
+        break;
+      case READ:
+        if (isResident(key)) {
+          onHit(key);
+        } else {
+          policyStats.recordMiss();
+          if (readThrough) {
+            onMiss(key);
+          }
+        }
+        break;
+      case DELETE:
+        onDelete(key);
+        break;
+      default:
+        throw new UnsupportedOperationException();
+    }
+  }
+
+  /** Returns if the entry is an LIR entry or a resident HIR entry, which is always on the queue. */
+  private boolean isResident(long key) {
+    if (queue.containsKey(key)) {
+      return true;
+    }
+    int node = stack.get(key);
+    return (node != LongIntHashMap.ABSENT) && (nodes.status(node) == LIR);
+  }
+
+  private void onHit(long key) {
+    policyStats.recordHit();
+    int node = stack.get(key);
+    if ((node != LongIntHashMap.ABSENT) && (nodes.status(node) == LIR)) {
+      boolean wasBottom = (nodes.first(S) == node);
+      nodes.moveToTail(S, node);
+      if (wasBottom) {
+        prune();
+      }
+    } else if (node != LongIntHashMap.ABSENT) {
+      // A resident HIR entry with a low IRR, as it was requested again while on the stack
+      nodes.setStatus(node, LIR);
+      nodes.moveToTail(S, node);
+      nodes.free(queue.remove(key));
+      lirCount++;
+      demoteBottom();
+    } else {
+      pushHir(key);
+      nodes.moveToTail(Q, queue.get(key));
+    }
+  }
+
+  private void onMiss(long key) {
+    int node = stack.get(key);
+    if (lirCount < maxLir) {
+      // Until the LIR set is full, every entry is admitted as LIR
+      if (node == LongIntHashMap.ABSENT) {
+        node = nodes.allocate(key);
+        stack.put(key, node);
+      } else {
+        removeGhost(key);
+      }
+      nodes.setStatus(node, LIR);
+      nodes.moveToTail(S, node);
+      lirCount++;
+      return;
+    }
+
+    if ((lirCount + nodes.size(Q)) >= maximumSize) {
+      evict();
+    }
+
+    if (node == LongIntHashMap.ABSENT) {
+      pushHir(key);
+      int queued = nodes.allocate(key);
+      queue.put(key, queued);
+      nodes.linkLast(Q, queued);
+    } else {
+      // A non-resident HIR entry with a low IRR, as it was requested again while on the stack
+      removeGhost(key);
+      nodes.setStatus(node, LIR);
+      nodes.moveToTail(S, node);
+      lirCount++;
+      demoteBottom();
+    }
+    limitNonResident();
+  }
+
+  private void onDelete(long key) {
+    int queued = queue.remove(key);
+    if (queued != LongIntHashMap.ABSENT) {
+      nodes.free(queued);
+    }
+    int node = stack.remove(key);
+    if (node != LongIntHashMap.ABSENT) {
+      if (nodes.status(node) == LIR) {
+        lirCount--;
+      } else if (nodes.status(node) == HIR_NON_RESIDENT) {
+        removeGhost(key);
+      }
+      nodes.free(node);
+      prune();
+    }
+  }
+
+  /** Adds the resident HIR entry to the top of the stack. */
+  private void pushHir(long key) {
+    int node = nodes.allocate(key);
+    nodes.setStatus(node, HIR_RESIDENT);
+    nodes.linkLast(S, node);
+    stack.put(key, node);
+  }
+
+  /** Evicts the resident HIR entry at the front of the queue, keeping its key if on the stack. */
+  private void evict() {
+    policyStats.recordEviction();
+    int victim = nodes.first(Q);
+    long key = nodes.key(victim);
+    queue.remove(key);
+    nodes.free(victim);
+
+    int node = stack.get(key);
+    if (node != LongIntHashMap.ABSENT) {
+      nodes.setStatus(node, HIR_NON_RESIDENT);
+      int ghost = nodes.allocate(key);
+      nodes.linkLast(G, ghost);
+      ghosts.put(key, ghost);
+    }
+  }
+
+  /** Moves the LIR entry at the bottom of the stack to the end of the queue as a HIR entry. */
+  private void demoteBottom() {
+    int bottom = nodes.first(S);
+    long key = nodes.key(bottom);
+    stack.remove(key);
+    nodes.free(bottom);
+    lirCount--;
+
+    int queued = nodes.allocate(key);
+    queue.put(key, queued);
+    nodes.linkLast(Q, queued);
+    prune();
+  }
+
+  /** Removes the HIR entries from the bottom of the stack so that an LIR entry is at the bottom. */
+  private void prune() {
+    for (;;) {
+      int bottom = nodes.first(S);
+      if ((bottom == NodePool.NIL) || (nodes.status(bottom) == LIR)) {
+        return;
+      } else if (nodes.status(bottom) == HIR_NON_RESIDENT) {
+        removeGhost(nodes.key(bottom));
+      }
+      stack.remove(nodes.key(bottom));
+      nodes.free(bottom);
+    }
+  }
+
+  /** Discards the oldest keys of evicted entries so that the stack's size is bounded. */
+  private void limitNonResident() {
+    while (nodes.size(G) > maxNonResident) {
+      int ghost = nodes.first(G);
+      long key = nodes.key(ghost);
+      nodes.free(stack.remove(key));
+      ghosts.remove(key);
+      nodes.free(ghost);
+    }
+  }
+
+  /** Removes the key from the ghost queue when it is no longer a non-resident HIR entry. */
+  private void removeGhost(long key) {
+    nodes.free(ghosts.remove(key));
+  }
+
+  static final class LirsSettings extends BasicSettings {
+    public LirsSettings(Config config) {
+      super(config);
+    }
+    public double hirFraction() {
+      return config().getDouble("lirs.hir-fraction");
+    }
+    public double nonResidentMultiplier() {
+      return config().getDouble("lirs.non-resident-multiplier");
+    }
+  }
+}
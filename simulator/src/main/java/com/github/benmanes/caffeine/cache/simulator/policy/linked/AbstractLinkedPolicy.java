@@ -15,126 +15,148 @@
  */
 package com.github.benmanes.caffeine.cache.simulator.policy.linked;
 
-import java.util.HashMap;
-import java.util.Map;
-
-import akka.actor.ActorRef;
-import akka.actor.UntypedActor;
-import akka.dispatch.BoundedMessageQueueSemantics;
-import akka.dispatch.RequiresMessageQueue;
-
 import com.github.benmanes.caffeine.cache.simulator.BasicSettings;
-import com.github.benmanes.caffeine.cache.simulator.Simulator.Message;
+import com.github.benmanes.caffeine.cache.simulator.policy.LongIntHashMap;
+import com.github.benmanes.caffeine.cache.simulator.policy.NodePool;
+import com.github.benmanes.caffeine.cache.simulator.policy.Policy;
 import com.github.benmanes.caffeine.cache.simulator.policy.PolicyStats;
 import com.github.benmanes.caffeine.cache.tracing.TraceEvent;
-import com.google.common.base.MoreObjects;
+import com.typesafe.config.Config;
 
 /**
  * A skeletal implementation of a caching policy implemented a linked list maintained in either
- * insertion or access order.
+ * insertion or access order. The cache is bounded by either the number of entries or, if a maximum
+ * weight is configured, by the total weight of the entries as recorded by the writes.
  *
  * @author ben.manes@gmail.com (Ben Manes)
  */
-abstract class AbstractLinkedPolicy extends UntypedActor
-    implements RequiresMessageQueue<BoundedMessageQueueSemantics> {
+abstract class AbstractLinkedPolicy implements Policy {
+  /** The identifier of the only list in the node pool. */
+  static final int LIST = 0;
 
-  private final Map<Integer, Node> data;
   private final PolicyStats policyStats;
   private final EvictionPolicy policy;
-  private final int maximumSize;
-  private final Node sentinel;
+  private final LongIntHashMap data;
+  private final boolean readThrough;
+  private final boolean weighted;
+  private final long capacity;
+  private final NodePool nodes;
+
+  private long weightedSize;
 
   /**
-   * Creates an actor that delegates to an LRU, FIFO, or CLOCK based cache.
+   * Creates a policy that delegates to an LRU, FIFO, or CLOCK based cache.
    *
    * @param name the name of this policy
+   * @param config the simulator's configuration
    * @param policy the eviction policy to apply
    */
-  protected AbstractLinkedPolicy(String name, EvictionPolicy policy) {
-    BasicSettings settings = new BasicSettings(this);
-    this.maximumSize = settings.maximumSize();
+  protected AbstractLinkedPolicy(String name, Config config, EvictionPolicy policy) {
+    BasicSettings settings = new BasicSettings(config);
+    this.nodes = new NodePool(1, settings.maximumSize() + 1);
+    this.data = new LongIntHashMap(settings.maximumSize() + 1);
+    this.capacity = settings.isWeighted() ? settings.maximumWeight() : settings.maximumSize();
+    this.readThrough = settings.isReadThrough();
+    this.weighted = settings.isWeighted();
     this.policyStats = new PolicyStats(name);
-    this.data = new HashMap<>();
-    this.sentinel = new Node();
     this.policy = policy;
   }
 
   @Override
-  public void onReceive(Object msg) throws Exception {
-    if (msg instanceof TraceEvent) {
-      policyStats.stopwatch().start();
-      handleEvent((TraceEvent) msg);
-      policyStats.stopwatch().stop();
-    } else if (msg == Message.END) {
-      getSender().tell(policyStats, ActorRef.noSender());
-      getContext().stop(getSelf());
-    }
+  public PolicyStats stats() {
+    return policyStats;
   }
 
-  private void handleEvent(TraceEvent event) {
+  @Override
+  public void record(TraceEvent event) {
     switch (event.action()) {
       case WRITE:
-        if (data.containsKey(event.keyHash())) {
-          onRead(event);
+        int node = data.get(event.keyHash());
+        if (node == LongIntHashMap.ABSENT) {
+          onCreate(event);
         } else {
-          onCreateOrUpdate(event);
+          onUpdate(node, event);
         }
         break;
       case READ:
         onRead(event);
         break;
       case DELETE:
-        data.remove(event.keyHash());
+        onDelete(event);
         break;
       default:
         throw new UnsupportedOperationException();
     }
   }
 
-  private void onCreateOrUpdate(TraceEvent event) {
-    Node node = new Node(event.keyHash(), sentinel);
-    Node old = data.putIfAbsent(node.key, node);
-    if (old == null) {
-      node.appendToTail();
-      evict();
-    } else {
-      policy.onAccess(old);
-    }
+  private void onCreate(TraceEvent event) {
+    int node = nodes.allocate(event.keyHash());
+    nodes.setWeight(node, event.weight());
+    weightedSize += weigh(event.weight());
+    data.put(event.keyHash(), node);
+    nodes.linkLast(LIST, node);
+    evict();
+  }
+
+  private void onUpdate(int node, TraceEvent event) {
+    policyStats.recordWeightedHit(nodes.weight(node));
+    policy.onAccess(nodes, node);
+
+    weightedSize += weigh(event.weight()) - weigh(nodes.weight(node));
+    nodes.setWeight(node, event.weight());
+    evict();
   }
 
   private void onRead(TraceEvent event) {
-    Node node = data.get(event.keyHash());
-    if (node == null) {
-      policyStats.recordMiss();
+    int node = data.get(event.keyHash());
+    if (node == LongIntHashMap.ABSENT) {
+      policyStats.recordWeightedMiss(event.weight());
+      if (readThrough) {
+        onCreate(event);
+      }
     } else {
-      policyStats.recordHit();
-      policy.onAccess(node);
+      policyStats.recordWeightedHit(nodes.weight(node));
+      policy.onAccess(nodes, node);
+    }
+  }
+
+  private void onDelete(TraceEvent event) {
+    int node = data.remove(event.keyHash());
+    if (node != LongIntHashMap.ABSENT) {
+      weightedSize -= weigh(nodes.weight(node));
+      nodes.free(node);
     }
   }
 
-  /** Evicts while the map exceeds the maximum capacity. */
+  /** Evicts while the entries exceed the maximum capacity. */
   private void evict() {
-    while (data.size() > maximumSize) {
-      Node node = sentinel.next;
-      if (node == sentinel) {
+    while (weightedSize > capacity) {
+      int node = nodes.first(LIST);
+      if (node == NodePool.NIL) {
         return;
-      } else if (policy.onEvict(node)) {
-        policyStats.recordEviction();
-        data.remove(node.key);
-        node.remove();
+      } else if (policy.onEvict(nodes, node)) {
+        policyStats.recordWeightedEviction(nodes.weight(node));
+        weightedSize -= weigh(nodes.weight(node));
+        data.remove(nodes.key(node));
+        nodes.free(node);
       }
     }
   }
 
+  /** Returns the amount of the capacity that an entry of the given weight consumes. */
+  private long weigh(int weight) {
+    return weighted ? weight : 1;
+  }
+
   /** The replacement policy. */
   protected enum EvictionPolicy {
 
     /** Evicts entries based on insertion order. */
     FIFO() {
-      @Override void onAccess(Node node) {
+      @Override void onAccess(NodePool nodes, int node) {
         // do nothing
       }
-      @Override boolean onEvict(Node node) {
+      @Override boolean onEvict(NodePool nodes, int node) {
         return true;
       }
     },
@@ -144,13 +166,13 @@ abstract class AbstractLinkedPolicy extends UntypedActor
      * requested recently.
      */
     CLOCK() {
-      @Override void onAccess(Node node) {
-        node.marked = true;
+      @Override void onAccess(NodePool nodes, int node) {
+        nodes.setStatus(node, MARKED);
       }
-      @Override boolean onEvict(Node node) {
-        if (node.marked) {
-          node.moveToTail();
-          node.marked = false;
+      @Override boolean onEvict(NodePool nodes, int node) {
+        if (nodes.status(node) == MARKED) {
+          nodes.moveToTail(LIST, node);
+          nodes.setStatus(node, 0);
           return false;
         }
         return true;
@@ -159,129 +181,31 @@ abstract class AbstractLinkedPolicy extends UntypedActor
 
     /** Evicts entries based on how recently they are used, with the most recent evicted first. */
     MRU() {
-      @Override void onAccess(Node node) {
-        node.moveToHead();
+      @Override void onAccess(NodePool nodes, int node) {
+        nodes.moveToHead(LIST, node);
       }
-      @Override boolean onEvict(Node node) {
+      @Override boolean onEvict(NodePool nodes, int node) {
         return true;
       }
     },
 
     /** Evicts entries based on how recently they are used, with the least recent evicted first. */
     LRU() {
-      @Override void onAccess(Node node) {
-        node.moveToTail();
+      @Override void onAccess(NodePool nodes, int node) {
+        nodes.moveToTail(LIST, node);
       }
-      @Override boolean onEvict(Node node) {
+      @Override boolean onEvict(NodePool nodes, int node) {
         return true;
       }
     };
 
+    /** The node status of an entry that was requested since the clock hand last passed it. */
+    static final int MARKED = 1;
+
     /** Performs any operations required by the policy after a node was successfully retrieved. */
-    abstract void onAccess(Node node);
+    abstract void onAccess(NodePool nodes, int node);
 
     /** Determines whether to evict the node at the head of the list. */
-    abstract boolean onEvict(Node node);
-  }
-
-  /** A node on the double-linked list. */
-  static final class Node {
-    private static final Node UNLINKED = new Node();
-
-    private final Node sentinel;
-    private final Integer key;
-
-    private boolean marked;
-    private Node prev;
-    private Node next;
-
-    /** Creates a new sentinel node. */
-    public Node() {
-      this.sentinel = this;
-      this.prev = this;
-      this.next = this;
-      this.key = null;
-    }
-
-    /** Creates a new, unlinked node. */
-    public Node(Integer key, Node sentinel) {
-      this.next = UNLINKED;
-      this.prev = UNLINKED;
-      this.sentinel = sentinel;
-      this.key = key;
-    }
-
-    /** Appends the node to the tail of the list. */
-    public void appendToTail() {
-      // Allow moveToTail() to no-op
-      next = sentinel;
-
-      // Read the tail on the stack to avoid unnecessary volatile reads
-      final Node tail = sentinel.prev;
-      sentinel.prev = this;
-      tail.next = this;
-      prev = tail;
-    }
-
-    /** Removes the node from the list. */
-    public void remove() {
-      prev.next = next;
-      next.prev = prev;
-      next = UNLINKED; // mark as unlinked
-    }
-
-    /** Moves the node to the tail. */
-    public void moveToHead() {
-      if (isHead() || isUnlinked()) {
-        return;
-      }
-      // unlink
-      prev.next = next;
-      next.prev = prev;
-
-      // link
-      next = sentinel.next; // ordered for isHead()
-      prev = sentinel;
-      sentinel.next = this;
-      next.prev = this;
-    }
-
-    /** Moves the node to the tail. */
-    public void moveToTail() {
-      if (isTail() || isUnlinked()) {
-        return;
-      }
-      // unlink
-      prev.next = next;
-      next.prev = prev;
-
-      // link
-      next = sentinel; // ordered for isTail()
-      prev = sentinel.prev;
-      sentinel.prev = this;
-      prev.next = this;
-    }
-
-    /** Checks whether the node is linked on the list chain. */
-    public boolean isUnlinked() {
-      return (next == UNLINKED);
-    }
-
-    /** Checks whether the node is the first linked on the list chain. */
-    public boolean isHead() {
-      return (prev == sentinel);
-    }
-
-    /** Checks whether the node is the last linked on the list chain. */
-    public boolean isTail() {
-      return (next == sentinel);
-    }
-
-    @Override
-    public String toString() {
-      return MoreObjects.toStringHelper(this)
-          .add("marked", marked)
-          .toString();
-    }
+    abstract boolean onEvict(NodePool nodes, int node);
   }
 }
@@ -15,6 +15,8 @@
  */
 package com.github.benmanes.caffeine.cache.simulator.policy.linked;
 
+import com.typesafe.config.Config;
+
 /**
  * Implements a first-in/first-out cache based on linked nodes.
  *
@@ -22,7 +24,7 @@ package com.github.benmanes.caffeine.cache.simulator.policy.linked;
  */
 public final class Fifo extends AbstractLinkedPolicy {
 
-  public Fifo(String name) {
-    super(name, EvictionPolicy.FIFO);
+  public Fifo(String name, Config config) {
+    super(name, config, EvictionPolicy.FIFO);
   }
 }
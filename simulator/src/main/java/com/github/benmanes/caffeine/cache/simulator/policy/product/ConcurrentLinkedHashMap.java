@@ -0,0 +1,82 @@
+/*
+ * Copyright 2015 Ben Manes. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.benmanes.caffeine.cache.simulator.policy.product;
+
+import java.util.Map;
+
+import com.github.benmanes.caffeine.cache.simulator.BasicSettings;
+import com.github.benmanes.caffeine.cache.simulator.policy.Policy;
+import com.github.benmanes.caffeine.cache.simulator.policy.PolicyStats;
+import com.github.benmanes.caffeine.cache.tracing.TraceEvent;
+import com.typesafe.config.Config;
+
+/**
+ * ConcurrentLinkedHashMap, the predecessor of Caffeine's bounded cache, for comparison. It does not
+ * record statistics, so the hits and misses are determined by the result of each read.
+ *
+ * @author ben.manes@gmail.com (Ben Manes)
+ */
+public final class ConcurrentLinkedHashMap implements Policy {
+  private final PolicyStats policyStats;
+  private final Map<Long, Boolean> map;
+  private final boolean readThrough;
+
+  public ConcurrentLinkedHashMap(String name, Config config) {
+    BasicSettings settings = new BasicSettings(config);
+    this.readThrough = settings.isReadThrough();
+    this.policyStats = new PolicyStats(name);
+    this.map = new com.googlecode.concurrentlinkedhashmap.ConcurrentLinkedHashMap
+        .Builder<Long, Boolean>()
+        .maximumWeightedCapacity(settings.maximumSize())
+        .listener((key, value) -> policyStats.recordEviction())
+        .concurrencyLevel(1)
+        .build();
+  }
+
+  @Override
+  public PolicyStats stats() {
+    return policyStats;
+  }
+
+  @Override
+  public void record(TraceEvent event) {
+    Long key = event.keyHash();
+    switch (event.action()) {
+      case WRITE:
+        if (map.get(key) == null) {
+          map.put(key, Boolean.TRUE);
+        } else {
+          policyStats.recordHit();
+        }
+        break;
+      case READ:
+        if (map.get(key) == null) {
+          policyStats.recordMiss();
+          if (readThrough) {
+            map.put(key, Boolean.TRUE);
+          }
+        } else {
+          policyStats.recordHit();
+        }
+        break;
+      case DELETE:
+        map.remove(key);
+        break;
+      default:
+        throw new UnsupportedOperationException();
+    }
+  }
+}
@@ -0,0 +1,96 @@
+/*
+ * Copyright 2015 Ben Manes. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.benmanes.caffeine.cache.simulator.policy.product;
+
+import com.github.benmanes.caffeine.cache.simulator.BasicSettings;
+import com.github.benmanes.caffeine.cache.simulator.policy.Policy;
+import com.github.benmanes.caffeine.cache.simulator.policy.PolicyStats;
+import com.github.benmanes.caffeine.cache.tracing.TraceEvent;
+import com.google.common.base.Ticker;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.typesafe.config.Config;
+
+/**
+ * Guava's cache, for comparison with Caffeine. The concurrency level is one so that the maximum
+ * size is not divided across independently evicting segments.
+ *
+ * @author ben.manes@gmail.com (Ben Manes)
+ */
+public final class Guava implements Policy {
+  private final PolicyStats policyStats;
+  private final Cache<Long, Boolean> cache;
+  private final boolean readThrough;
+
+  private long ticks;
+
+  public Guava(String name, Config config) {
+    BasicSettings settings = new BasicSettings(config);
+    this.readThrough = settings.isReadThrough();
+    this.cache = CacheBuilder.newBuilder()
+        .maximumSize(settings.maximumSize())
+        .ticker(new Ticker() {
+          @Override public long read() {
+            return ticks;
+          }
+        })
+        .concurrencyLevel(1)
+        .recordStats()
+        .build();
+    this.policyStats = new PolicyStats(name);
+  }
+
+  @Override
+  public PolicyStats stats() {
+    return policyStats;
+  }
+
+  @Override
+  public void record(TraceEvent event) {
+    Long key = event.keyHash();
+    ticks = event.timestamp();
+    switch (event.action()) {
+      case WRITE:
+        if (cache.asMap().containsKey(key)) {
+          cache.getIfPresent(key);
+          policyStats.recordHit();
+        } else {
+          cache.put(key, Boolean.TRUE);
+        }
+        break;
+      case READ:
+        if (cache.getIfPresent(key) != null) {
+          policyStats.recordHit();
+        } else {
+          policyStats.recordMiss();
+          if (readThrough) {
+            cache.put(key, Boolean.TRUE);
+          }
+        }
+        break;
+      case DELETE:
+        cache.invalidate(key);
+        break;
+      default:
+        throw new UnsupportedOperationException();
+    }
+  }
+
+  @Override
+  public void finished() {
+    policyStats.recordEvictions(cache.stats().evictionCount());
+  }
+}
@@ -15,11 +15,10 @@
  */
 package com.github.benmanes.caffeine.cache.simulator.policy.sampled;
 
-import java.util.ArrayDeque;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
-import java.util.Deque;
+import java.util.Comparator;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
@@ -27,71 +26,80 @@ import java.util.Map;
 import java.util.Set;
 
 import scala.concurrent.forkjoin.ThreadLocalRandom;
-import akka.actor.ActorRef;
-import akka.actor.UntypedActor;
-import akka.dispatch.BoundedMessageQueueSemantics;
-import akka.dispatch.RequiresMessageQueue;
 
-import com.github.benmanes.caffeine.cache.simulator.Simulator.Message;
+import com.github.benmanes.caffeine.cache.simulator.policy.LongIntHashMap;
+import com.github.benmanes.caffeine.cache.simulator.policy.Policy;
 import com.github.benmanes.caffeine.cache.simulator.policy.PolicyStats;
 import com.github.benmanes.caffeine.cache.tracing.TraceEvent;
 import com.google.common.base.MoreObjects;
+import com.typesafe.config.Config;
 
 /**
- * A skeletal implementation of a caching policy implemented a sampled array of entries.
+ * A skeletal implementation of a caching policy implemented a sampled array of entries. The nodes
+ * are preallocated and kept densely packed at the front of the table, so that a sample is chosen in
+ * time proportional to its size, and the table index of each key is held in a primitive hash table.
+ * The cache is bounded by either the number of entries or, if a maximum weight is configured, by
+ * the total weight of the entries as recorded by the writes, in which case the table grows as
+ * needed.
  *
  * @author ben.manes@gmail.com (Ben Manes)
  */
-abstract class AbstractSamplingPolicy extends UntypedActor
-    implements RequiresMessageQueue<BoundedMessageQueueSemantics> {
-  private final Map<Integer, Node> data;
+abstract class AbstractSamplingPolicy implements Policy {
   private final PolicyStats policyStats;
   private final EvictionPolicy policy;
   private final Sample sampleStrategy;
-  private final Deque<Integer> free;
+  private final EvictionPool pool;
+  private final LongIntHashMap data;
+  private final boolean readThrough;
+  private final boolean weighted;
   private final int sampleSize;
-  private final Node[] table;
+  private final long capacity;
+
+  private long weightedSize;
+  private Node[] table;
+  private int size;
 
   /**
-   * Creates an actor that delegates to an LRU, FIFO, or RANDOM based cache.
+   * Creates a policy that delegates to an LRU, FIFO, or RANDOM based cache.
    *
    * @param name the name of this policy
+   * @param config the simulator's configuration
    * @param policy the eviction policy to apply
    */
-  protected AbstractSamplingPolicy(String name, EvictionPolicy policy) {
-    SamplingSettings settings = new SamplingSettings(this);
+  protected AbstractSamplingPolicy(String name, Config config, EvictionPolicy policy) {
+    SamplingSettings settings = new SamplingSettings(config);
     this.sampleStrategy = settings.sampleStrategy();
     this.policyStats = new PolicyStats(name);
+    this.capacity = settings.isWeighted() ? settings.maximumWeight() : settings.maximumSize();
+    this.data = new LongIntHashMap(settings.maximumSize());
+    this.readThrough = settings.isReadThrough();
+    this.weighted = settings.isWeighted();
     this.sampleSize = settings.sampleSize();
-    this.data = new HashMap<>();
     this.policy = policy;
+    this.pool = (sampleStrategy == Sample.POOL)
+        ? new EvictionPool(policy, settings.poolSize())
+        : null;
 
-    this.free = new ArrayDeque<Integer>(settings.maximumSize());
     this.table = new Node[settings.maximumSize()];
-    for (int i = 0; i < settings.maximumSize(); i++) {
-      free.add(i);
+    for (int i = 0; i < table.length; i++) {
+      table[i] = new Node();
     }
   }
 
   @Override
-  public void onReceive(Object msg) throws Exception {
-    if (msg instanceof TraceEvent) {
-      policyStats.stopwatch().start();
-      handleEvent((TraceEvent) msg);
-      policyStats.stopwatch().stop();
-    } else if (msg == Message.END) {
-      getSender().tell(policyStats, ActorRef.noSender());
-      getContext().stop(getSelf());
-    }
+  public PolicyStats stats() {
+    return policyStats;
   }
 
-  private void handleEvent(TraceEvent event) {
+  @Override
+  public void record(TraceEvent event) {
     switch (event.action()) {
       case WRITE:
-        if (data.containsKey(event.keyHash())) {
-          onRead(event);
+        int index = data.get(event.keyHash());
+        if (index == LongIntHashMap.ABSENT) {
+          onCreate(event);
         } else {
-          onCreateOrUpdate(event);
+          onUpdate(table[index], event);
         }
         break;
       case READ:
@@ -105,67 +113,120 @@ abstract class AbstractSamplingPolicy extends UntypedActor
     }
   }
 
-  private void onCreateOrUpdate(TraceEvent event) {
-    Node node = data.get(event.keyHash());
-    if (node == null) {
-      evict();
-      node = new Node(event.keyHash(), free.pop());
-      data.put(event.keyHash(), node);
-      table[node.index] = node;
-    } else {
-      node.accessTime = System.nanoTime();
+  private void onCreate(TraceEvent event) {
+    evict(weigh(event.weight()));
+    if (size == table.length) {
+      growTable();
     }
+    Node node = table[size];
+    node.reset(event.keyHash(), event.weight(), size);
+    weightedSize += weigh(event.weight());
+    data.put(event.keyHash(), size);
+    size++;
+    evict(0);
+  }
+
+  private void onUpdate(Node node, TraceEvent event) {
+    node.accessTime = System.nanoTime();
+    policyStats.recordWeightedHit(node.weight);
+    node.frequency++;
+
+    weightedSize += weigh(event.weight()) - weigh(node.weight);
+    node.weight = event.weight();
+    evict(0);
   }
 
   private void onRead(TraceEvent event) {
-    Node node = data.get(event.keyHash());
-    if (node == null) {
-      policyStats.recordMiss();
+    int index = data.get(event.keyHash());
+    if (index == LongIntHashMap.ABSENT) {
+      policyStats.recordWeightedMiss(event.weight());
+      if (readThrough) {
+        onCreate(event);
+      }
     } else {
+      Node node = table[index];
       node.accessTime = System.nanoTime();
-      policyStats.recordHit();
+      policyStats.recordWeightedHit(node.weight);
       node.frequency++;
     }
   }
 
   private void onDelete(TraceEvent event) {
-    Node node = data.remove(event.keyHash());
-    if (node != null) {
-      removeFromTable(node);
+    int index = data.remove(event.keyHash());
+    if (index != LongIntHashMap.ABSENT) {
+      weightedSize -= weigh(table[index].weight);
+      removeFromTable(index);
     }
   }
 
-  /** Evicts while the map exceeds the maximum capacity. */
-  private void evict() {
-    if (free.isEmpty()) {
-      List<Node> sample = (policy == EvictionPolicy.RANDOM)
-          ? Arrays.asList(table)
-          : sampleStrategy.sample(table, sampleSize);
-      Node victim = policy.select(sample);
-      policyStats.recordEviction();
-      removeFromTable(victim);
+  /**
+   * Evicts until the entries and an incoming entry of the given weight fit within the maximum
+   * capacity. The room is made before a new entry is inserted so that it is not sampled as the
+   * victim, which is always the case for a policy that favors it, such as LFU or MRU.
+   */
+  private void evict(long incoming) {
+    while ((size > 0) && (weightedSize + incoming > capacity)) {
+      Node victim = selectVictim();
+      policyStats.recordWeightedEviction(victim.weight);
+      weightedSize -= weigh(victim.weight);
       data.remove(victim.key);
+      removeFromTable(victim.index);
     }
   }
 
-  /** Removes the node from the table and adds the index to the free list. */
-  private void removeFromTable(Node node) {
-    int last = (table.length - free.size()) - 1;
-    table[node.index] = table[last];
-    table[node.index].index = node.index;
-    table[last] = null;
-    free.push(last);
+  /** Returns the node to evict, which is chosen from a random sample of the live nodes. */
+  private Node selectVictim() {
+    if (policy == EvictionPolicy.RANDOM) {
+      return table[ThreadLocalRandom.current().nextInt(size)];
+    }
+    List<Node> sample = sampleStrategy.sample(table, size, Math.min(sampleSize, size));
+    return (pool == null) ? policy.select(sample) : pool.select(sample, size);
+  }
+
+  /** Returns the amount of the capacity that an entry of the given weight consumes. */
+  private long weigh(int weight) {
+    return weighted ? weight : 1;
+  }
+
+  /** Doubles the length of the table, which is only required when bounded by weight. */
+  private void growTable() {
+    int length = table.length;
+    table = Arrays.copyOf(table, 2 * length);
+    for (int i = length; i < table.length; i++) {
+      table[i] = new Node();
+    }
   }
 
-  /** The algorithms to choose a random sample with. */
+  /**
+   * Removes the node from the table by swapping it with the last live node, which keeps the live
+   * nodes packed and leaves the removed node at the end of the table for reuse.
+   */
+  private void removeFromTable(int index) {
+    int last = --size;
+    if (index != last) {
+      Node removed = table[index];
+      Node moved = table[last];
+      table[index] = moved;
+      table[last] = removed;
+      moved.index = index;
+      removed.index = last;
+      data.put(moved.key, index);
+    }
+  }
+
+  /**
+   * The algorithms to choose a random sample with. Each costs time proportional to the sample size,
+   * rather than to the number of entries, so that a large cache can be simulated.
+   */
   public enum Sample {
+    /** Chooses random indexes, retrying those already chosen, until the sample is full. */
     GUESS {
-      @Override public <E> List<E> sample(E[] elements, int sampleSize) {
+      @Override public <E> List<E> sample(E[] elements, int length, int sampleSize) {
         ThreadLocalRandom random = ThreadLocalRandom.current();
         Set<Integer> sampled = new HashSet<>(sampleSize);
         List<E> sample = new ArrayList<E>(sampleSize);
         while (sampled.size() != sampleSize) {
-          int index = random.nextInt(elements.length);
+          int index = random.nextInt(length);
           if (sampled.add(index)) {
             sample.add(elements[index]);
           }
@@ -173,109 +234,175 @@ abstract class AbstractSamplingPolicy extends UntypedActor
         return sample;
       }
     },
+
+    /**
+     * Reservoir sampling using Li's Algorithm L, which skips ahead by a random number of elements
+     * between the replacements rather than visiting each of them.
+     */
     RESERVOIR {
-      @Override public <E> List<E> sample(E[] elements, int sampleSize) {
+      @Override public <E> List<E> sample(E[] elements, int length, int sampleSize) {
         ThreadLocalRandom random = ThreadLocalRandom.current();
-        List<E> sample = new ArrayList<>(sampleSize);
-        int count = 0;
-        for (E e : elements) {
-          count++;
-          if (sample.size() <= sampleSize) {
-            sample.add(e);
-          } else {
-            int index = random.nextInt(count);
-            if (index < sampleSize) {
-              sample.set(index, e);
-            }
+        List<E> sample = new ArrayList<>(Arrays.asList(elements).subList(0, sampleSize));
+        double weight = Math.exp(Math.log(1.0 - random.nextDouble()) / sampleSize);
+        long index = sampleSize - 1;
+        for (;;) {
+          double skip = Math.log(1.0 - random.nextDouble()) / Math.log1p(-weight);
+          index += (long) Math.floor(skip) + 1;
+          if (index >= length) {
+            return sample;
           }
+          sample.set(random.nextInt(sampleSize), elements[(int) index]);
+          weight *= Math.exp(Math.log(1.0 - random.nextDouble()) / sampleSize);
         }
-        return sample;
       }
     },
+
+    /**
+     * A partial Fisher-Yates shuffle that stops after the sample size. The array is not modified,
+     * as the swaps are recorded in a map of the positions that they displaced.
+     */
     SHUFFLE {
-      @Override public <E> List<E> sample(E[] elements, int sampleSize) {
-        List<E> sample = new ArrayList<>(Arrays.asList(elements));
-        Collections.shuffle(sample, ThreadLocalRandom.current());
-        return sample.subList(0, sampleSize);
+      @Override public <E> List<E> sample(E[] elements, int length, int sampleSize) {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        Map<Integer, Integer> swapped = new HashMap<>(2 * sampleSize);
+        List<E> sample = new ArrayList<>(sampleSize);
+        for (int i = 0; i < sampleSize; i++) {
+          int j = i + random.nextInt(length - i);
+          int chosen = swapped.getOrDefault(j, j);
+          swapped.put(j, swapped.getOrDefault(i, i));
+          sample.add(elements[chosen]);
+        }
+        return sample;
+      }
+    },
+
+    /**
+     * Samples as {@link #GUESS} does, but each sample is merged into a pool of the best eviction
+     * candidates seen so far, as done by Redis' approximated LRU. The victim is the best candidate
+     * in the pool, so a good candidate from an earlier sample is not forgotten.
+     */
+    POOL {
+      @Override public <E> List<E> sample(E[] elements, int length, int sampleSize) {
+        return GUESS.sample(elements, length, sampleSize);
       }
     };
 
-    abstract <E> List<E> sample(E[] elements, int sampleSize);
+    /** Returns a random sample of the elements in the first {@code length} slots of the array. */
+    abstract <E> List<E> sample(E[] elements, int length, int sampleSize);
   }
 
   /** The replacement policy. */
   protected enum EvictionPolicy {
 
     /** Evicts entries based on insertion order. */
-    FIFO() {
-      @Override Node select(List<Node> sample) {
-        return sample.stream().min((first, second) ->
-            Long.compare(first.insertionTime, second.insertionTime)).get();
-      }
-    },
+    FIFO(Comparator.comparingLong(node -> node.insertionTime)),
 
     /** Evicts entries based on how recently they are used, with the least recent evicted first. */
-    LRU() {
-      @Override Node select(List<Node> sample) {
-        return sample.stream().min((first, second) ->
-            Long.compare(first.accessTime, second.accessTime)).get();
-      }
-    },
+    LRU(Comparator.comparingLong(node -> node.accessTime)),
 
-    /** Evicts entries based on how recently they are used, with the least recent evicted first. */
-    MRU() {
-      @Override Node select(List<Node> sample) {
-        return sample.stream().max((first, second) ->
-            Long.compare(first.accessTime, second.accessTime)).get();
-      }
-    },
+    /** Evicts entries based on how recently they are used, with the most recent evicted first. */
+    MRU(Comparator.comparingLong((Node node) -> node.accessTime).reversed()),
 
     /**
      * Evicts entries based on how frequently they are used, with the least frequent evicted first.
      */
-    LFU() {
-      @Override Node select(List<Node> sample) {
-        return sample.stream().min((first, second) ->
-            Long.compare(first.frequency, second.frequency)).get();
-      }
-    },
+    LFU(Comparator.comparingInt(node -> node.frequency)),
 
     /**
      * Evicts entries based on how frequently they are used, with the most frequent evicted first.
      */
-    MFU() {
-      @Override Node select(List<Node> sample) {
-        return sample.stream().max((first, second) ->
-            Long.compare(first.frequency, second.frequency)).get();
+    MFU(Comparator.comparingInt((Node node) -> node.frequency).reversed()),
+
+    /** Evicts a random entry, which is chosen directly rather than from a sample. */
+    RANDOM((first, second) -> 0);
+
+    private final Comparator<Node> evictionOrder;
+
+    private EvictionPolicy(Comparator<Node> evictionOrder) {
+      this.evictionOrder = evictionOrder;
+    }
+
+    /** Returns the order of the nodes, where the node that should be evicted first is the least. */
+    Comparator<Node> evictionOrder() {
+      return evictionOrder;
+    }
+
+    /** Determines which node to evict. */
+    Node select(List<Node> sample) {
+      return Collections.min(sample, evictionOrder);
+    }
+  }
+
+  /**
+   * The best eviction candidates from the recent samples, ordered by the eviction policy. A
+   * candidate is dropped once its node no longer holds the entry that it was sampled for.
+   */
+  static final class EvictionPool {
+    final Comparator<Candidate> evictionOrder;
+    final List<Candidate> candidates;
+    final int maximumSize;
+
+    EvictionPool(EvictionPolicy policy, int maximumSize) {
+      this.evictionOrder = Comparator.comparing(
+          candidate -> candidate.node, policy.evictionOrder());
+      this.candidates = new ArrayList<>(maximumSize + 1);
+      this.maximumSize = maximumSize;
+    }
+
+    /**
+     * Merges the sample into the pool and removes the best candidate.
+     *
+     * @param sample the nodes sampled from the table
+     * @param size the number of live nodes in the table
+     * @return the node to evict
+     */
+    Node select(List<Node> sample, int size) {
+      candidates.removeIf(candidate -> !candidate.isLive(size));
+      for (Node node : sample) {
+        if (candidates.stream().noneMatch(candidate -> candidate.node == node)) {
+          candidates.add(new Candidate(node));
+        }
       }
-    },
+      candidates.sort(evictionOrder);
+      if (candidates.size() > maximumSize) {
+        candidates.subList(maximumSize, candidates.size()).clear();
+      }
+      return candidates.remove(0).node;
+    }
 
-    /** Evicts a random entry. */
-    RANDOM() {
-      @Override Node select(List<Node> sample) {
-        int victim = ThreadLocalRandom.current().nextInt(sample.size());
-        return sample.get(victim);
+    /** A node in the pool and the key that it held when sampled. */
+    static final class Candidate {
+      final Node node;
+      final long key;
+
+      Candidate(Node node) {
+        this.key = node.key;
+        this.node = node;
       }
-    };
 
-    /** Determines which node to evict. */
-    abstract Node select(List<Node> sample);
+      /** Returns if the node still holds the sampled entry, as removed nodes are reused. */
+      boolean isLive(int size) {
+        return (node.key == key) && (node.index < size);
+      }
+    }
   }
 
-  /** A node on the double-linked list. */
+  /** An entry in the table, which is reused after its entry is removed. */
   static final class Node {
-    private final Integer key;
-
     private long insertionTime;
     private long accessTime;
     private int frequency;
+    private int weight;
     private int index;
+    private long key;
 
-    /** Creates a new node. */
-    public Node(Integer key, int index) {
+    /** Initializes the node for a newly inserted entry. */
+    void reset(long key, int weight, int index) {
       this.insertionTime = System.nanoTime();
       this.accessTime = insertionTime;
+      this.weight = weight;
       this.index = index;
+      this.frequency = 0;
       this.key = key;
     }
 
@@ -0,0 +1,99 @@
+/*
+ * Copyright 2015 Ben Manes. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.benmanes.caffeine.cache.simulator.report;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import com.github.benmanes.caffeine.cache.simulator.policy.PolicyStats;
+
+/**
+ * A skeletal implementation of a report that retains the results, which are written ordered by
+ * the policy's name and then by the maximum size.
+ *
+ * @author ben.manes@gmail.com (Ben Manes)
+ */
+abstract class AbstractReport implements Report {
+  private final List<Result> results;
+
+  protected AbstractReport() {
+    results = new ArrayList<>();
+  }
+
+  @Override
+  public void add(long maximumSize, PolicyStats policyStats) {
+    results.add(new Result(maximumSize, policyStats));
+  }
+
+  /** Returns if the projected latency of the requests was recorded. */
+  protected static boolean isCosted(PolicyStats policyStats) {
+    return policyStats.latencies().count() > 0;
+  }
+
+  /** Returns the latency in milliseconds. */
+  protected static double millis(double nanos) {
+    return nanos / TimeUnit.MILLISECONDS.toNanos(1);
+  }
+
+  /**
+   * Returns the projected latency of the requests in milliseconds.
+   *
+   * @param policyStats the policy's result
+   * @param percentile the percentile in (0, 1], or a negative value for the mean
+   * @return the latency, or null if the requests were not costed
+   */
+  protected static Double latencyMillis(PolicyStats policyStats, double percentile) {
+    if (!isCosted(policyStats)) {
+      return null;
+    }
+    return millis((percentile < 0)
+        ? policyStats.latencies().mean()
+        : policyStats.latencies().percentile(percentile));
+  }
+
+  /** Returns the results in the order that they should be written. */
+  protected List<Result> results() {
+    results.sort(Comparator.comparing((Result result) -> result.policyStats().name())
+        .thenComparingLong(Result::maximumSize));
+    return results;
+  }
+
+  /** The result of a policy simulation at a maximum size. */
+  static final class Result {
+    private final PolicyStats policyStats;
+    private final long maximumSize;
+
+    Result(long maximumSize, PolicyStats policyStats) {
+      this.policyStats = policyStats;
+      this.maximumSize = maximumSize;
+    }
+
+    long maximumSize() {
+      return maximumSize;
+    }
+
+    PolicyStats policyStats() {
+      return policyStats;
+    }
+
+    /** Returns the execution time in milliseconds. */
+    long executionTime() {
+      return policyStats.stopwatch().elapsed(TimeUnit.MILLISECONDS);
+    }
+  }
+}
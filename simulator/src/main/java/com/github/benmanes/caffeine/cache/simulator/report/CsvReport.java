@@ -0,0 +1,62 @@
+/*
+ * Copyright 2015 Ben Manes. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.benmanes.caffeine.cache.simulator.report;
+
+import java.io.OutputStreamWriter;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+
+import com.github.benmanes.caffeine.cache.simulator.policy.PolicyStats;
+import com.univocity.parsers.csv.CsvWriter;
+import com.univocity.parsers.csv.CsvWriterSettings;
+
+/**
+ * A comma-separated values report with a header row, which is applicable for loading into a
+ * spreadsheet or a plotting tool. The rates are fractions, the latencies are in milliseconds, and
+ * a column is empty if it is not applicable to the policy's result.
+ *
+ * @author ben.manes@gmail.com (Ben Manes)
+ */
+public final class CsvReport extends AbstractReport {
+
+  @Override
+  public void writeTo(PrintStream ps) {
+    CsvWriter writer = new CsvWriter(
+        new OutputStreamWriter(ps, StandardCharsets.UTF_8), new CsvWriterSettings());
+    writer.writeHeaders("policy", "maximum_size", "requests", "hit_rate", "byte_hit_rate",
+        "evictions", "evicted_weight", "average_latency_ms", "p50_latency_ms", "p95_latency_ms",
+        "p99_latency_ms", "p999_latency_ms", "backend_qps", "execution_time_ms");
+    for (Result result : results()) {
+      PolicyStats policyStats = result.policyStats();
+      writer.writeRow(
+          policyStats.name(),
+          result.maximumSize(),
+          policyStats.requestCount(),
+          policyStats.hitRate(),
+          (policyStats.requestWeight() == 0) ? null : policyStats.byteHitRate(),
+          policyStats.evictionCount(),
+          policyStats.evictionWeight(),
+          latencyMillis(policyStats, -1),
+          latencyMillis(policyStats, 0.5),
+          latencyMillis(policyStats, 0.95),
+          latencyMillis(policyStats, 0.99),
+          latencyMillis(policyStats, 0.999),
+          isCosted(policyStats) ? policyStats.backendQps() : null,
+          result.executionTime());
+    }
+    writer.flush();
+  }
+}
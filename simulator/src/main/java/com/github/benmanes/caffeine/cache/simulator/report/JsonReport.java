@@ -0,0 +1,96 @@
+/*
+ * Copyright 2015 Ben Manes. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.benmanes.caffeine.cache.simulator.report;
+
+import java.io.PrintStream;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import com.github.benmanes.caffeine.cache.simulator.policy.PolicyStats;
+
+/**
+ * A JSON report of an array with an object per result, which is applicable for consumption by a
+ * plotting tool. The rates are fractions, the latencies are in milliseconds, and a value is null if
+ * it is not applicable to the policy's result.
+ *
+ * @author ben.manes@gmail.com (Ben Manes)
+ */
+public final class JsonReport extends AbstractReport {
+
+  @Override
+  public void writeTo(PrintStream ps) {
+    List<Result> results = results();
+    ps.println('[');
+    for (int i = 0; i < results.size(); i++) {
+      ps.append("  ").append(toJson(fieldsOf(results.get(i))));
+      ps.println((i == results.size() - 1) ? "" : ",");
+    }
+    ps.println(']');
+  }
+
+  /** Returns the named values of the result, in the order to be written. */
+  private static Map<String, Object> fieldsOf(Result result) {
+    PolicyStats policyStats = result.policyStats();
+    Map<String, Object> fields = new LinkedHashMap<>();
+    fields.put("policy", policyStats.name());
+    fields.put("maximumSize", result.maximumSize());
+    fields.put("requests", policyStats.requestCount());
+    fields.put("hitRate", policyStats.hitRate());
+    fields.put("byteHitRate",
+        (policyStats.requestWeight() == 0) ? null : policyStats.byteHitRate());
+    fields.put("evictions", policyStats.evictionCount());
+    fields.put("evictedWeight", policyStats.evictionWeight());
+    fields.put("averageLatencyMs", latencyMillis(policyStats, -1));
+    fields.put("p50LatencyMs", latencyMillis(policyStats, 0.5));
+    fields.put("p95LatencyMs", latencyMillis(policyStats, 0.95));
+    fields.put("p99LatencyMs", latencyMillis(policyStats, 0.99));
+    fields.put("p999LatencyMs", latencyMillis(policyStats, 0.999));
+    fields.put("backendQps", isCosted(policyStats) ? policyStats.backendQps() : null);
+    fields.put("executionTimeMs", result.executionTime());
+    return fields;
+  }
+
+  /** Returns the fields as a JSON object, where a value is a string, a number, or null. */
+  static String toJson(Map<String, Object> fields) {
+    StringBuilder json = new StringBuilder("{");
+    for (Map.Entry<String, Object> field : fields.entrySet()) {
+      if (json.length() > 1) {
+        json.append(", ");
+      }
+      Object value = field.getValue();
+      json.append(quote(field.getKey())).append(": ")
+          .append((value instanceof String) ? quote((String) value) : String.valueOf(value));
+    }
+    return json.append('}').toString();
+  }
+
+  /** Returns the value as a JSON string literal. */
+  static String quote(String value) {
+    StringBuilder quoted = new StringBuilder(value.length() + 2).append('"');
+    for (int i = 0; i < value.length(); i++) {
+      char c = value.charAt(i);
+      if ((c == '"') || (c == '\\')) {
+        quoted.append('\\').append(c);
+      } else if (c < ' ') {
+        quoted.append(String.format("\\u%04x", (int) c));
+      } else {
+        quoted.append(c);
+      }
+    }
+    return quoted.append('"').toString();
+  }
+}
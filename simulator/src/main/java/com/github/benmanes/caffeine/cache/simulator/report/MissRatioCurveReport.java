@@ -0,0 +1,58 @@
+/*
+ * Copyright 2015 Ben Manes. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.benmanes.caffeine.cache.simulator.report;
+
+import java.io.PrintStream;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import com.github.benmanes.caffeine.cache.simulator.analysis.MissRatioCurve;
+import com.google.common.base.Stopwatch;
+import com.jakewharton.fliptables.FlipTable;
+
+/**
+ * A plain text report of the LRU hit rate at a range of cache sizes.
+ *
+ * @author ben.manes@gmail.com (Ben Manes)
+ */
+public final class MissRatioCurveReport {
+  private final MissRatioCurve curve;
+  private final Stopwatch stopwatch;
+  private final List<Long> sizes;
+
+  public MissRatioCurveReport(MissRatioCurve curve, List<Long> sizes, Stopwatch stopwatch) {
+    this.stopwatch = stopwatch;
+    this.curve = curve;
+    this.sizes = sizes;
+  }
+
+  /** Writes the hit and miss rate of each cache size. */
+  public void writeTo(PrintStream ps) {
+    String[] headers = { "Maximum size", "Hit rate", "Miss rate" };
+    String[][] data = new String[sizes.size()][headers.length];
+    for (int i = 0; i < sizes.size(); i++) {
+      double hitRate = curve.hitRate(sizes.get(i));
+      data[i] = new String[] {
+          String.format("%,d", sizes.get(i)),
+          String.format("%.2f %%", 100 * hitRate),
+          String.format("%.2f %%", 100 * (1 - hitRate))
+      };
+    }
+    ps.append(FlipTable.of(headers, data));
+    ps.format("Analyzed %,d requests in %,d ms%n",
+        curve.requestCount(), stopwatch.elapsed(TimeUnit.MILLISECONDS));
+  }
+}
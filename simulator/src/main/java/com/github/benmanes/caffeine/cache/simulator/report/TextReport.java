@@ -16,45 +16,47 @@
 package com.github.benmanes.caffeine.cache.simulator.report;
 
 import java.io.PrintStream;
-import java.util.ArrayList;
 import java.util.List;
-import java.util.concurrent.TimeUnit;
 
 import com.github.benmanes.caffeine.cache.simulator.policy.PolicyStats;
 import com.jakewharton.fliptables.FlipTable;
 
 /**
- * A plain text report applicable for printing to the console or a file.
+ * A plain text report applicable for printing to the console or a file. The byte hit rate is not
+ * applicable to a policy that did not record the weight of the requests, and the latency and the
+ * backend load are not applicable if the requests were not costed.
  *
  * @author ben.manes@gmail.com (Ben Manes)
  */
-public final class TextReport {
-  private final List<PolicyStats> results;
+public final class TextReport extends AbstractReport {
 
-  public TextReport() {
-    results = new ArrayList<>();
-  }
-
-  /** Adds the result of a policy simulation. */
-  public void add(PolicyStats policyStats) {
-    results.add(policyStats);
-  }
-
-  /** Writes an aggregated report. */
+  @Override
   public void writeTo(PrintStream ps) {
-    results.sort((first, second) -> first.name().compareTo(second.name()));
-
-    String[] headers = { "Policy", "Hit rate", "Evictions", "Execution time"};
+    String[] headers = { "Policy", "Maximum size", "Hit rate", "Byte hit rate", "Evictions",
+        "Evicted weight", "Average latency", "P99 latency", "Backend QPS", "Execution time"};
+    List<Result> results = results();
     String[][] data = new String[results.size()][headers.length];
     for (int i = 0; i < results.size(); i++) {
-      PolicyStats policyStats = results.get(i);
+      PolicyStats policyStats = results.get(i).policyStats();
       data[i] = new String[] {
           policyStats.name(),
+          String.format("%,d", results.get(i).maximumSize()),
           String.format("%.2f %%", 100 * policyStats.hitRate()),
+          (policyStats.requestWeight() == 0)
+              ? "n/a"
+              : String.format("%.2f %%", 100 * policyStats.byteHitRate()),
           String.format("%,d", policyStats.evictionCount()),
-          String.format("%,d ms", policyStats.stopwatch().elapsed(TimeUnit.MILLISECONDS))
+          String.format("%,d", policyStats.evictionWeight()),
+          isCosted(policyStats) ? toMillis(policyStats.latencies().mean()) : "n/a",
+          isCosted(policyStats) ? toMillis(policyStats.latencies().percentile(0.99)) : "n/a",
+          isCosted(policyStats) ? String.format("%,.1f", policyStats.backendQps()) : "n/a",
+          String.format("%,d ms", results.get(i).executionTime())
       };
     }
     ps.append(FlipTable.of(headers, data));
   }
+
+  private static String toMillis(double nanos) {
+    return String.format("%.2f ms", millis(nanos));
+  }
 }
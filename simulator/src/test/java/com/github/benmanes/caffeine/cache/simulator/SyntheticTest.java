@@ -0,0 +1,97 @@
+/*
+ * Copyright 2015 Ben Manes. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.benmanes.caffeine.cache.simulator;
+
+import static java.util.stream.Collectors.toList;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.greaterThan;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.lessThan;
+
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import org.testng.annotations.Test;
+
+import com.github.benmanes.caffeine.cache.tracing.TraceEvent;
+import com.typesafe.config.ConfigFactory;
+
+/**
+ * @author ben.manes@gmail.com (Ben Manes)
+ */
+public final class SyntheticTest {
+
+  @Test
+  public void loop() {
+    List<Long> keys = Synthetic.loop(3, 7).map(TraceEvent::keyHash).collect(toList());
+    assertThat(keys, contains(hash(0), hash(1), hash(2), hash(0), hash(1), hash(2), hash(0)));
+  }
+
+  @Test
+  public void scanMix() {
+    List<Long> keys = Synthetic.scanMix(100, 50, 200, 500)
+        .map(TraceEvent::keyHash).collect(toList());
+    for (int i = 0; i < 50; i++) {
+      assertThat(keys.get(200 + i), is(hash(100 + i)));
+      assertThat(keys.get(450 + i), is(hash(150 + i)));
+    }
+  }
+
+  @Test
+  public void driftingHotspot() {
+    List<Long> keys = Synthetic.driftingHotspot(10_000, 100, 1.0, 1_000, 5_000, 2_000)
+        .map(TraceEvent::keyHash).collect(toList());
+    Set<Long> first = new HashSet<>(keys.subList(0, 1_000));
+    Set<Long> second = new HashSet<>(keys.subList(1_000, 2_000));
+    assertThat(first.size(), is(lessThan(101)));
+    assertThat(first.contains(hash(0)), is(true));
+    assertThat(second.contains(hash(5_000)), is(true));
+    first.retainAll(second);
+    assertThat(first.isEmpty(), is(true));
+  }
+
+  @Test
+  public void phases() {
+    BasicSettings settings = new BasicSettings(ConfigFactory.parseString(
+        "caffeine.simulator.synthetic { distribution = phases, phases = ["
+            + "{ distribution = loop, events = 4, loop.length = 2 },"
+            + "{ distribution = counter, events = 3, counter.start = 10 }] }")
+        .withFallback(ConfigFactory.load()));
+    List<Long> keys = Synthetic.generate(settings).map(TraceEvent::keyHash).collect(toList());
+    assertThat(keys, contains(hash(0), hash(1), hash(0), hash(1), hash(10), hash(11), hash(12)));
+  }
+
+  @Test
+  public void hotspot() {
+    BasicSettings settings = new BasicSettings(ConfigFactory.parseString(
+        "caffeine.simulator.synthetic.distribution = hotspot").withFallback(ConfigFactory.load()));
+    assertThat(Synthetic.generate(settings).count(), is(greaterThan(0L)));
+  }
+
+  @Test(expectedExceptions = IllegalArgumentException.class)
+  public void phases_nested() {
+    BasicSettings settings = new BasicSettings(ConfigFactory.parseString(
+        "caffeine.simulator.synthetic { distribution = phases, phases = ["
+            + "{ distribution = phases }] }").withFallback(ConfigFactory.load()));
+    Synthetic.generate(settings);
+  }
+
+  private static long hash(int key) {
+    return Integer.toString(key).hashCode();
+  }
+}
@@ -0,0 +1,124 @@
+/*
+ * Copyright 2015 Ben Manes. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.benmanes.caffeine.cache.simulator.analysis;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.closeTo;
+import static org.hamcrest.Matchers.is;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Random;
+
+import org.testng.annotations.DataProvider;
+import org.testng.annotations.Test;
+
+import com.github.benmanes.caffeine.cache.tracing.TraceEvent;
+import com.github.benmanes.caffeine.cache.tracing.TraceEvent.Action;
+
+/**
+ * @author ben.manes@gmail.com (Ben Manes)
+ */
+public final class MissRatioCurveTest {
+  static final int EVENTS = 100_000;
+
+  @Test(dataProvider = "sizes")
+  public void exact(int cacheSize) {
+    MissRatioCurve curve = new MissRatioCurve(1.0, false);
+    Lru lru = new Lru(cacheSize);
+    Random random = new Random(cacheSize);
+    for (int i = 0; i < EVENTS; i++) {
+      long key = nextKey(random, 2_000);
+      curve.record(new TraceEvent(null, 0, Action.READ, key, 1, i));
+      lru.read(key);
+    }
+    assertThat(curve.requestCount(), is(lru.requests));
+    assertThat(curve.hitRate(cacheSize), is((double) lru.hits / lru.requests));
+  }
+
+  @Test
+  public void sampled() {
+    MissRatioCurve exact = new MissRatioCurve(1.0, false);
+    MissRatioCurve sampled = new MissRatioCurve(0.1, false);
+    Random random = new Random(0);
+    for (int i = 0; i < EVENTS; i++) {
+      long key = nextKey(random, 10_000);
+      TraceEvent event = new TraceEvent(null, 0, Action.READ, key, 1, i);
+      sampled.record(event);
+      exact.record(event);
+    }
+    for (int cacheSize = 500; cacheSize <= 5_000; cacheSize += 500) {
+      assertThat(sampled.hitRate(cacheSize), is(closeTo(exact.hitRate(cacheSize), 0.03)));
+    }
+  }
+
+  @Test
+  public void countWrites() {
+    MissRatioCurve ignored = new MissRatioCurve(1.0, false);
+    MissRatioCurve counted = new MissRatioCurve(1.0, true);
+    for (int i = 0; i < 10; i++) {
+      TraceEvent event = new TraceEvent(null, 0, Action.WRITE, i % 2, 1, i);
+      ignored.record(event);
+      counted.record(event);
+    }
+    assertThat(ignored.requestCount(), is(0L));
+    assertThat(counted.requestCount(), is(10L));
+    assertThat(counted.hitRate(2), is(0.8));
+    assertThat(counted.hitRate(1), is(0.0));
+  }
+
+  @Test(expectedExceptions = IllegalArgumentException.class)
+  public void badSamplingRate() {
+    new MissRatioCurve(0.0, false);
+  }
+
+  @DataProvider(name = "sizes")
+  public Object[][] providesSizes() {
+    return new Object[][] {{ 1 }, { 10 }, { 100 }, { 500 }, { 1_000 }, { 2_500 }};
+  }
+
+  /** Returns a key that is skewed towards the lower values. */
+  private static long nextKey(Random random, int keySpace) {
+    double skewed = Math.pow(random.nextDouble(), 2);
+    return (long) (skewed * keySpace);
+  }
+
+  /** A brute force LRU cache that loads the key on a miss. */
+  static final class Lru {
+    final Map<Long, Boolean> data;
+    long requests;
+    long hits;
+
+    Lru(int maximumSize) {
+      data = new LinkedHashMap<Long, Boolean>(16, 0.75f, true) {
+        private static final long serialVersionUID = 1L;
+
+        @Override protected boolean removeEldestEntry(Map.Entry<Long, Boolean> eldest) {
+          return size() > maximumSize;
+        }
+      };
+    }
+
+    void read(long key) {
+      requests++;
+      if (data.get(key) == null) {
+        data.put(key, Boolean.TRUE);
+      } else {
+        hits++;
+      }
+    }
+  }
+}
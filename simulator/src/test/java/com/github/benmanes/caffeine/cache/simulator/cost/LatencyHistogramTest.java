@@ -0,0 +1,75 @@
+/*
+ * Copyright 2015 Ben Manes. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.benmanes.caffeine.cache.simulator.cost;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.closeTo;
+import static org.hamcrest.Matchers.is;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import org.testng.annotations.DataProvider;
+import org.testng.annotations.Test;
+
+/**
+ * @author ben.manes@gmail.com (Ben Manes)
+ */
+public final class LatencyHistogramTest {
+
+  @Test
+  public void empty() {
+    LatencyHistogram histogram = new LatencyHistogram();
+    assertThat(histogram.count(), is(0L));
+    assertThat(histogram.mean(), is(0.0));
+    assertThat(histogram.percentile(0.99), is(0L));
+  }
+
+  @Test(dataProvider = "percentiles")
+  public void percentile(double percentile) {
+    Random random = new Random(0);
+    long[] latencies = new long[100_000];
+    LatencyHistogram histogram = new LatencyHistogram();
+    for (int i = 0; i < latencies.length; i++) {
+      latencies[i] = (long) (-1_000_000 * Math.log(1.0 - random.nextDouble()));
+      histogram.record(latencies[i]);
+    }
+    Arrays.sort(latencies);
+
+    long expected = latencies[(int) Math.ceil(percentile * latencies.length) - 1];
+    assertThat((double) histogram.percentile(percentile), is(closeTo(expected, 0.01 * expected)));
+    assertThat(histogram.mean(), is(Arrays.stream(latencies).average().getAsDouble()));
+  }
+
+  @Test
+  public void bucketBoundaries() {
+    for (long value : new long[] { 0, 1, 127, 128, 255, 256, 1_000_003, Long.MAX_VALUE }) {
+      int index = LatencyHistogram.indexOf(value);
+      assertThat(value <= LatencyHistogram.highestValueOf(index), is(true));
+      assertThat((index == 0) || (value > LatencyHistogram.highestValueOf(index - 1)), is(true));
+    }
+  }
+
+  @Test(expectedExceptions = IllegalArgumentException.class)
+  public void negativeLatency() {
+    new LatencyHistogram().record(-1);
+  }
+
+  @DataProvider(name = "percentiles")
+  public Object[][] providesPercentiles() {
+    return new Object[][] {{ 0.01 }, { 0.5 }, { 0.95 }, { 0.99 }, { 0.999 }, { 1.0 }};
+  }
+}
@@ -0,0 +1,131 @@
+/*
+ * Copyright 2015 Ben Manes. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.benmanes.caffeine.cache.simulator.parser;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.is;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import com.github.benmanes.caffeine.cache.simulator.parser.DecodedTrace.TraceDecoder;
+import com.github.benmanes.caffeine.cache.tracing.TraceEvent;
+import com.github.benmanes.caffeine.cache.tracing.TraceEvent.Action;
+
+/**
+ * @author ben.manes@gmail.com (Ben Manes)
+ */
+public final class DecodedTraceTest {
+  static final int EVENTS = 10_000;
+
+  Path directory;
+  Path tracePath;
+
+  @BeforeMethod
+  public void before() throws IOException {
+    directory = Files.createTempDirectory("decoded");
+    tracePath = directory.resolve("trace.log");
+    Files.write(tracePath, new byte[] { 1, 2, 3 });
+  }
+
+  @AfterMethod
+  public void after() throws IOException {
+    try (Stream<Path> files = Files.list(directory)) {
+      for (Path file : files.collect(Collectors.toList())) {
+        Files.delete(file);
+      }
+    }
+    Files.delete(directory);
+  }
+
+  @Test
+  public void decodeOnce() throws IOException {
+    List<TraceEvent> events = makeEvents();
+    AtomicInteger decodes = new AtomicInteger();
+    TraceDecoder decoder = () -> {
+      decodes.incrementAndGet();
+      return events.stream();
+    };
+
+    assertThat(read(decoder), is(equalTo(events)));
+    assertThat(read(decoder), is(equalTo(events)));
+    assertThat(decodes.get(), is(1));
+    try (Stream<Path> files = Files.list(directory)) {
+      assertThat(files.count(), is(2L));
+    }
+  }
+
+  @Test
+  public void decode_stale() throws IOException {
+    AtomicInteger decodes = new AtomicInteger();
+    TraceDecoder decoder = () -> {
+      decodes.incrementAndGet();
+      return makeEvents().stream();
+    };
+
+    read(decoder);
+    Files.setLastModifiedTime(tracePath, FileTime.fromMillis(0L));
+    read(decoder);
+    assertThat(decodes.get(), is(2));
+  }
+
+  @Test
+  public void decode_corrupt() throws IOException {
+    List<TraceEvent> events = makeEvents();
+    read(events::stream);
+
+    Path decodedPath = DecodedTrace.decodedPathFor(tracePath);
+    byte[] bytes = Files.readAllBytes(decodedPath);
+    Files.write(decodedPath, Arrays.copyOf(bytes, bytes.length - 1));
+    assertThat(read(events::stream), is(equalTo(events)));
+  }
+
+  @Test
+  public void decode_empty() throws IOException {
+    assertThat(read(Stream::empty).isEmpty(), is(true));
+  }
+
+  private List<TraceEvent> read(TraceDecoder decoder) throws IOException {
+    try (Stream<TraceEvent> events = DecodedTrace.stream(tracePath, "text", decoder)) {
+      return events.collect(Collectors.toList());
+    }
+  }
+
+  private static List<TraceEvent> makeEvents() {
+    Random random = new Random(0);
+    Action[] actions = { Action.READ, Action.WRITE, Action.DELETE };
+    List<TraceEvent> events = new ArrayList<>(EVENTS);
+    for (int i = 0; i < EVENTS; i++) {
+      events.add(new TraceEvent(null, 0, actions[random.nextInt(actions.length)],
+          random.nextLong(), random.nextInt(100), i));
+    }
+    return events;
+  }
+}
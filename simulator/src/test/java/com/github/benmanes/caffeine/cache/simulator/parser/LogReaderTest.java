@@ -17,12 +17,17 @@ package com.github.benmanes.caffeine.cache.simulator.parser;
 
 import static org.hamcrest.MatcherAssert.assertThat;
 import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.greaterThan;
 import static org.hamcrest.Matchers.is;
 
+import java.io.OutputStream;
+import java.nio.file.Files;
 import java.nio.file.Path;
 import java.util.List;
+import java.util.concurrent.TimeUnit;
 import java.util.function.Function;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 import org.testng.annotations.Test;
 
@@ -30,6 +35,7 @@ import com.github.benmanes.caffeine.cache.simulator.Synthetic;
 import com.github.benmanes.caffeine.cache.tracing.TraceEvent;
 import com.github.benmanes.caffeine.cache.tracing.async.BinaryLogEventHandler;
 import com.github.benmanes.caffeine.cache.tracing.async.LogEventHandler;
+import com.github.benmanes.caffeine.cache.tracing.async.RollingFileOutputStream;
 import com.github.benmanes.caffeine.cache.tracing.async.TextLogEventHandler;
 import com.google.common.jimfs.Jimfs;
 
@@ -55,6 +61,37 @@ public final class LogReaderTest {
     assertThat(read, is(equalTo(events)));
   }
 
+  @Test
+  public void readRolledTextLog() throws Exception {
+    List<TraceEvent> events = makeEvents();
+    Path indexPath = eventsAsRolledLog(events, Integer.MAX_VALUE, TextLogEventHandler::new);
+    assertThat(RollingFileOutputStream.readIndex(indexPath).size(), is(greaterThan(1)));
+    List<TraceEvent> read = LogReader.textLogStream(indexPath).collect(Collectors.toList());
+    assertThat(read, is(equalTo(events)));
+  }
+
+  @Test
+  public void readRolledBinaryLog() throws Exception {
+    List<TraceEvent> events = makeEvents();
+    Path indexPath = eventsAsRolledLog(events, Integer.MAX_VALUE, BinaryLogEventHandler::new);
+    List<TraceEvent> read = LogReader.binaryLogStream(indexPath).collect(Collectors.toList());
+    assertThat(read, is(equalTo(events)));
+  }
+
+  @Test
+  public void readRolledLog_bounded() throws Exception {
+    List<TraceEvent> events = makeEvents();
+    Path indexPath = eventsAsRolledLog(events, 2, BinaryLogEventHandler::new);
+    List<Path> files = RollingFileOutputStream.readIndex(indexPath);
+    try (Stream<Path> listing = Files.list(indexPath.toAbsolutePath().getParent())) {
+      assertThat(listing.filter(path -> !path.endsWith(indexPath)).count(), is(2L));
+    }
+    assertThat(files.size(), is(2));
+
+    List<TraceEvent> read = LogReader.binaryLogStream(indexPath).collect(Collectors.toList());
+    assertThat(read, is(equalTo(events.subList(events.size() - read.size(), events.size()))));
+  }
+
   private List<TraceEvent> makeEvents() {
     return Synthetic.counter(0, FILE_SIZE).collect(Collectors.toList());
   }
@@ -69,4 +106,16 @@ public final class LogReaderTest {
     handler.close();
     return path;
   }
+
+  private Path eventsAsRolledLog(List<TraceEvent> events, int maxFiles,
+      Function<OutputStream, LogEventHandler> handlerFun) throws Exception {
+    Path path = Jimfs.newFileSystem().getPath("caffeine.log");
+    LogEventHandler handler = handlerFun.apply(
+        new RollingFileOutputStream(path, 1_024, 0, TimeUnit.MILLISECONDS, maxFiles));
+    for (TraceEvent event : events) {
+      handler.onEvent(event, 1, true);
+    }
+    handler.close();
+    return RollingFileOutputStream.indexPathFor(path);
+  }
 }
@@ -0,0 +1,115 @@
+/*
+ * Copyright 2015 Ben Manes. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.benmanes.caffeine.cache.simulator.parser;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.is;
+
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Iterator;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import java.util.zip.GZIPOutputStream;
+
+import org.testng.annotations.Test;
+
+import com.github.benmanes.caffeine.cache.tracing.TraceEvent;
+import com.github.benmanes.caffeine.cache.tracing.TraceEvent.Action;
+import com.google.common.jimfs.Jimfs;
+
+/**
+ * @author ben.manes@gmail.com (Ben Manes)
+ */
+public final class TraceReaderTest {
+
+  @Test
+  public void readArcTrace() throws Exception {
+    Path filePath = traceFile("trace.arc", "10 3 0 1\n\n500 1 0 2\r\n");
+    List<TraceEvent> events = read(TraceReader.arcTraceStream(filePath));
+    assertThat(events.stream().map(TraceEvent::keyHash).collect(Collectors.toList()),
+        contains(10L, 11L, 12L, 500L));
+    assertThat(events.stream().allMatch(event -> event.action() == Action.READ), is(true));
+  }
+
+  @Test
+  public void exhausted() throws Exception {
+    Path filePath = traceFile("trace.lirs", "1\n");
+    Iterator<TraceEvent> iterator = TraceReader.lirsTraceStream(filePath).iterator();
+    assertThat(iterator.next().keyHash(), is(1L));
+    assertThat(iterator.hasNext(), is(false));
+    assertThat(iterator.hasNext(), is(false));
+  }
+
+  @Test
+  public void readLirsTrace() throws Exception {
+    Path filePath = traceFile("trace.lirs", "7\n3\n*\n7\n");
+    List<TraceEvent> events = read(TraceReader.lirsTraceStream(filePath));
+    assertThat(events.stream().map(TraceEvent::keyHash).collect(Collectors.toList()),
+        contains(7L, 3L, 7L));
+  }
+
+  @Test
+  public void readUMassTrace() throws Exception {
+    Path filePath = traceFile("trace.spc", "0,100,1024,r,0.5\n1,100,512,W,1.25\n");
+    List<TraceEvent> events = read(TraceReader.umassTraceStream(filePath));
+    assertThat(events.stream().map(TraceEvent::keyHash).collect(Collectors.toList()),
+        contains(100L, 101L, (1L << 48) ^ 100L));
+    assertThat(events.stream().map(TraceEvent::action).collect(Collectors.toList()),
+        contains(Action.READ, Action.READ, Action.WRITE));
+    assertThat(events.get(2).timestamp(), is(1_250_000_000L));
+    assertThat(events.get(2).weight(), is(TraceReader.UMASS_BLOCK_SIZE));
+  }
+
+  @Test
+  public void readWikipediaTrace() throws Exception {
+    Path filePath = traceFile("trace.wiki.gz", String.join("\n",
+        "1 1190146243.326 http://en.wikipedia.org/wiki/Cache -",
+        "2 1190146243.500 http://en.wikipedia.org/wiki/Cache save",
+        "3 1190146244.000 http://en.wikipedia.org/wiki/LIRS -"));
+    List<TraceEvent> events = read(TraceReader.wikipediaTraceStream(filePath));
+    assertThat(events.stream().map(TraceEvent::action).collect(Collectors.toList()),
+        contains(Action.READ, Action.DELETE, Action.READ));
+    assertThat(events.get(0).keyHash(), is(events.get(1).keyHash()));
+    assertThat(events.get(0).keyHash() == events.get(2).keyHash(), is(false));
+  }
+
+  @Test(expectedExceptions = IllegalStateException.class)
+  public void malformedTrace() throws Exception {
+    Path filePath = traceFile("trace.arc", "10 x 0 1\n");
+    read(TraceReader.arcTraceStream(filePath));
+  }
+
+  private static List<TraceEvent> read(Stream<TraceEvent> events) {
+    try (Stream<TraceEvent> stream = events) {
+      return stream.collect(Collectors.toList());
+    }
+  }
+
+  private static Path traceFile(String fileName, String contents) throws Exception {
+    Path filePath = Jimfs.newFileSystem().getPath(fileName);
+    try (OutputStream output = fileName.endsWith(".gz")
+        ? new GZIPOutputStream(Files.newOutputStream(filePath))
+        : Files.newOutputStream(filePath)) {
+      output.write(contents.getBytes(StandardCharsets.UTF_8));
+    }
+    return filePath;
+  }
+}
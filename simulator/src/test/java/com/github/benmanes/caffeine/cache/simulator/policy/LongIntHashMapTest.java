@@ -0,0 +1,76 @@
+/*
+ * Copyright 2015 Ben Manes. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.benmanes.caffeine.cache.simulator.policy;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.is;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+import org.testng.annotations.DataProvider;
+import org.testng.annotations.Test;
+
+/**
+ * @author ben.manes@gmail.com (Ben Manes)
+ */
+public final class LongIntHashMapTest {
+
+  @Test(dataProvider = "keySpaces")
+  public void randomOperations(int keySpace) {
+    Random random = new Random(keySpace);
+    Map<Long, Integer> expected = new HashMap<>();
+    LongIntHashMap map = new LongIntHashMap(16);
+    for (int i = 0; i < 100_000; i++) {
+      long key = random.nextInt(keySpace);
+      switch (random.nextInt(3)) {
+        case 0:
+          int value = random.nextInt(Integer.MAX_VALUE);
+          Integer previous = expected.put(key, value);
+          assertThat(map.put(key, value), is(valueOf(previous)));
+          break;
+        case 1:
+          Integer removed = expected.remove(key);
+          assertThat(map.remove(key), is(valueOf(removed)));
+          break;
+        default:
+          assertThat(map.get(key), is(valueOf(expected.get(key))));
+      }
+      assertThat(map.size(), is(expected.size()));
+    }
+    for (Map.Entry<Long, Integer> entry : expected.entrySet()) {
+      assertThat(map.get(entry.getKey()), is(entry.getValue().intValue()));
+    }
+    map.clear();
+    assertThat(map.size(), is(0));
+    assertThat(map.containsKey(0L), is(false));
+  }
+
+  @Test(expectedExceptions = IllegalArgumentException.class)
+  public void put_negativeValue() {
+    new LongIntHashMap(16).put(1L, -1);
+  }
+
+  private static int valueOf(Integer value) {
+    return (value == null) ? LongIntHashMap.ABSENT : value;
+  }
+
+  @DataProvider(name = "keySpaces")
+  public Object[][] providesKeySpaces() {
+    return new Object[][] { { 10 }, { 1_000 }, { 100_000 } };
+  }
+}
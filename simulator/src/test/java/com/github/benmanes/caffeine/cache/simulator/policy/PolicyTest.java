@@ -0,0 +1,238 @@
+/*
+ * Copyright 2015 Ben Manes. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.benmanes.caffeine.cache.simulator.policy;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.both;
+import static org.hamcrest.Matchers.greaterThan;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.lessThan;
+
+import java.util.Random;
+import java.util.function.Supplier;
+import java.util.stream.LongStream;
+import java.util.stream.Stream;
+
+import org.joor.Reflect;
+import org.testng.annotations.DataProvider;
+import org.testng.annotations.Test;
+
+import com.github.benmanes.caffeine.cache.simulator.BasicSettings;
+import com.github.benmanes.caffeine.cache.simulator.Synthetic;
+import com.github.benmanes.caffeine.cache.tracing.TraceEvent;
+import com.github.benmanes.caffeine.cache.tracing.TraceEvent.Action;
+import com.typesafe.config.Config;
+import com.typesafe.config.ConfigFactory;
+
+/**
+ * @author ben.manes@gmail.com (Ben Manes)
+ */
+public final class PolicyTest {
+  static final int KEY_SPACE = 2_000;
+  static final int EVENTS = 200_000;
+
+  @Test(dataProvider = "policies")
+  public void replay(String name) {
+    Config config = ConfigFactory.load();
+    Policy policy = Reflect.on(Policy.class.getPackage().getName() + "." + name)
+        .create(name, config).get();
+
+    Random random = new Random(name.hashCode());
+    for (int i = 0; i < EVENTS; i++) {
+      long key = random.nextInt(KEY_SPACE);
+      int roll = random.nextInt(10);
+      Action action = (roll < 6) ? Action.READ : ((roll < 9) ? Action.WRITE : Action.DELETE);
+      policy.record(new TraceEvent(null, 0, action, key, 1, i));
+    }
+    policy.finished();
+
+    PolicyStats stats = policy.stats();
+    assertThat(stats.requestCount(), is(greaterThan(0L)));
+    assertThat(stats.hitRate(), is(both(greaterThan(0.0)).and(lessThan(1.0))));
+    assertThat(stats.evictionCount(), is(greaterThan(0L)));
+  }
+
+  @Test(dataProvider = "policies")
+  public void replay_readThrough(String name) {
+    Config config = ConfigFactory.parseString(
+        "caffeine.simulator { source = file, file.format = lirs }")
+        .withFallback(ConfigFactory.load());
+    Policy policy = Reflect.on(Policy.class.getPackage().getName() + "." + name)
+        .create(name, config).get();
+
+    Random random = new Random(name.hashCode());
+    for (int i = 0; i < EVENTS; i++) {
+      long key = random.nextInt(KEY_SPACE);
+      policy.record(new TraceEvent(null, 0, Action.READ, key, 1, i));
+    }
+    policy.finished();
+
+    PolicyStats stats = policy.stats();
+    assertThat(stats.requestCount(), is((long) EVENTS));
+    assertThat(stats.hitRate(), is(both(greaterThan(0.0)).and(lessThan(1.0))));
+    assertThat(stats.evictionCount(), is(greaterThan(0L)));
+  }
+
+  @Test(dataProvider = "weightedPolicies")
+  public void replay_weighted(String name) {
+    Config config = ConfigFactory.parseString("caffeine.simulator.maximum-weight = 2500")
+        .withFallback(ConfigFactory.load());
+    Policy policy = Reflect.on(Policy.class.getPackage().getName() + "." + name)
+        .create(name, config).get();
+
+    Random random = new Random(name.hashCode());
+    for (int i = 0; i < EVENTS; i++) {
+      long key = random.nextInt(KEY_SPACE);
+      Action action = random.nextBoolean() ? Action.READ : Action.WRITE;
+      policy.record(new TraceEvent(null, 0, action, key, 1 + (int) (key % 10), i));
+    }
+
+    PolicyStats stats = policy.stats();
+    assertThat(stats.byteHitRate(), is(both(greaterThan(0.0)).and(lessThan(1.0))));
+    assertThat(stats.evictionWeight(), is(greaterThan(stats.evictionCount())));
+  }
+
+  @Test(dataProvider = "scanResistantPolicies")
+  public void scanResistance(String name) {
+    Supplier<Stream<TraceEvent>> trace = () -> Synthetic.scanMix(600, 2_000, 4_000, EVENTS);
+    PolicyStats lru = replay("linked.Lru", trace.get());
+    PolicyStats policy = replay(name, trace.get());
+    assertThat(policy.hitRate(), is(greaterThan(lru.hitRate() + 0.03)));
+  }
+
+  @Test(dataProvider = "loopResistantPolicies")
+  public void loop(String name) {
+    PolicyStats lru = replay("linked.Lru", Synthetic.loop(600, EVENTS));
+    PolicyStats policy = replay(name, Synthetic.loop(600, EVENTS));
+    assertThat(lru.hitCount(), is(0L));
+    assertThat(policy.hitRate(), is(greaterThan(0.5)));
+  }
+
+  @Test(dataProvider = "frequencyAwarePolicies")
+  public void oneHitWonders(String name) {
+    assertThat(hotHitsAfterOneHitWonders("linked.Lru"), is(0L));
+    assertThat(hotHitsAfterOneHitWonders(name), is(greaterThan(490L)));
+  }
+
+  @Test(dataProvider = "sampledPolicies")
+  public void sampled_admitsNewEntry(String name) {
+    Policy policy = newPolicy(name, ConfigFactory.load());
+    int maximumSize = new BasicSettings(ConfigFactory.load()).maximumSize();
+    LongStream.range(0, maximumSize).mapToObj(PolicyTest::write).forEach(policy::record);
+    LongStream.range(0, maximumSize).mapToObj(PolicyTest::read).forEach(policy::record);
+
+    // The new entry is the least frequently and the most recently used, but is not the victim
+    for (long key = maximumSize; key < 2 * maximumSize; key++) {
+      policy.record(write(key));
+      policy.record(read(key));
+    }
+    assertThat(policy.stats().hitCount(), is(2L * maximumSize));
+  }
+
+  @Test
+  public void twoQueue_promoteOldestGhost() {
+    Config config = ConfigFactory.parseString("caffeine.simulator { maximum-size = 4, "
+        + "two-queue { in-fraction = 0.25, out-fraction = 0.5 } }")
+        .withFallback(ConfigFactory.load());
+    Policy policy = newPolicy("adaptive.TwoQueue", config);
+
+    // A1in holds 4..7 and the oldest ghost in A1out is 2, which is then promoted while A1in is full
+    LongStream.rangeClosed(1, 7).mapToObj(PolicyTest::write).forEach(policy::record);
+    policy.record(write(2));
+    LongStream.rangeClosed(8, 20).mapToObj(PolicyTest::write).forEach(policy::record);
+    policy.record(read(2));
+
+    assertThat(policy.stats().hitCount(), is(1L));
+  }
+
+  /**
+   * Reads a hot set that fills the cache three times, then floods the cache with keys that are
+   * each read once, and returns the number of hot keys that still hit afterwards.
+   */
+  static long hotHitsAfterOneHitWonders(String name) {
+    Policy policy = newPolicy(name, ConfigFactory.load());
+    int maximumSize = new BasicSettings(ConfigFactory.load()).maximumSize();
+    for (int i = 0; i < 3; i++) {
+      LongStream.range(0, maximumSize).mapToObj(PolicyTest::read).forEach(policy::record);
+    }
+    LongStream.range(2 * maximumSize, 6 * maximumSize)
+        .mapToObj(PolicyTest::read).forEach(policy::record);
+
+    long hits = policy.stats().hitCount();
+    LongStream.range(0, maximumSize).mapToObj(PolicyTest::read).forEach(policy::record);
+    return policy.stats().hitCount() - hits;
+  }
+
+  static TraceEvent read(long key) {
+    return new TraceEvent(null, 0, Action.READ, key, 1, 0L);
+  }
+
+  static TraceEvent write(long key) {
+    return new TraceEvent(null, 0, Action.WRITE, key, 1, 0L);
+  }
+
+  static PolicyStats replay(String name, Stream<TraceEvent> events) {
+    Policy policy = newPolicy(name, ConfigFactory.load());
+    events.forEach(policy::record);
+    policy.finished();
+    return policy.stats();
+  }
+
+  static Policy newPolicy(String name, Config config) {
+    return Reflect.on(Policy.class.getPackage().getName() + "." + name).create(name, config).get();
+  }
+
+  @DataProvider(name = "scanResistantPolicies")
+  public Object[][] providesScanResistantPolicies() {
+    return new Object[][] {
+        { "adaptive.Arc" }, { "adaptive.TwoQueue" }, { "irr.Lirs" }, { "adaptive.TinyLfu" }};
+  }
+
+  /** ARC is excluded, as a loop larger than the cache thrashes both of its lists like LRU. */
+  @DataProvider(name = "loopResistantPolicies")
+  public Object[][] providesLoopResistantPolicies() {
+    return new Object[][] {{ "adaptive.TwoQueue" }, { "irr.Lirs" }, { "adaptive.TinyLfu" }};
+  }
+
+  /**
+   * 2Q is excluded, as it does not promote an entry that is re-read while still in its A1in queue,
+   * so a hot set that is read in quick succession is flushed like LRU.
+   */
+  @DataProvider(name = "frequencyAwarePolicies")
+  public Object[][] providesFrequencyAwarePolicies() {
+    return new Object[][] {{ "adaptive.Arc" }, { "irr.Lirs" }, { "adaptive.TinyLfu" }};
+  }
+
+  @DataProvider(name = "sampledPolicies")
+  public Object[][] providesSampledPolicies() {
+    return new Object[][] {{ "sampled.Lfu" }, { "sampled.Mru" }};
+  }
+
+  @DataProvider(name = "policies")
+  public Object[][] providesPolicies() {
+    return new BasicSettings(ConfigFactory.load()).policies().stream()
+        .map(policy -> new Object[] { policy })
+        .toArray(Object[][]::new);
+  }
+
+  @DataProvider(name = "weightedPolicies")
+  public Object[][] providesWeightedPolicies() {
+    return new BasicSettings(ConfigFactory.load()).policies().stream()
+        .filter(policy -> policy.startsWith("linked.") || policy.startsWith("sampled."))
+        .map(policy -> new Object[] { policy })
+        .toArray(Object[][]::new);
+  }
+}
@@ -0,0 +1,94 @@
+/*
+ * Copyright 2015 Ben Manes. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.benmanes.caffeine.cache.simulator.policy.sampled;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.both;
+import static org.hamcrest.Matchers.greaterThan;
+import static org.hamcrest.Matchers.hasSize;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.lessThan;
+
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.stream.IntStream;
+
+import org.testng.annotations.DataProvider;
+import org.testng.annotations.Test;
+
+import com.github.benmanes.caffeine.cache.simulator.policy.PolicyStats;
+import com.github.benmanes.caffeine.cache.simulator.policy.sampled.AbstractSamplingPolicy.Sample;
+import com.github.benmanes.caffeine.cache.tracing.TraceEvent;
+import com.github.benmanes.caffeine.cache.tracing.TraceEvent.Action;
+import com.typesafe.config.ConfigFactory;
+
+/**
+ * @author ben.manes@gmail.com (Ben Manes)
+ */
+public final class SampleTest {
+  static final int SAMPLES = 100_000;
+
+  @Test(dataProvider = "strategies")
+  public void sample_uniform(Sample strategy) {
+    Integer[] elements = IntStream.range(0, 20).boxed().toArray(Integer[]::new);
+    int length = 10;
+    int sampleSize = 3;
+
+    int[] counts = new int[length];
+    for (int i = 0; i < SAMPLES; i++) {
+      List<Integer> sample = strategy.sample(elements, length, sampleSize);
+      assertThat(sample, hasSize(sampleSize));
+      assertThat(new HashSet<>(sample), hasSize(sampleSize));
+      sample.forEach(element -> counts[element]++);
+    }
+
+    double expected = (double) SAMPLES * sampleSize / length;
+    for (int count : counts) {
+      assertThat(count / expected, is(both(greaterThan(0.95)).and(lessThan(1.05))));
+    }
+  }
+
+  @Test(dataProvider = "strategies")
+  public void sample_all(Sample strategy) {
+    Integer[] elements = { 1, 2, 3 };
+    List<Integer> sample = strategy.sample(elements, elements.length, elements.length);
+    assertThat(new HashSet<>(sample), hasSize(elements.length));
+  }
+
+  @Test(dataProvider = "strategies")
+  public void replay(Sample strategy) {
+    Lru policy = new Lru("sampled.Lru", ConfigFactory.parseString(
+        "caffeine.simulator.sampling.strategy = " + strategy.name().toLowerCase())
+        .withFallback(ConfigFactory.load()));
+    Random random = new Random(strategy.ordinal());
+    for (int i = 0; i < SAMPLES; i++) {
+      long key = (long) (Math.pow(random.nextDouble(), 3) * 5_000);
+      policy.record(new TraceEvent(null, 0, Action.READ, key, 1, i));
+    }
+
+    PolicyStats stats = policy.stats();
+    assertThat(stats.hitRate(), is(both(greaterThan(0.0)).and(lessThan(1.0))));
+    assertThat(stats.evictionCount(), is(greaterThan(0L)));
+  }
+
+  @DataProvider(name = "strategies")
+  public Object[][] providesStrategies() {
+    return new Object[][] {
+        { Sample.GUESS }, { Sample.RESERVOIR }, { Sample.SHUFFLE }, { Sample.POOL },
+    };
+  }
+}
@@ -35,7 +35,7 @@ public final class TraceEvent {
   private long timestamp;
   private Action action;
   private String name;
-  private int keyHash;
+  private long keyHash;
   private int weight;
   private long id;
 
@@ -48,14 +48,15 @@ public final class TraceEvent {
    * @param name the name of the cache instance
    * @param id the unique id of the cache instance
    * @param action the action performed
-   * @param keyHash the key's hash code
+   * @param keyHash the key's 64-bit hash
    * @param weight the entry's weight
    * @param timestamp the time
    */
-  public TraceEvent(String name, long id, Action action, int keyHash, int weight, long timestamp) {
+  public TraceEvent(String name, long id, Action action, long keyHash, int weight, long timestamp) {
     this.timestamp = timestamp;
     this.keyHash = keyHash;
     this.action = action;
+    this.weight = weight;
     this.name = name;
     this.id = id;
   }
@@ -102,17 +103,17 @@ public final class TraceEvent {
     this.action = action;
   }
 
-  /** @return the key's hash code */
-  public int keyHash() {
+  /** @return the key's 64-bit hash */
+  public long keyHash() {
     return keyHash;
   }
 
   /**
-   * Specifies the hash code of the key.
+   * Specifies the 64-bit hash of the key, which identifies the key in a trace.
    *
-   * @param keyHash the key's hash code
+   * @param keyHash the key's 64-bit hash
    */
-  public void setKeyHash(int keyHash) {
+  public void setKeyHash(long keyHash) {
     this.keyHash = keyHash;
   }
 
@@ -173,7 +174,7 @@ public final class TraceEvent {
     }
     event.id = Long.parseLong(record[index++]);
     if (event.action != Action.REGISTER) {
-      event.keyHash = Integer.parseInt(record[index++]);
+      event.keyHash = Long.parseLong(record[index++]);
       event.weight = Integer.parseInt(record[index++]);
     }
     event.timestamp = Long.parseLong(record[index++]);
@@ -196,7 +197,7 @@ public final class TraceEvent {
     output.append(Long.toString(id));
     output.append(' ');
     if (action != Action.REGISTER) {
-      output.append(Integer.toString(keyHash));
+      output.append(Long.toString(keyHash));
       output.append(' ');
       output.append(Integer.toString(weight));
       output.append(' ');
@@ -224,7 +225,7 @@ public final class TraceEvent {
     }
     event.id = input.readLong();
     if (event.action != Action.REGISTER) {
-      event.keyHash = input.readInt();
+      event.keyHash = input.readLong();
       event.weight = input.readInt();
     }
     event.timestamp = input.readLong();
@@ -245,7 +246,7 @@ public final class TraceEvent {
     }
     output.writeLong(id);
     if (action != Action.REGISTER) {
-      output.writeInt(keyHash);
+      output.writeLong(keyHash);
       output.writeInt(weight);
     }
     output.writeLong(timestamp);
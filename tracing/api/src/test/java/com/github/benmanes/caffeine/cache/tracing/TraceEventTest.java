@@ -64,11 +64,12 @@ public final class TraceEventTest {
   @Test
   private void construction() {
     TraceEvent first = new TraceEvent(null, random.nextLong(),
-        Action.READ, random.nextInt(), random.nextInt(), random.nextLong());
+        Action.READ, random.nextLong(), random.nextInt(), random.nextLong());
     TraceEvent second = new TraceEvent();
     second.setKeyHash(first.keyHash());
     second.setAction(first.action());
     second.setId(first.id());
+    second.setWeight(first.weight());
     second.setTimestamp(first.timestamp());
     assertEqualEvents(first, second);
   }
@@ -82,7 +83,7 @@ public final class TraceEventTest {
         event = new TraceEvent("test", random.nextLong(), action, 0, 0, 0L);
       } else {
         event = new TraceEvent(null, random.nextLong(),
-            action, random.nextInt(), random.nextInt(), random.nextLong());
+            action, random.nextLong(), random.nextInt(), random.nextLong());
       }
       events.add(new Object[] { event });
     }
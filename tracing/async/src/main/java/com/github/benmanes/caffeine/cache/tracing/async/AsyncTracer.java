@@ -18,48 +18,67 @@ package com.github.benmanes.caffeine.cache.tracing.async;
 import static java.util.Objects.requireNonNull;
 
 import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.util.concurrent.Executor;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
 
 import javax.annotation.concurrent.ThreadSafe;
 
-import com.github.benmanes.caffeine.cache.tracing.TraceEvent;
 import com.github.benmanes.caffeine.cache.tracing.TraceEvent.Action;
 import com.github.benmanes.caffeine.cache.tracing.Tracer;
 import com.github.benmanes.caffeine.cache.tracing.TracerIdGenerator;
-import com.lmax.disruptor.EventTranslatorOneArg;
-import com.lmax.disruptor.dsl.Disruptor;
 import com.lmax.disruptor.util.DaemonThreadFactory;
 
 /**
- * A tracing implementation based on a Disruptor multi-producer/single-consumer event processor.
- * The events are written to a ringbuffer and a background thread writes them in batches to a log
- * file.
+ * A tracing implementation where the events are handed off to a background thread that writes them
+ * in batches to a log file. By default the events are published to a Disruptor ring buffer shared
+ * by all of the application threads. Alternatively each thread can record into its own buffer,
+ * which avoids contending on the shared ring buffer when many cores are recording events. In that
+ * mode a thread's events are written in the order that they were recorded, but the buffers are
+ * drained one after another, so the events of different threads are not ordered by their
+ * timestamps. A consumer that requires a global order should sort a window of events by their
+ * timestamps. The log may be split into a bounded set of files that are rolled over by size or
+ * age, in which case an index file lists the retained files in order.
+ * <p>
+ * A key is recorded by a 64-bit hash so that distinct keys rarely collide in the trace. The hash
+ * is computed by a {@link KeyHasher} that may be replaced by naming its class in a system property.
  *
  * @author ben.manes@gmail.com (Ben Manes)
  */
 @ThreadSafe
 public final class AsyncTracer implements Tracer {
   public static final String TRACING_FILE = "caffeine.tracing.file";
+  public static final String TRACING_MODE = "caffeine.tracing.mode";
   public static final String TRACING_FORMAT = "caffeine.tracing.format";
   public static final String TRACING_BUFFER_SIZE = "caffeine.tracing.bufferSize";
+  public static final String TRACING_FLUSH_INTERVAL = "caffeine.tracing.flushInterval";
+  public static final String TRACING_MAX_FILE_SIZE = "caffeine.tracing.maxFileSize";
+  public static final String TRACING_ROLL_INTERVAL = "caffeine.tracing.rollInterval";
+  public static final String TRACING_MAX_FILES = "caffeine.tracing.maxFiles";
+  public static final String TRACING_KEY_HASHER = "caffeine.tracing.keyHasher";
 
-  final EventTranslatorOneArg<TraceEvent, TraceEvent> translator;
-  final Disruptor<TraceEvent> disruptor;
   final TracerIdGenerator generator;
+  final EventPublisher publisher;
   final ExecutorService executor;
   final LogEventHandler handler;
+  final KeyHasher keyHasher;
 
   /**
    * Creates a tracer using the default configuration with optional system property overrides. This
    * constructor is typically called through a {@link java.util.ServiceLoader}.
    */
   public AsyncTracer() {
-    this(eventHandler(), ringBufferSize(),
-        Executors.newSingleThreadExecutor(DaemonThreadFactory.INSTANCE));
+    this(eventHandler(), Executors.newSingleThreadExecutor(DaemonThreadFactory.INSTANCE));
+  }
+
+  private AsyncTracer(LogEventHandler handler, ExecutorService executor) {
+    this(handler, eventPublisher(handler, executor), executor, keyHasher());
   }
 
   /**
@@ -70,15 +89,18 @@ public final class AsyncTracer implements Tracer {
    * @param ringBufferSize the size of the ring buffer
    * @param executor an {@link Executor} to asynchronously processor events
    */
-  @SuppressWarnings("unchecked")
   public AsyncTracer(LogEventHandler handler, int ringBufferSize, ExecutorService executor) {
-    this.handler = handler;
-    this.executor = executor;
-    this.translator = (event, seq, template) -> event.copyFrom(template);
-    this.disruptor = new Disruptor<>(TraceEvent::new, ringBufferSize, executor);
-    this.disruptor.handleEventsWith(handler);
+    this(handler, new RingBufferPublisher(handler, ringBufferSize, executor),
+        executor, KeyHasher.defaultHasher());
+  }
+
+  AsyncTracer(LogEventHandler handler, EventPublisher publisher,
+      ExecutorService executor, KeyHasher keyHasher) {
     this.generator = new TracerIdGenerator();
-    this.disruptor.start();
+    this.keyHasher = requireNonNull(keyHasher);
+    this.publisher = publisher;
+    this.executor = executor;
+    this.handler = handler;
   }
 
   /**
@@ -88,7 +110,7 @@ public final class AsyncTracer implements Tracer {
    * @throws IOException if this resource cannot be closed
    */
   public void shutdown() throws IOException {
-    disruptor.shutdown();
+    publisher.shutdown();
     executor.shutdown();
     handler.close();
   }
@@ -116,33 +138,96 @@ public final class AsyncTracer implements Tracer {
     publish(null, id, Action.DELETE, key, 0);
   }
 
-  /** Publishes the event onto the ring buffer for asynchronous handling. */
+  /** Publishes the event for asynchronous handling. */
   private void publish(String name, long id, Action action, Object key, int weight) {
-    TraceEvent template = new TraceEvent(name, id, action,
-        (key == null) ? 0 : key.hashCode(), weight, System.nanoTime());
-    disruptor.getRingBuffer().publishEvent(translator, template);
+    long keyHash = (key == null) ? 0L : keyHasher.hash(key);
+    publisher.publish(name, id, action, keyHash, weight, System.nanoTime());
+  }
+
+  /** Returns the event publisher, either the default or specified by a system property. */
+  private static EventPublisher eventPublisher(LogEventHandler handler, ExecutorService executor) {
+    String property = System.getProperty(TRACING_MODE, "ring-buffer").toLowerCase();
+    if (property.equals("ring-buffer")) {
+      return new RingBufferPublisher(handler, bufferSize(), executor);
+    } else if (property.equals("thread-local")) {
+      return new ThreadLocalPublisher(handler, bufferSize(),
+          flushInterval(), TimeUnit.MILLISECONDS, executor);
+    }
+    throw new IllegalStateException("Unknown mode:" + property);
+  }
+
+  /** Returns the key hasher, either the default or the class named by a system property. */
+  private static KeyHasher keyHasher() {
+    String property = System.getProperty(TRACING_KEY_HASHER);
+    if (property == null) {
+      return KeyHasher.defaultHasher();
+    }
+    try {
+      return Class.forName(property).asSubclass(KeyHasher.class).newInstance();
+    } catch (ReflectiveOperationException | ClassCastException e) {
+      throw new IllegalStateException("Unknown key hasher:" + property, e);
+    }
   }
 
   /** Returns the event handler, either the default or specified by a system property. */
   private static LogEventHandler eventHandler() {
     String property = System.getProperty(TRACING_FORMAT, "text").toLowerCase();
     if (property.equals("text")) {
-      return new TextLogEventHandler(filePath());
+      return new TextLogEventHandler(outputStream());
     } else if (property.equals("binary")) {
-      return new BinaryLogEventHandler(filePath());
+      return new BinaryLogEventHandler(outputStream());
     }
     throw new IllegalStateException("Unknown format:" + property);
   }
 
+  /** Returns the log output, which rolls over to new files if a size or age limit is specified. */
+  private static OutputStream outputStream() {
+    long maxFileSize = maxFileSize();
+    long rollInterval = rollInterval();
+    try {
+      if ((maxFileSize > 0) || (rollInterval > 0)) {
+        return new RollingFileOutputStream(filePath(), maxFileSize,
+            rollInterval, TimeUnit.MILLISECONDS, maxFiles());
+      }
+      return Files.newOutputStream(filePath());
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+  }
+
   /** Returns the log file path, either the default or specified by a system property. */
   private static Path filePath() {
     String property = System.getProperty(TRACING_FILE, "caffeine.log");
     return Paths.get(property);
   }
 
-  /** Returns the ring buffer size, either the default or specified by a system property. */
-  private static int ringBufferSize() {
+  /** Returns the buffer size, either the default or specified by a system property. */
+  private static int bufferSize() {
     String property = System.getProperty(TRACING_BUFFER_SIZE, "256");
     return Integer.parseInt(property);
   }
+
+  /** Returns the idle flush interval in milliseconds, or the system property override. */
+  private static long flushInterval() {
+    String property = System.getProperty(TRACING_FLUSH_INTERVAL, "100");
+    return Long.parseLong(property);
+  }
+
+  /** Returns the file size in bytes that triggers a roll over, or zero if not by size. */
+  private static long maxFileSize() {
+    String property = System.getProperty(TRACING_MAX_FILE_SIZE, "0");
+    return Long.parseLong(property);
+  }
+
+  /** Returns the file age in milliseconds that triggers a roll over, or zero if not by age. */
+  private static long rollInterval() {
+    String property = System.getProperty(TRACING_ROLL_INTERVAL, "0");
+    return Long.parseLong(property);
+  }
+
+  /** Returns the number of rolled files to retain, either the default or the system property. */
+  private static int maxFiles() {
+    String property = System.getProperty(TRACING_MAX_FILES, "10");
+    return Integer.parseInt(property);
+  }
 }
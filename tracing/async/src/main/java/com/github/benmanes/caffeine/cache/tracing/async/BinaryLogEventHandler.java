@@ -18,6 +18,7 @@ package com.github.benmanes.caffeine.cache.tracing.async;
 import java.io.BufferedOutputStream;
 import java.io.DataOutputStream;
 import java.io.IOException;
+import java.io.OutputStream;
 import java.io.UncheckedIOException;
 import java.nio.file.Files;
 import java.nio.file.Path;
@@ -33,11 +34,22 @@ import com.github.benmanes.caffeine.cache.tracing.TraceEvent;
  */
 @ThreadSafe
 public final class BinaryLogEventHandler implements LogEventHandler {
+  /** The size of the write buffer, large enough to hold a full batch of binary records. */
+  static final int BUFFER_SIZE = 1 << 16;
+
   final DataOutputStream output;
 
   public BinaryLogEventHandler(Path filePath) {
+    this(newOutputStream(filePath));
+  }
+
+  public BinaryLogEventHandler(OutputStream output) {
+    this.output = new DataOutputStream(new BufferedOutputStream(output, BUFFER_SIZE));
+  }
+
+  private static OutputStream newOutputStream(Path filePath) {
     try {
-      output = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(filePath)));
+      return Files.newOutputStream(filePath);
     } catch (IOException e) {
       throw new UncheckedIOException(e);
     }
@@ -51,6 +63,14 @@ public final class BinaryLogEventHandler implements LogEventHandler {
     }
   }
 
+  @Override
+  public void onBatch(TraceEvent[] events, int count) throws IOException {
+    for (int i = 0; i < count; i++) {
+      events[i].appendBinaryRecord(output);
+    }
+    output.flush();
+  }
+
   @Override
   public void close() throws IOException {
     output.close();
@@ -0,0 +1,48 @@
+/*
+ * Copyright 2015 Ben Manes. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.benmanes.caffeine.cache.tracing.async;
+
+import java.io.IOException;
+
+import com.github.benmanes.caffeine.cache.tracing.TraceEvent.Action;
+
+/**
+ * A strategy for handing off the events recorded by the application threads to the background
+ * thread that writes them to the log.
+ *
+ * @author ben.manes@gmail.com (Ben Manes)
+ */
+interface EventPublisher {
+
+  /**
+   * Publishes the event for asynchronous handling.
+   *
+   * @param name the name of the cache instance, if registering
+   * @param id the unique id of the cache instance
+   * @param action the action performed
+   * @param keyHash the key's 64-bit hash
+   * @param weight the entry's weight
+   * @param timestamp the time
+   */
+  void publish(String name, long id, Action action, long keyHash, int weight, long timestamp);
+
+  /**
+   * Stops accepting new events and blocks until the previously published events were handled.
+   *
+   * @throws IOException if the pending events could not be written
+   */
+  void shutdown() throws IOException;
+}
@@ -0,0 +1,60 @@
+/*
+ * Copyright 2015 Ben Manes. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.benmanes.caffeine.cache.tracing.async;
+
+import javax.annotation.Nonnull;
+
+/**
+ * A function that derives the 64-bit hash that identifies a key in the trace. The hash should be
+ * well distributed and stable across JVM instances so that traces captured by different processes
+ * can be compared and replayed.
+ *
+ * @author ben.manes@gmail.com (Ben Manes)
+ */
+@FunctionalInterface
+public interface KeyHasher {
+
+  /**
+   * Returns the 64-bit hash of the key.
+   *
+   * @param key the key recorded by the cache
+   * @return the hash that identifies the key
+   */
+  long hash(@Nonnull Object key);
+
+  /**
+   * Returns the default hasher, which mixes the key's {@link Object#hashCode()} with the name of
+   * its class so that equal hash codes of different key types are distinguished. A {@link Long}
+   * key uses its full value rather than the folded 32-bit hash code.
+   *
+   * @return the default key hasher
+   */
+  static KeyHasher defaultHasher() {
+    return key -> {
+      long hash = (key instanceof Long)
+          ? ((Long) key).longValue()
+          : ((long) key.getClass().getName().hashCode() << 32) | (key.hashCode() & 0xFFFFFFFFL);
+      return mix(hash);
+    };
+  }
+
+  /** Applies a finalization mix (from MurmurHash3) so that every input bit affects the result. */
+  static long mix(long hash) {
+    hash = (hash ^ (hash >>> 33)) * 0xff51afd7ed558ccdL;
+    hash = (hash ^ (hash >>> 33)) * 0xc4ceb9fe1a85ec53L;
+    return hash ^ (hash >>> 33);
+  }
+}
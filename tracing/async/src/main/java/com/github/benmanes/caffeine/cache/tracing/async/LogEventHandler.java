@@ -16,6 +16,7 @@
 package com.github.benmanes.caffeine.cache.tracing.async;
 
 import java.io.Closeable;
+import java.io.IOException;
 
 import com.github.benmanes.caffeine.cache.tracing.TraceEvent;
 import com.lmax.disruptor.EventHandler;
@@ -25,4 +26,15 @@ import com.lmax.disruptor.EventHandler;
  *
  * @author ben.manes@gmail.com (Ben Manes)
  */
-public interface LogEventHandler extends EventHandler<TraceEvent>, Closeable {}
+public interface LogEventHandler extends EventHandler<TraceEvent>, Closeable {
+
+  /**
+   * Writes the batch of events to the output sink, flushing only after the last event has been
+   * written.
+   *
+   * @param events the array holding the events to write
+   * @param count the number of events, starting from the first index, in the batch
+   * @throws IOException if the output cannot be written
+   */
+  void onBatch(TraceEvent[] events, int count) throws IOException;
+}
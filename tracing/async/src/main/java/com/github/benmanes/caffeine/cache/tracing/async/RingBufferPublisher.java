@@ -0,0 +1,57 @@
+/*
+ * Copyright 2015 Ben Manes. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.benmanes.caffeine.cache.tracing.async;
+
+import java.util.concurrent.ExecutorService;
+
+import javax.annotation.concurrent.ThreadSafe;
+
+import com.github.benmanes.caffeine.cache.tracing.TraceEvent;
+import com.github.benmanes.caffeine.cache.tracing.TraceEvent.Action;
+import com.lmax.disruptor.EventTranslatorOneArg;
+import com.lmax.disruptor.dsl.Disruptor;
+
+/**
+ * A publisher based on a Disruptor multi-producer/single-consumer event processor. The events are
+ * written to a shared ring buffer and a background thread writes them in batches to the handler.
+ *
+ * @author ben.manes@gmail.com (Ben Manes)
+ */
+@ThreadSafe
+final class RingBufferPublisher implements EventPublisher {
+  final EventTranslatorOneArg<TraceEvent, TraceEvent> translator;
+  final Disruptor<TraceEvent> disruptor;
+
+  @SuppressWarnings("unchecked")
+  RingBufferPublisher(LogEventHandler handler, int ringBufferSize, ExecutorService executor) {
+    this.translator = (event, seq, template) -> event.copyFrom(template);
+    this.disruptor = new Disruptor<>(TraceEvent::new, ringBufferSize, executor);
+    this.disruptor.handleEventsWith(handler);
+    this.disruptor.start();
+  }
+
+  @Override
+  public void publish(String name, long id, Action action, long keyHash, int weight,
+      long timestamp) {
+    TraceEvent template = new TraceEvent(name, id, action, keyHash, weight, timestamp);
+    disruptor.getRingBuffer().publishEvent(translator, template);
+  }
+
+  @Override
+  public void shutdown() {
+    disruptor.shutdown();
+  }
+}
@@ -0,0 +1,178 @@
+/*
+ * Copyright 2015 Ben Manes. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.benmanes.caffeine.cache.tracing.async;
+
+import static java.util.Objects.requireNonNull;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+/**
+ * An output stream that writes to a bounded set of log files, rolling over to a new file when the
+ * current one exceeds a size or age threshold. The files are named by appending a sequence number
+ * to the base path and the oldest file is deleted when the maximum number of files is exceeded. An
+ * index file, named by appending {@value #INDEX_SUFFIX} to the base path, lists the retained files
+ * from oldest to newest so that the set can be read back as one logical trace.
+ * <p>
+ * A roll over is only performed when the stream is flushed, which the log handlers do at the end
+ * of a batch, so that a record is never split across files.
+ *
+ * @author ben.manes@gmail.com (Ben Manes)
+ */
+public final class RollingFileOutputStream extends OutputStream {
+  public static final String INDEX_SUFFIX = ".index";
+
+  final long rollIntervalNanos;
+  final Deque<Path> segments;
+  final long maxFileSize;
+  final Path indexPath;
+  final Path basePath;
+  final int maxFiles;
+
+  OutputStream current;
+  long segmentStart;
+  long segmentSize;
+  int sequence;
+
+  /**
+   * Creates a rolling output stream, removing the files of a previous set at the same location.
+   *
+   * @param basePath the path that the log file names are derived from
+   * @param maxFileSize the size in bytes that triggers a roll over, or zero if unbounded
+   * @param rollInterval the file age that triggers a roll over, or zero if unbounded
+   * @param unit the time unit of the roll interval
+   * @param maxFiles the maximum number of files to retain
+   * @throws IOException if the first log file cannot be created
+   */
+  public RollingFileOutputStream(Path basePath, long maxFileSize, long rollInterval,
+      TimeUnit unit, int maxFiles) throws IOException {
+    if ((maxFileSize < 0) || (rollInterval < 0) || (maxFiles < 1)) {
+      throw new IllegalArgumentException();
+    }
+    this.basePath = requireNonNull(basePath);
+    this.rollIntervalNanos = unit.toNanos(rollInterval);
+    this.indexPath = indexPathFor(basePath);
+    this.segments = new ArrayDeque<>();
+    this.maxFileSize = maxFileSize;
+    this.maxFiles = maxFiles;
+
+    if (Files.exists(indexPath)) {
+      for (Path segment : readIndex(indexPath)) {
+        Files.deleteIfExists(segment);
+      }
+    }
+    openSegment();
+  }
+
+  /**
+   * Returns the path of the index file that lists the files of a rolled set.
+   *
+   * @param basePath the path that the log file names are derived from
+   * @return the path of the index file
+   */
+  public static Path indexPathFor(Path basePath) {
+    return basePath.resolveSibling(basePath.getFileName() + INDEX_SUFFIX);
+  }
+
+  /**
+   * Returns the paths of the log files, from oldest to newest, listed in the index file.
+   *
+   * @param indexPath the path to the index file
+   * @return the log files in the order that they were written
+   * @throws IOException if the index file cannot be read
+   */
+  public static List<Path> readIndex(Path indexPath) throws IOException {
+    return Files.readAllLines(indexPath, StandardCharsets.UTF_8).stream()
+        .filter(line -> !line.isEmpty())
+        .map(indexPath::resolveSibling)
+        .collect(Collectors.toList());
+  }
+
+  @Override
+  public void write(int b) throws IOException {
+    current.write(b);
+    segmentSize++;
+  }
+
+  @Override
+  public void write(byte[] b, int off, int len) throws IOException {
+    current.write(b, off, len);
+    segmentSize += len;
+  }
+
+  @Override
+  public void flush() throws IOException {
+    current.flush();
+    if (shouldRoll()) {
+      current.close();
+      openSegment();
+    }
+  }
+
+  @Override
+  public void close() throws IOException {
+    current.close();
+  }
+
+  /** Returns if the current file has reached either the size or age threshold. */
+  private boolean shouldRoll() {
+    if (segmentSize == 0) {
+      return false;
+    } else if ((maxFileSize > 0) && (segmentSize >= maxFileSize)) {
+      return true;
+    }
+    return (rollIntervalNanos > 0) && ((System.nanoTime() - segmentStart) >= rollIntervalNanos);
+  }
+
+  /** Starts writing to a new file, deleting the oldest files if the limit is exceeded. */
+  private void openSegment() throws IOException {
+    Path segment = basePath.resolveSibling(basePath.getFileName() + "." + (++sequence));
+    current = Files.newOutputStream(segment);
+    segmentStart = System.nanoTime();
+    segmentSize = 0;
+
+    segments.add(segment);
+    while (segments.size() > maxFiles) {
+      Files.deleteIfExists(segments.remove());
+    }
+    writeIndex();
+  }
+
+  /** Replaces the index file with the current list of retained files. */
+  private void writeIndex() throws IOException {
+    List<String> lines = segments.stream()
+        .map(segment -> segment.getFileName().toString())
+        .collect(Collectors.toList());
+    Path temp = indexPath.resolveSibling(indexPath.getFileName() + ".tmp");
+    Files.write(temp, lines, StandardCharsets.UTF_8);
+    try {
+      Files.move(temp, indexPath,
+          StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    } catch (AtomicMoveNotSupportedException e) {
+      Files.move(temp, indexPath, StandardCopyOption.REPLACE_EXISTING);
+    }
+  }
+}
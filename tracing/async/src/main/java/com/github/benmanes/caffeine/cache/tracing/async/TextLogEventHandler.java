@@ -17,7 +17,10 @@ package com.github.benmanes.caffeine.cache.tracing.async;
 
 import java.io.BufferedWriter;
 import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
 import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
 
@@ -32,11 +35,23 @@ import com.github.benmanes.caffeine.cache.tracing.TraceEvent;
  */
 @ThreadSafe
 public final class TextLogEventHandler implements LogEventHandler {
+  /** The buffer size, chosen so that a batch is typically written in a single call to the file. */
+  static final int BUFFER_SIZE = 1 << 16;
+
   final BufferedWriter writer;
 
   public TextLogEventHandler(Path filePath) {
+    this(newOutputStream(filePath));
+  }
+
+  public TextLogEventHandler(OutputStream output) {
+    this.writer = new BufferedWriter(
+        new OutputStreamWriter(output, StandardCharsets.UTF_8), BUFFER_SIZE);
+  }
+
+  private static OutputStream newOutputStream(Path filePath) {
     try {
-      this.writer = Files.newBufferedWriter(filePath);
+      return Files.newOutputStream(filePath);
     } catch (IOException e) {
       throw new UncheckedIOException(e);
     }
@@ -51,6 +66,15 @@ public final class TextLogEventHandler implements LogEventHandler {
     }
   }
 
+  @Override
+  public void onBatch(TraceEvent[] events, int count) throws IOException {
+    for (int i = 0; i < count; i++) {
+      events[i].appendTextRecord(writer);
+      writer.write(System.lineSeparator());
+    }
+    writer.flush();
+  }
+
   @Override
   public void close() throws IOException {
     writer.close();
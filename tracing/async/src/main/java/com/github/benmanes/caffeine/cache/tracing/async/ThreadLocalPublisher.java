@@ -0,0 +1,251 @@
+/*
+ * Copyright 2015 Ben Manes. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.benmanes.caffeine.cache.tracing.async;
+
+import static java.util.Objects.requireNonNull;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.Iterator;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLongFieldUpdater;
+import java.util.concurrent.locks.LockSupport;
+
+import javax.annotation.concurrent.ThreadSafe;
+
+import com.github.benmanes.caffeine.cache.tracing.TraceEvent;
+import com.github.benmanes.caffeine.cache.tracing.TraceEvent.Action;
+
+/**
+ * A publisher where each application thread records into its own single-producer buffer, so that
+ * recording an event does not contend with other threads to claim a slot in a shared ring buffer.
+ * <p>
+ * The buffer is split into two halves and the producer signals the background thread when it
+ * fills a half, which then drains it to the handler as a single batch. The background thread also
+ * wakes up periodically to drain the buffers of threads that record events infrequently, and
+ * discards a buffer after its owning thread has terminated.
+ * <p>
+ * The events of a thread are written in the order that they were recorded. The buffers are drained
+ * one after another rather than merged, so the log interleaves the threads by batch and is not
+ * ordered by timestamp across threads.
+ *
+ * @author ben.manes@gmail.com (Ben Manes)
+ */
+@ThreadSafe
+final class ThreadLocalPublisher implements EventPublisher, Runnable {
+  final Queue<ThreadBuffer> buffers;
+  final ThreadLocal<ThreadBuffer> local;
+  final LogEventHandler handler;
+  final long flushIntervalNanos;
+  final Future<?> consumer;
+  final TraceEvent[] batch;
+  final int bufferSize;
+
+  volatile Thread consumerThread;
+  volatile boolean shutdown;
+
+  /**
+   * Creates a publisher that drains the thread-local buffers on the executor.
+   *
+   * @param handler the event handler that writes to a log
+   * @param bufferSize the size of each thread's buffer, which must be a power of two
+   * @param flushInterval the maximum delay before an idle thread's events are written
+   * @param unit the time unit of the flush interval
+   * @param executor the {@link ExecutorService} to asynchronously process events
+   */
+  ThreadLocalPublisher(LogEventHandler handler, int bufferSize,
+      long flushInterval, TimeUnit unit, ExecutorService executor) {
+    if ((bufferSize < 2) || (Integer.bitCount(bufferSize) != 1)) {
+      throw new IllegalArgumentException("bufferSize must be a power of 2");
+    }
+    this.flushIntervalNanos = unit.toNanos(flushInterval);
+    this.handler = requireNonNull(handler);
+    this.buffers = new ConcurrentLinkedQueue<>();
+    this.bufferSize = bufferSize;
+
+    this.batch = new TraceEvent[bufferSize];
+    for (int i = 0; i < batch.length; i++) {
+      batch[i] = new TraceEvent();
+    }
+    this.local = ThreadLocal.withInitial(() -> {
+      ThreadBuffer buffer = new ThreadBuffer(Thread.currentThread(), bufferSize);
+      buffers.add(buffer);
+      return buffer;
+    });
+    this.consumer = executor.submit(this);
+  }
+
+  @Override
+  public void publish(String name, long id, Action action, long keyHash, int weight,
+      long timestamp) {
+    ThreadBuffer buffer = local.get();
+    long tail = buffer.tail;
+    if (((tail - buffer.cachedHead) == bufferSize) && !awaitCapacity(buffer, tail)) {
+      return;
+    }
+
+    int index = (int) tail & buffer.mask;
+    buffer.timestamps[index] = timestamp;
+    buffer.keyHashes[index] = keyHash;
+    buffer.actions[index] = action;
+    buffer.weights[index] = weight;
+    buffer.names[index] = name;
+    buffer.ids[index] = id;
+    ThreadBuffer.TAIL.lazySet(buffer, tail + 1);
+
+    if (((tail + 1) & buffer.halfMask) == 0) {
+      LockSupport.unpark(consumerThread);
+    }
+  }
+
+  /**
+   * Waits for the background thread to free space in the full buffer.
+   *
+   * @return if the event can be written, or false if the publisher was shutdown
+   */
+  private boolean awaitCapacity(ThreadBuffer buffer, long tail) {
+    for (;;) {
+      buffer.cachedHead = buffer.head;
+      if ((tail - buffer.cachedHead) < bufferSize) {
+        return true;
+      } else if (shutdown) {
+        return false;
+      }
+      LockSupport.unpark(consumerThread);
+      Thread.yield();
+    }
+  }
+
+  @Override
+  public void run() {
+    consumerThread = Thread.currentThread();
+    try {
+      while (!shutdown) {
+        if (!drainBuffers()) {
+          LockSupport.parkNanos(this, flushIntervalNanos);
+        }
+      }
+      drainBuffers();
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    } finally {
+      shutdown = true;
+    }
+  }
+
+  /**
+   * Writes the pending events in all of the thread buffers to the handler.
+   *
+   * @return if a buffer had at least half of its capacity pending, so it should be drained again
+   *         without waiting
+   */
+  boolean drainBuffers() throws IOException {
+    boolean busy = false;
+    for (Iterator<ThreadBuffer> i = buffers.iterator(); i.hasNext();) {
+      ThreadBuffer buffer = i.next();
+      boolean terminated = !buffer.owner.isAlive();
+      busy |= (drain(buffer) > buffer.halfMask);
+      if (terminated && (buffer.head == buffer.tail)) {
+        i.remove();
+      }
+    }
+    return busy;
+  }
+
+  /** Writes the buffer's pending events to the handler and returns the number written. */
+  private int drain(ThreadBuffer buffer) throws IOException {
+    long head = buffer.head;
+    int count = (int) (buffer.tail - head);
+    if (count == 0) {
+      return 0;
+    }
+    for (int i = 0; i < count; i++) {
+      int index = (int) (head + i) & buffer.mask;
+      TraceEvent event = batch[i];
+      event.setTimestamp(buffer.timestamps[index]);
+      event.setKeyHash(buffer.keyHashes[index]);
+      event.setAction(buffer.actions[index]);
+      event.setWeight(buffer.weights[index]);
+      event.setName(buffer.names[index]);
+      event.setId(buffer.ids[index]);
+      buffer.names[index] = null;
+    }
+    handler.onBatch(batch, count);
+    ThreadBuffer.HEAD.lazySet(buffer, head + count);
+    return count;
+  }
+
+  @Override
+  public void shutdown() throws IOException {
+    shutdown = true;
+    LockSupport.unpark(consumerThread);
+    try {
+      consumer.get();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    } catch (ExecutionException e) {
+      if (e.getCause() instanceof UncheckedIOException) {
+        throw ((UncheckedIOException) e.getCause()).getCause();
+      }
+      throw new IOException(e.getCause());
+    }
+  }
+
+  /**
+   * A single-producer/single-consumer ring buffer of the events recorded by a thread. The events
+   * are stored as columns so that the producer only performs a few primitive stores.
+   */
+  static final class ThreadBuffer {
+    static final AtomicLongFieldUpdater<ThreadBuffer> HEAD =
+        AtomicLongFieldUpdater.newUpdater(ThreadBuffer.class, "head");
+    static final AtomicLongFieldUpdater<ThreadBuffer> TAIL =
+        AtomicLongFieldUpdater.newUpdater(ThreadBuffer.class, "tail");
+
+    final long[] timestamps;
+    final Action[] actions;
+    final long[] keyHashes;
+    final String[] names;
+    final int[] weights;
+    final Thread owner;
+    final int halfMask;
+    final long[] ids;
+    final int mask;
+
+    /** The next index to read, written by the consumer. */
+    volatile long head;
+    /** The next index to write, written by the producer. */
+    volatile long tail;
+    /** The producer's last observed value of the head. */
+    long cachedHead;
+
+    ThreadBuffer(Thread owner, int bufferSize) {
+      this.timestamps = new long[bufferSize];
+      this.actions = new Action[bufferSize];
+      this.keyHashes = new long[bufferSize];
+      this.names = new String[bufferSize];
+      this.weights = new int[bufferSize];
+      this.halfMask = (bufferSize / 2) - 1;
+      this.ids = new long[bufferSize];
+      this.mask = bufferSize - 1;
+      this.owner = owner;
+    }
+  }
+}
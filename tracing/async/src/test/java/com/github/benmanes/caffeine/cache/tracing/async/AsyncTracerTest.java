@@ -15,6 +15,7 @@
  */
 package com.github.benmanes.caffeine.cache.tracing.async;
 
+import static java.util.stream.Collectors.toList;
 import static org.hamcrest.MatcherAssert.assertThat;
 import static org.hamcrest.Matchers.instanceOf;
 import static org.hamcrest.Matchers.is;
@@ -24,14 +25,23 @@ import java.io.IOException;
 import java.io.UncheckedIOException;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.LongStream;
 
 import org.testng.annotations.BeforeClass;
 import org.testng.annotations.DataProvider;
 import org.testng.annotations.Test;
 
 import com.github.benmanes.caffeine.ConcurrentTestHarness;
+import com.github.benmanes.caffeine.cache.tracing.TraceEvent;
+import com.github.benmanes.caffeine.cache.tracing.TraceEvent.Action;
 import com.github.benmanes.caffeine.cache.tracing.Tracer;
 import com.google.common.jimfs.Jimfs;
 import com.lmax.disruptor.util.DaemonThreadFactory;
@@ -42,12 +52,14 @@ import com.lmax.disruptor.util.DaemonThreadFactory;
 public final class AsyncTracerTest {
   Path badPath = Jimfs.newFileSystem().getPath("\\a/b");
   ExecutorService executor;
+  Path batchedFilePath;
   Path filePath;
 
   @BeforeClass
   public void beforeClqss() throws IOException {
     executor = Executors.newSingleThreadExecutor(DaemonThreadFactory.INSTANCE);
     filePath = Jimfs.newFileSystem().getPath("caffeine.log");
+    batchedFilePath = Jimfs.newFileSystem().getPath("caffeine-batched.log");
     System.setProperty(AsyncTracer.TRACING_FILE,
         Files.createTempFile("caffiene", ".log").toString());
   }
@@ -59,7 +71,7 @@ public final class AsyncTracerTest {
   }
 
   @Test(dataProvider = "tracer")
-  public void publishEvents(AsyncTracer tracer, boolean plainText) throws Exception {
+  public void publishEvents(AsyncTracer tracer, Path path, boolean plainText) throws Exception {
     ConcurrentTestHarness.timeTasks(10, () -> {
       for (int i = 0; i < 100; i++) {
         tracer.register(Integer.toString(i));
@@ -70,7 +82,7 @@ public final class AsyncTracerTest {
     });
     tracer.shutdown();
     if (plainText) {
-      assertThat(Files.lines(filePath).count(), is(4000L));
+      assertThat(Files.lines(path).count(), is(4000L));
     }
   }
 
@@ -80,6 +92,80 @@ public final class AsyncTracerTest {
       assertThat(new AsyncTracer().handler, is(instanceOf(eventHandlerClass))));
   }
 
+  @Test(dataProvider = "modes")
+  public void modes(String mode, Class<?> publisherClass) throws IOException {
+    runWithProperty(AsyncTracer.TRACING_MODE, mode, () -> {
+      AsyncTracer tracer = new AsyncTracer();
+      assertThat(tracer.publisher, is(instanceOf(publisherClass)));
+      try {
+        tracer.shutdown();
+      } catch (IOException e) {
+        throw new UncheckedIOException(e);
+      }
+    });
+  }
+
+  @Test
+  public void threadLocal_perThreadOrder() throws IOException {
+    int threads = 4;
+    int events = 1_000;
+    RecordingEventHandler handler = new RecordingEventHandler();
+    ExecutorService executor = Executors.newSingleThreadExecutor(DaemonThreadFactory.INSTANCE);
+    EventPublisher publisher = new ThreadLocalPublisher(
+        handler, 16, 1, TimeUnit.MILLISECONDS, executor);
+    AtomicInteger ids = new AtomicInteger();
+    ConcurrentTestHarness.timeTasks(threads, () -> {
+      long id = ids.getAndIncrement();
+      for (int i = 0; i < events; i++) {
+        publisher.publish("test", id, Action.READ, 0L, 1, i);
+      }
+    });
+    publisher.shutdown();
+    executor.shutdown();
+
+    assertThat(handler.timestamps.size(), is(threads));
+    for (List<Long> timestamps : handler.timestamps.values()) {
+      assertThat(timestamps, is(LongStream.range(0, events).boxed().collect(toList())));
+    }
+  }
+
+  @Test(expectedExceptions = IllegalStateException.class)
+  public void badMode() {
+    runWithProperty(AsyncTracer.TRACING_MODE, "carrier-pigeon", () -> new AsyncTracer());
+  }
+
+  @Test(expectedExceptions = IllegalArgumentException.class)
+  public void badBufferSize_threadLocal() {
+    new ThreadLocalPublisher(new TextLogEventHandler(filePath), 100, 1, TimeUnit.SECONDS, executor);
+  }
+
+  @Test
+  public void keyHasher_default() {
+    KeyHasher hasher = KeyHasher.defaultHasher();
+    assertThat(hasher.hash(1), is(not(hasher.hash("\u0001"))));
+    assertThat(hasher.hash(1L), is(not(hasher.hash(1L << 32))));
+    assertThat(hasher.hash("a"), is(hasher.hash(new String("a"))));
+  }
+
+  @Test
+  public void keyHasher_custom() throws IOException {
+    runWithProperty(AsyncTracer.TRACING_KEY_HASHER, IdentityKeyHasher.class.getName(), () -> {
+      AsyncTracer tracer = new AsyncTracer();
+      assertThat(tracer.keyHasher, is(instanceOf(IdentityKeyHasher.class)));
+      try {
+        tracer.shutdown();
+      } catch (IOException e) {
+        throw new UncheckedIOException(e);
+      }
+    });
+  }
+
+  @Test(expectedExceptions = IllegalStateException.class)
+  public void badKeyHasher() {
+    String className = String.class.getName();
+    runWithProperty(AsyncTracer.TRACING_KEY_HASHER, className, () -> new AsyncTracer());
+  }
+
   @Test(expectedExceptions = UncheckedIOException.class)
   public void badFilePath_text() throws IOException {
     new TextLogEventHandler(badPath).close();
@@ -96,22 +182,68 @@ public final class AsyncTracerTest {
   }
 
   private static void runWithFormat(String format, Runnable action) {
-    System.setProperty(AsyncTracer.TRACING_FORMAT, format);
+    runWithProperty(AsyncTracer.TRACING_FORMAT, format, action);
+  }
+
+  private static void runWithProperty(String key, String value, Runnable action) {
+    System.setProperty(key, value);
     try {
       action.run();
     } finally {
-      System.getProperties().remove(AsyncTracer.TRACING_FORMAT);
+      System.getProperties().remove(key);
     }
   }
 
   @DataProvider(name = "tracer")
   public Object[][] providesTracer() {
     return new Object[][] {
-        { new AsyncTracer(new TextLogEventHandler(filePath), 64, executor), true },
-        { new AsyncTracer(new BinaryLogEventHandler(filePath), 64, executor), false },
+        { new AsyncTracer(new TextLogEventHandler(filePath), 64, executor), filePath, true },
+        { new AsyncTracer(new BinaryLogEventHandler(filePath), 64, executor), filePath, false },
+        { threadLocalTracer(new TextLogEventHandler(batchedFilePath)), batchedFilePath, true },
+    };
+  }
+
+  private static AsyncTracer threadLocalTracer(LogEventHandler handler) {
+    ExecutorService executor = Executors.newSingleThreadExecutor(DaemonThreadFactory.INSTANCE);
+    EventPublisher publisher = new ThreadLocalPublisher(
+        handler, 16, 10, TimeUnit.MILLISECONDS, executor);
+    return new AsyncTracer(handler, publisher, executor, KeyHasher.defaultHasher());
+  }
+
+  @DataProvider(name = "modes")
+  public Object[][] providesModes() {
+    return new Object[][] {
+        { "ring-buffer", RingBufferPublisher.class },
+        { "thread-local", ThreadLocalPublisher.class },
     };
   }
 
+  /** Records the timestamps of the events written for each id, in the order written. */
+  static final class RecordingEventHandler implements LogEventHandler {
+    final Map<Long, List<Long>> timestamps = new HashMap<>();
+
+    @Override
+    public void onEvent(TraceEvent event, long sequence, boolean endOfBatch) {
+      timestamps.computeIfAbsent(event.id(), id -> new ArrayList<>()).add(event.timestamp());
+    }
+
+    @Override
+    public void onBatch(TraceEvent[] events, int count) {
+      for (int i = 0; i < count; i++) {
+        onEvent(events[i], i, (i + 1) == count);
+      }
+    }
+
+    @Override
+    public void close() {}
+  }
+
+  public static final class IdentityKeyHasher implements KeyHasher {
+    @Override public long hash(Object key) {
+      return System.identityHashCode(key);
+    }
+  }
+
   @DataProvider(name = "formats")
   public Object[][] providesFormats() {
     return new Object[][] {